@@ -17,18 +17,35 @@
 package dev.nishisan.keycloak.admin.client;
 
 import dev.nishisan.keycloak.admin.client.auth.KeyCloakOAuthClientManager;
+import dev.nishisan.keycloak.admin.client.bulk.BulkRoleManager;
+import dev.nishisan.keycloak.admin.client.bulk.BulkSessionRevoker;
+import dev.nishisan.keycloak.admin.client.bulk.BulkUserImporter;
+import dev.nishisan.keycloak.admin.client.bulk.RoleMappingQueue;
+import dev.nishisan.keycloak.admin.client.cache.GroupTreeCache;
+import dev.nishisan.keycloak.admin.client.cache.RealmReplica;
+import dev.nishisan.keycloak.admin.client.cache.RoleGraphCache;
 import dev.nishisan.keycloak.admin.client.config.SSOConfig;
+import dev.nishisan.keycloak.admin.client.export.RealmExporter;
+import dev.nishisan.keycloak.admin.client.http.ClientWarmUp;
+import dev.nishisan.keycloak.admin.client.http.NodeBalancer;
+import dev.nishisan.keycloak.admin.client.http.RequestScheduler;
+import dev.nishisan.keycloak.admin.client.management.AdminEventManager;
+import dev.nishisan.keycloak.admin.client.management.GroupManager;
 import dev.nishisan.keycloak.admin.client.management.RealmManager;
+import dev.nishisan.keycloak.admin.client.management.SessionManager;
 import dev.nishisan.keycloak.admin.client.management.UserManager;
+import dev.nishisan.keycloak.admin.client.sync.UserReconciler;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
+import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import org.slf4j.Logger;
@@ -46,25 +63,68 @@ public class KeycloakAdminClient {
     private OkHttpClient httpClient;
     private UserManager userManager;
     private RealmManager realmManager;
+    private GroupManager groupManager;
+    private SessionManager sessionManager;
+    private BulkSessionRevoker bulkSessionRevoker;
+    private BulkUserImporter bulkUserImporter;
+    private AdminEventManager adminEventManager;
+    private BulkRoleManager bulkRoleManager;
+    private RealmExporter realmExporter;
+    private UserReconciler userReconciler;
+    private NodeBalancer nodeBalancer;
+    private final RequestScheduler requestScheduler;
     private final Logger logger = LoggerFactory.getLogger(KeycloakAdminClient.class);
 
     public KeycloakAdminClient(SSOConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * Client whose admin calls share the slots of a scheduler with the
+     * clients of other realms, using {@link SSOConfig#getSchedulerWeight()}
+     * and {@link SSOConfig#getSchedulerMaxConcurrent()} for this realm
+     *
+     * @param config
+     * @param requestScheduler the shared scheduler, may be null, in which case
+     * one of its own is built when {@link SSOConfig#getMaxConcurrentRequests()}
+     * is set
+     */
+    public KeycloakAdminClient(SSOConfig config, RequestScheduler requestScheduler) {
         this.config = config;
+        if (requestScheduler == null && config.getMaxConcurrentRequests() > 0) {
+            requestScheduler = new RequestScheduler(config.getMaxConcurrentRequests());
+        }
+        this.requestScheduler = requestScheduler;
         this.tokenManager = new KeyCloakOAuthClientManager(config);
         this.initHttpClient();
         this.initManagers();
+        if (config.isWarmUp()) {
+            this.warmUp();
+        }
     }
 
     public KeycloakAdminClient(String clientId, String clientSecret, String realm, String baseUrl) {
         this.config = new SSOConfig(clientId, clientSecret, realm, baseUrl);
+        this.requestScheduler = null;
         this.tokenManager = new KeyCloakOAuthClientManager(config);
         this.initHttpClient();
         this.initManagers();
+        if (config.isWarmUp()) {
+            this.warmUp();
+        }
     }
 
     private void initManagers() {
         this.userManager = new UserManager(config, httpClient);
         this.realmManager = new RealmManager(config,httpClient);
+        this.groupManager = new GroupManager(config, httpClient);
+        this.sessionManager = new SessionManager(config, httpClient);
+        this.adminEventManager = new AdminEventManager(config, httpClient);
+        this.bulkRoleManager = new BulkRoleManager(userManager, realmManager);
+        this.bulkSessionRevoker = new BulkSessionRevoker(sessionManager);
+        this.bulkUserImporter = new BulkUserImporter(userManager);
+        this.realmExporter = new RealmExporter(userManager, realmManager);
+        this.userReconciler = new UserReconciler(userManager, realmManager);
     }
 
     public KeyCloakOAuthClientManager getTokenManager() {
@@ -97,7 +157,45 @@ public class KeycloakAdminClient {
             // Create an ssl socket factory with our all-trusting manager
             final SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
 
-            this.httpClient = new OkHttpClient.Builder().addInterceptor((chain) -> {
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                    .sslSocketFactory(sslSocketFactory, (X509TrustManager) trustAllCerts[0])
+                    //
+                    // Set um hostNameVerifier para aceitar qualquer relação DOMAIN/Certificado
+                    //
+                    .hostnameVerifier(new HostnameVerifier() {
+                        @Override
+                        public boolean verify(String hostname, SSLSession session) {
+                            return true;
+                        }
+                    })
+                    .retryOnConnectionFailure(true);
+
+            if (config.isWarmUp()) {
+                //
+                // Room for the pre-opened connections, the default keeps 5 idle
+                //
+                int nodes = config.isMultiNode() ? config.getNodeUrls().size() : 1;
+                int idle = Math.max(5, nodes * config.getWarmUpConnections());
+                builder.connectionPool(new ConnectionPool(idle, 5, TimeUnit.MINUTES));
+            }
+
+            if (config.isMultiNode()) {
+                //
+                // The probe client shares the pool but skips the auth interceptor
+                //
+                this.nodeBalancer = new NodeBalancer(config, builder.build());
+                this.tokenManager.setNodeBalancer(this.nodeBalancer);
+            }
+
+            if (this.requestScheduler != null) {
+                //
+                // First in the chain, so queued calls hold neither a token refresh nor a node
+                //
+                this.requestScheduler.configure(config.getRealm(), config.getSchedulerWeight(), config.getSchedulerMaxConcurrent());
+                builder.addInterceptor(this.requestScheduler.interceptor(config.getRealm()));
+            }
+
+            builder.addInterceptor((chain) -> {
                 Request original = chain.request();
 
                 /**
@@ -123,24 +221,31 @@ public class KeycloakAdminClient {
                 }
                 logger.debug("Done Dumping");
                 return chain.proceed(newRequest);
-            }).sslSocketFactory(sslSocketFactory, (X509TrustManager) trustAllCerts[0])
-                    //
-                    // Set um hostNameVerifier para aceitar qualquer relação DOMAIN/Certificado
-                    //
-                    .hostnameVerifier(new HostnameVerifier() {
-                        @Override
-                        public boolean verify(String hostname, SSLSession session) {
-                            return true;
-                        }
-                    })
-                    .retryOnConnectionFailure(true)
-                    .build();
+            });
+
+            if (this.nodeBalancer != null) {
+                builder.addInterceptor(this.nodeBalancer);
+            }
+            this.httpClient = builder.build();
 
         } catch (KeyManagementException | NoSuchAlgorithmException ex) {
             logger.error("Failed to Set SSL Context", ex);
         }
     }
 
+    /**
+     * Gets the token, resolves DNS and opens pooled connections to every node
+     * in parallel. Called by the constructor when
+     * {@link SSOConfig#isWarmUp()} is set, may also be called later (for
+     * example before a burst of calls).
+     *
+     * @return true if the warm-up finished within
+     * {@link SSOConfig#getWarmUpTimeoutMs()}
+     */
+    public final boolean warmUp() {
+        return new ClientWarmUp(config, tokenManager, httpClient).run();
+    }
+
     public UserManager getUserManager() {
         return this.userManager;
     }
@@ -149,4 +254,107 @@ public class KeycloakAdminClient {
         return this.realmManager;
     }
 
+    public GroupManager getGroupManager() {
+        return this.groupManager;
+    }
+
+    /**
+     * Creates a lazily filled cache of the group tree
+     *
+     * @param ttlMs how long a group or a child list is trusted
+     * @return a new, empty cache
+     */
+    public GroupTreeCache newGroupTreeCache(long ttlMs) {
+        return new GroupTreeCache(groupManager, ttlMs, 100);
+    }
+
+    public SessionManager getSessionManager() {
+        return this.sessionManager;
+    }
+
+    public AdminEventManager getAdminEventManager() {
+        return this.adminEventManager;
+    }
+
+    /**
+     * Creates a local replica of the realm users and role mappings, call
+     * {@link RealmReplica#load()} to fill it
+     *
+     * @return a new, empty replica
+     */
+    public RealmReplica newRealmReplica() {
+        return new RealmReplica(userManager, realmManager);
+    }
+
+    /**
+     * Creates a cache of the realm role graph, call
+     * {@link RoleGraphCache#load()} to fill it
+     *
+     * @return a new, empty cache
+     */
+    public RoleGraphCache newRoleGraphCache() {
+        return new RoleGraphCache(realmManager);
+    }
+
+    /**
+     * Creates a write-behind queue for realm role mappings, call
+     * {@link RoleMappingQueue#shutdown(long)} to send what is pending
+     *
+     * @param windowMs how long changes of a user are held before being sent
+     * @param maxPendingUsers users held at once before callers block
+     * @param parallelism number of users flushed concurrently
+     * @return a new queue
+     */
+    public RoleMappingQueue newRoleMappingQueue(long windowMs, int maxPendingUsers, int parallelism) {
+        return new RoleMappingQueue(userManager, windowMs, maxPendingUsers, parallelism);
+    }
+
+    public BulkRoleManager getBulkRoleManager() {
+        return this.bulkRoleManager;
+    }
+
+    public BulkUserImporter getBulkUserImporter() {
+        return this.bulkUserImporter;
+    }
+
+    public BulkSessionRevoker getBulkSessionRevoker() {
+        return this.bulkSessionRevoker;
+    }
+
+    public RealmExporter getRealmExporter() {
+        return this.realmExporter;
+    }
+
+    public UserReconciler getUserReconciler() {
+        return this.userReconciler;
+    }
+
+    /**
+     * The node balancer, only present when more than one node url is
+     * configured
+     *
+     * @return the balancer or null
+     */
+    public NodeBalancer getNodeBalancer() {
+        return this.nodeBalancer;
+    }
+
+    /**
+     * @return the shared scheduler, or null when the client was built without
+     * one
+     */
+    public RequestScheduler getRequestScheduler() {
+        return this.requestScheduler;
+    }
+
+    /**
+     * Stops the token refresh and the node health probes
+     */
+    public void shutdown() {
+        this.tokenManager.shutdown();
+        if (this.nodeBalancer != null) {
+            this.nodeBalancer.shutdown();
+        }
+    }
+
 }
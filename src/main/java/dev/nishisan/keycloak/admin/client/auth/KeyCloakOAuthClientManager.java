@@ -19,6 +19,7 @@ package dev.nishisan.keycloak.admin.client.auth;
 import com.google.api.client.auth.oauth2.ClientCredentialsTokenRequest;
 import com.google.api.client.auth.oauth2.RefreshTokenRequest;
 import com.google.api.client.auth.oauth2.TokenResponse;
+import com.google.api.client.auth.oauth2.TokenResponseException;
 import com.google.api.client.http.BasicAuthentication;
 import com.google.api.client.http.GenericUrl;
 import com.google.api.client.http.javanet.NetHttpTransport;
@@ -28,6 +29,8 @@ import dev.nishisan.keycloak.admin.client.config.SSOConfig;
 import dev.nishisan.keycloak.admin.client.events.ITokenEventListener;
 import dev.nishisan.keycloak.admin.client.events.SafeEventListener;
 import dev.nishisan.keycloak.admin.client.http.CustomHttpRequestInitializer;
+import dev.nishisan.keycloak.admin.client.http.NodeBalancer;
+import dev.nishisan.keycloak.admin.client.jfr.TokenEvent;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
@@ -50,16 +53,33 @@ public class KeyCloakOAuthClientManager {
 
     private final SSOConfig config;
     private final JsonFactory JSON_FACTORY = new GsonFactory();
+    /**
+     * Shared so token requests reuse the keep-alive connection
+     */
+    private final NetHttpTransport transport = new NetHttpTransport();
     private ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
     private TokenResponseWrapper currentToken;
     private Map<String, SafeEventListener> listeners = new ConcurrentHashMap<>();
     private final Logger logger = LoggerFactory.getLogger(KeyCloakOAuthClientManager.class);
     private AtomicBoolean runing = new AtomicBoolean(true);
+    private volatile NodeBalancer nodeBalancer;
 
     public KeyCloakOAuthClientManager(SSOConfig config) {
         this.config = config;
     }
 
+    /**
+     * Sends the token requests to the nodes picked by the balancer instead of
+     * {@link SSOConfig#getBaseUrl()}, so a node that is down does not stop
+     * the token from being issued
+     *
+     * @param nodeBalancer the balancer of the admin calls, null to use the
+     * base URL
+     */
+    public void setNodeBalancer(NodeBalancer nodeBalancer) {
+        this.nodeBalancer = nodeBalancer;
+    }
+
     /**
      * Get the Admin Client Token
      *
@@ -84,19 +104,39 @@ public class KeyCloakOAuthClientManager {
                 return this.currentToken;
             }
         }
-        //
-        // Issue a new Token
-        //
-        GenericUrl url = new GenericUrl(this.config.getTokenUrl());
-        ClientCredentialsTokenRequest clientTokenRequest
-                = new ClientCredentialsTokenRequest(new NetHttpTransport(),
-                        JSON_FACTORY, url);
-        clientTokenRequest.setGrantType("client_credentials");
-        clientTokenRequest.setClientAuthentication(new BasicAuthentication(config.getClientId(), config.getClientSecret()));
-        clientTokenRequest.setRequestInitializer(new CustomHttpRequestInitializer(this.config.getExtraHeaders()));
-        TokenResponse tokenResponse = clientTokenRequest.execute();
+        return this.issueToken();
+    }
+
+    /**
+     * Issues a new token with the client credentials grant and schedules its
+     * renewal
+     *
+     * @return
+     * @throws IOException
+     */
+    private TokenResponseWrapper issueToken() throws IOException {
+        TokenEvent event = new TokenEvent(TokenEvent.GRANT);
+        event.begin();
+        TokenResponse tokenResponse;
+        try {
+            tokenResponse = this.send(base -> {
+                GenericUrl url = new GenericUrl(this.config.getTokenUrl(base));
+                ClientCredentialsTokenRequest clientTokenRequest
+                        = new ClientCredentialsTokenRequest(this.transport,
+                                JSON_FACTORY, url);
+                clientTokenRequest.setGrantType("client_credentials");
+                clientTokenRequest.setClientAuthentication(new BasicAuthentication(config.getClientId(), config.getClientSecret()));
+                clientTokenRequest.setRequestInitializer(new CustomHttpRequestInitializer(this.config.getExtraHeaders()));
+                return clientTokenRequest.execute();
+            });
+        } catch (IOException | RuntimeException ex) {
+            event.complete(ex);
+            throw ex;
+        }
+        event.complete(null);
 
         TokenResponseWrapper response = new TokenResponseWrapper(tokenResponse);
+        this.currentToken = response;
         logger.debug("Token Issued");
         long milisBefore = 300;
         Instant executionTime = response.getExpirantionTime().minusMillis(milisBefore);
@@ -116,13 +156,24 @@ public class KeyCloakOAuthClientManager {
      * @throws IOException
      */
     private TokenResponseWrapper refreshToken() throws IOException {
-        GenericUrl url = new GenericUrl(this.config.getTokenUrl());
-        RefreshTokenRequest refreshTokenRequest = new RefreshTokenRequest(new NetHttpTransport(), JSON_FACTORY, url, this.currentToken.getRefreshToken());
+        String refreshToken = this.currentToken.getRefreshToken();
         //
         // Prevents loop
         //        
         this.currentToken = null;
-        TokenResponse a = refreshTokenRequest.execute();
+        TokenEvent event = new TokenEvent(TokenEvent.REFRESH);
+        event.begin();
+        TokenResponse a;
+        try {
+            a = this.send(base -> {
+                GenericUrl url = new GenericUrl(this.config.getTokenUrl(base));
+                return new RefreshTokenRequest(this.transport, JSON_FACTORY, url, refreshToken).execute();
+            });
+        } catch (IOException | RuntimeException ex) {
+            event.complete(ex);
+            throw ex;
+        }
+        event.complete(null);
         this.currentToken = new TokenResponseWrapper(a);
         logger.debug("Token Refreshed");
         listeners.forEach((k, v) -> {
@@ -131,8 +182,21 @@ public class KeyCloakOAuthClientManager {
         return this.currentToken;
     }
 
-    public TokenResponseWrapper getToken() throws IOException {
-        if (this.currentToken == null) {
+    /**
+     * Sends a token request to the base URL, or through the node balancer
+     * when there is one. A rejected grant (4xx) is not retried on another
+     * node.
+     */
+    private TokenResponse send(NodeBalancer.NodeCall<TokenResponse> request) throws IOException {
+        NodeBalancer balancer = this.nodeBalancer;
+        if (balancer == null) {
+            return request.call(this.config.getBaseUrl());
+        }
+        return balancer.execute(request, ex -> !(ex instanceof TokenResponseException rejected) || rejected.getStatusCode() >= 500);
+    }
+
+    public synchronized TokenResponseWrapper getToken() throws IOException {
+        if (this.currentToken == null || this.currentToken.isExpired()) {
             return this.generateToken();
         }
         return this.currentToken;
@@ -149,7 +213,9 @@ public class KeyCloakOAuthClientManager {
                     /**
                      * De fato renova o token :)
                      */
-                    generateToken();
+                    synchronized (KeyCloakOAuthClientManager.this) {
+                        issueToken();
+                    }
                 } catch (IOException ex) {
                     logger.error("Failed to Refresh Token", ex);
                 }
@@ -159,7 +225,10 @@ public class KeyCloakOAuthClientManager {
 
     public void shutdown() {
         this.runing.set(false);
-        this.scheduler.shutdown();
+        //
+        // The pending refresh would keep the JVM alive until the token expires
+        //
+        this.scheduler.shutdownNow();
     }
 
     public void registerListener(ITokenEventListener listener) {
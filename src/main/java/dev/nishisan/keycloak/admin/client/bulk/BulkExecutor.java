@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.bulk;
+
+import dev.nishisan.keycloak.admin.client.events.IBulkProgressListener;
+import dev.nishisan.keycloak.admin.client.http.RequestPriority;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a per item task over a (possibly huge) input with bounded parallelism.
+ * The input is consumed lazily, one chunk at a time, so memory stays
+ * proportional to the chunk size and not to the input size.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class BulkExecutor<T> {
+
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+    private final BulkOptions options;
+    private final IBulkProgressListener listener;
+    private final Logger logger = LoggerFactory.getLogger(BulkExecutor.class);
+
+    public BulkExecutor(BulkOptions options, IBulkProgressListener listener) {
+        this.options = options != null ? options : new BulkOptions();
+        this.listener = listener;
+    }
+
+    /**
+     * Runs the task for every item of the input
+     *
+     * @param input items to process
+     * @param keyOf key used when reporting an unexpected task failure
+     * @param task the work for one item, it should not throw
+     * @return the aggregated counters
+     */
+    public BulkResult run(Iterator<T> input, Function<T, String> keyOf, Function<T, BulkItemResult> task) {
+        return RequestPriority.BATCH.call(() -> this.execute(input, keyOf, task));
+    }
+
+    private BulkResult execute(Iterator<T> input, Function<T, String> keyOf, Function<T, BulkItemResult> task) {
+        BulkResult result = new BulkResult();
+        int pool = POOL_SEQ.incrementAndGet();
+        AtomicInteger threadSeq = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(options.getParallelism(), r -> {
+            Thread t = new Thread(RequestPriority.BATCH.wrap(r), "keycloak-bulk-" + pool + "-" + threadSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<CompletableFuture<Void>> chunk = new ArrayList<>(options.getChunkSize());
+            while (input.hasNext()) {
+                T item = input.next();
+                chunk.add(CompletableFuture.runAsync(() -> this.record(result, this.safeRun(item, keyOf, task)), executor));
+                if (chunk.size() >= options.getChunkSize()) {
+                    this.completeChunk(chunk, result);
+                }
+            }
+            this.completeChunk(chunk, result);
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    private BulkItemResult safeRun(T item, Function<T, String> keyOf, Function<T, BulkItemResult> task) {
+        try {
+            return task.apply(item);
+        } catch (RuntimeException ex) {
+            logger.warn("Bulk task failed for:[{}]", keyOf.apply(item), ex);
+            return new BulkItemResult(keyOf.apply(item), BulkOutcome.FAILED, ex.getMessage());
+        }
+    }
+
+    private void record(BulkResult result, BulkItemResult item) {
+        result.record(item);
+        if (listener != null) {
+            try {
+                listener.onItem(item);
+            } catch (RuntimeException ex) {
+                logger.warn("Bulk listener failed on item:[{}]", item.getKey(), ex);
+            }
+        }
+    }
+
+    private void completeChunk(List<CompletableFuture<Void>> chunk, BulkResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        CompletableFuture.allOf(chunk.toArray(CompletableFuture[]::new)).join();
+        chunk.clear();
+        logger.debug("Bulk progress: {}", result);
+        if (listener != null) {
+            try {
+                listener.onProgress(result);
+            } catch (RuntimeException ex) {
+                logger.warn("Bulk listener failed on progress", ex);
+            }
+        }
+    }
+}
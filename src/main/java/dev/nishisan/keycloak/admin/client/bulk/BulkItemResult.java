@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.bulk;
+
+/**
+ * Result of a single item (usually a user) of a bulk operation
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class BulkItemResult {
+
+    private final String key;
+    private final BulkOutcome outcome;
+    private final String detail;
+
+    public BulkItemResult(String key, BulkOutcome outcome, String detail) {
+        this.key = key;
+        this.outcome = outcome;
+        this.detail = detail;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public BulkOutcome getOutcome() {
+        return outcome;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String toString() {
+        return key + ":" + outcome + (detail != null ? " (" + detail + ")" : "");
+    }
+}
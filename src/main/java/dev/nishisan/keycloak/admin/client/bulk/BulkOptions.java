@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.bulk;
+
+/**
+ * Tuning knobs shared by the bulk operations
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class BulkOptions {
+
+    /**
+     * Number of concurrent admin calls
+     */
+    private int parallelism = 8;
+    /**
+     * Number of items read from the input before waiting for them to finish
+     * and reporting progress
+     */
+    private int chunkSize = 500;
+    /**
+     * Page size used when reading listings from Keycloak
+     */
+    private int pageSize = 500;
+
+    public BulkOptions() {
+    }
+
+    /**
+     * Values below 1 are raised to 1, like the setters do
+     *
+     * @param parallelism number of concurrent admin calls
+     * @param chunkSize items read before waiting for them to finish
+     */
+    public BulkOptions(int parallelism, int chunkSize) {
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.bulk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregated counters of a bulk operation. Only the failures are kept, the
+ * other per-item outcomes are reported to the progress listener.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class BulkResult {
+
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final List<BulkItemResult> failures = Collections.synchronizedList(new ArrayList<>());
+
+    public void record(BulkItemResult item) {
+        switch (item.getOutcome()) {
+            case APPLIED ->
+                applied.incrementAndGet();
+            case SKIPPED ->
+                skipped.incrementAndGet();
+            case FAILED -> {
+                failed.incrementAndGet();
+                failures.add(item);
+            }
+        }
+    }
+
+    public long getApplied() {
+        return applied.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getProcessed() {
+        return applied.get() + skipped.get() + failed.get();
+    }
+
+    public List<BulkItemResult> getFailures() {
+        synchronized (failures) {
+            return new ArrayList<>(failures);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResult[processed=" + getProcessed() + ", applied=" + getApplied() + ", skipped=" + getSkipped() + ", failed=" + getFailed() + "]";
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.bulk;
+
+import dev.nishisan.keycloak.admin.client.events.IBulkProgressListener;
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.management.RealmManager;
+import dev.nishisan.keycloak.admin.client.management.UserManager;
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Grants or revokes a set of realm roles across many users.
+ *
+ * Before fanning out, the current holders of each role are read with the
+ * paginated {@code /roles/{role}/users} listing, so users that already hold
+ * the roles (or do not hold them, when revoking) are skipped without a call.
+ * Rerunning an interrupted job therefore only does the remaining work. A
+ * holders or search page that cannot be read aborts the run with an
+ * {@link SSOIOException}, so a partial read is never taken for the truth.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class BulkRoleManager {
+
+    private final UserManager userManager;
+    private final RealmManager realmManager;
+    private final Logger logger = LoggerFactory.getLogger(BulkRoleManager.class);
+
+    public BulkRoleManager(UserManager userManager, RealmManager realmManager) {
+        this.userManager = userManager;
+        this.realmManager = realmManager;
+    }
+
+    /**
+     * Grants the roles to every user id of the input
+     *
+     * @param roleNames realm role names
+     * @param userIds user ids, consumed lazily
+     * @param options parallelism and chunking
+     * @param listener optional progress listener
+     * @return aggregated counters and failures
+     * @throws SSOIOException when the roles or their holders cannot be read
+     */
+    public BulkResult assign(Collection<String> roleNames, Iterator<String> userIds, BulkOptions options, IBulkProgressListener listener) throws SSOIOException {
+        return this.apply(true, roleNames, userIds, options, listener);
+    }
+
+    /**
+     * Revokes the roles from every user id of the input
+     *
+     * @param roleNames realm role names
+     * @param userIds user ids, consumed lazily
+     * @param options parallelism and chunking
+     * @param listener optional progress listener
+     * @return aggregated counters and failures
+     * @throws SSOIOException when the roles or their holders cannot be read
+     */
+    public BulkResult revoke(Collection<String> roleNames, Iterator<String> userIds, BulkOptions options, IBulkProgressListener listener) throws SSOIOException {
+        return this.apply(false, roleNames, userIds, options, listener);
+    }
+
+    /**
+     * Grants the roles to every user matching the search string
+     *
+     * @param roleNames realm role names
+     * @param search Keycloak user search (username, email, first or last
+     * name)
+     * @param options parallelism, chunking and page size
+     * @param listener optional progress listener
+     * @return aggregated counters and failures
+     * @throws SSOIOException when the roles cannot be resolved or a page
+     * cannot be read
+     */
+    public BulkResult assignBySearch(Collection<String> roleNames, String search, BulkOptions options, IBulkProgressListener listener) throws SSOIOException {
+        BulkOptions opts = options != null ? options : new BulkOptions();
+        return this.apply(true, roleNames, new SearchIterator(search, opts.getPageSize()), opts, listener);
+    }
+
+    /**
+     * Revokes the roles from every user matching the search string
+     *
+     * @param roleNames realm role names
+     * @param search Keycloak user search (username, email, first or last
+     * name)
+     * @param options parallelism, chunking and page size
+     * @param listener optional progress listener
+     * @return aggregated counters and failures
+     * @throws SSOIOException when the roles cannot be resolved or a page
+     * cannot be read
+     */
+    public BulkResult revokeBySearch(Collection<String> roleNames, String search, BulkOptions options, IBulkProgressListener listener) throws SSOIOException {
+        BulkOptions opts = options != null ? options : new BulkOptions();
+        return this.apply(false, roleNames, new SearchIterator(search, opts.getPageSize()), opts, listener);
+    }
+
+    private BulkResult apply(boolean grant, Collection<String> roleNames, Iterator<String> userIds, BulkOptions options, IBulkProgressListener listener) throws SSOIOException {
+        BulkOptions opts = options != null ? options : new BulkOptions();
+        Map<String, RealmRole> roles = this.resolveRoles(roleNames);
+        Map<String, Set<String>> holders = new LinkedHashMap<>();
+        for (String role : roles.keySet()) {
+            holders.put(role, this.loadHolders(role, opts.getPageSize()));
+        }
+        logger.debug("Bulk {} of roles:{} starting", grant ? "grant" : "revoke", roles.keySet());
+        BulkExecutor<String> executor = new BulkExecutor<>(opts, listener);
+        try {
+            return executor.run(userIds, Function.identity(), userId -> this.applyToUser(grant, userId, roles, holders));
+        } catch (PageFailure ex) {
+            //
+            // A search page that cannot be read aborts the run, the remaining
+            // users are unknown
+            //
+            throw ex.getCause();
+        }
+    }
+
+    private BulkItemResult applyToUser(boolean grant, String userId, Map<String, RealmRole> roles, Map<String, Set<String>> holders) {
+        List<RealmRole> pending = new ArrayList<>();
+        roles.forEach((name, role) -> {
+            if (holders.get(name).contains(userId) != grant) {
+                pending.add(role);
+            }
+        });
+        if (pending.isEmpty()) {
+            return new BulkItemResult(userId, BulkOutcome.SKIPPED, null);
+        }
+        try {
+            boolean ok = grant ? userManager.addRealmRoles(userId, pending) : userManager.removeRealmRoles(userId, pending);
+            if (!ok) {
+                return new BulkItemResult(userId, BulkOutcome.FAILED, "Keycloak rejected the role mapping change");
+            }
+            for (RealmRole role : pending) {
+                if (grant) {
+                    holders.get(role.getName()).add(userId);
+                } else {
+                    holders.get(role.getName()).remove(userId);
+                }
+            }
+            return new BulkItemResult(userId, BulkOutcome.APPLIED, null);
+        } catch (SSOIOException ex) {
+            return new BulkItemResult(userId, BulkOutcome.FAILED, ex.getMessage());
+        }
+    }
+
+    /**
+     * The role mapping endpoints need both id and name, so the roles are
+     * looked up once instead of per user
+     */
+    private Map<String, RealmRole> resolveRoles(Collection<String> roleNames) throws SSOIOException {
+        Map<String, RealmRole> roles = new LinkedHashMap<>();
+        for (String name : roleNames) {
+            if (name == null || name.isBlank() || roles.containsKey(name)) {
+                continue;
+            }
+            RealmRole role = realmManager.getRoleByName(name);
+            if (role == null) {
+                throw new SSOIOException("Realm role not found: " + name);
+            }
+            roles.put(name, role);
+        }
+        if (roles.isEmpty()) {
+            throw new SSOIOException("No realm roles given");
+        }
+        return roles;
+    }
+
+    private Set<String> loadHolders(String roleName, int pageSize) throws SSOIOException {
+        Set<String> holders = ConcurrentHashMap.newKeySet();
+        int first = 0;
+        while (true) {
+            List<User> page = realmManager.listRoleUsers(roleName, first, pageSize);
+            for (User u : page) {
+                holders.add(u.getId());
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+            first += pageSize;
+        }
+        logger.debug("Role:[{}] currently held by {} users", roleName, holders.size());
+        return holders;
+    }
+
+    /**
+     * Lazily pages through a user search yielding ids
+     */
+    private class SearchIterator implements Iterator<String> {
+
+        private final String search;
+        private final int pageSize;
+        private List<User> page = new ArrayList<>();
+        private int index = 0;
+        private int first = 0;
+        private boolean exhausted = false;
+
+        SearchIterator(String search, int pageSize) {
+            this.search = search;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (index < page.size()) {
+                return true;
+            }
+            if (exhausted) {
+                return false;
+            }
+            try {
+                page = userManager.searchUsers(search, first, pageSize);
+            } catch (SSOIOException ex) {
+                throw new PageFailure(ex);
+            }
+            index = 0;
+            first += pageSize;
+            exhausted = page.size() < pageSize;
+            return !page.isEmpty();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.get(index++).getId();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.bulk;
+
+import dev.nishisan.keycloak.admin.client.events.IBulkProgressListener;
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.management.SessionManager;
+import dev.nishisan.keycloak.admin.client.types.UserSession;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Revokes sessions in bulk with bounded parallelism and progress reporting.
+ *
+ * Client sessions are paged while they are being deleted. Each page is
+ * processed as one chunk, and the next page is read from the offset of the
+ * sessions that are still there (not matching the filter or failed), so
+ * deleted sessions do not shift the listing. Only one page is held in
+ * memory. A page that cannot be read aborts the run.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class BulkSessionRevoker {
+
+    private final SessionManager sessionManager;
+    private final Logger logger = LoggerFactory.getLogger(BulkSessionRevoker.class);
+
+    public BulkSessionRevoker(SessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+    }
+
+    /**
+     * Revokes the sessions of a client matching a filter
+     *
+     * @param clientUuid internal id of the client
+     * @param filter sessions to revoke, null revokes every session
+     * @param options parallelism and page size (the chunk size follows the
+     * page size)
+     * @param listener optional progress listener
+     * @return aggregated counters, non matching sessions are SKIPPED
+     * @throws SSOIOException when a session page cannot be read, the
+     * remaining sessions are unknown
+     */
+    public BulkResult revokeClientSessions(String clientUuid, Predicate<UserSession> filter, BulkOptions options, IBulkProgressListener listener) throws SSOIOException {
+        BulkOptions opts = options != null ? options : new BulkOptions();
+        BulkOptions aligned = new BulkOptions(opts.getParallelism(), opts.getPageSize());
+        aligned.setPageSize(opts.getPageSize());
+        Predicate<UserSession> matches = filter != null ? filter : s -> true;
+        SessionPageIterator sessions = new SessionPageIterator(clientUuid, opts.getPageSize());
+        logger.debug("Bulk session revocation on client:[{}] starting", clientUuid);
+        BulkExecutor<UserSession> executor = new BulkExecutor<>(aligned, listener);
+        try {
+            return executor.run(sessions, UserSession::getId, session -> this.revoke(session, matches, sessions));
+        } catch (PageFailure ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Logs out every user of the input, revoking all their sessions
+     *
+     * @param userIds user ids, consumed lazily
+     * @param options parallelism and chunking
+     * @param listener optional progress listener
+     * @return aggregated counters
+     */
+    public BulkResult logoutUsers(Iterator<String> userIds, BulkOptions options, IBulkProgressListener listener) {
+        BulkExecutor<String> executor = new BulkExecutor<>(options, listener);
+        return executor.run(userIds, Function.identity(), userId -> {
+            try {
+                return sessionManager.logoutUser(userId)
+                        ? new BulkItemResult(userId, BulkOutcome.APPLIED, null)
+                        : new BulkItemResult(userId, BulkOutcome.FAILED, "Keycloak rejected the logout");
+            } catch (SSOIOException ex) {
+                return new BulkItemResult(userId, BulkOutcome.FAILED, ex.getMessage());
+            }
+        });
+    }
+
+    private BulkItemResult revoke(UserSession session, Predicate<UserSession> matches, SessionPageIterator sessions) {
+        if (sessions.wasAttempted(session.getId())) {
+            sessions.survived();
+            return new BulkItemResult(session.getId(), BulkOutcome.SKIPPED, "Still listed after revocation");
+        }
+        if (!matches.test(session)) {
+            sessions.survived();
+            return new BulkItemResult(session.getId(), BulkOutcome.SKIPPED, null);
+        }
+        try {
+            if (sessionManager.deleteSession(session.getId())) {
+                return new BulkItemResult(session.getId(), BulkOutcome.APPLIED, session.getUsername());
+            }
+            sessions.survived();
+            return new BulkItemResult(session.getId(), BulkOutcome.FAILED, "Keycloak rejected the revocation");
+        } catch (SSOIOException ex) {
+            sessions.survived();
+            return new BulkItemResult(session.getId(), BulkOutcome.FAILED, ex.getMessage());
+        }
+    }
+
+    /**
+     * Pages through the sessions of a client, the next page starts after the
+     * sessions that survived the previous ones
+     */
+    private class SessionPageIterator implements Iterator<UserSession> {
+
+        private final String clientUuid;
+        private final int pageSize;
+        private final AtomicInteger survivors = new AtomicInteger();
+        private List<UserSession> page = new ArrayList<>();
+        private Set<String> previousIds = Collections.emptySet();
+        private int index = 0;
+        private boolean exhausted = false;
+
+        SessionPageIterator(String clientUuid, int pageSize) {
+            this.clientUuid = clientUuid;
+            this.pageSize = pageSize;
+        }
+
+        void survived() {
+            survivors.incrementAndGet();
+        }
+
+        /**
+         * True if the session was already handled in the previous page
+         */
+        boolean wasAttempted(String sessionId) {
+            return previousIds.contains(sessionId);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (index < page.size()) {
+                return true;
+            }
+            if (exhausted) {
+                return false;
+            }
+            Set<String> ids = new HashSet<>();
+            for (UserSession s : page) {
+                ids.add(s.getId());
+            }
+            try {
+                page = sessionManager.listClientSessions(clientUuid, survivors.get(), pageSize);
+            } catch (SSOIOException ex) {
+                throw new PageFailure(ex);
+            }
+            previousIds = ids;
+            index = 0;
+            exhausted = page.size() < pageSize;
+            return !page.isEmpty();
+        }
+
+        @Override
+        public UserSession next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.get(index++);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.bulk;
+
+import dev.nishisan.keycloak.admin.client.events.IBulkProgressListener;
+import dev.nishisan.keycloak.admin.client.exception.CreateUserException;
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.management.UserManager;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Idempotent bulk user onboarding (create-or-get).
+ *
+ * With an {@link ExistenceFilter} of the realm, users the filter has never
+ * seen are created straight away, only possible hits are looked up with
+ * {@code findUser} first. On mostly new datasets nearly every existence
+ * check is skipped. Existing users are reported as {@code SKIPPED} and get
+ * their id set, created users as {@code APPLIED}. A 409 on creation (user
+ * created meanwhile) is resolved with a lookup.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class BulkUserImporter {
+
+    private final UserManager userManager;
+    private final Logger logger = LoggerFactory.getLogger(BulkUserImporter.class);
+
+    public BulkUserImporter(UserManager userManager) {
+        this.userManager = userManager;
+    }
+
+    /**
+     * Creates the users that do not exist yet
+     *
+     * @param users users to import, consumed lazily
+     * @param filter existence filter of the realm, updated with the created
+     * users. Null looks up every user first.
+     * @param options parallelism and chunking
+     * @param listener optional progress listener
+     * @return aggregated counters
+     */
+    public BulkResult createOrGet(Iterator<User> users, ExistenceFilter filter, BulkOptions options, IBulkProgressListener listener) {
+        AtomicLong lookups = new AtomicLong();
+        AtomicLong falsePositives = new AtomicLong();
+        BulkExecutor<User> executor = new BulkExecutor<>(options, listener);
+        BulkResult result = executor.run(users, User::getUsername, user -> this.createOrGet(user, filter, lookups, falsePositives));
+        logger.info("Bulk import done: {}, lookups:{} falsePositives:{}", result, lookups.get(), falsePositives.get());
+        return result;
+    }
+
+    private BulkItemResult createOrGet(User user, ExistenceFilter filter, AtomicLong lookups, AtomicLong falsePositives) {
+        String username = user.getUsername();
+        try {
+            if (filter == null || filter.mightExist(user)) {
+                lookups.incrementAndGet();
+                User existing = userManager.findUser(username);
+                if (existing != null) {
+                    user.setId(existing.getId());
+                    return new BulkItemResult(username, BulkOutcome.SKIPPED, "exists");
+                }
+                if (filter != null) {
+                    falsePositives.incrementAndGet();
+                }
+            }
+            try {
+                userManager.createUser(user);
+            } catch (CreateUserException ex) {
+                if (ex.getStatus() != 409) {
+                    return new BulkItemResult(username, BulkOutcome.FAILED, ex.getMessage());
+                }
+                lookups.incrementAndGet();
+                User existing = userManager.findUser(username);
+                if (existing == null) {
+                    return new BulkItemResult(username, BulkOutcome.FAILED, "Conflict, email already in use");
+                }
+                user.setId(existing.getId());
+                if (filter != null) {
+                    filter.put(user);
+                }
+                return new BulkItemResult(username, BulkOutcome.SKIPPED, "exists");
+            }
+            if (filter != null) {
+                filter.put(user);
+            }
+            return new BulkItemResult(username, BulkOutcome.APPLIED, user.getId());
+        } catch (SSOIOException ex) {
+            return new BulkItemResult(username, BulkOutcome.FAILED, ex.getMessage());
+        }
+    }
+}
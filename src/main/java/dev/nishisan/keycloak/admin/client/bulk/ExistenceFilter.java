@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.bulk;
+
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.management.UserManager;
+import dev.nishisan.keycloak.admin.client.management.UserScanOptions;
+import dev.nishisan.keycloak.admin.client.management.UserScanResult;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bloom filter of the usernames and emails of a realm.
+ *
+ * A miss is certain: the user does not exist and can be created without a
+ * lookup. A hit may be a false positive, with a probability close to the one
+ * the filter was sized for, and has to be confirmed remotely. Keys are
+ * lowercased like Keycloak does. The filter is safe for concurrent use and
+ * keeps accepting keys as users are created.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class ExistenceFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExistenceFilter.class);
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final AtomicLong keys = new AtomicLong();
+
+    /**
+     *
+     * @param expectedKeys keys the filter is sized for (two per user)
+     * @param falsePositiveRate target false positive rate, e.g. 0.01
+     */
+    public ExistenceFilter(long expectedKeys, double falsePositiveRate) {
+        long n = Math.max(1, expectedKeys);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, (m + 63) / 64 * 64);
+        if (m / 64 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Existence filter too large for " + expectedKeys + " keys");
+        }
+        this.bits = m;
+        this.hashes = (int) Math.max(1, Math.round((double) m / n * Math.log(2)));
+        this.words = new AtomicLongArray((int) (m / 64));
+    }
+
+    /**
+     * Builds the filter from a scan of the realm, sized from
+     * {@code /users/count} plus the users about to be created
+     *
+     * @param userManager the user manager
+     * @param expectedNewUsers users expected to be created while the filter
+     * is in use
+     * @param falsePositiveRate target false positive rate
+     * @param options scan options, null for the defaults
+     * @return the filter
+     * @throws SSOIOException when the count or the scan fails
+     */
+    public static ExistenceFilter fromRealm(UserManager userManager, long expectedNewUsers, double falsePositiveRate, UserScanOptions options) throws SSOIOException {
+        long count = Math.max(0, userManager.countUsers());
+        ExistenceFilter filter = new ExistenceFilter(2 * (count + Math.max(0, expectedNewUsers)), falsePositiveRate);
+        UserScanResult scan = userManager.scanUsers(options != null ? options : new UserScanOptions(), filter::put);
+        logger.debug("Existence filter built from {} users: {}", scan.getUsers(), filter);
+        return filter;
+    }
+
+    /**
+     * Adds the username and email of the user
+     *
+     * @param user
+     */
+    public void put(User user) {
+        if (user.getUsername() != null) {
+            this.put("u:" + user.getUsername().toLowerCase(Locale.ROOT));
+        }
+        if (user.getEmail() != null) {
+            this.put("e:" + user.getEmail().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * @param user
+     * @return false if no user of the realm has this username or email,
+     * true if one may have
+     */
+    public boolean mightExist(User user) {
+        return (user.getUsername() != null && this.mightContain("u:" + user.getUsername().toLowerCase(Locale.ROOT)))
+                || (user.getEmail() != null && this.mightContain("e:" + user.getEmail().toLowerCase(Locale.ROOT)));
+    }
+
+    private void put(String key) {
+        long h1 = hash(key);
+        long h2 = fmix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0) {
+                if (words.compareAndSet(word, current, current | mask)) {
+                    changed = true;
+                    break;
+                }
+                current = words.get(word);
+            }
+        }
+        if (changed) {
+            keys.incrementAndGet();
+        }
+    }
+
+    private boolean mightContain(String key) {
+        long h1 = hash(key);
+        long h2 = fmix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a over the chars, finished with the murmur3 mixer
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return fmix(h);
+    }
+
+    private static long fmix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return the false positive rate expected at the current fill
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashes * keys.get() / bits), hashes);
+    }
+
+    public long getKeys() {
+        return keys.get();
+    }
+
+    public long getBits() {
+        return bits;
+    }
+
+    public int getHashes() {
+        return hashes;
+    }
+
+    @Override
+    public String toString() {
+        return "ExistenceFilter[keys=" + keys.get() + ", bits=" + bits + ", hashes=" + hashes
+                + ", fpp=" + String.format(Locale.ROOT, "%.4f", this.getExpectedFalsePositiveRate()) + "]";
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.bulk;
+
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+
+/**
+ * Carries a page failure out of a lazily paged input iterator, the bulk run
+ * catches it and rethrows the cause
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+class PageFailure extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    PageFailure(SSOIOException cause) {
+        super(cause);
+    }
+
+    @Override
+    public synchronized SSOIOException getCause() {
+        return (SSOIOException) super.getCause();
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.bulk;
+
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.management.RealmManager;
+import dev.nishisan.keycloak.admin.client.types.Credentials;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Hashes imported passwords on the client, so Keycloak does not spend its
+ * CPU on PBKDF2 during a bulk import.
+ *
+ * Plaintext password credentials are replaced by {@code credentialData}
+ * (algorithm and iterations) and {@code secretData} (hash and salt) in the
+ * format of Keycloak's PBKDF2 providers, Keycloak stores them as they are.
+ * The hashing runs on a fork/join pool sized to the available cores, one
+ * chunk ahead of the consumer, so the import pipeline is not stalled by it.
+ *
+ * Only the PBKDF2 family is supported. A realm without a hash algorithm in
+ * its policy gets {@code pbkdf2-sha512}, which every supported Keycloak
+ * version verifies; if the realm default is another algorithm Keycloak
+ * rehashes the password on the first login.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class PasswordHasher implements AutoCloseable {
+
+    public static final String DEFAULT_ALGORITHM = "pbkdf2-sha512";
+    private static final int SALT_BYTES = 16;
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+
+    private final String algorithm;
+    private final String jcaAlgorithm;
+    private final int keyLength;
+    private final int iterations;
+    private final ForkJoinPool pool;
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicLong hashed = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+
+    /**
+     *
+     * @param algorithm pbkdf2, pbkdf2-sha256 or pbkdf2-sha512
+     * @param iterations iterations, 0 or less uses the Keycloak default of the
+     * algorithm
+     */
+    public PasswordHasher(String algorithm, int iterations) {
+        this(algorithm, iterations, Runtime.getRuntime().availableProcessors());
+    }
+
+    public PasswordHasher(String algorithm, int iterations, int parallelism) {
+        String name = algorithm == null ? DEFAULT_ALGORITHM : algorithm.toLowerCase(Locale.ROOT);
+        int defaultIterations;
+        switch (name) {
+            case "pbkdf2" -> {
+                this.jcaAlgorithm = "PBKDF2WithHmacSHA1";
+                this.keyLength = 512;
+                defaultIterations = 1_300_000;
+            }
+            case "pbkdf2-sha256" -> {
+                this.jcaAlgorithm = "PBKDF2WithHmacSHA256";
+                this.keyLength = 256;
+                defaultIterations = 600_000;
+            }
+            case "pbkdf2-sha512" -> {
+                this.jcaAlgorithm = "PBKDF2WithHmacSHA512";
+                this.keyLength = 512;
+                defaultIterations = 210_000;
+            }
+            default ->
+                throw new IllegalArgumentException("Unsupported hash algorithm:[" + algorithm + "], only pbkdf2, pbkdf2-sha256 and pbkdf2-sha512 can be computed locally");
+        }
+        this.algorithm = name;
+        this.iterations = iterations > 0 ? iterations : defaultIterations;
+        int seq = POOL_SEQ.incrementAndGet();
+        AtomicInteger threadSeq = new AtomicInteger();
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("keycloak-hash-" + seq + "-" + threadSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    /**
+     * Builds a hasher from a Keycloak password policy string, using its
+     * {@code hashAlgorithm} and {@code hashIterations}
+     *
+     * @param policy the policy, may be null
+     * @return
+     */
+    public static PasswordHasher forPolicy(String policy) {
+        String algorithm = null;
+        int iterations = -1;
+        if (policy != null) {
+            for (String rule : policy.split("\\s+and\\s+")) {
+                int open = rule.indexOf('(');
+                if (open < 0 || !rule.endsWith(")")) {
+                    continue;
+                }
+                String name = rule.substring(0, open).trim();
+                String arg = rule.substring(open + 1, rule.length() - 1).trim();
+                if (name.equals("hashAlgorithm")) {
+                    algorithm = arg;
+                } else if (name.equals("hashIterations")) {
+                    try {
+                        iterations = Integer.parseInt(arg);
+                    } catch (NumberFormatException ex) {
+                        iterations = -1;
+                    }
+                }
+            }
+        }
+        return new PasswordHasher(algorithm, iterations);
+    }
+
+    /**
+     * Builds a hasher that follows the password policy of the realm
+     *
+     * @param realmManager
+     * @return
+     * @throws SSOIOException when the realm cannot be read, the defaults are
+     * only used for a realm without password policy
+     */
+    public static PasswordHasher forRealm(RealmManager realmManager) throws SSOIOException {
+        return forPolicy(realmManager.getPasswordPolicy());
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Number of passwords hashed so far
+     *
+     * @return
+     */
+    public long getHashed() {
+        return hashed.get();
+    }
+
+    /**
+     * Average time of a single hash, in milliseconds
+     *
+     * @return
+     */
+    public double getAverageHashMs() {
+        long n = hashed.get();
+        return n == 0 ? 0.0 : hashNanos.get() / 1_000_000.0 / n;
+    }
+
+    /**
+     * Hashes a password with a fresh salt
+     *
+     * @param password the plaintext
+     * @param temporary whether the user must change it on login
+     * @return a password credential without value
+     */
+    public Credentials hash(String password, Boolean temporary) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        long start = System.nanoTime();
+        byte[] key;
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyLength);
+        try {
+            key = SecretKeyFactory.getInstance(jcaAlgorithm).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Failed to hash password with:[" + jcaAlgorithm + "]", ex);
+        } finally {
+            spec.clearPassword();
+        }
+        hashNanos.addAndGet(System.nanoTime() - start);
+        hashed.incrementAndGet();
+        Base64.Encoder b64 = Base64.getEncoder();
+        Credentials c = new Credentials("password", null, temporary);
+        c.setCredentialData("{\"hashIterations\":" + iterations + ",\"algorithm\":\"" + algorithm + "\",\"additionalParameters\":{}}");
+        c.setSecretData("{\"value\":\"" + b64.encodeToString(key) + "\",\"salt\":\"" + b64.encodeToString(salt) + "\",\"additionalParameters\":{}}");
+        return c;
+    }
+
+    /**
+     * Replaces the plaintext password credentials of the user with hashed
+     * ones, on the calling thread
+     *
+     * @param user
+     */
+    public void prehash(User user) {
+        List<Credentials> credentials = user.getCredentials();
+        if (credentials == null) {
+            return;
+        }
+        for (int i = 0; i < credentials.size(); i++) {
+            Credentials c = credentials.get(i);
+            if (c != null && "password".equals(c.getType()) && c.getValue() != null && c.getSecretData() == null) {
+                credentials.set(i, this.hash(c.getValue(), c.getTemporary()));
+            }
+        }
+    }
+
+    /**
+     * Hashes the users of a list on the pool, splitting the work with
+     * fork/join, and waits for it
+     *
+     * @param users
+     */
+    public void prehash(List<User> users) {
+        this.pool.invoke(new HashTask(users, 0, users.size()));
+    }
+
+    /**
+     * Wraps a user stream so the passwords are hashed on the pool as the
+     * users are consumed. Chunks are hashed one ahead of the consumer: while
+     * a chunk is being imported the next one is already being hashed.
+     *
+     * @param users the source, read on the consuming thread
+     * @param chunkSize users per chunk, a few times the core count keeps every
+     * core busy
+     * @return the same users, with hashed credentials
+     */
+    public Iterator<User> prehash(Iterator<User> users, int chunkSize) {
+        int size = Math.max(1, chunkSize);
+        return new Iterator<>() {
+            private List<User> current = List.of();
+            private int index;
+            private List<User> next;
+            private ForkJoinTask<Void> nextTask;
+
+            private void submitNext() {
+                List<User> chunk = new ArrayList<>(size);
+                while (chunk.size() < size && users.hasNext()) {
+                    chunk.add(users.next());
+                }
+                next = chunk;
+                nextTask = chunk.isEmpty() ? null : pool.submit(new HashTask(chunk, 0, chunk.size()));
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (index < current.size()) {
+                    return true;
+                }
+                if (next == null) {
+                    this.submitNext();
+                }
+                if (nextTask == null) {
+                    return false;
+                }
+                nextTask.join();
+                current = next;
+                index = 0;
+                this.submitNext();
+                return true;
+            }
+
+            @Override
+            public User next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.get(index++);
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        this.pool.shutdownNow();
+    }
+
+    @SuppressWarnings("serial")
+    private final class HashTask extends RecursiveAction {
+
+        private final List<User> users;
+        private final int from;
+        private final int to;
+
+        private HashTask(List<User> users, int from, int to) {
+            this.users = users;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            //
+            // A single hash takes tens of milliseconds, splitting down to one
+            // user costs nothing in comparison
+            //
+            if (to - from <= 1) {
+                if (to > from) {
+                    prehash(users.get(from));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new HashTask(users, from, mid), new HashTask(users, mid, to));
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.bulk;
+
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.http.RequestPriority;
+import dev.nishisan.keycloak.admin.client.management.UserManager;
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind queue for realm role mappings.
+ *
+ * Grants and revocations for a user are held for a short window and then
+ * sent as one net POST and one net DELETE to
+ * {@code /users/{id}/role-mappings/realm}. When the same role is granted and
+ * revoked within the window only the last change is sent, so the state in
+ * Keycloak is the one the caller asked for last.
+ *
+ * Users are spread over {@code parallelism} single-threaded lanes by id, so
+ * the flushes of a given user are never reordered. At most
+ * {@code maxPendingUsers} users are held at once, callers block when the
+ * queue is full. {@link #shutdown(long)} sends everything still pending.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class RoleMappingQueue {
+
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+
+    private final UserManager userManager;
+    private final long windowMs;
+    private final ScheduledThreadPoolExecutor[] lanes;
+    private final Semaphore capacity;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong calls = new AtomicLong();
+    private volatile boolean shutdown = false;
+    private final Logger logger = LoggerFactory.getLogger(RoleMappingQueue.class);
+
+    /**
+     *
+     * @param userManager the user manager doing the calls
+     * @param windowMs how long changes of a user are held before being sent
+     * @param maxPendingUsers users held at once before callers block
+     * @param parallelism number of users flushed concurrently
+     */
+    public RoleMappingQueue(UserManager userManager, long windowMs, int maxPendingUsers, int parallelism) {
+        this.userManager = userManager;
+        this.windowMs = windowMs;
+        this.capacity = new Semaphore(Math.max(1, maxPendingUsers));
+        int pool = POOL_SEQ.incrementAndGet();
+        this.lanes = new ScheduledThreadPoolExecutor[Math.max(1, parallelism)];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "keycloak-role-queue-" + pool + "-" + (i + 1);
+            ScheduledThreadPoolExecutor lane = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(RequestPriority.BATCH.wrap(r), name);
+                t.setDaemon(true);
+                return t;
+            });
+            lane.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            lanes[i] = lane;
+        }
+    }
+
+    /**
+     * Queues realm roles to grant
+     *
+     * @param userId Keycloak user id
+     * @param roleNames realm role names
+     * @return completes with true when Keycloak accepted the net change of
+     * the user, exceptionally on network errors
+     */
+    public CompletableFuture<Boolean> add(String userId, String... roleNames) {
+        return this.enqueue(userId, true, roleNames);
+    }
+
+    /**
+     * Queues realm roles to revoke
+     *
+     * @param userId Keycloak user id
+     * @param roleNames realm role names
+     * @return completes with true when Keycloak accepted the net change of
+     * the user, exceptionally on network errors
+     */
+    public CompletableFuture<Boolean> remove(String userId, String... roleNames) {
+        return this.enqueue(userId, false, roleNames);
+    }
+
+    private CompletableFuture<Boolean> enqueue(String userId, boolean grant, String... roleNames) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        if (userId == null || userId.isBlank() || roleNames == null || roleNames.length == 0) {
+            future.complete(false);
+            return future;
+        }
+        if (shutdown) {
+            future.completeExceptionally(new IllegalStateException("Role mapping queue is shut down"));
+            return future;
+        }
+        submitted.incrementAndGet();
+        boolean inline = false;
+        while (true) {
+            Pending p = pending.get(userId);
+            if (p == null) {
+                try {
+                    capacity.acquire();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(ex);
+                    return future;
+                }
+                Pending created = new Pending(userId);
+                p = pending.putIfAbsent(userId, created);
+                if (p == null) {
+                    p = created;
+                    Pending scheduled = created;
+                    try {
+                        this.lane(userId).schedule(() -> this.flush(scheduled), windowMs, TimeUnit.MILLISECONDS);
+                        if (shutdown) {
+                            //
+                            // Shut down after the check above, the delayed
+                            // flush may be discarded with the lane
+                            //
+                            inline = true;
+                        }
+                    } catch (RejectedExecutionException ex) {
+                        //
+                        // Shut down meanwhile, the caller sends it
+                        //
+                        inline = true;
+                    }
+                } else {
+                    capacity.release();
+                }
+            }
+            synchronized (p) {
+                if (p.closed) {
+                    //
+                    // Being flushed, the change goes in the next batch
+                    //
+                    continue;
+                }
+                for (String role : roleNames) {
+                    if (role != null && !role.isBlank()) {
+                        p.changes.put(role, grant);
+                    }
+                }
+                p.futures.add(future);
+            }
+            if (inline) {
+                this.flush(p);
+            }
+            return future;
+        }
+    }
+
+    private ScheduledThreadPoolExecutor lane(String userId) {
+        return lanes[Math.floorMod(userId.hashCode(), lanes.length)];
+    }
+
+    private void flush(Pending p) {
+        synchronized (p) {
+            if (p.closed) {
+                return;
+            }
+            p.closed = true;
+        }
+        pending.remove(p.userId, p);
+        capacity.release();
+        List<RealmRole> toAdd = new ArrayList<>();
+        List<RealmRole> toRemove = new ArrayList<>();
+        p.changes.forEach((role, grant) -> (grant ? toAdd : toRemove).add(new RealmRole(role)));
+        try {
+            boolean ok = true;
+            if (!toAdd.isEmpty()) {
+                calls.incrementAndGet();
+                ok = userManager.addRealmRoles(p.userId, toAdd);
+            }
+            if (!toRemove.isEmpty()) {
+                calls.incrementAndGet();
+                ok &= userManager.removeRealmRoles(p.userId, toRemove);
+            }
+            logger.debug("Role mappings flushed for user:[{}] added:{} removed:{} requests:{}", p.userId, toAdd.size(), toRemove.size(), p.futures.size());
+            for (CompletableFuture<Boolean> f : p.futures) {
+                f.complete(ok);
+            }
+        } catch (SSOIOException | RuntimeException ex) {
+            logger.warn("Failed to flush role mappings for user:[{}]", p.userId, ex);
+            for (CompletableFuture<Boolean> f : p.futures) {
+                f.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Sends every pending change now, without waiting for the window
+     *
+     * @return completes when the flushes are done
+     */
+    public CompletableFuture<Void> flush() {
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (Pending p : pending.values()) {
+            done.add(CompletableFuture.runAsync(() -> this.flush(p), this.lane(p.userId)));
+        }
+        return CompletableFuture.allOf(done.toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Stops accepting changes, sends the pending ones and stops the lanes
+     *
+     * @param timeoutMs how long to wait for the pending changes to be sent
+     * @return true if everything was sent within the timeout
+     */
+    public boolean shutdown(long timeoutMs) {
+        this.shutdown = true;
+        this.flush();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        boolean clean = true;
+        for (ScheduledThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        try {
+            for (ScheduledThreadPoolExecutor lane : lanes) {
+                clean &= lane.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            clean = false;
+        }
+        if (!clean) {
+            logger.warn("Role mapping queue shut down with {} users still pending", pending.size());
+        }
+        return clean;
+    }
+
+    /**
+     * @return users with changes waiting to be sent
+     */
+    public int getPendingUsers() {
+        return pending.size();
+    }
+
+    /**
+     * @return changes accepted by {@link #add} and {@link #remove}
+     */
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    /**
+     * @return role mapping calls sent to Keycloak
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RoleMappingQueue[submitted=" + submitted.get() + ", calls=" + calls.get() + ", pendingUsers=" + pending.size() + "]";
+    }
+
+    private static final class Pending {
+
+        private final String userId;
+        /**
+         * Role name to last requested change, true grants
+         */
+        private final Map<String, Boolean> changes = new LinkedHashMap<>();
+        private final List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        private boolean closed = false;
+
+        private Pending(String userId) {
+            this.userId = userId;
+        }
+    }
+}
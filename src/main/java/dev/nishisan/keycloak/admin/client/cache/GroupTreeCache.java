@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.cache;
+
+import dev.nishisan.keycloak.admin.client.events.ChangeEvent;
+import dev.nishisan.keycloak.admin.client.events.IChangeEventListener;
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.management.GroupManager;
+import dev.nishisan.keycloak.admin.client.types.Group;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lazily filled cache of the group tree.
+ *
+ * Nothing is loaded up front: each level is fetched page by page the first
+ * time it is asked for, and every node and child list expires after its own
+ * TTL. Paths are resolved with a single {@code group-by-path} call on a miss,
+ * never by walking the tree from the server. Group admin events (see
+ * {@link dev.nishisan.keycloak.admin.client.events.AdminChangeFeed}) evict the
+ * affected node, its parent's child list and every cached path below it.
+ * A level is only cached once all of its pages were read.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class GroupTreeCache implements IChangeEventListener {
+
+    private final GroupManager groupManager;
+    private final long ttlMs;
+    private final int pageSize;
+    private final Map<String, Node> byId = new ConcurrentHashMap<>();
+    private final Map<String, String> pathToId = new ConcurrentHashMap<>();
+    private volatile ChildList roots;
+    private final Logger logger = LoggerFactory.getLogger(GroupTreeCache.class);
+
+    public GroupTreeCache(GroupManager groupManager) {
+        this(groupManager, 300_000L, 100);
+    }
+
+    /**
+     *
+     * @param groupManager
+     * @param ttlMs how long a node or a child list is trusted
+     * @param pageSize groups per request when loading a level
+     */
+    public GroupTreeCache(GroupManager groupManager, long ttlMs, int pageSize) {
+        this.groupManager = groupManager;
+        this.ttlMs = ttlMs;
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * The top-level groups, loaded on first use
+     *
+     * @return
+     * @throws SSOIOException on network errors or when Keycloak rejects a
+     * read, nothing is cached then
+     */
+    public List<Group> getTopLevelGroups() throws SSOIOException {
+        ChildList list = this.roots;
+        List<Group> cached = list != null && list.isFresh() ? this.resolve(list) : null;
+        if (cached != null) {
+            return cached;
+        }
+        List<Group> groups = new ArrayList<>();
+        int first = 0;
+        while (true) {
+            List<Group> page = groupManager.listGroups(first, pageSize);
+            groups.addAll(page);
+            if (page.size() < pageSize) {
+                break;
+            }
+            first += pageSize;
+        }
+        for (Group g : groups) {
+            if (g.getPath() == null) {
+                g.setPath("/" + g.getName());
+            }
+        }
+        this.roots = this.store(groups);
+        return Collections.unmodifiableList(groups);
+    }
+
+    /**
+     * The direct sub groups of a group, loaded on first use
+     *
+     * @param groupId parent group id
+     * @return the sub groups, empty if the group does not exist
+     * @throws SSOIOException on network errors or when Keycloak rejects a
+     * read, nothing is cached then
+     */
+    public List<Group> getSubGroups(String groupId) throws SSOIOException {
+        Node node = this.node(groupId);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        ChildList list = node.children;
+        List<Group> cached = list != null && list.isFresh() ? this.resolve(list) : null;
+        if (cached != null) {
+            return cached;
+        }
+        List<Group> groups = new ArrayList<>();
+        if (node.group.getSubGroupCount() == null || node.group.getSubGroupCount() > 0) {
+            int first = 0;
+            while (true) {
+                List<Group> page = groupManager.listSubGroups(groupId, first, pageSize);
+                groups.addAll(page);
+                if (page.size() < pageSize) {
+                    break;
+                }
+                first += pageSize;
+            }
+        }
+        for (Group child : groups) {
+            if (child.getParentId() == null) {
+                child.setParentId(groupId);
+            }
+            if (child.getPath() == null && node.group.getPath() != null) {
+                child.setPath(node.group.getPath() + "/" + child.getName());
+            }
+        }
+        node.children = this.store(groups);
+        return Collections.unmodifiableList(groups);
+    }
+
+    /**
+     * Gets a group by id from the cache, or from Keycloak when missing or
+     * expired
+     *
+     * @param groupId
+     * @return the group or null
+     * @throws SSOIOException on network errors or when Keycloak rejects a
+     * read, nothing is cached then
+     */
+    public Group getGroup(String groupId) throws SSOIOException {
+        Node node = this.node(groupId);
+        return node != null ? node.group : null;
+    }
+
+    /**
+     * Resolves a path such as {@code /a/b/c}. A miss costs one call, no
+     * matter the depth.
+     *
+     * @param path the group path, the leading slash is optional
+     * @return the group or null
+     * @throws SSOIOException on network errors or when Keycloak rejects a
+     * read, nothing is cached then
+     */
+    public Group findByPath(String path) throws SSOIOException {
+        String normalized = normalize(path);
+        if (normalized == null) {
+            return null;
+        }
+        String id = pathToId.get(normalized);
+        Node node = id != null ? byId.get(id) : null;
+        if (node != null && node.isFresh()) {
+            return node.group;
+        }
+        Group group = groupManager.getGroupByPath(normalized);
+        if (group == null) {
+            pathToId.remove(normalized);
+            return null;
+        }
+        if (group.getPath() == null) {
+            group.setPath(normalized);
+        }
+        this.put(group);
+        return group;
+    }
+
+    /**
+     * Number of cached groups
+     *
+     * @return
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Evicts a group, its parent's child list and every cached path below it
+     *
+     * @param groupId
+     */
+    public void invalidate(String groupId) {
+        Node node = groupId != null ? byId.remove(groupId) : null;
+        if (node == null) {
+            //
+            // Unknown group, it may be a new top-level one
+            //
+            this.roots = null;
+            return;
+        }
+        String path = node.group.getPath();
+        if (path != null) {
+            String prefix = path + "/";
+            pathToId.keySet().removeIf(p -> p.equals(path) || p.startsWith(prefix));
+        }
+        String parentId = node.group.getParentId();
+        Node parent = parentId != null ? byId.get(parentId) : null;
+        if (parent != null) {
+            parent.children = null;
+        } else {
+            this.roots = null;
+        }
+    }
+
+    public void invalidateAll() {
+        byId.clear();
+        pathToId.clear();
+        this.roots = null;
+    }
+
+    @Override
+    public void onChange(ChangeEvent event) {
+        if (event.getKind() == ChangeEvent.Kind.GROUP) {
+            logger.debug("Group tree invalidated by: {}", event);
+            this.invalidate(event.getGroupId());
+        }
+    }
+
+    @Override
+    public String getUniqueName() {
+        return "group-tree-cache-" + System.identityHashCode(this);
+    }
+
+    private Node node(String groupId) throws SSOIOException {
+        if (groupId == null) {
+            return null;
+        }
+        Node node = byId.get(groupId);
+        if (node != null && node.isFresh()) {
+            return node;
+        }
+        Group group = groupManager.getGroup(groupId);
+        if (group == null) {
+            byId.remove(groupId);
+            return null;
+        }
+        return this.put(group);
+    }
+
+    private Node put(Group group) {
+        Node node = new Node(group, System.currentTimeMillis() + ttlMs);
+        Node previous = byId.put(group.getId(), node);
+        if (previous != null && previous.children != null) {
+            node.children = previous.children;
+        }
+        if (group.getPath() != null) {
+            pathToId.put(group.getPath(), group.getId());
+        }
+        return node;
+    }
+
+    private ChildList store(List<Group> groups) {
+        List<String> ids = new ArrayList<>(groups.size());
+        for (Group g : groups) {
+            this.put(g);
+            ids.add(g.getId());
+        }
+        return new ChildList(ids, System.currentTimeMillis() + ttlMs);
+    }
+
+    /**
+     * The cached groups of a child list, or null if one of them was evicted
+     * or expired
+     */
+    private List<Group> resolve(ChildList list) {
+        List<Group> groups = new ArrayList<>(list.ids.size());
+        for (String id : list.ids) {
+            Node node = byId.get(id);
+            if (node == null || !node.isFresh()) {
+                return null;
+            }
+            groups.add(node.group);
+        }
+        return Collections.unmodifiableList(groups);
+    }
+
+    private static String normalize(String path) {
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        String p = path.trim();
+        if (!p.startsWith("/")) {
+            p = "/" + p;
+        }
+        while (p.length() > 1 && p.endsWith("/")) {
+            p = p.substring(0, p.length() - 1);
+        }
+        return p;
+    }
+
+    private static class Node {
+
+        private final Group group;
+        private final long expiresAt;
+        private volatile ChildList children;
+
+        Node(Group group, long expiresAt) {
+            this.group = group;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+    }
+
+    private static class ChildList {
+
+        private final List<String> ids;
+        private final long expiresAt;
+
+        ChildList(List<String> ids, long expiresAt) {
+            this.ids = ids;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+    }
+}
@@ -0,0 +1,513 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.cache;
+
+import dev.nishisan.keycloak.admin.client.events.AdminChangeFeed;
+import dev.nishisan.keycloak.admin.client.events.ChangeEvent;
+import dev.nishisan.keycloak.admin.client.events.IChangeEventListener;
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.http.RequestPriority;
+import dev.nishisan.keycloak.admin.client.management.RealmManager;
+import dev.nishisan.keycloak.admin.client.management.UserManager;
+import dev.nishisan.keycloak.admin.client.management.UserScanOptions;
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opt-in local copy of the realm users and their direct realm role mappings.
+ *
+ * The replica is loaded by a parallel partitioned scan (see
+ * {@link UserManager#scanUsers}) and indexed by id, username and email, plus
+ * an inverted index from role name to user ids.
+ * Queries are plain map lookups with no network hop. It stays fresh by
+ * applying the changes of an {@link AdminChangeFeed} (only the affected user
+ * is fetched again) and, optionally, by a periodic full reload as a safety
+ * net.
+ *
+ * Mappings inherited from composite roles or groups are not included.
+ *
+ * A change that cannot be read back (any error other than a 404 on the user)
+ * leaves the cached entry as it was until the next change or reload; only a
+ * delete event or a 404 evicts a user.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class RealmReplica implements IChangeEventListener {
+
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+    private final UserManager userManager;
+    private final RealmManager realmManager;
+    private final int pageSize;
+    private final int parallelism;
+    private final Logger logger = LoggerFactory.getLogger(RealmReplica.class);
+    private final Object writeLock = new Object();
+    private final Object reloadLock = new Object();
+    private volatile Index index = new Index();
+    private List<ChangeEvent> pendingDuringReload = null;
+    private ScheduledExecutorService scheduler;
+    private AdminChangeFeed feed;
+
+    public RealmReplica(UserManager userManager, RealmManager realmManager) {
+        this(userManager, realmManager, 500, 4);
+    }
+
+    /**
+     *
+     * @param userManager
+     * @param realmManager
+     * @param pageSize users per page during the scan
+     * @param parallelism pages fetched concurrently
+     */
+    public RealmReplica(UserManager userManager, RealmManager realmManager, int pageSize, int parallelism) {
+        this.userManager = userManager;
+        this.realmManager = realmManager;
+        this.pageSize = Math.max(1, pageSize);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Loads (or reloads) the whole replica. Queries keep answering from the
+     * previous copy until the new one is complete, and changes received in
+     * the meantime are applied on top of it.
+     *
+     * @throws SSOIOException on network errors
+     */
+    public void load() throws SSOIOException {
+        synchronized (reloadLock) {
+            this.reload();
+        }
+    }
+
+    private void reload() throws SSOIOException {
+        synchronized (writeLock) {
+            pendingDuringReload = new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+        Index fresh = new Index();
+        int pool = POOL_SEQ.incrementAndGet();
+        AtomicInteger threadSeq = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(RequestPriority.BATCH.wrap(r), "keycloak-replica-" + pool + "-" + threadSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        List<ChangeEvent> pending;
+        try {
+            this.loadUsers(fresh);
+            this.loadRoleMappings(fresh, executor);
+        } catch (RuntimeException | SSOIOException ex) {
+            synchronized (writeLock) {
+                pendingDuringReload = null;
+            }
+            throw ex;
+        } finally {
+            executor.shutdownNow();
+        }
+        synchronized (writeLock) {
+            this.index = fresh;
+            pending = pendingDuringReload;
+            pendingDuringReload = null;
+        }
+        logger.info("Realm replica loaded: {} users, {} roles in {} ms", fresh.byId.size(), fresh.roleUsers.size(), System.currentTimeMillis() - start);
+        for (ChangeEvent event : pending) {
+            this.onChange(event);
+        }
+    }
+
+    private void loadUsers(Index target) throws SSOIOException {
+        UserScanOptions options = new UserScanOptions();
+        options.setPageSize(pageSize);
+        options.setParallelism(parallelism);
+        userManager.scanUsers(options, target::put);
+    }
+
+    private void loadRoleMappings(Index target, ExecutorService executor) throws SSOIOException {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (RealmRole role : realmManager.listAllRoles(pageSize)) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                int first = 0;
+                while (true) {
+                    List<User> page;
+                    try {
+                        page = realmManager.listRoleUsers(role.getName(), first, pageSize);
+                    } catch (SSOIOException ex) {
+                        throw new CompletionException(ex);
+                    }
+                    for (User user : page) {
+                        target.grant(user.getId(), role.getName());
+                    }
+                    if (page.size() < pageSize) {
+                        break;
+                    }
+                    first += pageSize;
+                }
+                target.roleUsers.computeIfAbsent(role.getName(), k -> ConcurrentHashMap.newKeySet());
+            }, executor));
+        }
+        for (CompletableFuture<Void> future : futures) {
+            this.await(future);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws SSOIOException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof SSOIOException sso) {
+                throw sso;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Subscribes to the feed and starts polling it, plus an optional periodic
+     * full reload
+     *
+     * @param feed the admin change feed, may be null
+     * @param feedIntervalMs delay between feed polls
+     * @param fullReloadIntervalMs delay between full reloads, 0 disables them
+     */
+    public synchronized void startResync(AdminChangeFeed feed, long feedIntervalMs, long fullReloadIntervalMs) {
+        if (feed != null) {
+            this.feed = feed;
+            feed.registerListener(this);
+            feed.start(feedIntervalMs);
+        }
+        if (fullReloadIntervalMs > 0 && this.scheduler == null) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(RequestPriority.BATCH.wrap(r), "keycloak-replica-reload");
+                t.setDaemon(true);
+                return t;
+            });
+            this.scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    this.load();
+                } catch (SSOIOException | RuntimeException ex) {
+                    logger.warn("Realm replica reload failed", ex);
+                }
+            }, fullReloadIntervalMs, fullReloadIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (this.feed != null) {
+            this.feed.unregisterListener(this.getUniqueName());
+            this.feed.stop();
+            this.feed = null;
+        }
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+        }
+    }
+
+    @Override
+    public void onChange(ChangeEvent event) {
+        synchronized (writeLock) {
+            if (pendingDuringReload != null) {
+                pendingDuringReload.add(event);
+            }
+        }
+        try {
+            switch (event.getKind()) {
+                case USER -> {
+                    if (event.getOperation() == ChangeEvent.Operation.DELETE) {
+                        synchronized (writeLock) {
+                            index.remove(event.getUserId());
+                        }
+                    } else {
+                        this.refreshUser(event.getUserId(), event.getOperation() == ChangeEvent.Operation.CREATE);
+                    }
+                }
+                case ROLE_MAPPING -> {
+                    if (event.getUserId() != null) {
+                        this.refreshUser(event.getUserId(), true);
+                    }
+                }
+                case ROLE -> {
+                    if (event.getOperation() == ChangeEvent.Operation.DELETE && event.getRoleName() != null) {
+                        synchronized (writeLock) {
+                            index.dropRole(event.getRoleName());
+                        }
+                    } else if (event.getOperation() != ChangeEvent.Operation.CREATE) {
+                        //
+                        // Renames and deletes by id cannot be applied locally
+                        //
+                        this.reloadRoleMappings();
+                    }
+                }
+                default -> {
+                }
+            }
+        } catch (SSOIOException ex) {
+            logger.warn("Failed to apply {} to the realm replica, keeping the cached copy", event, ex);
+        }
+    }
+
+    private void refreshUser(String userId, boolean withRoles) throws SSOIOException {
+        if (userId == null) {
+            return;
+        }
+        User user = userManager.fetchUser(userId);
+        List<RealmRole> roles = null;
+        if (withRoles && user != null) {
+            try {
+                roles = userManager.getRealmRoles(userId);
+            } catch (SSOIOException ex) {
+                if (ex.getStatus() != 404) {
+                    throw ex;
+                }
+                user = null;
+            }
+        }
+        synchronized (writeLock) {
+            if (user == null) {
+                index.remove(userId);
+                return;
+            }
+            index.put(user);
+            if (roles != null) {
+                index.replaceRoles(userId, roles);
+            }
+        }
+    }
+
+    /**
+     * Reads every role mapping again into new maps and swaps them in, so
+     * readers never see a half filled index. Changes received meanwhile are
+     * applied again on top.
+     */
+    private void reloadRoleMappings() throws SSOIOException {
+        synchronized (reloadLock) {
+            synchronized (writeLock) {
+                pendingDuringReload = new ArrayList<>();
+            }
+            Index roles = new Index();
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread t = new Thread(RequestPriority.BATCH.wrap(r), "keycloak-replica-roles");
+                t.setDaemon(true);
+                return t;
+            });
+            List<ChangeEvent> pending;
+            try {
+                this.loadRoleMappings(roles, executor);
+            } catch (RuntimeException | SSOIOException ex) {
+                synchronized (writeLock) {
+                    pendingDuringReload = null;
+                }
+                throw ex;
+            } finally {
+                executor.shutdownNow();
+            }
+            synchronized (writeLock) {
+                this.index = this.index.withRolesOf(roles);
+                pending = pendingDuringReload;
+                pendingDuringReload = null;
+            }
+            for (ChangeEvent event : pending) {
+                this.onChange(event);
+            }
+        }
+    }
+
+    @Override
+    public String getUniqueName() {
+        return "realm-replica-" + System.identityHashCode(this);
+    }
+
+    public User getUserById(String userId) {
+        return userId != null ? index.byId.get(userId) : null;
+    }
+
+    public User getUserByUsername(String username) {
+        return username != null ? index.byUsername.get(username.toLowerCase(Locale.ROOT)) : null;
+    }
+
+    public User getUserByEmail(String email) {
+        return email != null ? index.byEmail.get(email.toLowerCase(Locale.ROOT)) : null;
+    }
+
+    /**
+     * Same lookup rule as {@link UserManager#findUser(String)}
+     *
+     * @param usernameOrEmail
+     * @return the user or null
+     */
+    public User findUser(String usernameOrEmail) {
+        if (usernameOrEmail == null) {
+            return null;
+        }
+        return usernameOrEmail.contains("@") ? getUserByEmail(usernameOrEmail) : getUserByUsername(usernameOrEmail);
+    }
+
+    public boolean exists(String usernameOrEmail) {
+        return this.findUser(usernameOrEmail) != null;
+    }
+
+    /**
+     * Direct realm roles of a user
+     *
+     * @param userId
+     * @return role names, empty when unknown
+     */
+    public Set<String> getRealmRoles(String userId) {
+        Set<String> roles = userId != null ? index.userRoles.get(userId) : null;
+        return roles != null ? Collections.unmodifiableSet(roles) : Collections.emptySet();
+    }
+
+    /**
+     * Users directly mapped to a realm role
+     *
+     * @param roleName
+     * @return user ids, empty when unknown
+     */
+    public Set<String> getUsersWithRole(String roleName) {
+        Set<String> users = roleName != null ? index.roleUsers.get(roleName) : null;
+        return users != null ? Collections.unmodifiableSet(users) : Collections.emptySet();
+    }
+
+    public boolean hasRole(String userId, String roleName) {
+        return this.getRealmRoles(userId).contains(roleName);
+    }
+
+    public int size() {
+        return index.byId.size();
+    }
+
+    /**
+     * The indexes. Reads are lock free, writes happen under the replica write
+     * lock (or on a private copy during a reload).
+     */
+    private static class Index {
+
+        private final Map<String, User> byId;
+        private final Map<String, User> byUsername;
+        private final Map<String, User> byEmail;
+        private final Map<String, Set<String>> roleUsers;
+        private final Map<String, Set<String>> userRoles;
+
+        Index() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+
+        private Index(Map<String, User> byId, Map<String, User> byUsername, Map<String, User> byEmail,
+                Map<String, Set<String>> roleUsers, Map<String, Set<String>> userRoles) {
+            this.byId = byId;
+            this.byUsername = byUsername;
+            this.byEmail = byEmail;
+            this.roleUsers = roleUsers;
+            this.userRoles = userRoles;
+        }
+
+        /**
+         * Same users, role mappings taken from another index
+         */
+        Index withRolesOf(Index roles) {
+            return new Index(byId, byUsername, byEmail, roles.roleUsers, roles.userRoles);
+        }
+
+        void put(User user) {
+            User previous = byId.put(user.getId(), user);
+            if (previous != null) {
+                this.unindex(previous);
+            }
+            if (user.getUsername() != null) {
+                byUsername.put(user.getUsername().toLowerCase(Locale.ROOT), user);
+            }
+            if (user.getEmail() != null) {
+                byEmail.put(user.getEmail().toLowerCase(Locale.ROOT), user);
+            }
+        }
+
+        void remove(String userId) {
+            if (userId == null) {
+                return;
+            }
+            User previous = byId.remove(userId);
+            if (previous != null) {
+                this.unindex(previous);
+            }
+            Set<String> roles = userRoles.remove(userId);
+            if (roles != null) {
+                roles.forEach(role -> {
+                    Set<String> users = roleUsers.get(role);
+                    if (users != null) {
+                        users.remove(userId);
+                    }
+                });
+            }
+        }
+
+        private void unindex(User user) {
+            if (user.getUsername() != null) {
+                byUsername.remove(user.getUsername().toLowerCase(Locale.ROOT), user);
+            }
+            if (user.getEmail() != null) {
+                byEmail.remove(user.getEmail().toLowerCase(Locale.ROOT), user);
+            }
+        }
+
+        void grant(String userId, String roleName) {
+            roleUsers.computeIfAbsent(roleName, k -> ConcurrentHashMap.newKeySet()).add(userId);
+            userRoles.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(roleName);
+        }
+
+        void replaceRoles(String userId, List<RealmRole> roles) {
+            Set<String> previous = userRoles.remove(userId);
+            if (previous != null) {
+                previous.forEach(role -> {
+                    Set<String> users = roleUsers.get(role);
+                    if (users != null) {
+                        users.remove(userId);
+                    }
+                });
+            }
+            for (RealmRole role : roles) {
+                this.grant(userId, role.getName());
+            }
+        }
+
+        void dropRole(String roleName) {
+            Set<String> users = roleUsers.remove(roleName);
+            if (users != null) {
+                users.forEach(userId -> {
+                    Set<String> roles = userRoles.get(userId);
+                    if (roles != null) {
+                        roles.remove(roleName);
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.cache;
+
+import dev.nishisan.keycloak.admin.client.events.ChangeEvent;
+import dev.nishisan.keycloak.admin.client.events.IChangeEventListener;
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.http.RequestPriority;
+import dev.nishisan.keycloak.admin.client.management.RealmManager;
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local copy of the realm role graph with the transitive closure of every
+ * composite role precomputed as a bitset over role indices.
+ *
+ * Effective realm roles of a user are computed from their direct mappings
+ * (for example from {@link RealmReplica#getRealmRoles(String)} or
+ * {@code UserManager.getRealmRoles}) with no network hop: one bitset lookup
+ * per direct role. The graph is reloaded in the background when the
+ * {@link dev.nishisan.keycloak.admin.client.events.AdminChangeFeed} reports a
+ * role change, queries keep answering from the previous graph meanwhile.
+ *
+ * Only realm composites are followed, client roles and roles inherited from
+ * groups are not included.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class RoleGraphCache implements IChangeEventListener {
+
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+    private final RealmManager realmManager;
+    private final int parallelism;
+    private final Logger logger = LoggerFactory.getLogger(RoleGraphCache.class);
+    private final Object loadLock = new Object();
+    private final AtomicBoolean reloadPending = new AtomicBoolean(false);
+    private volatile Graph graph = new Graph(new String[0], new BitSet[0]);
+    private volatile boolean loaded = false;
+    private ExecutorService reloader;
+
+    public RoleGraphCache(RealmManager realmManager) {
+        this(realmManager, 4);
+    }
+
+    /**
+     *
+     * @param realmManager
+     * @param parallelism composite listings fetched concurrently
+     */
+    public RoleGraphCache(RealmManager realmManager, int parallelism) {
+        this.realmManager = realmManager;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Loads (or reloads) the roles and their composites and computes the
+     * closure. A failed read leaves the previous graph in place.
+     *
+     * @throws SSOIOException on network errors or when Keycloak rejects a read
+     */
+    public void load() throws SSOIOException {
+        synchronized (loadLock) {
+            long start = System.currentTimeMillis();
+            List<RealmRole> roles = realmManager.listAllRoles(100);
+            String[] names = new String[roles.size()];
+            Map<String, Integer> index = new HashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                names[i] = roles.get(i).getName();
+                index.put(names[i], i);
+            }
+            int[][] children = this.loadComposites(roles, index);
+            BitSet[] closure = new BitSet[names.length];
+            for (int i = 0; i < names.length; i++) {
+                closure[i] = closure(i, children);
+            }
+            this.graph = new Graph(names, closure);
+            this.loaded = true;
+            logger.info("Role graph loaded: {} roles in {} ms", names.length, System.currentTimeMillis() - start);
+        }
+    }
+
+    private int[][] loadComposites(List<RealmRole> roles, Map<String, Integer> index) throws SSOIOException {
+        int[][] children = new int[roles.size()][];
+        int pool = POOL_SEQ.incrementAndGet();
+        AtomicInteger threadSeq = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(RequestPriority.BATCH.wrap(r), "keycloak-role-graph-" + pool + "-" + threadSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < roles.size(); i++) {
+                RealmRole role = roles.get(i);
+                if (!Boolean.TRUE.equals(role.getComposite())) {
+                    children[i] = new int[0];
+                    continue;
+                }
+                int parent = i;
+                futures.add(CompletableFuture.runAsync(() -> {
+                    List<RealmRole> composites;
+                    try {
+                        composites = realmManager.getRealmComposites(role.getName());
+                    } catch (SSOIOException ex) {
+                        throw new CompletionException(ex);
+                    }
+                    children[parent] = composites.stream()
+                            .map(c -> index.get(c.getName()))
+                            .filter(c -> c != null)
+                            .mapToInt(Integer::intValue)
+                            .toArray();
+                }, executor));
+            }
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException ex) {
+                    if (ex.getCause() instanceof SSOIOException sso) {
+                        throw sso;
+                    }
+                    throw ex;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return children;
+    }
+
+    /**
+     * Roles reachable from {@code root}, itself included. Cycles are
+     * tolerated.
+     */
+    private static BitSet closure(int root, int[][] children) {
+        BitSet seen = new BitSet(children.length);
+        int[] stack = new int[children.length];
+        int top = 0;
+        seen.set(root);
+        stack[top++] = root;
+        while (top > 0) {
+            int current = stack[--top];
+            for (int child : children[current]) {
+                if (!seen.get(child)) {
+                    seen.set(child);
+                    stack[top++] = child;
+                }
+            }
+        }
+        return seen;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Number of realm roles in the graph
+     *
+     * @return
+     */
+    public int size() {
+        return graph.names.length;
+    }
+
+    /**
+     * Effective realm roles given the direct realm mappings of a user. Roles
+     * unknown to the graph are returned as they are.
+     *
+     * @param directRoles role names directly mapped to the user
+     * @return direct roles plus everything their composites contain
+     */
+    public Set<String> getEffectiveRoles(Collection<String> directRoles) {
+        Graph g = this.graph;
+        BitSet bits = new BitSet(g.names.length);
+        Set<String> unknown = null;
+        for (String role : directRoles) {
+            Integer i = g.index.get(role);
+            if (i != null) {
+                bits.or(g.closure[i]);
+            } else {
+                if (unknown == null) {
+                    unknown = new LinkedHashSet<>();
+                }
+                unknown.add(role);
+            }
+        }
+        Set<String> effective = new LinkedHashSet<>();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            effective.add(g.names[i]);
+        }
+        if (unknown != null) {
+            effective.addAll(unknown);
+        }
+        return effective;
+    }
+
+    /**
+     * True if one of the direct roles is, or transitively contains, the
+     * given role
+     *
+     * @param directRoles role names directly mapped to the user
+     * @param role role to check
+     * @return
+     */
+    public boolean hasEffectiveRole(Collection<String> directRoles, String role) {
+        Graph g = this.graph;
+        Integer target = g.index.get(role);
+        if (target == null) {
+            return directRoles.contains(role);
+        }
+        for (String direct : directRoles) {
+            Integer i = g.index.get(direct);
+            if (i != null && g.closure[i].get(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * True if {@code role} is {@code other} or transitively contains it
+     *
+     * @param role
+     * @param other
+     * @return
+     */
+    public boolean implies(String role, String other) {
+        return this.hasEffectiveRole(Collections.singletonList(role), other);
+    }
+
+    /**
+     * Every role contained, directly or not, in a composite role, the role
+     * itself included
+     *
+     * @param role
+     * @return the closure, empty if the role is unknown
+     */
+    public Set<String> getCompositeClosure(String role) {
+        if (!graph.index.containsKey(role)) {
+            return Collections.emptySet();
+        }
+        return this.getEffectiveRoles(Collections.singletonList(role));
+    }
+
+    /**
+     * Reloads the graph in the background. Calls made while a reload is
+     * queued are coalesced.
+     */
+    public void invalidate() {
+        if (!reloadPending.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (this) {
+            if (reloader == null) {
+                reloader = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(RequestPriority.BATCH.wrap(r), "keycloak-role-graph-reload");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            reloader.submit(() -> {
+                reloadPending.set(false);
+                try {
+                    this.load();
+                } catch (SSOIOException | RuntimeException ex) {
+                    logger.warn("Role graph reload failed", ex);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onChange(ChangeEvent event) {
+        if (event.getKind() == ChangeEvent.Kind.ROLE) {
+            logger.debug("Role graph invalidated by: {}", event);
+            this.invalidate();
+        }
+    }
+
+    @Override
+    public String getUniqueName() {
+        return "role-graph-cache-" + System.identityHashCode(this);
+    }
+
+    public synchronized void shutdown() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+            reloader = null;
+        }
+    }
+
+    /**
+     * Immutable snapshot, swapped as a whole on reload
+     */
+    private static class Graph {
+
+        private final String[] names;
+        private final BitSet[] closure;
+        private final Map<String, Integer> index;
+
+        Graph(String[] names, BitSet[] closure) {
+            this.names = names;
+            this.closure = closure;
+            this.index = new HashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                index.put(names[i], i);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.cli;
+
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.management.UserManager;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Turns input records into user ids for the bulk role engine. Records with an
+ * {@code id} are passed through, records with only a {@code username} (or
+ * email) are looked up on the worker pool with a bounded look-ahead, so the
+ * lookups run in parallel while the ids keep the input order. Records that
+ * cannot be resolved are rejected on the reporter.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+class IdResolver implements Iterator<String> {
+
+    private final Iterator<Map<String, Object>> records;
+    private final UserManager userManager;
+    private final ExecutorService pool;
+    private final int window;
+    private final ProgressReporter progress;
+    private final ArrayDeque<CompletableFuture<Resolved>> pending = new ArrayDeque<>();
+    private String next;
+
+    IdResolver(Iterator<Map<String, Object>> records, UserManager userManager, ExecutorService pool, int window, ProgressReporter progress) {
+        this.records = records;
+        this.userManager = userManager;
+        this.pool = pool;
+        this.window = Math.max(1, window);
+        this.progress = progress;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            this.fill();
+            if (pending.isEmpty()) {
+                return false;
+            }
+            Resolved r = pending.pollFirst().join();
+            if (r.error != null) {
+                progress.reject(r.record, r.error);
+            } else {
+                progress.track(r.id, r.record);
+                next = r.id;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String id = next;
+        next = null;
+        return id;
+    }
+
+    private void fill() {
+        while (pending.size() < window && records.hasNext()) {
+            Map<String, Object> record = records.next();
+            Object error = record.get(RecordReader.ERROR_FIELD);
+            String id = KeycloakCli.text(record, "id");
+            String username = KeycloakCli.text(record, "username");
+            if (username == null) {
+                username = KeycloakCli.text(record, "email");
+            }
+            if (error != null) {
+                pending.addLast(CompletableFuture.completedFuture(new Resolved(record, null, error.toString())));
+            } else if (id != null) {
+                pending.addLast(CompletableFuture.completedFuture(new Resolved(record, id, null)));
+            } else if (username == null) {
+                pending.addLast(CompletableFuture.completedFuture(new Resolved(record, null, "Missing id or username")));
+            } else {
+                String lookup = username;
+                pending.addLast(CompletableFuture.supplyAsync(() -> this.lookup(record, lookup), pool));
+            }
+        }
+    }
+
+    private Resolved lookup(Map<String, Object> record, String username) {
+        try {
+            User user = userManager.findUser(username);
+            return user == null
+                    ? new Resolved(record, null, "User not found: " + username)
+                    : new Resolved(record, user.getId(), null);
+        } catch (SSOIOException | CompletionException ex) {
+            return new Resolved(record, null, ex.getMessage());
+        }
+    }
+
+    private static final class Resolved {
+
+        final Map<String, Object> record;
+        final String id;
+        final String error;
+
+        Resolved(Map<String, Object> record, String id, String error) {
+            this.record = record;
+            this.id = id;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,566 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import dev.nishisan.keycloak.admin.client.KeycloakAdminClient;
+import dev.nishisan.keycloak.admin.client.bulk.BulkExecutor;
+import dev.nishisan.keycloak.admin.client.bulk.BulkItemResult;
+import dev.nishisan.keycloak.admin.client.bulk.BulkOptions;
+import dev.nishisan.keycloak.admin.client.bulk.BulkOutcome;
+import dev.nishisan.keycloak.admin.client.bulk.ExistenceFilter;
+import dev.nishisan.keycloak.admin.client.bulk.PasswordHasher;
+import dev.nishisan.keycloak.admin.client.config.SSOConfig;
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.export.ExportOptions;
+import dev.nishisan.keycloak.admin.client.export.ExportStats;
+import dev.nishisan.keycloak.admin.client.management.UserManager;
+import dev.nishisan.keycloak.admin.client.types.Credentials;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Command line front end for the bulk engines:
+ *
+ * <pre>
+ * kc-admin create         --input users.csv     [--scan-existing] [--prehash]
+ * kc-admin grant          --input users.ndjson  --roles viewer,editor
+ * kc-admin revoke         --input users.csv     --roles editor
+ * kc-admin reset-password --input passwords.csv [--temporary]
+ * kc-admin export         --output realm.ndjson
+ * </pre>
+ *
+ * Inputs are streamed (see {@link RecordReader}), items run on
+ * {@code --parallelism} workers, progress goes to stderr and failed records
+ * to {@code <input>.failed.ndjson}. The connection comes from
+ * {@code --config <yaml>}, the KEYCLOAK_URL, KEYCLOAK_REALM,
+ * KEYCLOAK_CLIENT_ID and KEYCLOAK_CLIENT_SECRET variables, or
+ * {@code ./kc-admin.yaml}. Exit status is 0 when every item succeeded, 1 when
+ * some failed, 2 on usage errors and 3 when the run was aborted.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class KeycloakCli {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILURES = 1;
+    static final int EXIT_USAGE = 2;
+    static final int EXIT_ABORTED = 3;
+
+    private static final String USAGE = String.join("\n",
+            "usage: kc-admin <command> [options]",
+            "",
+            "commands:",
+            "  create          create the users of the input that do not exist yet",
+            "  grant           grant --roles to the users of the input",
+            "  revoke          revoke --roles from the users of the input",
+            "  reset-password  set the password of the users of the input",
+            "  export          write the realm roles and users as NDJSON to --output",
+            "",
+            "options:",
+            "  -i, --input <file|->     CSV (header line) or NDJSON input, - for stdin",
+            "      --format <csv|ndjson>  input format, from the extension by default",
+            "      --delimiter <char>   CSV delimiter (default ,)",
+            "      --failures <file>    failed records (default <input>.failed.ndjson)",
+            "  -p, --parallelism <n>    concurrent admin calls (default 8)",
+            "      --roles <a,b>        realm roles for grant and revoke",
+            "      --temporary          reset-password: user must change it on login",
+            "      --scan-existing      create: index the realm first to skip lookups",
+            "      --prehash            create: hash the passwords locally (PBKDF2 policies)",
+            "  -o, --output <file>      export target, resumed if interrupted",
+            "      --no-role-mappings   export: skip the role mappings",
+            "      --config <yaml>      connection settings (SSOConfig)",
+            "      --url, --realm, --client-id, --client-secret  override the settings",
+            "  -q, --quiet              no progress output",
+            "  -v, --verbose            client logging at INFO",
+            "",
+            "input fields: id, username, email, firstName, lastName, password, enabled,",
+            "emailVerified, temporary, groups, requiredActions (lists separated by ; in",
+            "CSV), attributes (object in NDJSON, attr.<name> columns in CSV)");
+
+    public static void main(String[] args) {
+        boolean verbose = Arrays.asList(args).contains("-v") || Arrays.asList(args).contains("--verbose");
+        if (System.getProperty("org.slf4j.simpleLogger.defaultLogLevel") == null) {
+            System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", verbose ? "info" : "warn");
+        }
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs one command, without calling {@link System#exit(int)}
+     *
+     * @param args
+     * @param out results
+     * @param err usage, errors and progress
+     * @return the exit status
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        Map<String, String> opts = new HashMap<>();
+        String command = null;
+        try {
+            command = parse(args, opts);
+        } catch (IllegalArgumentException ex) {
+            err.println(ex.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if ("help".equals(command) || opts.containsKey("help")) {
+            out.println(USAGE);
+            return EXIT_OK;
+        }
+        if (command == null) {
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if ("train".equals(command)) {
+            return train(out, err);
+        }
+        SSOConfig config;
+        try {
+            config = loadConfig(opts);
+        } catch (IOException | IllegalArgumentException ex) {
+            err.println("Configuration error: " + ex.getMessage());
+            return EXIT_USAGE;
+        }
+        KeycloakAdminClient client = new KeycloakAdminClient(config);
+        try {
+            switch (command) {
+                case "create":
+                    return create(client, opts, out, err);
+                case "grant":
+                    return roles(client, true, opts, out, err);
+                case "revoke":
+                    return roles(client, false, opts, out, err);
+                case "reset-password":
+                    return resetPassword(client, opts, out, err);
+                case "export":
+                    return export(client, opts, out, err);
+                default:
+                    err.println("Unknown command: " + command);
+                    err.println(USAGE);
+                    return EXIT_USAGE;
+            }
+        } catch (IllegalArgumentException ex) {
+            err.println(ex.getMessage());
+            return EXIT_USAGE;
+        } catch (NoSuchFileException ex) {
+            err.println("Input not found: " + ex.getFile());
+            return EXIT_USAGE;
+        } catch (IOException | SSOIOException | UncheckedIOException | IllegalStateException ex) {
+            err.println("Aborted: " + ex.getMessage());
+            return EXIT_ABORTED;
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static String parse(String[] args, Map<String, String> opts) {
+        String command = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-i":
+                    arg = "--input";
+                    break;
+                case "-o":
+                    arg = "--output";
+                    break;
+                case "-p":
+                    arg = "--parallelism";
+                    break;
+                case "-q":
+                    arg = "--quiet";
+                    break;
+                case "-v":
+                    arg = "--verbose";
+                    break;
+                case "-h":
+                    arg = "--help";
+                    break;
+                default:
+                    break;
+            }
+            if (!arg.startsWith("--")) {
+                if (command != null) {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+                command = arg;
+                continue;
+            }
+            String name = arg.substring(2);
+            switch (name) {
+                case "temporary":
+                case "scan-existing":
+                case "prehash":
+                case "no-role-mappings":
+                case "quiet":
+                case "verbose":
+                case "help":
+                    opts.put(name, "true");
+                    break;
+                default:
+                    if (i + 1 >= args.length) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    opts.put(name, args[++i]);
+            }
+        }
+        return command;
+    }
+
+    private static SSOConfig loadConfig(Map<String, String> opts) throws IOException {
+        SSOConfig config;
+        String file = opts.get("config");
+        if (file == null && System.getenv("KEYCLOAK_URL") == null && Files.exists(Path.of("kc-admin.yaml"))) {
+            file = "kc-admin.yaml";
+        }
+        if (file != null) {
+            config = new ObjectMapper(new YAMLFactory()).readValue(Path.of(file).toFile(), SSOConfig.class);
+        } else {
+            config = new SSOConfig(System.getenv("KEYCLOAK_CLIENT_ID"), System.getenv("KEYCLOAK_CLIENT_SECRET"),
+                    System.getenv("KEYCLOAK_REALM"), System.getenv("KEYCLOAK_URL"));
+        }
+        if (opts.containsKey("url")) {
+            config.setBaseUrl(opts.get("url"));
+        }
+        if (opts.containsKey("realm")) {
+            config.setRealm(opts.get("realm"));
+        }
+        if (opts.containsKey("client-id")) {
+            config.setClientId(opts.get("client-id"));
+        }
+        if (opts.containsKey("client-secret")) {
+            config.setClientSecret(opts.get("client-secret"));
+        }
+        if (config.getBaseUrl() == null || config.getRealm() == null || config.getClientId() == null) {
+            throw new IllegalArgumentException("baseUrl, realm and clientId are required (--config, KEYCLOAK_* or flags)");
+        }
+        return config;
+    }
+
+    private static int create(KeycloakAdminClient client, Map<String, String> opts, PrintStream out, PrintStream err) throws IOException, SSOIOException {
+        BulkOptions bulk = bulkOptions(opts);
+        ExistenceFilter filter = null;
+        if (opts.containsKey("scan-existing")) {
+            filter = ExistenceFilter.fromRealm(client.getUserManager(), 100_000, 0.01, null);
+        }
+        PasswordHasher hasher = opts.containsKey("prehash") ? PasswordHasher.forRealm(client.getRealmManager()) : null;
+        try (RecordReader input = openInput(opts);
+                ProgressReporter progress = reporter("create", input, opts, err)) {
+            Iterator<User> users = convert(input, progress, KeycloakCli::toUser, User::getUsername);
+            if (hasher != null) {
+                users = hasher.prehash(users, hasher.getParallelism() * 4);
+            }
+            client.getBulkUserImporter().createOrGet(users, filter, bulk, progress);
+            return summary(progress, out);
+        } finally {
+            if (hasher != null) {
+                hasher.close();
+            }
+        }
+    }
+
+    private static int roles(KeycloakAdminClient client, boolean grant, Map<String, String> opts, PrintStream out, PrintStream err) throws IOException, SSOIOException {
+        String roles = opts.get("roles");
+        if (roles == null || roles.isBlank()) {
+            throw new IllegalArgumentException("--roles is required");
+        }
+        List<String> roleNames = split(roles, ",");
+        BulkOptions bulk = bulkOptions(opts);
+        ExecutorService pool = workerPool(bulk.getParallelism());
+        try (RecordReader input = openInput(opts);
+                ProgressReporter progress = reporter(grant ? "grant" : "revoke", input, opts, err)) {
+            IdResolver ids = new IdResolver(input, client.getUserManager(), pool, bulk.getParallelism() * 4, progress);
+            if (grant) {
+                client.getBulkRoleManager().assign(roleNames, ids, bulk, progress);
+            } else {
+                client.getBulkRoleManager().revoke(roleNames, ids, bulk, progress);
+            }
+            return summary(progress, out);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static int resetPassword(KeycloakAdminClient client, Map<String, String> opts, PrintStream out, PrintStream err) throws IOException {
+        boolean temporaryDefault = opts.containsKey("temporary");
+        UserManager users = client.getUserManager();
+        try (RecordReader input = openInput(opts);
+                ProgressReporter progress = reporter("reset-password", input, opts, err)) {
+            Iterator<Map<String, Object>> records = convert(input, progress, record -> {
+                if (text(record, "password") == null) {
+                    throw new IllegalArgumentException("Missing password");
+                }
+                if (text(record, "id") == null && text(record, "username") == null) {
+                    throw new IllegalArgumentException("Missing id or username");
+                }
+                return record;
+            }, KeycloakCli::keyOf);
+            new BulkExecutor<Map<String, Object>>(bulkOptions(opts), progress).run(records, KeycloakCli::keyOf, record -> {
+                String key = keyOf(record);
+                try {
+                    String id = text(record, "id");
+                    if (id == null) {
+                        User user = users.findUser(text(record, "username"));
+                        if (user == null) {
+                            return new BulkItemResult(key, BulkOutcome.FAILED, "User not found");
+                        }
+                        id = user.getId();
+                    }
+                    boolean temporary = record.containsKey("temporary") ? bool(record, "temporary") : temporaryDefault;
+                    return users.changePassword(id, text(record, "password"), temporary)
+                            ? new BulkItemResult(key, BulkOutcome.APPLIED, null)
+                            : new BulkItemResult(key, BulkOutcome.FAILED, "Password rejected");
+                } catch (SSOIOException ex) {
+                    return new BulkItemResult(key, BulkOutcome.FAILED, ex.getMessage());
+                }
+            });
+            return summary(progress, out);
+        }
+    }
+
+    private static int export(KeycloakAdminClient client, Map<String, String> opts, PrintStream out, PrintStream err) throws SSOIOException {
+        String output = opts.get("output");
+        if (output == null) {
+            throw new IllegalArgumentException("--output is required");
+        }
+        ExportOptions export = new ExportOptions();
+        export.setParallelism(bulkOptions(opts).getParallelism());
+        export.setIncludeRoleMappings(!opts.containsKey("no-role-mappings"));
+        ExportStats stats = client.getRealmExporter().export(Path.of(output), export);
+        out.println(stats);
+        return EXIT_OK;
+    }
+
+    /**
+     * Exercises the parsing, mapping, client and bulk paths without a server
+     * (the calls fail fast on a closed local port). Run by the {@code cli}
+     * build profile to record the AppCDS archive.
+     */
+    private static int train(PrintStream out, PrintStream err) {
+        String csv = "username,email,password,groups,attr.department\n"
+                + "\"train, one\",one@example.com,x,/a;/b,sales\n";
+        String ndjson = "{\"username\":\"two\",\"email\":\"two@example.com\",\"attributes\":{\"k\":[\"v\"]}}\n{bad\n";
+        SSOConfig config = new SSOConfig("train", "train", "train", "http://127.0.0.1:9");
+        KeycloakAdminClient client = new KeycloakAdminClient(config);
+        Path failures = null;
+        try {
+            failures = Files.createTempFile("kc-admin-train", ".ndjson");
+            for (String[] input : new String[][]{{csv, RecordReader.FORMAT_CSV}, {ndjson, RecordReader.FORMAT_NDJSON}}) {
+                try (RecordReader reader = RecordReader.of(new ByteArrayInputStream(input[0].getBytes(StandardCharsets.UTF_8)), input[1]);
+                        ProgressReporter progress = new ProgressReporter("train", new PrintStream(OutputStream.nullOutputStream()), reader, failures, true)) {
+                    Iterator<User> users = convert(reader, progress, KeycloakCli::toUser, User::getUsername);
+                    client.getBulkUserImporter().createOrGet(users, null, new BulkOptions(2, 10), progress);
+                }
+            }
+            out.println("Training run done");
+            return EXIT_OK;
+        } catch (IOException ex) {
+            err.println("Training run failed: " + ex.getMessage());
+            return EXIT_ABORTED;
+        } finally {
+            client.shutdown();
+            if (failures != null) {
+                failures.toFile().delete();
+            }
+        }
+    }
+
+    private static RecordReader openInput(Map<String, String> opts) throws IOException {
+        String input = opts.get("input");
+        if (input == null) {
+            throw new IllegalArgumentException("--input is required");
+        }
+        String delimiter = opts.getOrDefault("delimiter", ",");
+        char d = "\\t".equals(delimiter) ? '\t' : delimiter.charAt(0);
+        return RecordReader.open(input, opts.get("format"), d);
+    }
+
+    private static ProgressReporter reporter(String label, RecordReader input, Map<String, String> opts, PrintStream err) throws IOException {
+        String failures = opts.get("failures");
+        if (failures == null && !"-".equals(opts.get("input"))) {
+            failures = opts.get("input") + ".failed.ndjson";
+        }
+        PrintStream progressOut = opts.containsKey("quiet") ? null : err;
+        boolean terminal = System.console() != null && err == System.err;
+        return new ProgressReporter(label, progressOut, input, failures != null ? Path.of(failures) : null, terminal);
+    }
+
+    private static BulkOptions bulkOptions(Map<String, String> opts) {
+        BulkOptions bulk = new BulkOptions();
+        if (opts.containsKey("parallelism")) {
+            try {
+                bulk.setParallelism(Math.max(1, Integer.parseInt(opts.get("parallelism"))));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid --parallelism: " + opts.get("parallelism"));
+            }
+        }
+        return bulk;
+    }
+
+    private static ExecutorService workerPool(int threads) {
+        AtomicInteger threadSeq = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "keycloak-cli-" + threadSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static int summary(ProgressReporter progress, PrintStream out) {
+        out.printf("processed=%d applied=%d skipped=%d failed=%d%n",
+                progress.getProcessed(), progress.getApplied(), progress.getSkipped(), progress.getFailed());
+        return progress.getFailed() > 0 ? EXIT_FAILURES : EXIT_OK;
+    }
+
+    /**
+     * Maps records lazily, records that are malformed or cannot be converted
+     * are rejected on the reporter and skipped, the others are tracked under
+     * their key
+     */
+    private static <T> Iterator<T> convert(Iterator<Map<String, Object>> records, ProgressReporter progress,
+            Function<Map<String, Object>, T> mapper, Function<T, String> keyOf) {
+        return new Iterator<T>() {
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && records.hasNext()) {
+                    Map<String, Object> record = records.next();
+                    Object error = record.get(RecordReader.ERROR_FIELD);
+                    if (error != null) {
+                        progress.reject(record, error.toString());
+                        continue;
+                    }
+                    try {
+                        T item = mapper.apply(record);
+                        progress.track(keyOf.apply(item), record);
+                        next = item;
+                    } catch (IllegalArgumentException ex) {
+                        progress.reject(record, ex.getMessage());
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T item = next;
+                next = null;
+                return item;
+            }
+        };
+    }
+
+    static User toUser(Map<String, Object> record) {
+        String username = text(record, "username");
+        if (username == null) {
+            throw new IllegalArgumentException("Missing username");
+        }
+        User user = new User(username, record.containsKey("enabled") ? bool(record, "enabled") : Boolean.TRUE,
+                text(record, "firstName"), text(record, "lastName"), text(record, "email"),
+                record.containsKey("emailVerified") ? bool(record, "emailVerified") : Boolean.FALSE);
+        String password = text(record, "password");
+        if (password != null) {
+            user.getCredentials().add(new Credentials("password", password, bool(record, "temporary")));
+        }
+        user.setGroups(list(record.get("groups")));
+        user.setRequiredActions(list(record.get("requiredActions")));
+        Map<String, List<String>> attributes = new LinkedHashMap<>();
+        Object nested = record.get("attributes");
+        if (nested instanceof Map) {
+            ((Map<?, ?>) nested).forEach((k, v) -> attributes.put(String.valueOf(k), list(v)));
+        }
+        record.forEach((k, v) -> {
+            if (k.startsWith("attr.") && k.length() > 5) {
+                attributes.put(k.substring(5), list(v));
+            }
+        });
+        if (!attributes.isEmpty()) {
+            user.setAttributes(attributes);
+        }
+        return user;
+    }
+
+    private static String keyOf(Map<String, Object> record) {
+        String id = text(record, "id");
+        return id != null ? id : text(record, "username");
+    }
+
+    static String text(Map<String, Object> record, String field) {
+        Object value = record.get(field);
+        if (value == null) {
+            return null;
+        }
+        String s = value.toString().trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    private static boolean bool(Map<String, Object> record, String field) {
+        Object value = record.get(field);
+        return value instanceof Boolean ? (Boolean) value : value != null && Boolean.parseBoolean(value.toString().trim());
+    }
+
+    private static List<String> list(Object value) {
+        if (value == null) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object v : (List<?>) value) {
+                values.add(String.valueOf(v));
+            }
+        } else {
+            values.addAll(split(value.toString(), ";"));
+        }
+        return values.isEmpty() ? null : values;
+    }
+
+    private static List<String> split(String value, String separator) {
+        List<String> parts = new ArrayList<>();
+        for (String part : value.split(separator)) {
+            if (!part.isBlank()) {
+                parts.add(part.trim());
+            }
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nishisan.keycloak.admin.client.bulk.BulkItemResult;
+import dev.nishisan.keycloak.admin.client.bulk.BulkOutcome;
+import dev.nishisan.keycloak.admin.client.bulk.BulkResult;
+import dev.nishisan.keycloak.admin.client.events.IBulkProgressListener;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress bar and failure file of a CLI run.
+ *
+ * The records handed to the bulk engine are tracked by key until their
+ * outcome arrives, so a failed item is written to the failure file as the
+ * original record plus an {@code _error} field. The failure file can be fed
+ * back as NDJSON input once the cause is fixed. On a terminal the bar is
+ * redrawn in place, otherwise a progress line is printed every few seconds.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class ProgressReporter implements IBulkProgressListener, AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BAR_WIDTH = 30;
+
+    private final String label;
+    private final PrintStream out;
+    private final RecordReader input;
+    private final BufferedWriter failures;
+    private final boolean interactive;
+    private final long renderEveryNanos;
+    private final Map<String, Map<String, Object>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lastRender = new AtomicLong();
+    private final long start = System.nanoTime();
+
+    /**
+     *
+     * @param label command name shown before the bar
+     * @param out where the bar goes (stderr), null for quiet runs
+     * @param input the input, for the percentage, may be null
+     * @param failureFile NDJSON file for failed records, null to skip
+     * @param interactive true to redraw the bar in place
+     * @throws IOException if the failure file cannot be created
+     */
+    public ProgressReporter(String label, PrintStream out, RecordReader input, Path failureFile, boolean interactive) throws IOException {
+        this.label = label;
+        this.out = out;
+        this.input = input;
+        this.failures = failureFile != null ? Files.newBufferedWriter(failureFile, StandardCharsets.UTF_8) : null;
+        this.interactive = interactive;
+        this.renderEveryNanos = TimeUnit.MILLISECONDS.toNanos(interactive ? 200 : 5000);
+    }
+
+    /**
+     * Remembers the record of an item about to be submitted
+     *
+     * @param key
+     * @param record
+     */
+    public void track(String key, Map<String, Object> record) {
+        inFlight.put(key, record);
+    }
+
+    /**
+     * Records a failure detected before the item reached the bulk engine
+     * (parse error, missing field, unknown user)
+     *
+     * @param record
+     * @param error
+     */
+    public void reject(Map<String, Object> record, String error) {
+        failed.incrementAndGet();
+        this.writeFailure(record, error);
+        this.render(false);
+    }
+
+    @Override
+    public void onItem(BulkItemResult item) {
+        Map<String, Object> record = inFlight.remove(item.getKey());
+        if (item.getOutcome() == BulkOutcome.APPLIED) {
+            applied.incrementAndGet();
+        } else if (item.getOutcome() == BulkOutcome.SKIPPED) {
+            skipped.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+            if (record == null) {
+                record = new LinkedHashMap<>();
+                record.put("key", item.getKey());
+            }
+            this.writeFailure(record, item.getDetail());
+        }
+        this.render(false);
+    }
+
+    @Override
+    public void onProgress(BulkResult progress) {
+        this.render(false);
+    }
+
+    public long getApplied() {
+        return applied.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getProcessed() {
+        return applied.get() + skipped.get() + failed.get();
+    }
+
+    private void writeFailure(Map<String, Object> record, String error) {
+        if (failures == null) {
+            return;
+        }
+        Map<String, Object> line = new LinkedHashMap<>(record);
+        line.remove(RecordReader.LINE_FIELD);
+        line.put(RecordReader.ERROR_FIELD, error);
+        try {
+            String json = MAPPER.writeValueAsString(line);
+            synchronized (failures) {
+                failures.write(json);
+                failures.write('\n');
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to write the failure file", ex);
+        }
+    }
+
+    private void render(boolean last) {
+        if (out == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long previous = lastRender.get();
+        if (!last && (now - previous < renderEveryNanos || !lastRender.compareAndSet(previous, now))) {
+            return;
+        }
+        long processed = this.getProcessed();
+        double seconds = Math.max(0.001, (now - start) / 1e9);
+        StringBuilder sb = new StringBuilder();
+        sb.append(label).append(' ');
+        if (input != null && input.getSize() > 0) {
+            double fraction = Math.min(1.0, last ? 1.0 : input.getBytesRead() / (double) input.getSize());
+            int filled = (int) (fraction * BAR_WIDTH);
+            sb.append('[').append("#".repeat(filled)).append("-".repeat(BAR_WIDTH - filled)).append("] ");
+            sb.append(String.format("%3d%% ", (int) (fraction * 100)));
+        }
+        sb.append(String.format("%d done %.0f/s applied=%d skipped=%d failed=%d",
+                processed, processed / seconds, applied.get(), skipped.get(), failed.get()));
+        synchronized (out) {
+            if (interactive) {
+                out.print('\r');
+                out.print(sb);
+                if (last) {
+                    out.println();
+                }
+            } else {
+                out.println(sb);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Draws the final line and closes the failure file
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        this.render(true);
+        if (failures != null) {
+            failures.close();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.cli;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams records from a CSV file (first line is the header) or from NDJSON
+ * (one JSON object per line). Only the current record is kept in memory, so
+ * inputs of any size can be processed.
+ *
+ * CSV values are strings, quoted fields may contain the delimiter, doubled
+ * quotes and line breaks. NDJSON values keep their JSON types (strings,
+ * numbers, booleans, lists and objects). A line that cannot be parsed yields
+ * a record with {@link #ERROR_FIELD} set instead of ending the stream.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class RecordReader implements Iterator<Map<String, Object>>, AutoCloseable {
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+    /**
+     * Set on records that could not be parsed, with the reason
+     */
+    public static final String ERROR_FIELD = "_error";
+    /**
+     * Line number of the record in the input
+     */
+    public static final String LINE_FIELD = "_line";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final CountingInputStream counter;
+    private final BufferedReader reader;
+    private final boolean csv;
+    private final char delimiter;
+    private final long size;
+    private List<String> header;
+    private long lineNumber = 0;
+    private Map<String, Object> next;
+    private boolean done = false;
+
+    private RecordReader(InputStream in, long size, String format, char delimiter) {
+        this.counter = new CountingInputStream(in);
+        this.reader = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8), 64 * 1024);
+        this.csv = FORMAT_CSV.equals(format);
+        this.delimiter = delimiter;
+        this.size = size;
+    }
+
+    /**
+     * Opens a file, or stdin when the path is "-"
+     *
+     * @param input file path or "-"
+     * @param format csv or ndjson, null to pick from the file extension
+     * @param delimiter CSV field delimiter
+     * @return
+     * @throws IOException
+     */
+    public static RecordReader open(String input, String format, char delimiter) throws IOException {
+        String fmt = format != null ? format.toLowerCase(Locale.ROOT) : formatOf(input);
+        if (!FORMAT_CSV.equals(fmt) && !FORMAT_NDJSON.equals(fmt)) {
+            throw new IllegalArgumentException("Unknown input format:[" + fmt + "], use csv or ndjson");
+        }
+        if ("-".equals(input)) {
+            return new RecordReader(System.in, -1, fmt, delimiter);
+        }
+        Path path = Path.of(input);
+        return new RecordReader(Files.newInputStream(path), Files.size(path), fmt, delimiter);
+    }
+
+    /**
+     * Reads from a stream, used with stdin and by tests
+     *
+     * @param in
+     * @param format csv or ndjson
+     * @return
+     */
+    public static RecordReader of(InputStream in, String format) {
+        return new RecordReader(in, -1, format, ',');
+    }
+
+    private static String formatOf(String input) {
+        String lower = input.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl") || lower.endsWith(".json")) {
+            return FORMAT_NDJSON;
+        }
+        return FORMAT_CSV;
+    }
+
+    /**
+     * @return bytes consumed so far (read ahead by the buffer)
+     */
+    public long getBytesRead() {
+        return counter.count;
+    }
+
+    /**
+     * @return input size in bytes, -1 for streams
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            try {
+                next = csv ? this.readCsv() : this.readNdjson();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            done = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public Map<String, Object> next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Map<String, Object> record = next;
+        next = null;
+        return record;
+    }
+
+    private Map<String, Object> readNdjson() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        Map<String, Object> record;
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> parsed = MAPPER.readValue(line, LinkedHashMap.class);
+            record = parsed;
+        } catch (JsonProcessingException ex) {
+            record = new LinkedHashMap<>();
+            record.put(ERROR_FIELD, "Invalid JSON: " + ex.getOriginalMessage());
+        }
+        record.put(LINE_FIELD, lineNumber);
+        return record;
+    }
+
+    private Map<String, Object> readCsv() throws IOException {
+        if (header == null) {
+            List<String> names = this.readCsvFields();
+            if (names == null) {
+                return null;
+            }
+            header = new ArrayList<>();
+            for (String name : names) {
+                header.add(name.trim());
+            }
+        }
+        List<String> fields = this.readCsvFields();
+        if (fields == null) {
+            return null;
+        }
+        Map<String, Object> record = new LinkedHashMap<>();
+        if (fields.size() > header.size()) {
+            record.put(ERROR_FIELD, "Expected " + header.size() + " fields, got " + fields.size());
+        }
+        for (int i = 0; i < Math.min(fields.size(), header.size()); i++) {
+            if (!fields.get(i).isEmpty()) {
+                record.put(header.get(i), fields.get(i));
+            }
+        }
+        record.put(LINE_FIELD, lineNumber);
+        return record;
+    }
+
+    /**
+     * Reads one CSV record, following quoted fields across lines. Blank lines
+     * are skipped.
+     */
+    private List<String> readCsvFields() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c != '"') {
+                        current.append(c);
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    fields.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            if (!quoted) {
+                break;
+            }
+            line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Unterminated quoted field at line " + lineNumber);
+            }
+            lineNumber++;
+            current.append('\n');
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private volatile long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -16,6 +16,8 @@
  */
 package dev.nishisan.keycloak.admin.client.config;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -31,6 +33,38 @@ public class SSOConfig {
     private String realm;
     private String baseUrl;
     private Map<String, String> headers = new ConcurrentHashMap<>();
+    /**
+     * Optional list of Keycloak node URLs. When more than one is given the
+     * admin calls are spread across them instead of going through baseUrl.
+     */
+    private List<String> nodeUrls = new ArrayList<>();
+    private long healthCheckIntervalMs = 5000L;
+    private int nodeFailureThreshold = 3;
+    /**
+     * JSON codec used by the managers: "gson" (default) or "jackson"
+     */
+    private String jsonCodec = "gson";
+    /**
+     * When true the client fetches the token, resolves DNS and opens
+     * {@link #warmUpConnections} keep-alive connections per node during
+     * construction, waiting at most {@link #warmUpTimeoutMs}
+     */
+    private boolean warmUp = false;
+    private int warmUpConnections = 2;
+    private long warmUpTimeoutMs = 3000L;
+    /**
+     * Share of the slots this realm gets on a shared
+     * {@link dev.nishisan.keycloak.admin.client.http.RequestScheduler}, and
+     * its cap on calls in flight (0 for none)
+     */
+    private int schedulerWeight = 1;
+    private int schedulerMaxConcurrent = 0;
+    /**
+     * When above 0 and no shared scheduler is given, the client builds its
+     * own {@link dev.nishisan.keycloak.admin.client.http.RequestScheduler}
+     * with this many slots, so batch calls queue behind interactive ones
+     */
+    private int maxConcurrentRequests = 0;
 
     public SSOConfig() {
     }
@@ -66,7 +100,16 @@ public class SSOConfig {
         this.realm = realm;
     }
 
+    /**
+     * The Keycloak base URL. When no baseUrl is configured but node URLs are,
+     * the first node is used.
+     *
+     * @return the base url
+     */
     public String getBaseUrl() {
+        if ((baseUrl == null || baseUrl.isBlank()) && nodeUrls != null && !nodeUrls.isEmpty()) {
+            return nodeUrls.get(0);
+        }
         return baseUrl;
     }
 
@@ -74,8 +117,111 @@ public class SSOConfig {
         this.baseUrl = baseUrl;
     }
 
+    public List<String> getNodeUrls() {
+        return nodeUrls;
+    }
+
+    public void setNodeUrls(List<String> nodeUrls) {
+        this.nodeUrls = nodeUrls;
+    }
+
+    public long getHealthCheckIntervalMs() {
+        return healthCheckIntervalMs;
+    }
+
+    public void setHealthCheckIntervalMs(long healthCheckIntervalMs) {
+        this.healthCheckIntervalMs = healthCheckIntervalMs;
+    }
+
+    public int getNodeFailureThreshold() {
+        return nodeFailureThreshold;
+    }
+
+    public void setNodeFailureThreshold(int nodeFailureThreshold) {
+        this.nodeFailureThreshold = nodeFailureThreshold;
+    }
+
+    public String getJsonCodec() {
+        return jsonCodec;
+    }
+
+    public void setJsonCodec(String jsonCodec) {
+        this.jsonCodec = jsonCodec;
+    }
+
+    public boolean isWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    public int getWarmUpConnections() {
+        return warmUpConnections;
+    }
+
+    public void setWarmUpConnections(int warmUpConnections) {
+        this.warmUpConnections = warmUpConnections;
+    }
+
+    public long getWarmUpTimeoutMs() {
+        return warmUpTimeoutMs;
+    }
+
+    public void setWarmUpTimeoutMs(long warmUpTimeoutMs) {
+        this.warmUpTimeoutMs = warmUpTimeoutMs;
+    }
+
+    public int getSchedulerWeight() {
+        return schedulerWeight;
+    }
+
+    public void setSchedulerWeight(int schedulerWeight) {
+        this.schedulerWeight = schedulerWeight;
+    }
+
+    public int getSchedulerMaxConcurrent() {
+        return schedulerMaxConcurrent;
+    }
+
+    public void setSchedulerMaxConcurrent(int schedulerMaxConcurrent) {
+        this.schedulerMaxConcurrent = schedulerMaxConcurrent;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * True when admin calls should be balanced across {@link #getNodeUrls()}
+     *
+     * @return
+     */
+    public boolean isMultiNode() {
+        return nodeUrls != null && nodeUrls.size() > 1;
+    }
+
     public String getTokenUrl() {
-        return this.baseUrl + "/realms/" + this.realm + "/protocol/openid-connect/token";
+        return this.getTokenUrl(this.getBaseUrl());
+    }
+
+    /**
+     * Token endpoint of the realm on the given Keycloak URL, used to send the
+     * token requests to one of the {@link #getNodeUrls()}
+     *
+     * @param base a Keycloak base or node URL
+     * @return
+     */
+    public String getTokenUrl(String base) {
+        if (base != null && base.endsWith("/")) {
+            base = base.substring(0, base.length() - 1);
+        }
+        return base + "/realms/" + this.realm + "/protocol/openid-connect/token";
     }
 
     public Map<String, String> getExtraHeaders() {
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.events;
+
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.http.RequestPriority;
+import dev.nishisan.keycloak.admin.client.jfr.ListenerDispatchEvent;
+import dev.nishisan.keycloak.admin.client.management.AdminEventManager;
+import dev.nishisan.keycloak.admin.client.types.AdminEvent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polls the realm admin events incrementally and publishes them as typed
+ * {@link ChangeEvent}s, oldest first.
+ *
+ * The cursor is the time of the newest event delivered plus the keys of the
+ * events at that exact millisecond, so nothing is delivered twice and nothing
+ * is skipped when several events share a timestamp. When a cursor file is
+ * given it is saved after each poll and the feed continues from it after a
+ * restart.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class AdminChangeFeed {
+
+    private final AdminEventManager eventManager;
+    private final Path cursorFile;
+    private final int pageSize;
+    private final Map<String, IChangeEventListener> listeners = new ConcurrentHashMap<>();
+    private final Logger logger = LoggerFactory.getLogger(AdminChangeFeed.class);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(RequestPriority.BATCH.wrap(r), "keycloak-change-feed");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> pollTask;
+    private long cursorTime;
+    private Set<String> cursorKeys = new HashSet<>();
+
+    /**
+     *
+     * @param eventManager the admin events reader
+     * @param cursorFile where the cursor is persisted, null keeps it in memory
+     * @param startFrom where to start when there is no saved cursor, null
+     * means now
+     * @throws SSOIOException when the cursor file cannot be read
+     */
+    public AdminChangeFeed(AdminEventManager eventManager, Path cursorFile, Instant startFrom) throws SSOIOException {
+        this(eventManager, cursorFile, startFrom, 100);
+    }
+
+    public AdminChangeFeed(AdminEventManager eventManager, Path cursorFile, Instant startFrom, int pageSize) throws SSOIOException {
+        this.eventManager = eventManager;
+        this.cursorFile = cursorFile;
+        this.pageSize = pageSize;
+        this.cursorTime = (startFrom != null ? startFrom : Instant.now()).toEpochMilli();
+        this.loadCursor();
+    }
+
+    public void registerListener(IChangeEventListener listener) {
+        this.listeners.put(listener.getUniqueName(), listener);
+    }
+
+    public void unregisterListener(String uniqueName) {
+        this.listeners.remove(uniqueName);
+    }
+
+    /**
+     * Starts polling in the background
+     *
+     * @param intervalMs delay between polls
+     */
+    public synchronized void start(long intervalMs) {
+        if (this.pollTask != null) {
+            return;
+        }
+        this.pollTask = this.scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                this.poll();
+            } catch (SSOIOException | RuntimeException ex) {
+                logger.warn("Admin change feed poll failed", ex);
+            }
+        }, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (this.pollTask != null) {
+            this.pollTask.cancel(false);
+            this.pollTask = null;
+        }
+        this.scheduler.shutdown();
+    }
+
+    /**
+     * Fetches and publishes the events newer than the cursor
+     *
+     * @return the number of events published
+     * @throws SSOIOException on network errors, when Keycloak rejects a page
+     * (nothing is published and the cursor stays put) or when the cursor
+     * cannot be saved
+     */
+    public synchronized int poll() throws SSOIOException {
+        //
+        // Keycloak filters by day in the server time zone, one day of slack
+        // covers any offset
+        //
+        Instant from = Instant.ofEpochMilli(cursorTime).minus(1, ChronoUnit.DAYS);
+        //
+        // Keyed, as a change made between two pages shifts the listing and
+        // lists the last event of a page again at the top of the next one
+        //
+        Map<String, AdminEvent> newer = new LinkedHashMap<>();
+        int first = 0;
+        boolean reachedCursor = false;
+        while (!reachedCursor) {
+            List<AdminEvent> page = eventManager.listAdminEvents(from, null, first, pageSize);
+            for (AdminEvent event : page) {
+                if (event.getTime() < cursorTime) {
+                    //
+                    // Pages come newest first
+                    //
+                    reachedCursor = true;
+                } else if (event.getTime() > cursorTime || !cursorKeys.contains(event.key())) {
+                    newer.putIfAbsent(event.key(), event);
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+            first += pageSize;
+        }
+        if (newer.isEmpty()) {
+            return 0;
+        }
+        List<AdminEvent> fresh = new ArrayList<>(newer.values());
+        //
+        // Reversed first so that events sharing a millisecond keep the
+        // server order through the stable sort
+        //
+        Collections.reverse(fresh);
+        fresh.sort(Comparator.comparingLong(AdminEvent::getTime));
+        for (AdminEvent event : fresh) {
+            this.publish(ChangeEvent.parse(event));
+            if (event.getTime() > cursorTime) {
+                cursorTime = event.getTime();
+                cursorKeys = new HashSet<>();
+            }
+            cursorKeys.add(event.key());
+        }
+        this.saveCursor();
+        logger.debug("Admin change feed published {} events, cursor at {}", fresh.size(), cursorTime);
+        return fresh.size();
+    }
+
+    private void publish(ChangeEvent event) {
+        listeners.forEach((name, listener) -> {
+            ListenerDispatchEvent dispatch = new ListenerDispatchEvent();
+            dispatch.begin();
+            try {
+                listener.onChange(event);
+                dispatch.complete(name, event.getKind() + " " + event.getOperation(), true);
+            } catch (Exception ex) {
+                dispatch.complete(name, event.getKind() + " " + event.getOperation(), false);
+                logger.warn("Change listener [{}] failed on {}", name, event, ex);
+            }
+        });
+    }
+
+    private void loadCursor() throws SSOIOException {
+        if (cursorFile == null || !Files.exists(cursorFile)) {
+            return;
+        }
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(cursorFile)) {
+            props.load(in);
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+        this.cursorTime = Long.parseLong(props.getProperty("time", String.valueOf(cursorTime)));
+        String keys = props.getProperty("keys", "");
+        this.cursorKeys = keys.isEmpty() ? new HashSet<>() : new HashSet<>(Arrays.asList(keys.split("\\n")));
+    }
+
+    private void saveCursor() throws SSOIOException {
+        if (cursorFile == null) {
+            return;
+        }
+        Properties props = new Properties();
+        props.setProperty("time", String.valueOf(cursorTime));
+        props.setProperty("keys", String.join("\n", cursorKeys));
+        Path tmp = cursorFile.resolveSibling(cursorFile.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                props.store(out, "keycloak admin change feed cursor");
+            }
+            Files.move(tmp, cursorFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Time of the newest event delivered
+     *
+     * @return
+     */
+    public synchronized Instant getCursor() {
+        return Instant.ofEpochMilli(cursorTime);
+    }
+}
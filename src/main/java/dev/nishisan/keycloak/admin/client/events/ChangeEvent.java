@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.events;
+
+import dev.nishisan.keycloak.admin.client.types.AdminEvent;
+
+/**
+ * A typed change parsed from an admin event
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class ChangeEvent {
+
+    public enum Kind {
+        USER,
+        ROLE,
+        ROLE_MAPPING,
+        GROUP,
+        GROUP_MEMBERSHIP,
+        OTHER
+    }
+
+    public enum Operation {
+        CREATE,
+        UPDATE,
+        DELETE,
+        ACTION
+    }
+
+    private final Kind kind;
+    private final Operation operation;
+    private final String userId;
+    private final String groupId;
+    private final String roleName;
+    private final String roleId;
+    private final AdminEvent source;
+
+    ChangeEvent(Kind kind, Operation operation, String userId, String groupId, String roleName, String roleId, AdminEvent source) {
+        this.kind = kind;
+        this.operation = operation;
+        this.userId = userId;
+        this.groupId = groupId;
+        this.roleName = roleName;
+        this.roleId = roleId;
+        this.source = source;
+    }
+
+    /**
+     * Parses the resource type and path of an admin event, for example
+     * {@code users/{id}}, {@code users/{id}/role-mappings/realm},
+     * {@code roles/{name}}, {@code roles-by-id/{id}/composites} or
+     * {@code groups/{id}}
+     *
+     * @param event the admin event
+     * @return the typed change
+     */
+    public static ChangeEvent parse(AdminEvent event) {
+        String[] path = event.getResourcePath() != null ? event.getResourcePath().split("/") : new String[0];
+        String userId = segmentAfter(path, "users");
+        String groupId = segmentAfter(path, "groups");
+        String roleName = segmentAfter(path, "roles");
+        String roleId = segmentAfter(path, "roles-by-id");
+        Kind kind;
+        String type = event.getResourceType() != null ? event.getResourceType() : "";
+        switch (type) {
+            case "USER" ->
+                kind = Kind.USER;
+            case "REALM_ROLE", "CLIENT_ROLE" ->
+                kind = Kind.ROLE;
+            case "REALM_ROLE_MAPPING", "CLIENT_ROLE_MAPPING" ->
+                kind = Kind.ROLE_MAPPING;
+            case "GROUP" ->
+                kind = Kind.GROUP;
+            case "GROUP_MEMBERSHIP" ->
+                kind = Kind.GROUP_MEMBERSHIP;
+            default ->
+                kind = Kind.OTHER;
+        }
+        Operation operation;
+        try {
+            operation = Operation.valueOf(event.getOperationType());
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            operation = Operation.ACTION;
+        }
+        return new ChangeEvent(kind, operation, userId, groupId, roleName, roleId, event);
+    }
+
+    private static String segmentAfter(String[] path, String name) {
+        for (int i = 0; i < path.length - 1; i++) {
+            if (path[i].equals(name)) {
+                return path[i + 1];
+            }
+        }
+        return null;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * The affected user, for user, role mapping and membership changes
+     *
+     * @return
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * The affected group, for group changes and group role mappings
+     *
+     * @return
+     */
+    public String getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * The affected role when the path uses the role name
+     *
+     * @return
+     */
+    public String getRoleName() {
+        return roleName;
+    }
+
+    /**
+     * The affected role when the path uses the role id
+     *
+     * @return
+     */
+    public String getRoleId() {
+        return roleId;
+    }
+
+    public long getTime() {
+        return source.getTime();
+    }
+
+    public AdminEvent getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent[" + kind + " " + operation + " " + source.getResourcePath() + "]";
+    }
+}
@@ -17,6 +17,7 @@
 package dev.nishisan.keycloak.admin.client.events;
 
 import dev.nishisan.keycloak.admin.client.auth.TokenResponseWrapper;
+import dev.nishisan.keycloak.admin.client.jfr.ListenerDispatchEvent;
 
 /**
  * make ptotected calls to user listener
@@ -33,9 +34,13 @@ public class SafeEventListener implements ITokenEventListener {
     
     @Override
     public void onTokenIssued(TokenResponseWrapper issuedToken) {
+        ListenerDispatchEvent event = new ListenerDispatchEvent();
+        event.begin();
         try {
             delegate.onTokenIssued(issuedToken);
+            event.complete(delegate.getUniqueName(), "onTokenIssued", true);
         } catch (Exception ex) {
+            event.complete(delegate.getUniqueName(), "onTokenIssued", false);
             // Tratar exceção aqui
             System.err.println("Erro ao processar onTokenIssued: " + ex.getMessage());
         }
@@ -43,10 +48,13 @@ public class SafeEventListener implements ITokenEventListener {
     
     @Override
     public void onTokenRefreshed(TokenResponseWrapper refreshedToken) {
+        ListenerDispatchEvent event = new ListenerDispatchEvent();
+        event.begin();
         try {
             delegate.onTokenRefreshed(refreshedToken);
+            event.complete(delegate.getUniqueName(), "onTokenRefreshed", true);
         } catch (Exception ex) {
-            
+            event.complete(delegate.getUniqueName(), "onTokenRefreshed", false);
         }
     }
     
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev > 
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.exception;
+
+/**
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class CreateGroupException extends Exception {
+
+    public CreateGroupException() {
+    }
+
+    public CreateGroupException(String message) {
+        super(message);
+    }
+
+    public CreateGroupException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public CreateGroupException(Throwable cause) {
+        super(cause);
+    }
+
+    public CreateGroupException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
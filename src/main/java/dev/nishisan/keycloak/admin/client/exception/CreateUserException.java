@@ -22,9 +22,20 @@ package dev.nishisan.keycloak.admin.client.exception;
  */
 public class CreateUserException extends Exception {
 
+    /**
+     * HTTP status returned by Keycloak, 0 when the failure did not come from
+     * a response
+     */
+    private int status;
+
     public CreateUserException() {
     }
 
+    public CreateUserException(String message, int status) {
+        super(message);
+        this.status = status;
+    }
+
     public CreateUserException(String message) {
         super(message);
     }
@@ -41,4 +52,8 @@ public class CreateUserException extends Exception {
         super(message, cause, enableSuppression, writableStackTrace);
     }
 
+    public int getStatus() {
+        return status;
+    }
+
 }
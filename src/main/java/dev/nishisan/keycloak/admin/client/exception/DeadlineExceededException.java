@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.exception;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Raised when a call is refused or aborted because the active
+ * {@link dev.nishisan.keycloak.admin.client.http.Deadline} ran out. It is an
+ * {@link InterruptedIOException}, like OkHttp's own timeouts, so managers
+ * report it as the cause of a {@link SSOIOException}.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public final class DeadlineExceededException extends InterruptedIOException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message);
+        this.initCause(cause);
+    }
+}
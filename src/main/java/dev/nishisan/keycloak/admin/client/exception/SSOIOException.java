@@ -1,9 +1,21 @@
 package dev.nishisan.keycloak.admin.client.exception;
 
 public class SSOIOException  extends Exception {
+
+    /**
+     * HTTP status returned by Keycloak, 0 when the failure did not come from
+     * a response
+     */
+    private int status;
+
     public SSOIOException() {
     }
 
+    public SSOIOException(String message, int status) {
+        super(message);
+        this.status = status;
+    }
+
     public SSOIOException(String message) {
         super(message);
     }
@@ -19,4 +31,8 @@ public class SSOIOException  extends Exception {
     public SSOIOException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
         super(message, cause, enableSuppression, writableStackTrace);
     }
+
+    public int getStatus() {
+        return status;
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Progress of an export: the phase, the next offset to read and how many
+ * bytes of the output are known to be complete. Saved atomically after each
+ * page so an interrupted export can continue where it stopped.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+class ExportCheckpoint {
+
+    static final String PHASE_ROLES = "roles";
+    static final String PHASE_USERS = "users";
+    static final String PHASE_DONE = "done";
+
+    private String phase = PHASE_ROLES;
+    private long nextFirst = 0;
+    private long position = 0;
+
+    String getPhase() {
+        return phase;
+    }
+
+    long getNextFirst() {
+        return nextFirst;
+    }
+
+    long getPosition() {
+        return position;
+    }
+
+    void update(String phase, long nextFirst, long position) {
+        this.phase = phase;
+        this.nextFirst = nextFirst;
+        this.position = position;
+    }
+
+    static ExportCheckpoint load(Path file) throws IOException {
+        ExportCheckpoint checkpoint = new ExportCheckpoint();
+        if (file == null || !Files.exists(file)) {
+            return checkpoint;
+        }
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+        }
+        checkpoint.phase = props.getProperty("phase", PHASE_ROLES);
+        checkpoint.nextFirst = Long.parseLong(props.getProperty("nextFirst", "0"));
+        checkpoint.position = Long.parseLong(props.getProperty("position", "0"));
+        return checkpoint;
+    }
+
+    void save(Path file) throws IOException {
+        if (file == null) {
+            return;
+        }
+        Properties props = new Properties();
+        props.setProperty("phase", phase);
+        props.setProperty("nextFirst", String.valueOf(nextFirst));
+        props.setProperty("position", String.valueOf(position));
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            props.store(out, "keycloak realm export checkpoint");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.export;
+
+import java.nio.file.Path;
+
+/**
+ * Options of the {@link RealmExporter}
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class ExportOptions {
+
+    /**
+     * Users (and roles) requested per page
+     */
+    private int pageSize = 500;
+    /**
+     * Pages fetched concurrently. Memory is bounded by parallelism * pageSize
+     * users.
+     */
+    private int parallelism = 4;
+    /**
+     * Fetches the realm role mappings of every user (one extra call per user)
+     */
+    private boolean includeRoleMappings = true;
+    /**
+     * Size of the NIO write buffer
+     */
+    private int bufferSize = 256 * 1024;
+    /**
+     * Where the progress is recorded. Null means {@code <file>.checkpoint}
+     * for file exports and no checkpoint for stream exports.
+     */
+    private Path checkpointFile;
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public boolean isIncludeRoleMappings() {
+        return includeRoleMappings;
+    }
+
+    public void setIncludeRoleMappings(boolean includeRoleMappings) {
+        this.includeRoleMappings = includeRoleMappings;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = Math.max(4096, bufferSize);
+    }
+
+    public Path getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public void setCheckpointFile(Path checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.export;
+
+/**
+ * Counters of a finished (or resumed) export
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class ExportStats {
+
+    private long roles;
+    private long users;
+    private long bytes;
+    private boolean resumed;
+
+    void addRoles(long count) {
+        this.roles += count;
+    }
+
+    void addUsers(long count) {
+        this.users += count;
+    }
+
+    void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    void setResumed(boolean resumed) {
+        this.resumed = resumed;
+    }
+
+    /**
+     * Roles written by this run
+     *
+     * @return
+     */
+    public long getRoles() {
+        return roles;
+    }
+
+    /**
+     * Users written by this run
+     *
+     * @return
+     */
+    public long getUsers() {
+        return users;
+    }
+
+    /**
+     * Total size of the output, including what a previous run wrote
+     *
+     * @return
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportStats[roles=" + roles + ", users=" + users + ", bytes=" + bytes + ", resumed=" + resumed + "]";
+    }
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.export;
+
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.http.RequestPriority;
+import dev.nishisan.keycloak.admin.client.json.JsonCodec;
+import dev.nishisan.keycloak.admin.client.management.RealmManager;
+import dev.nishisan.keycloak.admin.client.management.UserManager;
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams the realm roles and the users (with their realm role mappings) as
+ * NDJSON, one object per line:
+ *
+ * <pre>
+ * {"type":"role","role":{...}}
+ * {"type":"user","user":{...},"realmRoles":["a","b"]}
+ * </pre>
+ *
+ * Pages are fetched ahead by a small worker pool and written in order through
+ * a single NIO buffer, so memory is bounded by {@code parallelism * pageSize}
+ * users regardless of the realm size. File exports record a checkpoint after
+ * every page and continue from it when run again.
+ *
+ * Keycloak pages by offset, users created or deleted while the export runs
+ * may shift pages and be missed or written twice. A page Keycloak rejects
+ * (expired token, 5xx) fails the export with an {@link SSOIOException} and
+ * leaves the checkpoint in place, it is never taken for the end of the data.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class RealmExporter {
+
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+    private final JsonCodec codec;
+    private final UserManager userManager;
+    private final RealmManager realmManager;
+    private final Logger logger = LoggerFactory.getLogger(RealmExporter.class);
+
+    public RealmExporter(UserManager userManager, RealmManager realmManager) {
+        this.userManager = userManager;
+        this.realmManager = realmManager;
+        this.codec = userManager.codec();
+    }
+
+    /**
+     * Exports to a file. If a checkpoint of a previous run exists the file is
+     * truncated to the last complete page and the export continues from
+     * there. The checkpoint is removed when the export completes.
+     *
+     * @param file the NDJSON output
+     * @param options export options, null for defaults
+     * @return the counters of this run
+     * @throws SSOIOException on network or file errors
+     */
+    public ExportStats export(Path file, ExportOptions options) throws SSOIOException {
+        ExportOptions opts = options != null ? options : new ExportOptions();
+        Path checkpointFile = opts.getCheckpointFile() != null
+                ? opts.getCheckpointFile()
+                : file.resolveSibling(file.getFileName() + ".checkpoint");
+        try {
+            ExportCheckpoint checkpoint = ExportCheckpoint.load(checkpointFile);
+            if (ExportCheckpoint.PHASE_DONE.equals(checkpoint.getPhase())) {
+                checkpoint = new ExportCheckpoint();
+            }
+            boolean resumed = checkpoint.getPosition() > 0 && Files.exists(file);
+            ExportStats stats = new ExportStats();
+            stats.setResumed(resumed);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                if (resumed) {
+                    logger.info("Resuming export of [{}] at phase:[{}] offset:[{}]", file, checkpoint.getPhase(), checkpoint.getNextFirst());
+                    channel.truncate(checkpoint.getPosition());
+                    channel.position(checkpoint.getPosition());
+                } else {
+                    checkpoint = new ExportCheckpoint();
+                    channel.truncate(0);
+                }
+                this.run(channel, channel, checkpoint, checkpointFile, opts, stats);
+            }
+            Files.deleteIfExists(checkpointFile);
+            return stats;
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Exports to a stream. Checkpoints are only written when
+     * {@link ExportOptions#getCheckpointFile()} is set, and the caller is then
+     * responsible for positioning the stream when resuming.
+     *
+     * @param out the NDJSON output, not closed
+     * @param options export options, null for defaults
+     * @return the counters of this run
+     * @throws SSOIOException on network or stream errors
+     */
+    public ExportStats export(OutputStream out, ExportOptions options) throws SSOIOException {
+        ExportOptions opts = options != null ? options : new ExportOptions();
+        try {
+            ExportCheckpoint checkpoint = ExportCheckpoint.load(opts.getCheckpointFile());
+            if (ExportCheckpoint.PHASE_DONE.equals(checkpoint.getPhase())) {
+                checkpoint = new ExportCheckpoint();
+            }
+            ExportStats stats = new ExportStats();
+            stats.setResumed(checkpoint.getPosition() > 0);
+            WritableByteChannel channel = Channels.newChannel(out);
+            this.run(channel, null, checkpoint, opts.getCheckpointFile(), opts, stats);
+            out.flush();
+            if (opts.getCheckpointFile() != null) {
+                Files.deleteIfExists(opts.getCheckpointFile());
+            }
+            return stats;
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    private void run(WritableByteChannel channel, FileChannel fileChannel, ExportCheckpoint checkpoint,
+            Path checkpointFile, ExportOptions opts, ExportStats stats) throws SSOIOException {
+        RequestPriority.BATCH.call(() -> {
+            try {
+                this.write(channel, fileChannel, checkpoint, checkpointFile, opts, stats);
+            } catch (IOException ex) {
+                throw new SSOIOException(ex);
+            }
+            return null;
+        });
+    }
+
+    private void write(WritableByteChannel channel, FileChannel fileChannel, ExportCheckpoint checkpoint,
+            Path checkpointFile, ExportOptions opts, ExportStats stats) throws IOException, SSOIOException {
+        NdjsonWriter writer = new NdjsonWriter(channel, opts.getBufferSize(), checkpoint.getPosition());
+        if (ExportCheckpoint.PHASE_ROLES.equals(checkpoint.getPhase())) {
+            this.exportRoles(writer, checkpoint, opts, stats);
+            writer.flush();
+            checkpoint.update(ExportCheckpoint.PHASE_USERS, 0, writer.position());
+            this.saveCheckpoint(fileChannel, checkpoint, checkpointFile);
+        }
+        if (ExportCheckpoint.PHASE_USERS.equals(checkpoint.getPhase())) {
+            this.exportUsers(writer, fileChannel, checkpoint, checkpointFile, opts, stats);
+        }
+        writer.flush();
+        checkpoint.update(ExportCheckpoint.PHASE_DONE, 0, writer.position());
+        this.saveCheckpoint(fileChannel, checkpoint, checkpointFile);
+        stats.setBytes(writer.position());
+        logger.info("Export finished: {}", stats);
+    }
+
+    private void exportRoles(NdjsonWriter writer, ExportCheckpoint checkpoint, ExportOptions opts, ExportStats stats) throws IOException, SSOIOException {
+        int first = (int) checkpoint.getNextFirst();
+        while (true) {
+            List<RealmRole> page = realmManager.listRoles(first, opts.getPageSize());
+            for (RealmRole role : page) {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("type", "role");
+                line.put("role", role);
+                writer.write(codec.toJson(line).getBytes(StandardCharsets.UTF_8));
+            }
+            stats.addRoles(page.size());
+            if (page.size() < opts.getPageSize()) {
+                break;
+            }
+            first += opts.getPageSize();
+        }
+    }
+
+    private void exportUsers(NdjsonWriter writer, FileChannel fileChannel, ExportCheckpoint checkpoint,
+            Path checkpointFile, ExportOptions opts, ExportStats stats) throws IOException, SSOIOException {
+        int pool = POOL_SEQ.incrementAndGet();
+        AtomicInteger threadSeq = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(opts.getParallelism(), r -> {
+            Thread t = new Thread(RequestPriority.BATCH.wrap(r), "keycloak-export-" + pool + "-" + threadSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            long nextToSubmit = checkpoint.getNextFirst();
+            Deque<CompletableFuture<UserPage>> window = new ArrayDeque<>();
+            for (int i = 0; i < opts.getParallelism(); i++) {
+                window.add(this.fetchPage(nextToSubmit, opts, executor));
+                nextToSubmit += opts.getPageSize();
+            }
+            while (!window.isEmpty()) {
+                UserPage page = this.await(window.poll());
+                writer.put(page.lines);
+                stats.addUsers(page.count);
+                writer.flush();
+                checkpoint.update(ExportCheckpoint.PHASE_USERS, page.first + opts.getPageSize(), writer.position());
+                this.saveCheckpoint(fileChannel, checkpoint, checkpointFile);
+                if (page.count < opts.getPageSize()) {
+                    //
+                    // Last page, the pages fetched ahead are empty
+                    //
+                    window.forEach(f -> f.cancel(true));
+                    break;
+                }
+                window.add(this.fetchPage(nextToSubmit, opts, executor));
+                nextToSubmit += opts.getPageSize();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<UserPage> fetchPage(long first, ExportOptions opts, ExecutorService executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                List<User> users = userManager.listUsers((int) first, opts.getPageSize(), false);
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(users.size() * 256);
+                for (User user : users) {
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("type", "user");
+                    line.put("user", user);
+                    if (opts.isIncludeRoleMappings()) {
+                        List<String> names = new ArrayList<>();
+                        try {
+                            for (RealmRole role : userManager.getRealmRoles(user.getId())) {
+                                names.add(role.getName());
+                            }
+                        } catch (SSOIOException ex) {
+                            if (ex.getStatus() != 404) {
+                                throw ex;
+                            }
+                            //
+                            // Deleted since the page was read
+                            //
+                            continue;
+                        }
+                        Collections.sort(names);
+                        line.put("realmRoles", names);
+                    }
+                    buffer.write(codec.toJson(line).getBytes(StandardCharsets.UTF_8));
+                    buffer.write('\n');
+                }
+                return new UserPage(first, users.size(), buffer.toByteArray());
+            } catch (SSOIOException | IOException ex) {
+                throw new CompletionException(ex);
+            }
+        }, executor);
+    }
+
+    private UserPage await(CompletableFuture<UserPage> future) throws SSOIOException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof SSOIOException sso) {
+                throw sso;
+            }
+            throw new SSOIOException(ex.getCause());
+        }
+    }
+
+    private void saveCheckpoint(FileChannel fileChannel, ExportCheckpoint checkpoint, Path checkpointFile) throws IOException {
+        if (checkpointFile == null) {
+            return;
+        }
+        if (fileChannel != null) {
+            //
+            // The data must be on disk before the checkpoint points past it
+            //
+            fileChannel.force(false);
+        }
+        checkpoint.save(checkpointFile);
+    }
+
+    /**
+     * A fetched page already serialized to NDJSON
+     */
+    private static class UserPage {
+
+        private final long first;
+        private final int count;
+        private final byte[] lines;
+
+        UserPage(long first, int count, byte[] lines) {
+            this.first = first;
+            this.count = count;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Buffered writer over a channel that tracks the output position
+     */
+    private static class NdjsonWriter {
+
+        private static final byte[] NEW_LINE = {'\n'};
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer;
+        private long position;
+
+        NdjsonWriter(WritableByteChannel channel, int bufferSize, long position) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+            this.position = position;
+        }
+
+        /**
+         * Writes a single line, the new line is appended
+         */
+        void write(byte[] line) throws IOException {
+            this.put(line);
+            this.put(NEW_LINE);
+        }
+
+        /**
+         * Writes bytes that already contain their line breaks
+         */
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    this.drain();
+                }
+                int len = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, len);
+                offset += len;
+            }
+            position += bytes.length;
+        }
+
+        void flush() throws IOException {
+            this.drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        long position() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.http;
+
+import dev.nishisan.keycloak.admin.client.auth.KeyCloakOAuthClientManager;
+import dev.nishisan.keycloak.admin.client.config.SSOConfig;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pays the cold start cost up front: the admin token, DNS resolution of every
+ * node and a few pooled keep-alive connections (TCP + TLS) per node, all in
+ * parallel and bounded by {@link SSOConfig#getWarmUpTimeoutMs()}.
+ *
+ * Connections are opened with unauthenticated requests to the public realm
+ * endpoint through a client that shares the admin client's connection pool,
+ * so the first admin call finds them idle in the pool. Failures are only
+ * logged, the client still works lazily.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class ClientWarmUp {
+
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+    private final SSOConfig config;
+    private final KeyCloakOAuthClientManager tokenManager;
+    private final OkHttpClient plainClient;
+    private final Logger logger = LoggerFactory.getLogger(ClientWarmUp.class);
+
+    /**
+     *
+     * @param config
+     * @param tokenManager
+     * @param httpClient the admin client, its pool is reused but not its
+     * interceptors
+     */
+    public ClientWarmUp(SSOConfig config, KeyCloakOAuthClientManager tokenManager, OkHttpClient httpClient) {
+        this.config = config;
+        this.tokenManager = tokenManager;
+        OkHttpClient.Builder builder = httpClient.newBuilder();
+        builder.interceptors().clear();
+        this.plainClient = builder.build();
+    }
+
+    /**
+     * Runs the warm-up
+     *
+     * @return true if every step finished within the budget
+     */
+    public boolean run() {
+        long start = System.currentTimeMillis();
+        List<String> nodes = this.nodeUrls();
+        int connections = Math.max(0, config.getWarmUpConnections());
+        int threads = 1 + nodes.size() * Math.max(1, connections);
+        int pool = POOL_SEQ.incrementAndGet();
+        AtomicInteger threadSeq = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "keycloak-warmup-" + pool + "-" + threadSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        List<CompletableFuture<Void>> steps = new ArrayList<>();
+        try {
+            steps.add(CompletableFuture.runAsync(this::token, executor));
+            for (String node : nodes) {
+                HttpUrl url = HttpUrl.parse(node);
+                if (url == null) {
+                    continue;
+                }
+                //
+                // Resolve first so the parallel connects share the cached address
+                //
+                CompletableFuture<Void> dns = CompletableFuture.runAsync(() -> this.resolve(url.host()), executor);
+                steps.add(dns);
+                if (connections > 0) {
+                    CyclicBarrier barrier = new CyclicBarrier(connections);
+                    for (int i = 0; i < connections; i++) {
+                        steps.add(dns.thenRunAsync(() -> this.connect(url, barrier), executor));
+                    }
+                }
+            }
+            CompletableFuture.allOf(steps.toArray(CompletableFuture[]::new))
+                    .get(config.getWarmUpTimeoutMs(), TimeUnit.MILLISECONDS);
+            logger.info("Client warm-up done in {} ms: {} node(s), {} connection(s) each, pool idle connections: {}",
+                    System.currentTimeMillis() - start, nodes.size(), connections, plainClient.connectionPool().idleConnectionCount());
+            return true;
+        } catch (TimeoutException ex) {
+            logger.warn("Client warm-up exceeded its budget of {} ms, continuing lazily", config.getWarmUpTimeoutMs());
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception ex) {
+            logger.warn("Client warm-up failed, continuing lazily", ex);
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<String> nodeUrls() {
+        Set<String> urls = new LinkedHashSet<>();
+        if (config.isMultiNode()) {
+            urls.addAll(config.getNodeUrls());
+        } else if (config.getBaseUrl() != null) {
+            urls.add(config.getBaseUrl());
+        }
+        return new ArrayList<>(urls);
+    }
+
+    private void token() {
+        try {
+            tokenManager.getToken();
+        } catch (IOException ex) {
+            logger.warn("Warm-up could not get the admin token", ex);
+        }
+    }
+
+    private void resolve(String host) {
+        try {
+            InetAddress.getAllByName(host);
+        } catch (IOException ex) {
+            logger.warn("Warm-up could not resolve:[{}]", host, ex);
+        }
+    }
+
+    /**
+     * Opens one connection. The barrier makes the requests overlap, otherwise
+     * they would reuse the first connection one after the other.
+     */
+    private void connect(HttpUrl node, CyclicBarrier barrier) {
+        HttpUrl url = node.newBuilder()
+                .addPathSegment("realms")
+                .addPathSegment(config.getRealm())
+                .build();
+        try {
+            barrier.await(config.getWarmUpTimeoutMs(), TimeUnit.MILLISECONDS);
+            Request req = new Request.Builder().url(url).get().build();
+            try (Response r = plainClient.newCall(req).execute()) {
+                if (r.body() != null) {
+                    r.body().bytes();
+                }
+            }
+        } catch (IOException ex) {
+            logger.debug("Warm-up connection to:[{}] failed", node, ex);
+        } catch (Exception ex) {
+            logger.debug("Warm-up connection to:[{}] did not start", node, ex);
+        }
+    }
+}
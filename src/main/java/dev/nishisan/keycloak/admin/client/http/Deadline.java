@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.http;
+
+import dev.nishisan.keycloak.admin.client.exception.DeadlineExceededException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Response;
+
+/**
+ * Time budget shared by every admin call made while it is attached to the
+ * current thread.
+ *
+ * <pre>
+ * try (Deadline.Scope s = Deadline.after(Duration.ofSeconds(2)).attach()) {
+ *     users.createUser(user);
+ *     users.changePassword(user.getId(), password, false);
+ *     users.addRealmRoles(user.getId(), "viewer");
+ * }
+ * </pre>
+ *
+ * Each call gets the remaining budget as its OkHttp call timeout, so a slow
+ * response is cancelled when the budget runs out instead of holding the
+ * thread. A call is not sent at all when less than {@code minCallMs} is left.
+ * Both cases raise {@link DeadlineExceededException}, wrapped by the managers
+ * in a {@link dev.nishisan.keycloak.admin.client.exception.SSOIOException}.
+ *
+ * The deadline is bound to a thread, work handed to other threads must attach
+ * it again there. {@link #cancel()} aborts the calls in flight from any
+ * thread.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private final long minCallNanos;
+    private final Set<Call> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled = false;
+
+    private Deadline(long deadlineNanos, long minCallNanos) {
+        this.deadlineNanos = deadlineNanos;
+        this.minCallNanos = minCallNanos;
+    }
+
+    /**
+     * @param budget time allowed from now
+     * @return
+     */
+    public static Deadline after(Duration budget) {
+        return after(budget, Duration.ZERO);
+    }
+
+    /**
+     * @param budget time allowed from now
+     * @param minCall calls are not sent when less than this is left
+     * @return
+     */
+    public static Deadline after(Duration budget, Duration minCall) {
+        return new Deadline(System.nanoTime() + budget.toNanos(), minCall.toNanos());
+    }
+
+    /**
+     * @return the deadline attached to the current thread, or null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * True if the throwable, or one of its causes, is a
+     * {@link DeadlineExceededException}
+     *
+     * @param t
+     * @return
+     */
+    public static boolean isExceeded(Throwable t) {
+        for (Throwable c = t; c != null; c = c.getCause()) {
+            if (c instanceof DeadlineExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Attaches this deadline to the current thread until the scope is closed,
+     * the previous one (if any) is restored on close
+     *
+     * @return
+     */
+    public Scope attach() {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        return new Scope(previous);
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(this.remainingNanos()));
+    }
+
+    public boolean isExpired() {
+        return this.cancelled || this.remainingNanos() <= 0;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Expires the deadline and cancels the calls in flight
+     */
+    public void cancel() {
+        this.cancelled = true;
+        for (Call call : this.inFlight) {
+            call.cancel();
+        }
+    }
+
+    private long remainingNanos() {
+        return this.deadlineNanos - System.nanoTime();
+    }
+
+    /**
+     * Executes the call within the remaining budget, used by the managers.
+     *
+     * @param call a call not yet executed
+     * @return the response
+     * @throws DeadlineExceededException if the call was not sent or was
+     * aborted by the deadline
+     * @throws IOException on other network errors
+     */
+    public Response execute(Call call) throws IOException {
+        long remaining = this.remainingNanos();
+        if (this.cancelled || remaining <= 0 || remaining < this.minCallNanos) {
+            throw new DeadlineExceededException("Deadline exceeded, not sending " + describe(call)
+                    + " with " + this.remainingMillis() + "ms left");
+        }
+        long clientTimeout = call.timeout().timeoutNanos();
+        call.timeout().timeout(clientTimeout > 0 ? Math.min(clientTimeout, remaining) : remaining, TimeUnit.NANOSECONDS);
+        this.inFlight.add(call);
+        try {
+            if (this.cancelled) {
+                call.cancel();
+            }
+            return call.execute();
+        } catch (IOException ex) {
+            if (this.isExpired()) {
+                throw new DeadlineExceededException("Deadline exceeded during " + describe(call), ex);
+            }
+            throw ex;
+        } finally {
+            this.inFlight.remove(call);
+        }
+    }
+
+    private static String describe(Call call) {
+        return call.request().method() + " " + call.request().url().encodedPath();
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline[remainingMs=" + this.remainingMillis() + ", cancelled=" + cancelled + "]";
+    }
+
+    /**
+     * Detaches the deadline when closed
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Deadline previous;
+
+        private Scope(Deadline previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
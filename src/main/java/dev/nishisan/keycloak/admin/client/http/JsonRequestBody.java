@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.http;
+
+import dev.nishisan.keycloak.admin.client.json.JsonCodec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+/**
+ * Request body that serializes its payload straight into the OkHttp sink.
+ *
+ * Payloads up to {@link #BUFFER_LIMIT} bytes are serialized once into a
+ * buffer, so they are sent with a Content-Length. Serialization stops as soon
+ * as a payload goes over the limit; it is then written again as the body is
+ * sent, with chunked encoding, and never held in memory as a whole. The
+ * payload must not change until the call completes, as a retried request
+ * serializes it again.
+ *
+ * {@link #toString()} returns a preview truncated to {@link #PREVIEW_LIMIT}
+ * bytes, meant for debug logging.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class JsonRequestBody extends RequestBody {
+
+    public static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    /**
+     * Largest payload buffered to send a Content-Length
+     */
+    public static final int BUFFER_LIMIT = 64 * 1024;
+    /**
+     * Bytes of the payload shown by {@link #toString()}
+     */
+    public static final int PREVIEW_LIMIT = 1024;
+
+    private final JsonCodec codec;
+    private final Object payload;
+    private final int bufferLimit;
+    private Buffer buffered;
+    private boolean measured;
+
+    public JsonRequestBody(JsonCodec codec, Object payload) {
+        this(codec, payload, BUFFER_LIMIT);
+    }
+
+    /**
+     *
+     * @param codec codec used to write the payload
+     * @param payload the payload
+     * @param bufferLimit largest payload sent with a Content-Length, 0 always
+     * streams
+     */
+    public JsonRequestBody(JsonCodec codec, Object payload, int bufferLimit) {
+        this.codec = codec;
+        this.payload = payload;
+        this.bufferLimit = bufferLimit;
+    }
+
+    public Object getPayload() {
+        return payload;
+    }
+
+    /**
+     * True when the payload fits the buffer and is sent with a
+     * Content-Length
+     *
+     * @return
+     */
+    public boolean isBuffered() {
+        return this.buffer() != null;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        Buffer b = this.buffer();
+        return b == null ? -1 : b.size();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        Buffer b = this.buffer();
+        if (b != null) {
+            b.copyTo(sink.getBuffer(), 0, b.size());
+            sink.emitCompleteSegments();
+            return;
+        }
+        OutputStream out = sink.outputStream();
+        codec.toJson(payload, out);
+        out.flush();
+    }
+
+    /**
+     * Serializes the payload into a buffer the first time it is called.
+     * Returns null when the payload is larger than the limit.
+     */
+    private synchronized Buffer buffer() {
+        if (!measured) {
+            measured = true;
+            buffered = this.capture(bufferLimit);
+        }
+        return buffered;
+    }
+
+    /**
+     * Writes the payload into a buffer, stopping once it goes over the limit
+     *
+     * @param limit
+     * @return the buffer, or null if the payload is larger than the limit
+     */
+    private Buffer capture(long limit) {
+        if (limit <= 0) {
+            return null;
+        }
+        Buffer buffer = new Buffer();
+        CappedOutputStream out = new CappedOutputStream(buffer, limit);
+        try {
+            codec.toJson(payload, out);
+            out.flush();
+            return buffer;
+        } catch (IOException | RuntimeException ex) {
+            if (out.overflow) {
+                return null;
+            }
+            throw ex instanceof RuntimeException r ? r : new IllegalStateException("Failed to serialize payload", ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        Buffer b = this.buffer();
+        if (b != null) {
+            if (b.size() <= PREVIEW_LIMIT) {
+                return b.clone().readString(StandardCharsets.UTF_8);
+            }
+            Buffer head = new Buffer();
+            b.copyTo(head, 0, PREVIEW_LIMIT);
+            return head.readString(StandardCharsets.UTF_8) + "...(truncated, " + b.size() + " bytes)";
+        }
+        Buffer head = new Buffer();
+        CappedOutputStream out = new CappedOutputStream(head, PREVIEW_LIMIT);
+        try {
+            codec.toJson(payload, out);
+        } catch (IOException | RuntimeException ex) {
+            if (!out.overflow) {
+                return "<unserializable: " + ex + ">";
+            }
+        }
+        return head.readString(StandardCharsets.UTF_8) + "...(truncated, streamed)";
+    }
+
+    /**
+     * Output stream that fails once more than a given number of bytes were
+     * written. The bytes up to the limit are kept.
+     */
+    private static final class CappedOutputStream extends OutputStream {
+
+        private final Buffer target;
+        private final long limit;
+        private boolean overflow;
+
+        private CappedOutputStream(Buffer target, long limit) {
+            this.target = target;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long room = limit - target.size();
+            if (len > room) {
+                target.write(b, off, (int) Math.max(0, room));
+                overflow = true;
+                throw new IOException("Payload larger than " + limit + " bytes");
+            }
+            target.write(b, off, len);
+        }
+    }
+}
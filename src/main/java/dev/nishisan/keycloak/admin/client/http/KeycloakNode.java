@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.http;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runtime state of a single Keycloak node: in-flight requests, latency
+ * (EWMA) and health.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class KeycloakNode {
+
+    /**
+     * Weight of the newest sample on the latency moving average
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final String url;
+    private final AtomicInteger outstanding = new AtomicInteger(0);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+    private final AtomicBoolean healthy = new AtomicBoolean(true);
+    private volatile double latencyMs = 0.0;
+
+    public KeycloakNode(String url) {
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public double getLatencyMs() {
+        return latencyMs;
+    }
+
+    public boolean isHealthy() {
+        return healthy.get();
+    }
+
+    void acquire() {
+        this.outstanding.incrementAndGet();
+    }
+
+    void release() {
+        this.outstanding.decrementAndGet();
+    }
+
+    /**
+     * Records a successful exchange and its latency
+     *
+     * @param elapsedMs
+     */
+    void onSuccess(long elapsedMs) {
+        this.consecutiveFailures.set(0);
+        double current = this.latencyMs;
+        this.latencyMs = current == 0.0 ? elapsedMs : (EWMA_ALPHA * elapsedMs) + ((1 - EWMA_ALPHA) * current);
+    }
+
+    /**
+     * Records a failure, returns true if the node crossed the threshold and
+     * was ejected by this call
+     *
+     * @param threshold
+     * @return
+     */
+    boolean onFailure(int threshold) {
+        if (this.consecutiveFailures.incrementAndGet() >= threshold) {
+            return this.healthy.compareAndSet(true, false);
+        }
+        return false;
+    }
+
+    /**
+     * Puts the node back in rotation, returns true if it was ejected
+     *
+     * @return
+     */
+    boolean reinstate() {
+        this.consecutiveFailures.set(0);
+        return this.healthy.compareAndSet(false, true);
+    }
+
+    @Override
+    public String toString() {
+        return url + "[healthy=" + healthy.get() + ", outstanding=" + outstanding.get() + ", latencyMs=" + (long) latencyMs + "]";
+    }
+}
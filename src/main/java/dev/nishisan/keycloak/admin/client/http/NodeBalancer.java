@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.http;
+
+import dev.nishisan.keycloak.admin.client.config.SSOConfig;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * OkHttp interceptor that spreads admin calls across the configured Keycloak
+ * nodes.
+ *
+ * The managers keep building their URLs from {@link SSOConfig#getBaseUrl()},
+ * the interceptor swaps that prefix for the node with the least outstanding
+ * requests (ties broken by latency). Nodes are ejected after
+ * {@link SSOConfig#getNodeFailureThreshold()} consecutive failures and put
+ * back when the background health probe succeeds again. Token requests do not
+ * go through OkHttp, the token manager sends them through
+ * {@link #execute(NodeCall, Predicate)} so they follow the same node choice.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class NodeBalancer implements Interceptor {
+
+    private final SSOConfig config;
+    private final HttpUrl baseUrl;
+    private final String basePath;
+    private final List<KeycloakNode> nodes;
+    private final OkHttpClient probeClient;
+    private final ScheduledExecutorService scheduler;
+    private final Logger logger = LoggerFactory.getLogger(NodeBalancer.class);
+
+    /**
+     *
+     * @param config the sso config, with the node list
+     * @param probeClient a client without the auth interceptor, used for
+     * health checks
+     */
+    public NodeBalancer(SSOConfig config, OkHttpClient probeClient) {
+        this.config = config;
+        this.probeClient = probeClient;
+        List<KeycloakNode> list = new ArrayList<>();
+        for (String url : config.getNodeUrls()) {
+            list.add(new KeycloakNode(url));
+        }
+        this.nodes = Collections.unmodifiableList(list);
+        //
+        // Request URLs come normalized from HttpUrl (lowercase host, no default
+        // port), the configured text is compared in the same form
+        //
+        this.baseUrl = config.getBaseUrl() == null ? null : HttpUrl.parse(config.getBaseUrl());
+        if (this.baseUrl == null) {
+            logger.warn("Invalid baseUrl:[{}], admin calls will not be balanced", config.getBaseUrl());
+            this.basePath = "";
+        } else {
+            String path = this.baseUrl.encodedPath();
+            this.basePath = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "keycloak-node-probe");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = config.getHealthCheckIntervalMs();
+        this.scheduler.scheduleWithFixedDelay(this::probeNodes, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public List<KeycloakNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Picks the healthy node with the least outstanding requests. When every
+     * node is ejected it falls back to all of them, so calls still have a
+     * chance instead of failing locally.
+     *
+     * @param exclude node to skip (used when retrying), may be null
+     * @return
+     */
+    public KeycloakNode select(KeycloakNode exclude) {
+        KeycloakNode best = pick(exclude, true);
+        if (best == null) {
+            best = pick(exclude, false);
+        }
+        return best;
+    }
+
+    private KeycloakNode pick(KeycloakNode exclude, boolean onlyHealthy) {
+        KeycloakNode best = null;
+        for (KeycloakNode node : nodes) {
+            if (node == exclude || (onlyHealthy && !node.isHealthy())) {
+                continue;
+            }
+            if (best == null
+                    || node.getOutstanding() < best.getOutstanding()
+                    || (node.getOutstanding() == best.getOutstanding() && node.getLatencyMs() < best.getLatencyMs())) {
+                best = node;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request original = chain.request();
+        String suffix = this.suffix(original.url());
+        if (suffix == null || !original.url().encodedPath().contains("/admin/")) {
+            return chain.proceed(original);
+        }
+        KeycloakNode node = this.select(null);
+        try {
+            return this.proceed(chain, original, node, suffix);
+        } catch (IOException ex) {
+            //
+            // Only reads are safe to replay on another node
+            //
+            KeycloakNode other = this.select(node);
+            if (!"GET".equals(original.method()) || other == null || !other.isHealthy()) {
+                throw ex;
+            }
+            logger.debug("Retrying GET on node:[{}] after failure on:[{}]", other.getUrl(), node.getUrl());
+            return this.proceed(chain, original, other, suffix);
+        }
+    }
+
+    /**
+     * The part of the URL after the base URL (path and query), null when the
+     * URL is not under the base URL
+     *
+     * @param url
+     * @return
+     */
+    String suffix(HttpUrl url) {
+        if (baseUrl == null
+                || !url.scheme().equals(baseUrl.scheme())
+                || !url.host().equals(baseUrl.host())
+                || url.port() != baseUrl.port()) {
+            return null;
+        }
+        String path = url.encodedPath();
+        if (!path.startsWith(basePath) || (path.length() > basePath.length() && path.charAt(basePath.length()) != '/')) {
+            return null;
+        }
+        String query = url.encodedQuery();
+        return path.substring(basePath.length()) + (query != null ? "?" + query : "");
+    }
+
+    private Response proceed(Chain chain, Request original, KeycloakNode node, String suffix) throws IOException {
+        Request routed = original.newBuilder().url(HttpUrl.get(node.getUrl() + suffix)).build();
+        node.acquire();
+        long start = System.nanoTime();
+        try {
+            Response response = chain.proceed(routed);
+            if (response.code() >= 500) {
+                this.failure(node);
+            } else {
+                node.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            return response;
+        } catch (IOException ex) {
+            this.failure(node);
+            throw ex;
+        } finally {
+            node.release();
+        }
+    }
+
+    /**
+     * Runs a request made outside OkHttp (the token grant and refresh) on the
+     * selected node, and once more on another healthy node when it fails. The
+     * outcome counts towards the health of the node like an admin call.
+     *
+     * @param <T> result type
+     * @param call the request, given the node URL
+     * @param nodeFailure tells a node failure (I/O error, 5xx) apart from a
+     * definitive answer such as a rejected grant, which is not retried
+     * @return the result of the call
+     * @throws IOException when the call failed on every node tried
+     */
+    public <T> T execute(NodeCall<T> call, Predicate<IOException> nodeFailure) throws IOException {
+        KeycloakNode node = this.select(null);
+        try {
+            return this.execute(node, call, nodeFailure);
+        } catch (IOException ex) {
+            KeycloakNode other = this.select(node);
+            if (!nodeFailure.test(ex) || other == null || !other.isHealthy()) {
+                throw ex;
+            }
+            logger.debug("Retrying request on node:[{}] after failure on:[{}]", other.getUrl(), node.getUrl());
+            return this.execute(other, call, nodeFailure);
+        }
+    }
+
+    private <T> T execute(KeycloakNode node, NodeCall<T> call, Predicate<IOException> nodeFailure) throws IOException {
+        node.acquire();
+        long start = System.nanoTime();
+        try {
+            T result = call.call(node.getUrl());
+            node.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        } catch (IOException ex) {
+            if (nodeFailure.test(ex)) {
+                this.failure(node);
+            }
+            throw ex;
+        } finally {
+            node.release();
+        }
+    }
+
+    private void failure(KeycloakNode node) {
+        if (node.onFailure(config.getNodeFailureThreshold())) {
+            logger.warn("Keycloak node ejected:[{}]", node.getUrl());
+        }
+    }
+
+    /**
+     * Checks every node, ejected ones are reinstated when they answer again
+     */
+    private void probeNodes() {
+        for (KeycloakNode node : nodes) {
+            Request req = new Request.Builder().url(node.getUrl() + "/realms/" + config.getRealm()).get().build();
+            long start = System.nanoTime();
+            try (Response r = this.probeClient.newCall(req).execute()) {
+                if (r.isSuccessful()) {
+                    node.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    if (node.reinstate()) {
+                        logger.info("Keycloak node reinstated:[{}]", node.getUrl());
+                    }
+                } else {
+                    this.failure(node);
+                }
+            } catch (IOException ex) {
+                logger.debug("Health probe failed for node:[{}]", node.getUrl(), ex);
+                this.failure(node);
+            } catch (RuntimeException ex) {
+                logger.error("Unexpected error probing node:[{}]", node.getUrl(), ex);
+            }
+        }
+    }
+
+    public void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+
+    /**
+     * A request run by {@link #execute(NodeCall, Predicate)}
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface NodeCall<T> {
+
+        T call(String nodeUrl) throws IOException;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.http;
+
+import java.util.ArrayDeque;
+
+/**
+ * Per-realm state kept by the {@link RequestScheduler}: weight, concurrency
+ * cap, waiting calls per {@link RequestPriority} and counters. Mutated only
+ * under the scheduler lock.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class RealmQueue {
+
+    private final String realm;
+    private volatile int weight;
+    private volatile int maxConcurrent;
+    final ArrayDeque<RequestScheduler.Waiter> interactive = new ArrayDeque<>();
+    final ArrayDeque<RequestScheduler.Waiter> batch = new ArrayDeque<>();
+    /**
+     * Virtual time of the next grant, advances by 1/weight per call
+     */
+    double pass = 0.0;
+    volatile int inFlight = 0;
+    private final long[] granted = new long[RequestPriority.values().length];
+    private final long[] waitNanos = new long[RequestPriority.values().length];
+
+    RealmQueue(String realm, int weight, int maxConcurrent) {
+        this.realm = realm;
+        this.configure(weight, maxConcurrent);
+    }
+
+    public String getRealm() {
+        return realm;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return max calls in flight for this realm, 0 means only the scheduler
+     * limit applies
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public int getQueued() {
+        return interactive.size() + batch.size();
+    }
+
+    public int getQueued(RequestPriority priority) {
+        return this.waiting(priority).size();
+    }
+
+    public long getGranted() {
+        return granted[0] + granted[1];
+    }
+
+    public long getGranted(RequestPriority priority) {
+        return granted[priority.ordinal()];
+    }
+
+    /**
+     * @return mean time calls of this realm spent waiting for a slot
+     */
+    public double getAverageWaitMs() {
+        return averageMs(waitNanos[0] + waitNanos[1], this.getGranted());
+    }
+
+    /**
+     * @param priority
+     * @return mean time calls of this realm and priority spent waiting for a
+     * slot
+     */
+    public double getAverageWaitMs(RequestPriority priority) {
+        return averageMs(waitNanos[priority.ordinal()], granted[priority.ordinal()]);
+    }
+
+    private static double averageMs(long nanos, long count) {
+        return count == 0 ? 0.0 : (nanos / (double) count) / 1_000_000.0;
+    }
+
+    ArrayDeque<RequestScheduler.Waiter> waiting(RequestPriority priority) {
+        return priority == RequestPriority.BATCH ? batch : interactive;
+    }
+
+    boolean isIdle() {
+        return inFlight == 0 && interactive.isEmpty() && batch.isEmpty();
+    }
+
+    void configure(int weight, int maxConcurrent) {
+        this.weight = Math.max(1, weight);
+        this.maxConcurrent = Math.max(0, maxConcurrent);
+    }
+
+    boolean hasRoom() {
+        int cap = maxConcurrent;
+        return cap == 0 || inFlight < cap;
+    }
+
+    void onGrant(RequestPriority priority, long waitedNanos) {
+        this.inFlight++;
+        this.granted[priority.ordinal()]++;
+        this.waitNanos[priority.ordinal()] += waitedNanos;
+        this.pass += 1.0 / weight;
+    }
+
+    @Override
+    public String toString() {
+        return realm + "[weight=" + weight + ", maxConcurrent=" + maxConcurrent + ", inFlight=" + inFlight
+                + ", queued=" + this.getQueued() + ", granted=" + this.getGranted() + "]";
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.http;
+
+/**
+ * Priority class of the admin calls made by the current thread, used by the
+ * {@link RequestScheduler} to admit interactive work ahead of background
+ * jobs.
+ *
+ * <pre>
+ * SyncReport report = RequestPriority.BATCH.call(() -&gt; nightlySync());
+ * </pre>
+ *
+ * Calls are {@link #INTERACTIVE} unless a scope says otherwise. The bulk
+ * engines, scans, exports, caches and the change feed run their calls as
+ * {@link #BATCH} on their own.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public enum RequestPriority {
+
+    /**
+     * User-facing calls, admitted first and never limited by the batch share
+     */
+    INTERACTIVE,
+    /**
+     * Background work, waits behind queued interactive calls and may only use
+     * {@link RequestScheduler#getBatchMaxConcurrent()} slots
+     */
+    BATCH;
+
+    private static final ThreadLocal<RequestPriority> CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return the priority attached to the current thread, INTERACTIVE by
+     * default
+     */
+    public static RequestPriority current() {
+        RequestPriority p = CURRENT.get();
+        return p == null ? INTERACTIVE : p;
+    }
+
+    /**
+     * Attaches this priority to the current thread until the scope is closed,
+     * the previous one is restored on close
+     *
+     * @return
+     */
+    public Scope attach() {
+        RequestPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        return new Scope(previous);
+    }
+
+    /**
+     * Runs the task on the current thread with this priority attached, the
+     * previous one is restored afterwards
+     *
+     * @param <T> result type
+     * @param <E> checked exception of the task
+     * @param task the work to run
+     * @return the result of the task
+     * @throws E when the task fails
+     */
+    @SuppressWarnings("try")
+    public <T, E extends Exception> T call(Task<T, E> task) throws E {
+        try (Scope s = this.attach()) {
+            return task.run();
+        }
+    }
+
+    /**
+     * Runs the task with this priority attached, meant for the thread
+     * factories of the background pools
+     *
+     * @param task
+     * @return
+     */
+    public Runnable wrap(Runnable task) {
+        return () -> this.call(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Work run by {@link #call(Task)}
+     *
+     * @param <T> result type
+     * @param <E> checked exception thrown, RuntimeException when none
+     */
+    @FunctionalInterface
+    public interface Task<T, E extends Exception> {
+
+        T run() throws E;
+    }
+
+    /**
+     * Restores the previous priority when closed
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final RequestPriority previous;
+
+        private Scope(RequestPriority previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Weighted fair scheduler for admin calls, shared by the clients of several
+ * realms talking to the same Keycloak.
+ *
+ * At most {@link #getMaxConcurrent()} calls are in flight across all realms.
+ * When that is reached calls wait in a queue per realm and every free slot
+ * goes to the realm with the lowest virtual time, which advances by 1/weight
+ * per call (stride scheduling). A realm with weight 3 gets three slots for
+ * each slot of a realm with weight 1 while both have work, and a realm that
+ * was idle starts at the current virtual time instead of spending credit
+ * saved while it had nothing to send. A realm may also be capped, so a bulk
+ * job never holds more than its share of connections even when the others
+ * are idle.
+ *
+ * Calls also carry a {@link RequestPriority}. Queued interactive calls are
+ * admitted before any queued batch call, and batch calls never hold more than
+ * {@link #getBatchMaxConcurrent()} slots. The remaining slots stay free for
+ * interactive work while nightly jobs run. Calls already in flight are not
+ * preempted.
+ *
+ * A slot is held until the response body is closed. Clients join through
+ * {@link #interceptor(String)}, which {@code KeycloakAdminClient} installs
+ * when built with a scheduler. Calls canceled or timed out (see
+ * {@link Deadline}) while queued leave the queue with an IOException.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class RequestScheduler {
+
+    /**
+     * How often a queued call checks whether it was canceled
+     */
+    private static final long CANCEL_POLL_MS = 50L;
+
+    private final int maxConcurrent;
+    private final int batchMaxConcurrent;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, RealmQueue> queues = new LinkedHashMap<>();
+    private int inFlight = 0;
+    private int batchInFlight = 0;
+    private int queuedInteractive = 0;
+    private int queuedBatch = 0;
+    private double virtualTime = 0.0;
+
+    /**
+     * Scheduler that keeps a quarter of the slots (at least one) for
+     * interactive calls
+     *
+     * @param maxConcurrent admin calls in flight across all realms
+     */
+    public RequestScheduler(int maxConcurrent) {
+        this(maxConcurrent, maxConcurrent - Math.max(1, maxConcurrent / 4));
+    }
+
+    /**
+     *
+     * @param maxConcurrent admin calls in flight across all realms
+     * @param batchMaxConcurrent slots batch calls may hold, at most
+     * maxConcurrent (values below 1 are raised to 1)
+     */
+    public RequestScheduler(int maxConcurrent, int batchMaxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.batchMaxConcurrent = Math.min(maxConcurrent, Math.max(1, batchMaxConcurrent));
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getBatchMaxConcurrent() {
+        return batchMaxConcurrent;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public int getBatchInFlight() {
+        return batchInFlight;
+    }
+
+    /**
+     * Sets the weight and the concurrency cap of a realm, creating its queue
+     * if needed. Can be called at any time, queued calls are served with the
+     * new values.
+     *
+     * @param realm
+     * @param weight share of the slots, at least 1
+     * @param maxConcurrent cap on the realm calls in flight, 0 for none
+     * @return the realm queue
+     */
+    public RealmQueue configure(String realm, int weight, int maxConcurrent) {
+        lock.lock();
+        try {
+            RealmQueue q = queues.get(realm);
+            if (q == null) {
+                q = new RealmQueue(realm, weight, maxConcurrent);
+                queues.put(realm, q);
+            } else {
+                q.configure(weight, maxConcurrent);
+            }
+            this.dispatch();
+            return q;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     *
+     * @param realm
+     * @return the realm queue, or null if the realm was never seen
+     */
+    public RealmQueue getQueue(String realm) {
+        lock.lock();
+        try {
+            return queues.get(realm);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Collection<RealmQueue> getQueues() {
+        lock.lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(queues.values()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * OkHttp interceptor that runs every call of the client through the queue
+     * of the given realm. Realms not configured yet get weight 1 and no cap.
+     * The priority comes from the {@code RequestPriority} tag of the request,
+     * set by the managers from {@link RequestPriority#current()}, untagged
+     * requests are interactive.
+     *
+     * @param realm
+     * @return
+     */
+    public Interceptor interceptor(String realm) {
+        RealmQueue q = this.queueOf(realm);
+        return (chain) -> {
+            RequestPriority tagged = chain.request().tag(RequestPriority.class);
+            RequestPriority priority = tagged == null ? RequestPriority.INTERACTIVE : tagged;
+            this.acquire(q, priority, chain.call());
+            Response response;
+            try {
+                response = chain.proceed(chain.request());
+            } catch (IOException | RuntimeException ex) {
+                this.release(q, priority);
+                throw ex;
+            }
+            ResponseBody body = response.body();
+            if (body == null) {
+                this.release(q, priority);
+                return response;
+            }
+            return response.newBuilder().body(new SlotBody(body, q, priority)).build();
+        };
+    }
+
+    private RealmQueue queueOf(String realm) {
+        lock.lock();
+        try {
+            return queues.computeIfAbsent(realm, r -> new RealmQueue(r, 1, 0));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the realm gets a slot
+     *
+     * @param q
+     * @param priority
+     * @param call the call waiting, so cancellation and timeouts end the wait
+     * @throws IOException if the call was canceled while queued
+     */
+    void acquire(RealmQueue q, RequestPriority priority, Call call) throws IOException {
+        lock.lock();
+        try {
+            if (q.isIdle()) {
+                //
+                // No credit for the time the realm was idle
+                //
+                q.pass = Math.max(q.pass, virtualTime);
+            }
+            if (this.canStart(q, priority)) {
+                this.grant(q, priority, 0L);
+                return;
+            }
+            Waiter w = new Waiter(lock.newCondition(), priority);
+            q.waiting(priority).addLast(w);
+            this.countQueued(priority, 1);
+            this.dispatch();
+            while (!w.granted) {
+                if (call.isCanceled()) {
+                    this.abandon(q, w);
+                    throw new IOException("Canceled while queued for realm:[" + q.getRealm() + "]");
+                }
+                try {
+                    w.ready.await(CANCEL_POLL_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    this.abandon(q, w);
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while queued for realm:[" + q.getRealm() + "]");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back the slot taken by
+     * {@link #acquire(RealmQueue, RequestPriority, Call)}
+     *
+     * @param q
+     * @param priority
+     */
+    void release(RealmQueue q, RequestPriority priority) {
+        lock.lock();
+        try {
+            this.freeSlot(q, priority);
+            this.dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * True when a new call may start right away without overtaking a queued
+     * one that would be served first
+     */
+    private boolean canStart(RealmQueue q, RequestPriority priority) {
+        if (inFlight >= maxConcurrent || !q.hasRoom()) {
+            return false;
+        }
+        if (priority == RequestPriority.INTERACTIVE) {
+            return queuedInteractive == 0;
+        }
+        return queuedInteractive == 0 && queuedBatch == 0 && batchInFlight < batchMaxConcurrent;
+    }
+
+    private void abandon(RealmQueue q, Waiter w) {
+        if (w.granted) {
+            this.freeSlot(q, w.priority);
+            this.dispatch();
+        } else {
+            q.waiting(w.priority).remove(w);
+            this.countQueued(w.priority, -1);
+        }
+    }
+
+    private void freeSlot(RealmQueue q, RequestPriority priority) {
+        inFlight--;
+        q.inFlight--;
+        if (priority == RequestPriority.BATCH) {
+            batchInFlight--;
+        }
+    }
+
+    private void countQueued(RequestPriority priority, int delta) {
+        if (priority == RequestPriority.BATCH) {
+            queuedBatch += delta;
+        } else {
+            queuedInteractive += delta;
+        }
+    }
+
+    /**
+     * Hands the free slots to queued interactive calls first, then to batch
+     * calls while they are under their share, each time to the realm with the
+     * lowest virtual time
+     */
+    private void dispatch() {
+        while (inFlight < maxConcurrent) {
+            RealmQueue next = queuedInteractive > 0 ? this.pick(RequestPriority.INTERACTIVE) : null;
+            RequestPriority priority = RequestPriority.INTERACTIVE;
+            if (next == null && queuedBatch > 0 && batchInFlight < batchMaxConcurrent) {
+                next = this.pick(RequestPriority.BATCH);
+                priority = RequestPriority.BATCH;
+            }
+            if (next == null) {
+                return;
+            }
+            Waiter w = next.waiting(priority).pollFirst();
+            this.countQueued(priority, -1);
+            this.grant(next, priority, System.nanoTime() - w.since);
+            w.granted = true;
+            w.ready.signal();
+        }
+    }
+
+    private RealmQueue pick(RequestPriority priority) {
+        RealmQueue next = null;
+        for (RealmQueue q : queues.values()) {
+            if (!q.waiting(priority).isEmpty() && q.hasRoom() && (next == null || q.pass < next.pass)) {
+                next = q;
+            }
+        }
+        return next;
+    }
+
+    private void grant(RealmQueue q, RequestPriority priority, long waitedNanos) {
+        virtualTime = Math.max(virtualTime, q.pass);
+        inFlight++;
+        if (priority == RequestPriority.BATCH) {
+            batchInFlight++;
+        }
+        q.onGrant(priority, waitedNanos);
+    }
+
+    static final class Waiter {
+
+        final Condition ready;
+        final RequestPriority priority;
+        final long since = System.nanoTime();
+        boolean granted = false;
+
+        Waiter(Condition ready, RequestPriority priority) {
+            this.ready = ready;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Response body that frees the slot when closed
+     */
+    private final class SlotBody extends ResponseBody {
+
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        SlotBody(ResponseBody delegate, RealmQueue q, RequestPriority priority) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (released.compareAndSet(false, true)) {
+                            release(q, priority);
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
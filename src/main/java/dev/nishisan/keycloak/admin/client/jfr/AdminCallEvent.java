@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Flight Recorder event for an admin REST call, from sending the request to
+ * receiving the response headers. Reading the body is not included.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+@Name("dev.nishisan.keycloak.AdminCall")
+@Label("Keycloak Admin Call")
+@Category({"Keycloak", "Admin Client"})
+@Description("HTTP call to the Keycloak admin REST API")
+public class AdminCallEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("URL Template")
+    @Description("Request path with realm, ids and names replaced by placeholders")
+    String urlTemplate;
+
+    @Label("Status")
+    @Description("HTTP status, 0 when no response was received")
+    int status;
+
+    @Label("Request Bytes")
+    @DataAmount
+    long requestBytes;
+
+    @Label("Response Bytes")
+    @Description("Content-Length of the response, -1 when unknown")
+    @DataAmount
+    long responseBytes;
+
+    @Label("Error")
+    String error;
+
+    /**
+     * Ends the event and commits it if a recording wants it. The fields are
+     * only computed in that case.
+     *
+     * @param request the request sent
+     * @param response the response, null on failure
+     * @param failure the failure, null on success
+     */
+    public void complete(Request request, Response response, Throwable failure) {
+        this.end();
+        if (!this.shouldCommit()) {
+            return;
+        }
+        this.method = request.method();
+        this.urlTemplate = UrlTemplates.of(request.url());
+        try {
+            this.requestBytes = request.body() != null ? request.body().contentLength() : 0;
+        } catch (java.io.IOException ex) {
+            this.requestBytes = -1;
+        }
+        if (response != null) {
+            this.status = response.code();
+            this.responseBytes = response.body() != null ? response.body().contentLength() : 0;
+        }
+        if (failure != null) {
+            this.error = failure.getClass().getSimpleName() + ": " + failure.getMessage();
+        }
+        this.commit();
+    }
+}
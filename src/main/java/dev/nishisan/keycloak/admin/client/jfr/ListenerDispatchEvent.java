@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for the delivery of a token or change event to a
+ * registered listener.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+@Name("dev.nishisan.keycloak.ListenerDispatch")
+@Label("Keycloak Listener Dispatch")
+@Category({"Keycloak", "Admin Client"})
+@Description("Time spent in a user listener")
+public class ListenerDispatchEvent extends Event {
+
+    @Label("Listener")
+    String listener;
+
+    @Label("Event")
+    String event;
+
+    @Label("Success")
+    boolean success;
+
+    /**
+     * Ends the event and commits it if a recording wants it
+     *
+     * @param listener the listener unique name
+     * @param event what was delivered, e.g. {@code onTokenIssued}
+     * @param success false if the listener threw
+     */
+    public void complete(String listener, String event, boolean success) {
+        this.end();
+        if (!this.shouldCommit()) {
+            return;
+        }
+        this.listener = listener;
+        this.event = event;
+        this.success = success;
+        this.commit();
+    }
+}
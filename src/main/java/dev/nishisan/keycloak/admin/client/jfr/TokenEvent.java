@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a token request to the realm token endpoint.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+@Name("dev.nishisan.keycloak.Token")
+@Label("Keycloak Token")
+@Category({"Keycloak", "Admin Client"})
+@Description("Client credentials grant or refresh token request")
+public class TokenEvent extends Event {
+
+    public static final String GRANT = "grant";
+    public static final String REFRESH = "refresh";
+
+    @Label("Operation")
+    @Description("grant or refresh")
+    String operation;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Error")
+    String error;
+
+    public TokenEvent(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Ends the event and commits it if a recording wants it
+     *
+     * @param failure the failure, null on success
+     */
+    public void complete(Throwable failure) {
+        this.end();
+        if (!this.shouldCommit()) {
+            return;
+        }
+        this.success = failure == null;
+        if (failure != null) {
+            this.error = failure.getClass().getSimpleName() + ": " + failure.getMessage();
+        }
+        this.commit();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.jfr;
+
+import java.util.List;
+import java.util.Set;
+import okhttp3.HttpUrl;
+
+/**
+ * Turns admin URLs into low-cardinality templates, e.g.
+ * {@code /admin/realms/acme/users/4f0c.../role-mappings/realm} becomes
+ * {@code /admin/realms/{realm}/users/{id}/role-mappings/realm}. Query strings
+ * are dropped.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public final class UrlTemplates {
+
+    /**
+     * Collections whose next segment is a key
+     */
+    private static final Set<String> KEYED = Set.of("users", "groups", "clients", "roles", "roles-by-id", "sessions", "components");
+    /**
+     * Sub resources that look like keys but are fixed names
+     */
+    private static final Set<String> FIXED = Set.of("count", "role-mappings", "realm", "composites", "children", "members", "user-sessions", "session-count", "logout");
+
+    private UrlTemplates() {
+    }
+
+    public static String of(HttpUrl url) {
+        List<String> segments = url.pathSegments();
+        StringBuilder sb = new StringBuilder();
+        String previous = null;
+        for (String segment : segments) {
+            if ("group-by-path".equals(previous)) {
+                sb.append("/{path}");
+                break;
+            }
+            sb.append('/');
+            if ("realms".equals(previous)) {
+                sb.append("{realm}");
+            } else if (previous != null && KEYED.contains(previous) && !FIXED.contains(segment)) {
+                sb.append("roles".equals(previous) ? "{name}" : "{id}");
+            } else {
+                sb.append(segment);
+            }
+            previous = segment;
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import dev.nishisan.keycloak.admin.client.types.Credentials;
+import java.io.IOException;
+
+/**
+ * Streaming adapter for {@link Credentials}, null fields are not written
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class CredentialsTypeAdapter extends TypeAdapter<Credentials> {
+
+    @Override
+    public void write(JsonWriter out, Credentials value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        JsonFields.write(out, "type", value.getType());
+        JsonFields.write(out, "value", value.getValue());
+        JsonFields.write(out, "temporary", value.getTemporary());
+        JsonFields.write(out, "credentialData", value.getCredentialData());
+        JsonFields.write(out, "secretData", value.getSecretData());
+        out.endObject();
+    }
+
+    @Override
+    public Credentials read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Credentials c = new Credentials();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "type" ->
+                    c.setType(JsonFields.readString(in));
+                case "value" ->
+                    c.setValue(JsonFields.readString(in));
+                case "temporary" ->
+                    c.setTemporary(JsonFields.readBoolean(in));
+                case "credentialData" ->
+                    c.setCredentialData(JsonFields.readString(in));
+                case "secretData" ->
+                    c.setSecretData(JsonFields.readString(in));
+                default ->
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return c;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import dev.nishisan.keycloak.admin.client.types.Credentials;
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Gson implementation of the {@link JsonCodec}. Output is compact and the
+ * domain types go through dedicated streaming adapters instead of
+ * reflection. Gson instances are thread safe, so one is enough for the whole
+ * process.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public final class GsonJsonCodec implements JsonCodec {
+
+    public static final String NAME = "gson";
+    private static final Gson GSON = create();
+
+    private static Gson create() {
+        CredentialsTypeAdapter credentials = new CredentialsTypeAdapter();
+        return new GsonBuilder()
+                .disableHtmlEscaping()
+                .registerTypeAdapter(Credentials.class, credentials)
+                .registerTypeAdapter(User.class, new UserTypeAdapter(credentials))
+                .registerTypeAdapter(RealmRole.class, new RealmRoleTypeAdapter())
+                .create();
+    }
+
+    /**
+     * The shared Gson instance
+     *
+     * @return
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String toJson(Object value) {
+        return GSON.toJson(value);
+    }
+
+    @Override
+    public void toJson(Object value, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        try {
+            GSON.toJson(value, writer);
+        } catch (JsonIOException ex) {
+            //
+            // Gson wraps the stream failures, callers expect the IOException
+            //
+            if (ex.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw ex;
+        }
+        writer.flush();
+    }
+
+    @Override
+    public <T> T fromJson(String json, Class<T> type) {
+        return GSON.fromJson(json, type);
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import dev.nishisan.keycloak.admin.client.types.Credentials;
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Jackson streaming serializers for the domain types. They produce the same
+ * output as the Gson type adapters of this package: null fields, empty
+ * credentials and empty attributes are not written and unknown fields are
+ * skipped.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+final class JacksonTypes {
+
+    private JacksonTypes() {
+    }
+
+    static SimpleModule module() {
+        SimpleModule module = new SimpleModule("keycloak-admin-types");
+        module.addSerializer(Credentials.class, new CredentialsSerializer());
+        module.addDeserializer(Credentials.class, new CredentialsDeserializer());
+        module.addSerializer(User.class, new UserSerializer());
+        module.addDeserializer(User.class, new UserDeserializer());
+        module.addSerializer(RealmRole.class, new RealmRoleSerializer());
+        module.addDeserializer(RealmRole.class, new RealmRoleDeserializer());
+        return module;
+    }
+
+    static final class CredentialsSerializer extends JsonSerializer<Credentials> {
+
+        @Override
+        public void serialize(Credentials value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            write(gen, "type", value.getType());
+            write(gen, "value", value.getValue());
+            write(gen, "temporary", value.getTemporary());
+            write(gen, "credentialData", value.getCredentialData());
+            write(gen, "secretData", value.getSecretData());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class CredentialsDeserializer extends JsonDeserializer<Credentials> {
+
+        @Override
+        public Credentials deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            Credentials c = new Credentials();
+            String name;
+            while ((name = p.nextFieldName()) != null) {
+                p.nextToken();
+                switch (name) {
+                    case "type" ->
+                        c.setType(readString(p));
+                    case "value" ->
+                        c.setValue(readString(p));
+                    case "temporary" ->
+                        c.setTemporary(readBoolean(p));
+                    case "credentialData" ->
+                        c.setCredentialData(readString(p));
+                    case "secretData" ->
+                        c.setSecretData(readString(p));
+                    default ->
+                        p.skipChildren();
+                }
+            }
+            return c;
+        }
+    }
+
+    static final class UserSerializer extends JsonSerializer<User> {
+
+        @Override
+        public void serialize(User value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            write(gen, "id", value.getId());
+            write(gen, "username", value.getUsername());
+            write(gen, "enabled", value.getEnabled());
+            write(gen, "firstName", value.getFirstName());
+            write(gen, "lastName", value.getLastName());
+            write(gen, "email", value.getEmail());
+            write(gen, "emailVerified", value.getEmailVerified());
+            if (value.getCredentials() != null && !value.getCredentials().isEmpty()) {
+                gen.writeArrayFieldStart("credentials");
+                for (Credentials c : value.getCredentials()) {
+                    if (c == null) {
+                        gen.writeNull();
+                    } else {
+                        provider.findValueSerializer(Credentials.class).serialize(c, gen, provider);
+                    }
+                }
+                gen.writeEndArray();
+            }
+            writeAttributes(gen, "attributes", value.getAttributes());
+            writeStringList(gen, "groups", value.getGroups());
+            writeStringList(gen, "requiredActions", value.getRequiredActions());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class UserDeserializer extends JsonDeserializer<User> {
+
+        @Override
+        public User deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            User user = new User(null, null, null, null, null, null);
+            String name;
+            while ((name = p.nextFieldName()) != null) {
+                p.nextToken();
+                switch (name) {
+                    case "id" ->
+                        user.setId(readString(p));
+                    case "username" ->
+                        user.setUsername(readString(p));
+                    case "enabled" ->
+                        user.setEnabled(readBoolean(p));
+                    case "firstName" ->
+                        user.setFirstName(readString(p));
+                    case "lastName" ->
+                        user.setLastName(readString(p));
+                    case "email" ->
+                        user.setEmail(readString(p));
+                    case "emailVerified" ->
+                        user.setEmailVerified(readBoolean(p));
+                    case "credentials" -> {
+                        if (p.currentToken() == JsonToken.START_ARRAY) {
+                            List<Credentials> credentials = new ArrayList<>();
+                            while (p.nextToken() != JsonToken.END_ARRAY) {
+                                credentials.add(p.currentToken() == JsonToken.VALUE_NULL ? null : ctxt.readValue(p, Credentials.class));
+                            }
+                            user.setCredentials(credentials);
+                        }
+                    }
+                    case "attributes" ->
+                        user.setAttributes(readAttributes(p));
+                    case "groups" ->
+                        user.setGroups(readStringList(p));
+                    case "requiredActions" ->
+                        user.setRequiredActions(readStringList(p));
+                    default ->
+                        p.skipChildren();
+                }
+            }
+            return user;
+        }
+    }
+
+    static final class RealmRoleSerializer extends JsonSerializer<RealmRole> {
+
+        @Override
+        public void serialize(RealmRole value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            write(gen, "id", value.getId());
+            write(gen, "name", value.getName());
+            write(gen, "description", value.getDescription());
+            write(gen, "composite", value.getComposite());
+            write(gen, "clientRole", value.getClientRole());
+            writeAttributes(gen, "attributes", value.getAttributes());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class RealmRoleDeserializer extends JsonDeserializer<RealmRole> {
+
+        @Override
+        public RealmRole deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            RealmRole role = new RealmRole();
+            String name;
+            while ((name = p.nextFieldName()) != null) {
+                p.nextToken();
+                switch (name) {
+                    case "id" ->
+                        role.setId(readString(p));
+                    case "name" ->
+                        role.setName(readString(p));
+                    case "description" ->
+                        role.setDescription(readString(p));
+                    case "composite" ->
+                        role.setComposite(readBoolean(p));
+                    case "clientRole" ->
+                        role.setClientRole(readBoolean(p));
+                    case "attributes" -> {
+                        Map<String, List<String>> attributes = readAttributes(p);
+                        role.setAttributes(attributes != null ? attributes : new HashMap<>());
+                    }
+                    default ->
+                        p.skipChildren();
+                }
+            }
+            return role;
+        }
+    }
+
+    private static void write(JsonGenerator gen, String name, String value) throws IOException {
+        if (value != null) {
+            gen.writeStringField(name, value);
+        }
+    }
+
+    private static void write(JsonGenerator gen, String name, Boolean value) throws IOException {
+        if (value != null) {
+            gen.writeBooleanField(name, value);
+        }
+    }
+
+    private static void writeStringList(JsonGenerator gen, String name, List<String> values) throws IOException {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        gen.writeArrayFieldStart(name);
+        for (String v : values) {
+            gen.writeString(v);
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeAttributes(JsonGenerator gen, String name, Map<String, List<String>> attributes) throws IOException {
+        if (attributes == null || attributes.isEmpty()) {
+            return;
+        }
+        gen.writeObjectFieldStart(name);
+        for (Map.Entry<String, List<String>> e : attributes.entrySet()) {
+            gen.writeArrayFieldStart(e.getKey());
+            if (e.getValue() != null) {
+                for (String v : e.getValue()) {
+                    gen.writeString(v);
+                }
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * Reads the current token as a string, the parser must be positioned on
+     * the value
+     */
+    private static String readString(JsonParser p) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return p.getValueAsString();
+    }
+
+    private static Boolean readBoolean(JsonParser p) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return Boolean.valueOf(p.getText());
+        }
+        return p.getBooleanValue();
+    }
+
+    private static List<String> readStringList(JsonParser p) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            values.add(readString(p));
+        }
+        return values;
+    }
+
+    /**
+     * Keycloak attributes are a map of string lists, single strings are
+     * accepted too
+     */
+    private static Map<String, List<String>> readAttributes(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        Map<String, List<String>> attributes = new LinkedHashMap<>();
+        String key;
+        while ((key = p.nextFieldName()) != null) {
+            if (p.nextToken() == JsonToken.START_ARRAY) {
+                attributes.put(key, readStringList(p));
+            } else {
+                List<String> single = new ArrayList<>(1);
+                single.add(readString(p));
+                attributes.put(key, single);
+            }
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * JSON codec used by the managers. Implementations must be thread safe,
+ * a single instance is shared by every manager of a client.
+ *
+ * @see JsonCodecs
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public interface JsonCodec {
+
+    /**
+     * Name used in {@code SSOConfig.jsonCodec}
+     *
+     * @return
+     */
+    public String getName();
+
+    public String toJson(Object value);
+
+    /**
+     * Writes the value as UTF-8 JSON, the stream is not closed
+     *
+     * @param value
+     * @param out
+     * @throws IOException
+     */
+    public void toJson(Object value, OutputStream out) throws IOException;
+
+    /**
+     * Parses a JSON document, returns null for empty input
+     *
+     * @param <T>
+     * @param json
+     * @param type
+     * @return
+     */
+    public <T> T fromJson(String json, Class<T> type);
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.json;
+
+import java.util.List;
+
+/**
+ * Resolves the {@link JsonCodec} selected in {@code SSOConfig.jsonCodec}
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public final class JsonCodecs {
+
+    private static final JsonCodec GSON = new GsonJsonCodec();
+    private static final JsonCodec JACKSON = new JacksonJsonCodec();
+
+    private JsonCodecs() {
+    }
+
+    /**
+     * Returns the codec with the given name, null or blank means the default
+     * (Gson)
+     *
+     * @param name "gson" or "jackson"
+     * @return
+     */
+    public static JsonCodec forName(String name) {
+        if (name == null || name.isBlank() || GsonJsonCodec.NAME.equalsIgnoreCase(name.trim())) {
+            return GSON;
+        }
+        if (JacksonJsonCodec.NAME.equalsIgnoreCase(name.trim())) {
+            return JACKSON;
+        }
+        throw new IllegalArgumentException("Unknown JSON codec: " + name);
+    }
+
+    /**
+     * Names accepted by {@link #forName(String)}, the default first
+     *
+     * @return
+     */
+    public static List<String> names() {
+        return List.of(GsonJsonCodec.NAME, JacksonJsonCodec.NAME);
+    }
+}
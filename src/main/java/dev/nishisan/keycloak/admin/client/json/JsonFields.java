@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Small helpers shared by the type adapters. Writers skip null values, so
+ * the output only carries the fields that are set.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+final class JsonFields {
+
+    private JsonFields() {
+    }
+
+    static void write(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    static void write(JsonWriter out, String name, Boolean value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    static void writeStringList(JsonWriter out, String name, List<String> values) throws IOException {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        out.name(name).beginArray();
+        for (String v : values) {
+            out.value(v);
+        }
+        out.endArray();
+    }
+
+    static void writeAttributes(JsonWriter out, String name, Map<String, List<String>> attributes) throws IOException {
+        if (attributes == null || attributes.isEmpty()) {
+            return;
+        }
+        out.name(name).beginObject();
+        for (Map.Entry<String, List<String>> e : attributes.entrySet()) {
+            out.name(e.getKey()).beginArray();
+            if (e.getValue() != null) {
+                for (String v : e.getValue()) {
+                    out.value(v);
+                }
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    static Boolean readBoolean(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.STRING) {
+            return Boolean.valueOf(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    static List<String> readStringList(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(readString(in));
+        }
+        in.endArray();
+        return values;
+    }
+
+    /**
+     * Keycloak attributes are a map of string lists, single strings are
+     * accepted too
+     */
+    static Map<String, List<String>> readAttributes(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Map<String, List<String>> attributes = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            if (in.peek() == JsonToken.BEGIN_ARRAY) {
+                attributes.put(key, readStringList(in));
+            } else {
+                List<String> single = new ArrayList<>(1);
+                single.add(readString(in));
+                attributes.put(key, single);
+            }
+        }
+        in.endObject();
+        return attributes;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.List;
+
+/**
+ * Streaming adapter for {@link RealmRole}. Null fields and empty attributes
+ * are not written.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class RealmRoleTypeAdapter extends TypeAdapter<RealmRole> {
+
+    @Override
+    public void write(JsonWriter out, RealmRole value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        JsonFields.write(out, "id", value.getId());
+        JsonFields.write(out, "name", value.getName());
+        JsonFields.write(out, "description", value.getDescription());
+        JsonFields.write(out, "composite", value.getComposite());
+        JsonFields.write(out, "clientRole", value.getClientRole());
+        JsonFields.writeAttributes(out, "attributes", value.getAttributes());
+        out.endObject();
+    }
+
+    @Override
+    public RealmRole read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        RealmRole role = new RealmRole();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id" ->
+                    role.setId(JsonFields.readString(in));
+                case "name" ->
+                    role.setName(JsonFields.readString(in));
+                case "description" ->
+                    role.setDescription(JsonFields.readString(in));
+                case "composite" ->
+                    role.setComposite(JsonFields.readBoolean(in));
+                case "clientRole" ->
+                    role.setClientRole(JsonFields.readBoolean(in));
+                case "attributes" -> {
+                    Map<String, List<String>> attributes = JsonFields.readAttributes(in);
+                    role.setAttributes(attributes != null ? attributes : new HashMap<>());
+                }
+                default ->
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return role;
+    }
+}
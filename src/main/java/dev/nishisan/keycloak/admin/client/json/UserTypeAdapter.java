@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import dev.nishisan.keycloak.admin.client.types.Credentials;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming adapter for {@link User}. Null fields, empty credentials and
+ * empty lists are not written, unknown fields of the Keycloak representation are skipped.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class UserTypeAdapter extends TypeAdapter<User> {
+
+    private final CredentialsTypeAdapter credentialsAdapter;
+
+    public UserTypeAdapter(CredentialsTypeAdapter credentialsAdapter) {
+        this.credentialsAdapter = credentialsAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, User value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        JsonFields.write(out, "id", value.getId());
+        JsonFields.write(out, "username", value.getUsername());
+        JsonFields.write(out, "enabled", value.getEnabled());
+        JsonFields.write(out, "firstName", value.getFirstName());
+        JsonFields.write(out, "lastName", value.getLastName());
+        JsonFields.write(out, "email", value.getEmail());
+        JsonFields.write(out, "emailVerified", value.getEmailVerified());
+        if (value.getCredentials() != null && !value.getCredentials().isEmpty()) {
+            out.name("credentials").beginArray();
+            for (Credentials c : value.getCredentials()) {
+                credentialsAdapter.write(out, c);
+            }
+            out.endArray();
+        }
+        JsonFields.writeAttributes(out, "attributes", value.getAttributes());
+        JsonFields.writeStringList(out, "groups", value.getGroups());
+        JsonFields.writeStringList(out, "requiredActions", value.getRequiredActions());
+        out.endObject();
+    }
+
+    @Override
+    public User read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        User user = new User(null, null, null, null, null, null);
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id" ->
+                    user.setId(JsonFields.readString(in));
+                case "username" ->
+                    user.setUsername(JsonFields.readString(in));
+                case "enabled" ->
+                    user.setEnabled(JsonFields.readBoolean(in));
+                case "firstName" ->
+                    user.setFirstName(JsonFields.readString(in));
+                case "lastName" ->
+                    user.setLastName(JsonFields.readString(in));
+                case "email" ->
+                    user.setEmail(JsonFields.readString(in));
+                case "emailVerified" ->
+                    user.setEmailVerified(JsonFields.readBoolean(in));
+                case "credentials" -> {
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        break;
+                    }
+                    List<Credentials> credentials = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        credentials.add(credentialsAdapter.read(in));
+                    }
+                    in.endArray();
+                    user.setCredentials(credentials);
+                }
+                case "attributes" ->
+                    user.setAttributes(JsonFields.readAttributes(in));
+                case "groups" ->
+                    user.setGroups(JsonFields.readStringList(in));
+                case "requiredActions" ->
+                    user.setRequiredActions(JsonFields.readStringList(in));
+                default ->
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return user;
+    }
+}
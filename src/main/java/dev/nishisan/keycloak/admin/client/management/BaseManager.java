@@ -16,9 +16,16 @@
  */
 package dev.nishisan.keycloak.admin.client.management;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import dev.nishisan.keycloak.admin.client.config.SSOConfig;
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.http.Deadline;
+import dev.nishisan.keycloak.admin.client.http.JsonRequestBody;
+import dev.nishisan.keycloak.admin.client.http.RequestPriority;
+import dev.nishisan.keycloak.admin.client.jfr.AdminCallEvent;
+import com.google.gson.Gson;
+import dev.nishisan.keycloak.admin.client.json.GsonJsonCodec;
+import dev.nishisan.keycloak.admin.client.json.JsonCodec;
+import dev.nishisan.keycloak.admin.client.json.JsonCodecs;
 import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,39 +38,76 @@ import java.io.IOException;
  */
 public class BaseManager {
 
-    private Gson gson = new GsonBuilder().setPrettyPrinting().create();
     protected final OkHttpClient httpClient;
     protected final SSOConfig config;
+    private final JsonCodec codec;
     protected final Logger logger = LoggerFactory.getLogger(BaseManager.class);
 
     public BaseManager(OkHttpClient httpClient, SSOConfig config) {
         this.httpClient = httpClient;
         this.config = config;
+        this.codec = JsonCodecs.forName(config.getJsonCodec());
+    }
+
+    /**
+     * The codec selected by {@link SSOConfig#getJsonCodec()}
+     *
+     * @return
+     */
+    public JsonCodec codec() {
+        return this.codec;
     }
 
+    /**
+     * @return the shared Gson instance, regardless of the configured codec
+     * @deprecated use {@link #codec()}
+     */
+    @Deprecated
     public Gson gson() {
-        return this.gson;
+        return GsonJsonCodec.gson();
+    }
+
+    /**
+     * Builder pointing at {@code {baseUrl}/admin/realms/{realm}}, callers add
+     * the remaining path segments and query parameters
+     *
+     * @return
+     */
+    protected HttpUrl.Builder realmUrl() {
+        return HttpUrl.parse(this.config.getBaseUrl())
+                .newBuilder()
+                .addPathSegments("admin/realms")
+                .addPathSegment(this.config.getRealm());
+    }
+
+    /**
+     * Error for a listing that Keycloak rejected. Used where an empty result
+     * would be mistaken for the end of the data.
+     *
+     * @param r the unsuccessful response
+     * @return
+     */
+    protected SSOIOException httpError(Response r) {
+        Request req = r.request();
+        return new SSOIOException("HTTP " + r.code() + " on " + req.method() + " " + req.url().encodedPath(), r.code());
     }
 
     public Response postJson(String url, Object payload) throws IOException {
         Request.Builder builder = new Request.Builder();
-        String jsonPayLoad = this.gson().toJson(payload);
-        RequestBody body = RequestBody.create(jsonPayLoad, MediaType.parse("application/json"));
+        RequestBody body = new JsonRequestBody(this.codec(), payload);
         builder.url(url).method("POST", body);
         Request req = builder.build();
-        logger.debug("POST: {}, Payload:{}", req.url(), jsonPayLoad);
-        Response r = this.httpClient.newCall(req).execute();
-        return r;
+        logger.debug("POST: {}, Payload:{}", req.url(), body);
+        return this.execute(req);
     }
 
     public Response putJson(String url, Object payload) throws IOException {
         Request.Builder builder = new Request.Builder();
-        String jsonPayLoad = this.gson().toJson(payload);
-        RequestBody body = RequestBody.create(jsonPayLoad, MediaType.parse("application/json"));
+        RequestBody body = new JsonRequestBody(this.codec(), payload);
         builder.url(url).method("PUT", body);
         Request req = builder.build();
-        logger.debug("PUT: {}, Payload:{}", req.url(), jsonPayLoad);
-        return this.httpClient.newCall(req).execute();
+        logger.debug("PUT: {}, Payload:{}", req.url(), body);
+        return this.execute(req);
     }
 
     public Response get(String url) throws IOException {
@@ -71,17 +115,24 @@ public class BaseManager {
         builder.url(url).get();
         Request req = builder.build();
         logger.debug("GET: {}", req.url());
-        return this.httpClient.newCall(req).execute();
+        return this.execute(req);
     }
 
     public Response deleteJson(String url, Object payload) throws IOException {
         Request.Builder builder = new Request.Builder();
-        String jsonPayLoad = this.gson().toJson(payload);
-        RequestBody body = RequestBody.create(jsonPayLoad, MediaType.parse("application/json"));
+        RequestBody body = new JsonRequestBody(this.codec(), payload);
         builder.url(url).method("DELETE", body);
         Request req = builder.build();
-        logger.debug("DELETE: {}, Payload:{}", req.url(), jsonPayLoad);
-        return this.httpClient.newCall(req).execute();
+        logger.debug("DELETE: {}, Payload:{}", req.url(), body);
+        return this.execute(req);
+    }
+
+    public Response put(String url) throws IOException {
+        Request.Builder builder = new Request.Builder();
+        builder.url(url).put(RequestBody.create(new byte[0]));
+        Request req = builder.build();
+        logger.debug("PUT: {}", req.url());
+        return this.execute(req);
     }
 
     public Response delete(String url) throws IOException {
@@ -89,6 +140,36 @@ public class BaseManager {
         builder.url(url).delete();
         Request req = builder.build();
         logger.debug("DELETE: {}", req.url());
-        return this.httpClient.newCall(req).execute();
+        return this.execute(req);
+    }
+
+    /**
+     * Sends the request, bounded by the {@link Deadline} attached to the
+     * current thread when there is one, and records an
+     * {@link AdminCallEvent} when Flight Recorder is on. Calls made under a
+     * {@link RequestPriority#BATCH} scope are tagged so a shared scheduler
+     * admits them behind interactive work.
+     *
+     * @param req
+     * @return
+     * @throws IOException
+     */
+    protected Response execute(Request req) throws IOException {
+        if (RequestPriority.current() == RequestPriority.BATCH) {
+            req = req.newBuilder().tag(RequestPriority.class, RequestPriority.BATCH).build();
+        }
+        AdminCallEvent event = new AdminCallEvent();
+        event.begin();
+        Response response;
+        try {
+            Call call = this.httpClient.newCall(req);
+            Deadline deadline = Deadline.current();
+            response = deadline == null ? call.execute() : deadline.execute(call);
+        } catch (IOException | RuntimeException ex) {
+            event.complete(req, null, ex);
+            throw ex;
+        }
+        event.complete(req, response, null);
+        return response;
     }
 }
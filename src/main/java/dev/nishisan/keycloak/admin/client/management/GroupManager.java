@@ -0,0 +1,374 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.management;
+
+import dev.nishisan.keycloak.admin.client.config.SSOConfig;
+import dev.nishisan.keycloak.admin.client.exception.CreateGroupException;
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.types.Group;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/**
+ * Manages realm groups, their hierarchy and memberships.
+ *
+ * Listings are paged: top-level groups through {@code /groups} and sub groups
+ * through {@code /groups/{id}/children}, so deep hierarchies can be walked one
+ * level at a time (see {@link dev.nishisan.keycloak.admin.client.cache.GroupTreeCache}).
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class GroupManager extends BaseManager {
+
+    public GroupManager(SSOConfig config, OkHttpClient httpClient) {
+        super(httpClient, config);
+    }
+
+    /**
+     * Creates a top-level group and returns it with its id populated.
+     * @param group the group payload
+     * @return the same group instance with id populated
+     * @throws SSOIOException on network errors
+     * @throws CreateGroupException when Keycloak rejects the creation
+     */
+    public Group createGroup(Group group) throws SSOIOException, CreateGroupException {
+        HttpUrl url = this.realmUrl().addPathSegment("groups").build();
+        return this.create(url, group);
+    }
+
+    /**
+     * Creates a group under a parent group and returns it with its id
+     * populated.
+     * @param parentId the parent group id
+     * @param group the group payload
+     * @return the same group instance with id populated
+     * @throws SSOIOException on network errors
+     * @throws CreateGroupException when Keycloak rejects the creation
+     */
+    public Group createSubGroup(String parentId, Group group) throws SSOIOException, CreateGroupException {
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("groups")
+                .addPathSegment(parentId)
+                .addPathSegment("children")
+                .build();
+        return this.create(url, group);
+    }
+
+    private Group create(HttpUrl url, Group group) throws SSOIOException, CreateGroupException {
+        try (Response r = this.postJson(url.toString(), group)) {
+            int code = r.code();
+            if (code != 201) {
+                throw new CreateGroupException("Failed to create group. HTTP Status: " + code);
+            }
+            String location = r.header("Location");
+            if (location != null && !location.isEmpty()) {
+                String[] parts = location.split("/");
+                group.setId(parts[parts.length - 1]);
+            }
+            return group;
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Gets a group by id. Returns null if not found.
+     * @param groupId group id
+     * @return Group or null
+     * @throws SSOIOException on network errors or any error status other
+     * than 404
+     */
+    public Group getGroup(String groupId) throws SSOIOException {
+        if (groupId == null || groupId.isBlank()) return null;
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("groups")
+                .addPathSegment(groupId)
+                .build();
+        return this.getOne(url);
+    }
+
+    /**
+     * Gets a group by its full path (for example {@code /a/b/c}) with a single
+     * call. Returns null if not found.
+     * @param path group path
+     * @return Group or null
+     * @throws SSOIOException on network errors or any error status other
+     * than 404
+     */
+    public Group getGroupByPath(String path) throws SSOIOException {
+        if (path == null || path.isBlank()) return null;
+        HttpUrl.Builder builder = this.realmUrl().addPathSegment("group-by-path");
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                builder.addPathSegment(segment);
+            }
+        }
+        return this.getOne(builder.build());
+    }
+
+    /**
+     * Counts the top-level groups.
+     * @return the number of groups, or -1 if Keycloak rejected the request
+     * @throws SSOIOException on network errors
+     */
+    public long countTopLevelGroups() throws SSOIOException {
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("groups")
+                .addPathSegment("count")
+                .addQueryParameter("top", "true")
+                .build();
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    return -1;
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json.isBlank()) {
+                    return -1;
+                }
+                Map<?, ?> body = this.codec().fromJson(json, Map.class);
+                Object count = body != null ? body.get("count") : null;
+                return count instanceof Number n ? n.longValue() : -1;
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Lists one page of top-level groups.
+     * @param first offset of the first group
+     * @param max page size
+     * @return the page (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects the
+     * request
+     */
+    public List<Group> listGroups(int first, int max) throws SSOIOException {
+        return this.searchGroups(null, first, max);
+    }
+
+    /**
+     * Lists one page of groups matching a search string. Keycloak returns the
+     * matching groups with the branches leading to them.
+     * @param search search string, null lists the top-level groups
+     * @param first offset of the first group
+     * @param max page size
+     * @return the page (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects the
+     * request
+     */
+    public List<Group> searchGroups(String search, int first, int max) throws SSOIOException {
+        HttpUrl.Builder builder = this.realmUrl()
+                .addPathSegment("groups")
+                .addQueryParameter("first", String.valueOf(first))
+                .addQueryParameter("max", String.valueOf(max))
+                .addQueryParameter("briefRepresentation", "true");
+        if (search != null && !search.isBlank()) {
+            builder.addQueryParameter("search", search);
+        }
+        return this.getGroups(builder.build());
+    }
+
+    /**
+     * Lists one page of the direct sub groups of a group.
+     * @param groupId parent group id
+     * @param first offset of the first group
+     * @param max page size
+     * @return the page (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects the
+     * request
+     */
+    public List<Group> listSubGroups(String groupId, int first, int max) throws SSOIOException {
+        if (groupId == null || groupId.isBlank()) return Collections.emptyList();
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("groups")
+                .addPathSegment(groupId)
+                .addPathSegment("children")
+                .addQueryParameter("first", String.valueOf(first))
+                .addQueryParameter("max", String.valueOf(max))
+                .addQueryParameter("briefRepresentation", "true")
+                .build();
+        return this.getGroups(url);
+    }
+
+    /**
+     * Deletes a group and its sub groups.
+     * @param groupId group id
+     * @return true if the group was deleted (204)
+     * @throws SSOIOException on network errors
+     */
+    public boolean deleteGroup(String groupId) throws SSOIOException {
+        if (groupId == null || groupId.isBlank()) return false;
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("groups")
+                .addPathSegment(groupId)
+                .build();
+        try {
+            try (Response r = this.delete(url.toString())) {
+                return r.code() == 204;
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Lists one page of the direct members of a group.
+     * @param groupId group id
+     * @param first offset of the first user
+     * @param max page size
+     * @return the page (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects the
+     * request
+     */
+    public List<User> listMembers(String groupId, int first, int max) throws SSOIOException {
+        if (groupId == null || groupId.isBlank()) return Collections.emptyList();
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("groups")
+                .addPathSegment(groupId)
+                .addPathSegment("members")
+                .addQueryParameter("first", String.valueOf(first))
+                .addQueryParameter("max", String.valueOf(max))
+                .addQueryParameter("briefRepresentation", "true")
+                .build();
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    throw this.httpError(r);
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json == null || json.trim().isEmpty() || json.trim().equals("[]")) {
+                    return Collections.emptyList();
+                }
+                User[] arr = this.codec().fromJson(json, User[].class);
+                if (arr == null || arr.length == 0) return Collections.emptyList();
+                return Arrays.asList(arr);
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Lists the groups a user is a direct member of.
+     * @param userId Keycloak user id
+     * @return the groups (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects the
+     * request
+     */
+    public List<Group> getUserGroups(String userId) throws SSOIOException {
+        if (userId == null || userId.isBlank()) return Collections.emptyList();
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("users")
+                .addPathSegment(userId)
+                .addPathSegment("groups")
+                .addQueryParameter("briefRepresentation", "true")
+                .build();
+        return this.getGroups(url);
+    }
+
+    /**
+     * Adds a user to a group.
+     * @param userId Keycloak user id
+     * @param groupId group id
+     * @return true if the membership was added (204)
+     * @throws SSOIOException on network errors
+     */
+    public boolean addUserToGroup(String userId, String groupId) throws SSOIOException {
+        HttpUrl url = this.membershipUrl(userId, groupId);
+        try {
+            try (Response r = this.put(url.toString())) {
+                return r.code() == 204;
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Removes a user from a group.
+     * @param userId Keycloak user id
+     * @param groupId group id
+     * @return true if the membership was removed (204)
+     * @throws SSOIOException on network errors
+     */
+    public boolean removeUserFromGroup(String userId, String groupId) throws SSOIOException {
+        HttpUrl url = this.membershipUrl(userId, groupId);
+        try {
+            try (Response r = this.delete(url.toString())) {
+                return r.code() == 204;
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    private HttpUrl membershipUrl(String userId, String groupId) {
+        return this.realmUrl()
+                .addPathSegment("users")
+                .addPathSegment(userId)
+                .addPathSegment("groups")
+                .addPathSegment(groupId)
+                .build();
+    }
+
+    private Group getOne(HttpUrl url) throws SSOIOException {
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (r.code() == 404) {
+                    return null;
+                }
+                if (!r.isSuccessful()) {
+                    throw this.httpError(r);
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json == null || json.trim().isEmpty()) {
+                    return null;
+                }
+                return this.codec().fromJson(json, Group.class);
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    private List<Group> getGroups(HttpUrl url) throws SSOIOException {
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    throw this.httpError(r);
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json == null || json.trim().isEmpty() || json.trim().equals("[]")) {
+                    return Collections.emptyList();
+                }
+                Group[] arr = this.codec().fromJson(json, Group[].class);
+                if (arr == null || arr.length == 0) return Collections.emptyList();
+                return Arrays.asList(arr);
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+}
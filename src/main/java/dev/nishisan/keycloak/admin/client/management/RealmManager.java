@@ -4,10 +4,13 @@ import dev.nishisan.keycloak.admin.client.config.SSOConfig;
 import dev.nishisan.keycloak.admin.client.exception.CreateRoleException;
 import dev.nishisan.keycloak.admin.client.types.RealmRole;
 import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.types.User;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Response;
@@ -70,7 +73,58 @@ public class RealmManager extends BaseManager {
                 if (json == null || json.trim().isEmpty() || json.trim().equals("[]")) {
                     return Collections.emptyList();
                 }
-                RealmRole[] arr = this.gson().fromJson(json, RealmRole[].class);
+                RealmRole[] arr = this.codec().fromJson(json, RealmRole[].class);
+                if (arr == null || arr.length == 0) return Collections.emptyList();
+                return Arrays.asList(arr);
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Lists every realm role, one page at a time. Unlike {@link #listRoles()}
+     * a page Keycloak rejects is an error and not an empty result.
+     * @param pageSize roles per request
+     * @return all realm roles
+     * @throws SSOIOException on network errors or when Keycloak rejects a page
+     */
+    public List<RealmRole> listAllRoles(int pageSize) throws SSOIOException {
+        List<RealmRole> roles = new ArrayList<>();
+        int first = 0;
+        while (true) {
+            List<RealmRole> page = this.listRoles(first, pageSize);
+            roles.addAll(page);
+            if (page.size() < pageSize) {
+                return roles;
+            }
+            first += pageSize;
+        }
+    }
+
+    /**
+     * Lists one page of realm roles.
+     * @param first offset of the first role
+     * @param max page size
+     * @return the page (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects the request
+     */
+    public List<RealmRole> listRoles(int first, int max) throws SSOIOException {
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("roles")
+                .addQueryParameter("first", String.valueOf(first))
+                .addQueryParameter("max", String.valueOf(max))
+                .build();
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    throw this.httpError(r);
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json == null || json.trim().isEmpty() || json.trim().equals("[]")) {
+                    return Collections.emptyList();
+                }
+                RealmRole[] arr = this.codec().fromJson(json, RealmRole[].class);
                 if (arr == null || arr.length == 0) return Collections.emptyList();
                 return Arrays.asList(arr);
             }
@@ -104,7 +158,40 @@ public class RealmManager extends BaseManager {
                 if (json == null || json.trim().isEmpty()) {
                     return null;
                 }
-                return this.gson().fromJson(json, RealmRole.class);
+                return this.codec().fromJson(json, RealmRole.class);
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Lists the realm roles directly contained in a composite role.
+     * Client roles are not included.
+     * @param roleName the composite role name
+     * @return the child roles (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects the
+     * request
+     */
+    public List<RealmRole> getRealmComposites(String roleName) throws SSOIOException {
+        if (roleName == null || roleName.isBlank()) return Collections.emptyList();
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("roles")
+                .addPathSegment(roleName)
+                .addPathSegments("composites/realm")
+                .build();
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    throw this.httpError(r);
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json == null || json.trim().isEmpty() || json.trim().equals("[]")) {
+                    return Collections.emptyList();
+                }
+                RealmRole[] arr = this.codec().fromJson(json, RealmRole[].class);
+                if (arr == null || arr.length == 0) return Collections.emptyList();
+                return Arrays.asList(arr);
             }
         } catch (IOException ex) {
             throw new SSOIOException(ex);
@@ -134,4 +221,71 @@ public class RealmManager extends BaseManager {
             throw new SSOIOException(ex);
         }
     }
+
+    /**
+     * Lists one page of the users directly mapped to a realm role.
+     * Composite and group inherited mappings are not included.
+     * @param roleName role name
+     * @param first offset of the first user
+     * @param max page size
+     * @return the page (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects the request
+     */
+    public List<User> listRoleUsers(String roleName, int first, int max) throws SSOIOException {
+        if (roleName == null || roleName.isBlank()) return Collections.emptyList();
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("roles")
+                .addPathSegment(roleName)
+                .addPathSegment("users")
+                .addQueryParameter("first", String.valueOf(first))
+                .addQueryParameter("max", String.valueOf(max))
+                .addQueryParameter("briefRepresentation", "true")
+                .build();
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    throw this.httpError(r);
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json == null || json.trim().isEmpty() || json.trim().equals("[]")) {
+                    return Collections.emptyList();
+                }
+                User[] arr = this.codec().fromJson(json, User[].class);
+                if (arr == null || arr.length == 0) return Collections.emptyList();
+                return Arrays.asList(arr);
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Reads the password policy of the realm, e.g.
+     * {@code hashAlgorithm(pbkdf2-sha512) and hashIterations(210000) and length(8)}.
+     * @return the policy string, or null when the realm has none
+     * @throws SSOIOException on network errors or when Keycloak rejects the
+     * read, so that a failed read is never taken for a realm without policy
+     */
+    public String getPasswordPolicy() throws SSOIOException {
+        HttpUrl url = this.realmUrl().build();
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    throw this.httpError(r);
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json == null || json.trim().isEmpty()) {
+                    return null;
+                }
+                Map<?, ?> realm = this.codec().fromJson(json, Map.class);
+                Object policy = realm != null ? realm.get("passwordPolicy") : null;
+                if (policy == null || policy.toString().isBlank()) {
+                    return null;
+                }
+                return policy.toString();
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
 }
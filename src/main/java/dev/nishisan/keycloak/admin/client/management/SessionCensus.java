@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.management;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Session counts per client and per user, built in one pass over the
+ * paginated client session listings (see
+ * {@link SessionManager#census(java.util.Collection, int)})
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class SessionCensus {
+
+    private final Map<String, Long> perClient = new HashMap<>();
+    private final Map<String, Long> perUser = new HashMap<>();
+    private long sessions;
+    private long clientSessions;
+    private int clients;
+    private long elapsedMs;
+
+    void onClient() {
+        this.clients++;
+    }
+
+    /**
+     * Counts one session seen through a client listing
+     *
+     * @param clientId the clientId of the listing
+     * @param username session user
+     * @param distinct true the first time this session is counted
+     */
+    void count(String clientId, String username, boolean distinct) {
+        this.clientSessions++;
+        this.perClient.merge(clientId, 1L, Long::sum);
+        if (distinct) {
+            this.sessions++;
+            this.perUser.merge(username, 1L, Long::sum);
+        }
+    }
+
+    void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    /**
+     * Distinct user sessions. A session used by several clients is counted
+     * once.
+     *
+     * @return
+     */
+    public long getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Sum of the per client counts
+     *
+     * @return
+     */
+    public long getClientSessions() {
+        return clientSessions;
+    }
+
+    public int getClients() {
+        return clients;
+    }
+
+    /**
+     * clientId to number of sessions
+     *
+     * @return
+     */
+    public Map<String, Long> getPerClient() {
+        return Collections.unmodifiableMap(perClient);
+    }
+
+    /**
+     * username to number of distinct sessions
+     *
+     * @return
+     */
+    public Map<String, Long> getPerUser() {
+        return Collections.unmodifiableMap(perUser);
+    }
+
+    /**
+     * Users with the most sessions, highest first
+     *
+     * @param n how many
+     * @return
+     */
+    public List<Map.Entry<String, Long>> getTopUsers(int n) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(perUser.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return entries.subList(0, Math.min(n, entries.size()));
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionCensus[sessions=" + sessions + ", clientSessions=" + clientSessions + ", clients=" + clients
+                + ", users=" + perUser.size() + ", elapsedMs=" + elapsedMs + "]";
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.management;
+
+import dev.nishisan.keycloak.admin.client.config.SSOConfig;
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.types.Client;
+import dev.nishisan.keycloak.admin.client.types.UserSession;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/**
+ * Lists, counts and revokes user sessions.
+ *
+ * Session listings are per client and paginated, the streaming methods hold
+ * a single page in memory whatever the number of sessions. Sessions created
+ * or removed while a listing is paged may shift pages, so counts taken on a
+ * busy realm are approximate. A page that cannot be read fails the listing
+ * instead of ending it early.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class SessionManager extends BaseManager {
+
+    public SessionManager(SSOConfig config, OkHttpClient httpClient) {
+        super(httpClient, config);
+    }
+
+    /**
+     * Lists one page of clients.
+     * @param first offset of the first client
+     * @param max page size
+     * @return the page (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects a
+     * read
+     */
+    public List<Client> listClients(int first, int max) throws SSOIOException {
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("clients")
+                .addQueryParameter("first", String.valueOf(first))
+                .addQueryParameter("max", String.valueOf(max))
+                .build();
+        return this.getList(url, Client[].class);
+    }
+
+    /**
+     * Finds a client by its clientId. Returns null if not found.
+     * @param clientId the clientId (not the internal id)
+     * @return Client or null
+     * @throws SSOIOException on network errors or when Keycloak rejects a
+     * read
+     */
+    public Client findClient(String clientId) throws SSOIOException {
+        if (clientId == null || clientId.isBlank()) return null;
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("clients")
+                .addQueryParameter("clientId", clientId)
+                .build();
+        for (Client c : this.getList(url, Client[].class)) {
+            if (clientId.equals(c.getClientId())) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts the active sessions of a client.
+     * @param clientUuid internal id of the client
+     * @return the number of sessions, or -1 if Keycloak rejected the request
+     * @throws SSOIOException on network errors
+     */
+    public long countClientSessions(String clientUuid) throws SSOIOException {
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("clients")
+                .addPathSegment(clientUuid)
+                .addPathSegment("session-count")
+                .build();
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    return -1;
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json.isBlank()) {
+                    return -1;
+                }
+                Map<?, ?> body = this.codec().fromJson(json, Map.class);
+                Object count = body != null ? body.get("count") : null;
+                return count instanceof Number n ? n.longValue() : -1;
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Lists one page of the sessions of a client.
+     * @param clientUuid internal id of the client
+     * @param first offset of the first session
+     * @param max page size
+     * @return the page (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects a
+     * read
+     */
+    public List<UserSession> listClientSessions(String clientUuid, int first, int max) throws SSOIOException {
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("clients")
+                .addPathSegment(clientUuid)
+                .addPathSegment("user-sessions")
+                .addQueryParameter("first", String.valueOf(first))
+                .addQueryParameter("max", String.valueOf(max))
+                .build();
+        return this.getList(url, UserSession[].class);
+    }
+
+    /**
+     * Pages through every session of a client, one page in memory at a time.
+     * @param clientUuid internal id of the client
+     * @param pageSize sessions per request
+     * @param sink receives each session
+     * @return number of sessions delivered
+     * @throws SSOIOException on network errors or when Keycloak rejects a
+     * read
+     */
+    public long streamClientSessions(String clientUuid, int pageSize, Consumer<UserSession> sink) throws SSOIOException {
+        int max = Math.max(1, pageSize);
+        long total = 0;
+        int first = 0;
+        while (true) {
+            List<UserSession> page = this.listClientSessions(clientUuid, first, max);
+            page.forEach(sink);
+            total += page.size();
+            if (page.size() < max) {
+                return total;
+            }
+            first += max;
+        }
+    }
+
+    /**
+     * Lists the sessions of a user.
+     * @param userId Keycloak user id
+     * @return the sessions (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects a
+     * read
+     */
+    public List<UserSession> getUserSessions(String userId) throws SSOIOException {
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("users")
+                .addPathSegment(userId)
+                .addPathSegment("sessions")
+                .build();
+        return this.getList(url, UserSession[].class);
+    }
+
+    /**
+     * Revokes one session.
+     * @param sessionId session id
+     * @return true if the session was removed (204)
+     * @throws SSOIOException on network errors
+     */
+    public boolean deleteSession(String sessionId) throws SSOIOException {
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("sessions")
+                .addPathSegment(sessionId)
+                .build();
+        try {
+            try (Response r = this.delete(url.toString())) {
+                return r.code() == 204;
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Revokes every session of a user.
+     * @param userId Keycloak user id
+     * @return true if the user was logged out (204)
+     * @throws SSOIOException on network errors
+     */
+    public boolean logoutUser(String userId) throws SSOIOException {
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("users")
+                .addPathSegment(userId)
+                .addPathSegment("logout")
+                .build();
+        try {
+            try (Response r = this.postJson(url.toString(), Collections.emptyMap())) {
+                return r.code() == 204;
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Counts sessions per client and per user in one pass over the client
+     * session listings. A session shared by several clients is counted once
+     * per user: only when seen through the scanned client with the lowest
+     * internal id, so no session id has to be remembered. Memory grows with
+     * the number of clients and users, not with the number of sessions.
+     * @param clients clients to scan, null scans every client of the realm
+     * @param pageSize sessions per request
+     * @return the counters
+     * @throws SSOIOException on network errors or when Keycloak rejects a
+     * read
+     */
+    public SessionCensus census(Collection<Client> clients, int pageSize) throws SSOIOException {
+        long start = System.currentTimeMillis();
+        List<Client> targets = clients != null ? new ArrayList<>(clients) : this.listAllClients(pageSize);
+        Set<String> scanned = new HashSet<>();
+        for (Client c : targets) {
+            scanned.add(c.getId());
+        }
+        SessionCensus census = new SessionCensus();
+        for (Client client : targets) {
+            census.onClient();
+            String name = client.getClientId() != null ? client.getClientId() : client.getId();
+            this.streamClientSessions(client.getId(), pageSize, session -> {
+                census.count(name, session.getUsername(), client.getId().equals(owner(session, scanned, client.getId())));
+            });
+        }
+        census.setElapsedMs(System.currentTimeMillis() - start);
+        logger.debug("Session census: {}", census);
+        return census;
+    }
+
+    /**
+     * The scanned client with the lowest id among the session's clients
+     */
+    private static String owner(UserSession session, Set<String> scanned, String fallback) {
+        String owner = null;
+        if (session.getClients() != null) {
+            for (String id : session.getClients().keySet()) {
+                if (scanned.contains(id) && (owner == null || id.compareTo(owner) < 0)) {
+                    owner = id;
+                }
+            }
+        }
+        return owner != null ? owner : fallback;
+    }
+
+    private List<Client> listAllClients(int pageSize) throws SSOIOException {
+        int max = Math.max(1, pageSize);
+        List<Client> all = new ArrayList<>();
+        int first = 0;
+        while (true) {
+            List<Client> page = this.listClients(first, max);
+            all.addAll(page);
+            if (page.size() < max) {
+                return all;
+            }
+            first += max;
+        }
+    }
+
+    private <T> List<T> getList(HttpUrl url, Class<T[]> type) throws SSOIOException {
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    throw this.httpError(r);
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json == null || json.trim().isEmpty() || json.trim().equals("[]")) {
+                    return Collections.emptyList();
+                }
+                T[] arr = this.codec().fromJson(json, type);
+                if (arr == null || arr.length == 0) return Collections.emptyList();
+                return Arrays.asList(arr);
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+}
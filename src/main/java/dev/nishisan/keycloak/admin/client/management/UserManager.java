@@ -21,6 +21,7 @@ import dev.nishisan.keycloak.admin.client.exception.CreateUserException;
 import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
 import dev.nishisan.keycloak.admin.client.types.RealmRole;
 import dev.nishisan.keycloak.admin.client.types.User;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Response;
 
@@ -28,6 +29,8 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * UserManager provides functionality to manage users in a Keycloak SSO environment.
@@ -55,7 +58,7 @@ public class UserManager extends BaseManager {
         try (Response r = this.postJson(targetUrl, user)) {
             int code = r.code();
             if (code != 201) {
-                throw new CreateUserException("Failed to create user. HTTP Status: " + code);
+                throw new CreateUserException("Failed to create user. HTTP Status: " + code, code);
             }
             String location = r.header("Location");
             if (location != null && !location.isEmpty()) {
@@ -91,7 +94,7 @@ public class UserManager extends BaseManager {
                 if (json == null || json.trim().isEmpty() || json.trim().equals("[]")) {
                     return null;
                 }
-                User[] users = this.gson().fromJson(json, User[].class);
+                User[] users = this.codec().fromJson(json, User[].class);
                 if (users != null && users.length > 0) {
                     return users[0];
                 }
@@ -102,6 +105,204 @@ public class UserManager extends BaseManager {
         }
     }
 
+    /**
+     * Creates a user and maps its realm roles in at most two round trips.
+     * Credentials, attributes, group paths and required actions travel in the
+     * create payload, the role mappings follow in a single call once the id
+     * is known.
+     *
+     * @param user the user, with everything Keycloak accepts on creation set
+     * @param realmRoles realm role names to map, may be empty
+     * @return the same user instance with id populated
+     * @throws SSOIOException on network errors
+     * @throws CreateUserException when Keycloak rejects the creation or the
+     * role mapping (the user then exists and its id is set)
+     */
+    public User provisionUser(User user, String... realmRoles) throws SSOIOException, CreateUserException {
+        User created = this.createUser(user);
+        if (realmRoles != null && realmRoles.length > 0 && !this.addRealmRoles(created.getId(), realmRoles)) {
+            throw new CreateUserException("User created with id " + created.getId() + " but realm roles were not mapped: " + Arrays.toString(realmRoles));
+        }
+        return created;
+    }
+
+    /**
+     * Gets a user by id. Returns null if not found.
+     * @param userId Keycloak user id
+     * @return User or null
+     * @throws SSOIOException on network errors
+     */
+    public User getUser(String userId) throws SSOIOException {
+        if (userId == null || userId.isBlank()) return null;
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("users")
+                .addPathSegment(userId)
+                .build();
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    return null;
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json == null || json.trim().isEmpty()) {
+                    return null;
+                }
+                return this.codec().fromJson(json, User.class);
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Gets a user by id, telling a missing user apart from a failed read.
+     * Unlike {@link #getUser(String)} only a 404 yields null.
+     *
+     * @param userId Keycloak user id
+     * @return the user, or null when Keycloak answers 404
+     * @throws SSOIOException on network errors or any other error status
+     */
+    public User fetchUser(String userId) throws SSOIOException {
+        if (userId == null || userId.isBlank()) return null;
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("users")
+                .addPathSegment(userId)
+                .build();
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (r.code() == 404) {
+                    return null;
+                }
+                if (!r.isSuccessful()) {
+                    throw this.httpError(r);
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                return this.codec().fromJson(json, User.class);
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Counts the users of the realm.
+     * @return the number of users, or -1 if Keycloak rejected the request
+     * @throws SSOIOException on network errors
+     */
+    public long countUsers() throws SSOIOException {
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("users")
+                .addPathSegment("count")
+                .build();
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    return -1;
+                }
+                String body = r.body() != null ? r.body().string() : "";
+                return body.isBlank() ? -1 : Long.parseLong(body.trim());
+            }
+        } catch (IOException | NumberFormatException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
+    /**
+     * Lists one page of users.
+     * @param first offset of the first user
+     * @param max page size
+     * @return the page (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects the request
+     */
+    public List<User> listUsers(int first, int max) throws SSOIOException {
+        return this.searchUsers(null, first, max);
+    }
+
+    /**
+     * Lists one page of users, optionally with the full representation.
+     * @param first offset of the first user
+     * @param max page size
+     * @param briefRepresentation false to get the full representation
+     * @return the page (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects the request
+     */
+    public List<User> listUsers(int first, int max, boolean briefRepresentation) throws SSOIOException {
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("users")
+                .addQueryParameter("first", String.valueOf(first))
+                .addQueryParameter("max", String.valueOf(max))
+                .addQueryParameter("briefRepresentation", String.valueOf(briefRepresentation))
+                .build();
+        return this.getUsers(url);
+    }
+
+    /**
+     * Lists one page of users matching a search string (username, email,
+     * first or last name).
+     * @param search search string, null lists every user
+     * @param first offset of the first user
+     * @param max page size
+     * @return the page (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects the request
+     */
+    public List<User> searchUsers(String search, int first, int max) throws SSOIOException {
+        HttpUrl.Builder builder = this.realmUrl()
+                .addPathSegment("users")
+                .addQueryParameter("first", String.valueOf(first))
+                .addQueryParameter("max", String.valueOf(max))
+                .addQueryParameter("briefRepresentation", "true");
+        if (search != null && !search.isBlank()) {
+            builder.addQueryParameter("search", search);
+        }
+        return this.getUsers(builder.build());
+    }
+
+    /**
+     * Scans every user of the realm with concurrent partitioned requests (see
+     * {@link UserScanOptions}). Users created or deleted during the scan are
+     * detected at page boundaries and the affected range is fetched again.
+     * With unordered delivery the sink is called from several threads and
+     * must be thread safe.
+     * @param options scan options, null for defaults
+     * @param sink receives every user once
+     * @return scan counters
+     * @throws SSOIOException on network errors
+     */
+    public UserScanResult scanUsers(UserScanOptions options, Consumer<User> sink) throws SSOIOException {
+        return new UserScan(this, options, sink).run();
+    }
+
+    /**
+     * Same as {@link #scanUsers(UserScanOptions, Consumer)} but as a lazy
+     * stream fed by a background scan. Network errors are thrown as
+     * {@link java.util.concurrent.CompletionException}; close the stream to
+     * stop the scan early.
+     * @param options scan options, null for defaults
+     * @return stream of users
+     */
+    public Stream<User> streamUsers(UserScanOptions options) {
+        return UserScan.stream(this, options);
+    }
+
+    List<User> getUsers(HttpUrl url) throws SSOIOException {
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    throw this.httpError(r);
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json == null || json.trim().isEmpty() || json.trim().equals("[]")) {
+                    return Collections.emptyList();
+                }
+                User[] users = this.codec().fromJson(json, User[].class);
+                if (users == null || users.length == 0) return Collections.emptyList();
+                return Arrays.asList(users);
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
     /**
      * Changes a user's password.
      * @param userId Keycloak user id
@@ -133,8 +334,8 @@ public class UserManager extends BaseManager {
     public boolean updateEmail(String userId, String newEmail) throws SSOIOException {
         String url = this.config.getBaseUrl() + "/admin/realms/" + this.config.getRealm() + "/users/" + userId;
         // Minimal payload to update email
-        class EmailUpdate { String email; Boolean emailVerified; EmailUpdate(String e){ this.email=e; this.emailVerified=false; } }
-        EmailUpdate payload = new EmailUpdate(newEmail);
+        User payload = new User(null, null, null, null, newEmail, false);
+        payload.setCredentials(null);
         try {
             try (Response r = this.putJson(url, payload)) {
                 return r.code() == 204;
@@ -144,6 +345,31 @@ public class UserManager extends BaseManager {
         }
     }
 
+    /**
+     * Updates a user. Keycloak leaves the fields that are null in the payload
+     * untouched, so only the changed fields need to be set.
+     * @param userId Keycloak user id
+     * @param changes the fields to change
+     * @return true if update succeeded (204 status)
+     * @throws SSOIOException on network errors
+     */
+    public boolean updateUser(String userId, User changes) throws SSOIOException {
+        if (userId == null || userId.isBlank() || changes == null) {
+            return false;
+        }
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("users")
+                .addPathSegment(userId)
+                .build();
+        try {
+            try (Response r = this.putJson(url.toString(), changes)) {
+                return r.code() == 204;
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
     /**
      * Adds realm-level roles to a user.
      * @param userId Keycloak user id
@@ -172,6 +398,40 @@ public class UserManager extends BaseManager {
         }
     }
 
+    /**
+     * Lists the realm roles directly mapped to a user.
+     * @param userId Keycloak user id
+     * @return the roles (possibly empty)
+     * @throws SSOIOException on network errors or when Keycloak rejects the
+     * request (404 when the user does not exist)
+     */
+    public List<RealmRole> getRealmRoles(String userId) throws SSOIOException {
+        if (userId == null || userId.isBlank()) {
+            return Collections.emptyList();
+        }
+        HttpUrl url = this.realmUrl()
+                .addPathSegment("users")
+                .addPathSegment(userId)
+                .addPathSegments("role-mappings/realm")
+                .build();
+        try {
+            try (Response r = this.get(url.toString())) {
+                if (!r.isSuccessful()) {
+                    throw this.httpError(r);
+                }
+                String json = r.body() != null ? r.body().string() : "";
+                if (json == null || json.trim().isEmpty() || json.trim().equals("[]")) {
+                    return Collections.emptyList();
+                }
+                RealmRole[] roles = this.codec().fromJson(json, RealmRole[].class);
+                if (roles == null || roles.length == 0) return Collections.emptyList();
+                return Arrays.asList(roles);
+            }
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+    }
+
     /**
      * Convenience overload to add a single realm role to a user.
      */
@@ -0,0 +1,373 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.management;
+
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.http.RequestPriority;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import okhttp3.HttpUrl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Partitioned scan of every user of the realm.
+ *
+ * The range given by /users/count is split in pages that are fetched
+ * concurrently. Each page asks for one extra user: it must be the first user
+ * of the next page, otherwise users were created or deleted between the two
+ * requests and the boundary is repaired. Keycloak lists users ordered by
+ * username, so users already delivered (duplicates) are dropped by comparing
+ * with the highest username delivered so far, and users pushed out of both
+ * pages (gaps) are recovered by fetching a window around the boundary.
+ * Pages past the count are fetched while the last page keeps seeing a
+ * following user.
+ *
+ * Boundaries are resolved in page order, only the fetches and (unordered)
+ * deliveries run in parallel. At most {@code 2 * parallelism} pages are held
+ * in memory.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+final class UserScan {
+
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+    private final UserManager userManager;
+    private final UserScanOptions options;
+    private final Consumer<User> sink;
+    private final int pageSize;
+    private final UserScanResult result = new UserScanResult();
+    private final Logger logger = LoggerFactory.getLogger(UserScan.class);
+
+    UserScan(UserManager userManager, UserScanOptions options, Consumer<User> sink) {
+        this.userManager = userManager;
+        this.options = options != null ? options : new UserScanOptions();
+        this.sink = sink;
+        this.pageSize = Math.max(1, this.options.getPageSize());
+    }
+
+    UserScanResult run() throws SSOIOException {
+        return RequestPriority.BATCH.call(this::scan);
+    }
+
+    private UserScanResult scan() throws SSOIOException {
+        long start = System.currentTimeMillis();
+        long count = userManager.countUsers();
+        result.setExpectedUsers(count);
+        int counted = count > 0 ? (int) ((count + pageSize - 1) / pageSize) : 1;
+        int parallelism = Math.max(1, options.getParallelism());
+        int pool = POOL_SEQ.incrementAndGet();
+        AtomicInteger threadSeq = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(RequestPriority.BATCH.wrap(r), "keycloak-scan-" + pool + "-" + threadSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Semaphore window = new Semaphore(parallelism * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> deliveries = new ArrayList<>();
+        CompletableFuture<Boundary> chain = CompletableFuture.completedFuture(null);
+        CompletableFuture<List<User>> lastFetch = null;
+        try {
+            for (int i = 0;; i++) {
+                if (i >= counted && this.await(lastFetch).size() <= pageSize) {
+                    break;
+                }
+                window.acquire();
+                if (failure.get() != null) {
+                    break;
+                }
+                int first = i * pageSize;
+                CompletableFuture<List<User>> fetch = CompletableFuture.supplyAsync(() -> this.fetch(first, pageSize + 1), executor);
+                chain = fetch.thenCombineAsync(chain, (raw, prev) -> this.resolve(first, raw, prev), executor);
+                CompletableFuture<Void> delivered;
+                if (options.isOrdered()) {
+                    delivered = chain.thenAccept(b -> {
+                    });
+                } else {
+                    delivered = chain.thenAcceptAsync(b -> this.deliver(b.emitted), executor);
+                    deliveries.removeIf(CompletableFuture::isDone);
+                    deliveries.add(delivered);
+                }
+                delivered.whenComplete((v, ex) -> {
+                    if (ex != null && failure.compareAndSet(null, ex)) {
+                        window.release(Integer.MAX_VALUE / 2);
+                    } else {
+                        window.release();
+                    }
+                });
+                lastFetch = fetch;
+            }
+            this.await(chain);
+            this.await(CompletableFuture.allOf(deliveries.toArray(CompletableFuture[]::new)));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SSOIOException("User scan interrupted", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+        result.setElapsedMs(System.currentTimeMillis() - start);
+        if (result.getShiftsDetected() > 0) {
+            logger.info("User scan finished with page shifts: {}", result);
+        } else {
+            logger.debug("User scan finished: {}", result);
+        }
+        return result;
+    }
+
+    /**
+     * Checks the boundary with the previous page and returns what this page
+     * contributes. Runs once per page, in page order.
+     */
+    private Boundary resolve(int first, List<User> raw, Boundary prev) {
+        result.onPage();
+        List<User> body = raw.size() > pageSize ? raw.subList(0, pageSize) : raw;
+        User overlap = raw.size() > pageSize ? raw.get(pageSize) : null;
+        String watermark = prev != null ? prev.watermark : null;
+        List<User> emitted = after(body, watermark, null);
+        if (prev != null && !consistent(prev.overlap, raw)) {
+            result.onShift();
+            String upper = emitted.isEmpty() ? null : lowest(emitted);
+            if (prev.overlap == null || upper == null || compare(prev.overlap.getUsername(), upper) < 0) {
+                List<User> missing = this.repair(first, watermark, upper);
+                if (!missing.isEmpty()) {
+                    List<User> merged = new ArrayList<>(missing.size() + emitted.size());
+                    merged.addAll(missing);
+                    merged.addAll(emitted);
+                    emitted = merged;
+                }
+            }
+        }
+        for (User u : emitted) {
+            if (watermark == null || compare(u.getUsername(), watermark) > 0) {
+                watermark = u.getUsername();
+            }
+        }
+        if (options.isOrdered()) {
+            this.deliver(emitted);
+        }
+        return new Boundary(watermark, overlap, options.isOrdered() ? null : emitted);
+    }
+
+    /**
+     * The previous page's extra user must open this page
+     */
+    private static boolean consistent(User expected, List<User> raw) {
+        if (expected == null) {
+            return raw.isEmpty();
+        }
+        return !raw.isEmpty() && expected.getId() != null && expected.getId().equals(raw.get(0).getId());
+    }
+
+    /**
+     * Fetches a window of two pages around the boundary and returns the users
+     * between the last delivered username and the first one of this page
+     */
+    private List<User> repair(int first, String lower, String upper) {
+        int start = Math.max(0, first - pageSize);
+        int max = 2 * pageSize + 1;
+        List<User> window = this.fetch(start, max);
+        boolean complete = true;
+        if (start > 0 && (lower == null || window.isEmpty() || compare(window.get(0).getUsername(), lower) > 0)) {
+            complete = false;
+        }
+        if (upper != null && window.size() == max && compare(window.get(window.size() - 1).getUsername(), upper) < 0) {
+            complete = false;
+        }
+        if (complete) {
+            result.onGapRepaired();
+        } else {
+            result.onGapUnrepaired();
+            logger.warn("Page shift at offset:[{}] is larger than a page, users may be missing", first);
+        }
+        return after(window, lower, upper);
+    }
+
+    private void deliver(List<User> users) {
+        for (User u : users) {
+            sink.accept(u);
+        }
+        result.addUsers(users.size());
+    }
+
+    private List<User> fetch(int first, int max) {
+        HttpUrl url = userManager.realmUrl()
+                .addPathSegment("users")
+                .addQueryParameter("first", String.valueOf(first))
+                .addQueryParameter("max", String.valueOf(max))
+                .addQueryParameter("briefRepresentation", String.valueOf(options.isBriefRepresentation()))
+                .build();
+        try {
+            return userManager.getUsers(url);
+        } catch (SSOIOException ex) {
+            throw new CompletionException(ex);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws SSOIOException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof SSOIOException sso) {
+                throw sso;
+            }
+            if (ex.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Users with lower < username < upper, null bounds are open
+     */
+    private static List<User> after(List<User> users, String lower, String upper) {
+        List<User> kept = new ArrayList<>(users.size());
+        for (User u : users) {
+            if ((lower == null || compare(u.getUsername(), lower) > 0)
+                    && (upper == null || compare(u.getUsername(), upper) < 0)) {
+                kept.add(u);
+            }
+        }
+        return kept;
+    }
+
+    private static String lowest(List<User> users) {
+        String lowest = users.get(0).getUsername();
+        for (User u : users) {
+            if (compare(u.getUsername(), lowest) < 0) {
+                lowest = u.getUsername();
+            }
+        }
+        return lowest;
+    }
+
+    private static int compare(String a, String b) {
+        return (a != null ? a : "").compareTo(b != null ? b : "");
+    }
+
+    /**
+     * What a resolved page leaves for the next one
+     */
+    private static final class Boundary {
+
+        final String watermark;
+        final User overlap;
+        final List<User> emitted;
+
+        Boundary(String watermark, User overlap, List<User> emitted) {
+            this.watermark = watermark;
+            this.overlap = overlap;
+            this.emitted = emitted;
+        }
+    }
+
+    /**
+     * Runs the scan on a background thread and exposes it as a stream. Scan
+     * failures are thrown by the stream as {@link CompletionException}.
+     * Closing the stream cancels the scan.
+     */
+    static Stream<User> stream(UserManager userManager, UserScanOptions options) {
+        UserScanOptions opts = options != null ? options : new UserScanOptions();
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(Math.max(1, opts.getPageSize()) * 2);
+        AtomicBoolean closed = new AtomicBoolean(false);
+        Object end = new Object();
+        Thread producer = new Thread(() -> {
+            Object last = end;
+            try {
+                new UserScan(userManager, opts, u -> offer(queue, u, closed)).run();
+            } catch (SSOIOException | RuntimeException ex) {
+                last = ex;
+            }
+            try {
+                offer(queue, last, closed);
+            } catch (CancellationException ex) {
+                // consumer went away
+            }
+        }, "keycloak-scan-stream");
+        producer.setDaemon(true);
+        producer.start();
+        Iterator<User> iterator = new Iterator<>() {
+            private Object next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new CompletionException(ex);
+                    }
+                }
+                if (next instanceof Throwable t) {
+                    throw new CompletionException(t);
+                }
+                return next != end;
+            }
+
+            @Override
+            public User next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                User u = (User) next;
+                next = null;
+                return u;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.NONNULL | (opts.isOrdered() ? Spliterator.ORDERED : 0)), false)
+                .onClose(() -> {
+                    closed.set(true);
+                    queue.clear();
+                });
+    }
+
+    private static void offer(BlockingQueue<Object> queue, Object value, AtomicBoolean closed) {
+        try {
+            while (!queue.offer(value, 100, TimeUnit.MILLISECONDS)) {
+                if (closed.get()) {
+                    throw new CancellationException("User stream closed");
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("User stream interrupted");
+        }
+    }
+}
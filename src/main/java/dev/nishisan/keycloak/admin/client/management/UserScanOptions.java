@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.management;
+
+/**
+ * Options of a partitioned user scan (see
+ * {@link UserManager#scanUsers(UserScanOptions, java.util.function.Consumer)})
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class UserScanOptions {
+
+    /**
+     * Users per partition (one request each)
+     */
+    private int pageSize = 500;
+    /**
+     * Partitions fetched concurrently
+     */
+    private int parallelism = 4;
+    /**
+     * When true the sink receives users in Keycloak order from a single
+     * thread, otherwise pages are delivered concurrently
+     */
+    private boolean ordered = false;
+    private boolean briefRepresentation = true;
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    public boolean isBriefRepresentation() {
+        return briefRepresentation;
+    }
+
+    public void setBriefRepresentation(boolean briefRepresentation) {
+        this.briefRepresentation = briefRepresentation;
+    }
+}
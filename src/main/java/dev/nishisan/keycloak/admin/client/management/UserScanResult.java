@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.management;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a partitioned user scan
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class UserScanResult {
+
+    private final AtomicLong users = new AtomicLong();
+    private final AtomicLong pages = new AtomicLong();
+    private final AtomicLong shiftsDetected = new AtomicLong();
+    private final AtomicLong gapsRepaired = new AtomicLong();
+    private final AtomicLong gapsUnrepaired = new AtomicLong();
+    private volatile long expectedUsers = -1;
+    private volatile long elapsedMs;
+
+    void addUsers(int count) {
+        this.users.addAndGet(count);
+    }
+
+    void onPage() {
+        this.pages.incrementAndGet();
+    }
+
+    void onShift() {
+        this.shiftsDetected.incrementAndGet();
+    }
+
+    void onGapRepaired() {
+        this.gapsRepaired.incrementAndGet();
+    }
+
+    void onGapUnrepaired() {
+        this.gapsUnrepaired.incrementAndGet();
+    }
+
+    void setExpectedUsers(long expectedUsers) {
+        this.expectedUsers = expectedUsers;
+    }
+
+    void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    /**
+     * Users delivered to the sink
+     *
+     * @return
+     */
+    public long getUsers() {
+        return users.get();
+    }
+
+    public long getPages() {
+        return pages.get();
+    }
+
+    /**
+     * Page boundaries where the overlap check failed because users were
+     * created or deleted while the scan ran
+     *
+     * @return
+     */
+    public long getShiftsDetected() {
+        return shiftsDetected.get();
+    }
+
+    public long getGapsRepaired() {
+        return gapsRepaired.get();
+    }
+
+    /**
+     * Shifts larger than a page, some users may be missing. Scan again if
+     * completeness matters.
+     *
+     * @return
+     */
+    public long getGapsUnrepaired() {
+        return gapsUnrepaired.get();
+    }
+
+    /**
+     * Result of /users/count when the scan started, -1 if unavailable
+     *
+     * @return
+     */
+    public long getExpectedUsers() {
+        return expectedUsers;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    @Override
+    public String toString() {
+        return "users=" + getUsers() + " expected=" + expectedUsers + " pages=" + getPages()
+                + " shifts=" + getShiftsDetected() + " repaired=" + getGapsRepaired()
+                + " unrepaired=" + getGapsUnrepaired() + " elapsedMs=" + elapsedMs;
+    }
+}
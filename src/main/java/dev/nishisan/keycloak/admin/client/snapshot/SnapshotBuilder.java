@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.snapshot;
+
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.management.RealmManager;
+import dev.nishisan.keycloak.admin.client.management.UserManager;
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds a snapshot file from a live realm: the realm roles, a paginated
+ * scan of the users and the role holders of each role (one listing per role
+ * instead of one call per user). Any failed read aborts the build, so a
+ * snapshot is never written from a partial view of the realm.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class SnapshotBuilder {
+
+    private final UserManager userManager;
+    private final RealmManager realmManager;
+    private final int pageSize;
+    private final Logger logger = LoggerFactory.getLogger(SnapshotBuilder.class);
+
+    public SnapshotBuilder(UserManager userManager, RealmManager realmManager) {
+        this(userManager, realmManager, 500);
+    }
+
+    public SnapshotBuilder(UserManager userManager, RealmManager realmManager, int pageSize) {
+        this.userManager = userManager;
+        this.realmManager = realmManager;
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * Reads the realm and writes the snapshot
+     *
+     * @param file the target file
+     * @return the number of users written
+     * @throws SSOIOException on network or file errors, or when Keycloak
+     * rejects a read (the file is then left untouched)
+     */
+    public int build(Path file) throws SSOIOException {
+        long start = System.currentTimeMillis();
+        SnapshotWriter writer = new SnapshotWriter();
+        List<RealmRole> roles = realmManager.listAllRoles(pageSize);
+        roles.forEach(writer::addRole);
+        //
+        // user id -> role names, built from the role holder listings
+        //
+        Map<String, List<String>> mappings = new HashMap<>();
+        for (RealmRole role : roles) {
+            int first = 0;
+            while (true) {
+                List<User> page = realmManager.listRoleUsers(role.getName(), first, pageSize);
+                for (User user : page) {
+                    mappings.computeIfAbsent(user.getId(), k -> new ArrayList<>(2)).add(role.getName());
+                }
+                if (page.size() < pageSize) {
+                    break;
+                }
+                first += pageSize;
+            }
+        }
+        int first = 0;
+        while (true) {
+            List<User> page = userManager.listUsers(first, pageSize);
+            for (User user : page) {
+                writer.addUser(user, mappings.remove(user.getId()));
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+            first += pageSize;
+        }
+        try {
+            writer.write(file);
+        } catch (IOException ex) {
+            throw new SSOIOException(ex);
+        }
+        logger.info("Snapshot [{}] written with {} users and {} roles in {} ms", file, writer.getUserCount(), roles.size(), System.currentTimeMillis() - start);
+        return writer.getUserCount();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.snapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the binary realm snapshot. All numbers are big endian, string
+ * references are indexes into the dictionary and -1 means null.
+ *
+ * <pre>
+ * header           HEADER_SIZE bytes: magic, version, counts and the offset of each section
+ * string offsets   (stringCount + 1) ints, relative to the string data
+ * string data      UTF-8 bytes of every distinct string
+ * roles            roleCount records of ROLE_RECORD_SIZE, sorted by name
+ * users            userCount records of USER_RECORD_SIZE, sorted by id
+ * username index   userCount ints (user indexes) sorted by username
+ * mappings         mappingCount ints (role indexes), each user owns a slice
+ * role postings    roleCount (start, count) pairs followed by user indexes
+ * </pre>
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x4B43534E; // KCSN
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 80;
+    // header int fields
+    static final int H_MAGIC = 0;
+    static final int H_VERSION = 4;
+    static final int H_STRING_COUNT = 8;
+    static final int H_ROLE_COUNT = 12;
+    static final int H_USER_COUNT = 16;
+    static final int H_MAPPING_COUNT = 20;
+    // header long fields (section offsets)
+    static final int H_STRING_OFFSETS = 24;
+    static final int H_STRING_DATA = 32;
+    static final int H_ROLES = 40;
+    static final int H_USERS = 48;
+    static final int H_USERNAME_INDEX = 56;
+    static final int H_MAPPINGS = 64;
+    static final int H_POSTINGS = 72;
+
+    static final int ROLE_RECORD_SIZE = 16;
+    static final int R_NAME = 0;
+    static final int R_ID = 4;
+    static final int R_DESCRIPTION = 8;
+    static final int R_FLAGS = 12;
+
+    static final int USER_RECORD_SIZE = 32;
+    static final int U_ID = 0;
+    static final int U_USERNAME = 4;
+    static final int U_EMAIL = 8;
+    static final int U_FIRST_NAME = 12;
+    static final int U_LAST_NAME = 16;
+    static final int U_FLAGS = 20;
+    static final int U_MAPPING_START = 24;
+    static final int U_MAPPING_COUNT = 28;
+
+    static final int FLAG_COMPOSITE = 1;
+    static final int FLAG_CLIENT_ROLE = 1 << 1;
+
+    static final int FLAG_ENABLED = 1;
+    static final int FLAG_EMAIL_VERIFIED = 1 << 1;
+    static final int FLAG_ENABLED_NULL = 1 << 2;
+    static final int FLAG_EMAIL_VERIFIED_NULL = 1 << 3;
+
+    static final int NULL_REF = -1;
+
+    private SnapshotFormat() {
+    }
+
+    /**
+     * Unsigned byte comparison of two UTF-8 strings, which matches code
+     * point order
+     */
+    static int compare(byte[] a, byte[] b) {
+        return java.util.Arrays.compareUnsigned(a, b);
+    }
+
+    /**
+     * Compares a stored string with a key without materializing a String
+     */
+    static int compare(ByteBuffer buffer, int position, int length, byte[] key) {
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int c = Byte.toUnsignedInt(buffer.get(position + i)) - Byte.toUnsignedInt(key[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return length - key.length;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.snapshot;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads a binary realm snapshot through a memory mapped file. Nothing is
+ * deserialized up front: lookups binary search the fixed width records and
+ * only the strings that are asked for are decoded, so the heap cost is
+ * independent of the snapshot size. Instances are safe for concurrent reads.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class SnapshotReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int stringCount;
+    private final int roleCount;
+    private final int userCount;
+    private final int stringOffsetsPos;
+    private final int stringDataPos;
+    private final int rolesPos;
+    private final int usersPos;
+    private final int usernameIndexPos;
+    private final int mappingsPos;
+    private final int postingsPos;
+
+    private SnapshotReader(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        if (buffer.getInt(SnapshotFormat.H_MAGIC) != SnapshotFormat.MAGIC) {
+            throw new IOException("Not a realm snapshot");
+        }
+        if (buffer.getInt(SnapshotFormat.H_VERSION) != SnapshotFormat.VERSION) {
+            throw new IOException("Unsupported snapshot version: " + buffer.getInt(SnapshotFormat.H_VERSION));
+        }
+        this.stringCount = buffer.getInt(SnapshotFormat.H_STRING_COUNT);
+        this.roleCount = buffer.getInt(SnapshotFormat.H_ROLE_COUNT);
+        this.userCount = buffer.getInt(SnapshotFormat.H_USER_COUNT);
+        this.stringOffsetsPos = (int) buffer.getLong(SnapshotFormat.H_STRING_OFFSETS);
+        this.stringDataPos = (int) buffer.getLong(SnapshotFormat.H_STRING_DATA);
+        this.rolesPos = (int) buffer.getLong(SnapshotFormat.H_ROLES);
+        this.usersPos = (int) buffer.getLong(SnapshotFormat.H_USERS);
+        this.usernameIndexPos = (int) buffer.getLong(SnapshotFormat.H_USERNAME_INDEX);
+        this.mappingsPos = (int) buffer.getLong(SnapshotFormat.H_MAPPINGS);
+        this.postingsPos = (int) buffer.getLong(SnapshotFormat.H_POSTINGS);
+    }
+
+    /**
+     * Maps a snapshot file
+     *
+     * @param file the snapshot
+     * @return the reader, close it to release the file
+     * @throws IOException
+     */
+    public static SnapshotReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SnapshotReader(channel, buffer);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public int getUserCount() {
+        return userCount;
+    }
+
+    public int getRoleCount() {
+        return roleCount;
+    }
+
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    /**
+     * Finds a user by id
+     *
+     * @param id
+     * @return the user view or null
+     */
+    public SnapshotUser findById(String id) {
+        if (id == null) {
+            return null;
+        }
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = userCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = this.compareRef(this.userField(mid, SnapshotFormat.U_ID), key);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return new SnapshotUser(this, mid);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a user by username (Keycloak stores them in lower case)
+     *
+     * @param username
+     * @return the user view or null
+     */
+    public SnapshotUser findByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        byte[] key = username.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = userCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int user = buffer.getInt(usernameIndexPos + 4 * mid);
+            int c = this.compareRef(this.userField(user, SnapshotFormat.U_USERNAME), key);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return new SnapshotUser(this, user);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * User at a position (users are ordered by id)
+     *
+     * @param index 0 to getUserCount() - 1
+     * @return the user view
+     */
+    public SnapshotUser user(int index) {
+        if (index < 0 || index >= userCount) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return new SnapshotUser(this, index);
+    }
+
+    /**
+     * Position of a role by name (roles are ordered by name)
+     *
+     * @param name
+     * @return the role index or -1
+     */
+    public int roleIndex(String name) {
+        if (name == null) {
+            return -1;
+        }
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = roleCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = this.compareRef(buffer.getInt(rolesPos + mid * SnapshotFormat.ROLE_RECORD_SIZE + SnapshotFormat.R_NAME), key);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public String roleName(int roleIndex) {
+        return this.string(this.roleField(roleIndex, SnapshotFormat.R_NAME));
+    }
+
+    public String roleId(int roleIndex) {
+        return this.string(this.roleField(roleIndex, SnapshotFormat.R_ID));
+    }
+
+    public String roleDescription(int roleIndex) {
+        return this.string(this.roleField(roleIndex, SnapshotFormat.R_DESCRIPTION));
+    }
+
+    public boolean isCompositeRole(int roleIndex) {
+        return (this.roleField(roleIndex, SnapshotFormat.R_FLAGS) & SnapshotFormat.FLAG_COMPOSITE) != 0;
+    }
+
+    /**
+     * Number of users directly mapped to a role
+     *
+     * @param roleName
+     * @return the count, 0 for unknown roles
+     */
+    public int countUsersWithRole(String roleName) {
+        int role = this.roleIndex(roleName);
+        return role < 0 ? 0 : buffer.getInt(postingsPos + 8 * role + 4);
+    }
+
+    /**
+     * Users directly mapped to a role
+     *
+     * @param roleName
+     * @return user positions, pass them to {@link #user(int)}
+     */
+    public int[] usersWithRole(String roleName) {
+        int role = this.roleIndex(roleName);
+        if (role < 0) {
+            return new int[0];
+        }
+        int start = buffer.getInt(postingsPos + 8 * role);
+        int count = buffer.getInt(postingsPos + 8 * role + 4);
+        int base = postingsPos + 8 * roleCount + 4 * start;
+        int[] users = new int[count];
+        for (int i = 0; i < count; i++) {
+            users[i] = buffer.getInt(base + 4 * i);
+        }
+        return users;
+    }
+
+    int userField(int userIndex, int field) {
+        return buffer.getInt(usersPos + userIndex * SnapshotFormat.USER_RECORD_SIZE + field);
+    }
+
+    private int roleField(int roleIndex, int field) {
+        if (roleIndex < 0 || roleIndex >= roleCount) {
+            throw new IndexOutOfBoundsException(roleIndex);
+        }
+        return buffer.getInt(rolesPos + roleIndex * SnapshotFormat.ROLE_RECORD_SIZE + field);
+    }
+
+    int[] userRoleIndexes(int userIndex) {
+        int start = this.userField(userIndex, SnapshotFormat.U_MAPPING_START);
+        int count = this.userField(userIndex, SnapshotFormat.U_MAPPING_COUNT);
+        int[] roles = new int[count];
+        for (int i = 0; i < count; i++) {
+            roles[i] = buffer.getInt(mappingsPos + 4 * (start + i));
+        }
+        return roles;
+    }
+
+    List<String> userRoleNames(int userIndex) {
+        List<String> names = new ArrayList<>();
+        for (int role : this.userRoleIndexes(userIndex)) {
+            names.add(this.roleName(role));
+        }
+        return names;
+    }
+
+    /**
+     * Decodes a dictionary string
+     *
+     * @param ref the string reference
+     * @return the string, null for the null reference
+     */
+    String string(int ref) {
+        if (ref == SnapshotFormat.NULL_REF) {
+            return null;
+        }
+        int start = buffer.getInt(stringOffsetsPos + 4 * ref);
+        int end = buffer.getInt(stringOffsetsPos + 4 * (ref + 1));
+        byte[] bytes = new byte[end - start];
+        buffer.get(stringDataPos + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int compareRef(int ref, byte[] key) {
+        if (ref == SnapshotFormat.NULL_REF) {
+            return key.length == 0 ? 0 : -1;
+        }
+        int start = buffer.getInt(stringOffsetsPos + 4 * ref);
+        int end = buffer.getInt(stringOffsetsPos + 4 * (ref + 1));
+        return SnapshotFormat.compare(buffer, stringDataPos + start, end - start, key);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
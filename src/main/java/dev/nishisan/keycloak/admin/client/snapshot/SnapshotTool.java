@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import dev.nishisan.keycloak.admin.client.KeycloakAdminClient;
+import dev.nishisan.keycloak.admin.client.config.SSOConfig;
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * Command line entry point to build or inspect a snapshot:
+ *
+ * <pre>
+ * build  config/sample.yaml realm.snap
+ * lookup realm.snap username-or-id
+ * </pre>
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class SnapshotTool {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: build <config.yaml> <snapshot> | lookup <snapshot> <username-or-id>");
+            System.exit(2);
+        }
+        if ("build".equals(args[0])) {
+            ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+            SSOConfig config = mapper.readValue(new File(args[1]), SSOConfig.class);
+            KeycloakAdminClient client = new KeycloakAdminClient(config);
+            try {
+                int users = new SnapshotBuilder(client.getUserManager(), client.getRealmManager()).build(Path.of(args[2]));
+                System.out.println("Snapshot written with " + users + " users");
+            } finally {
+                client.shutdown();
+            }
+        } else if ("lookup".equals(args[0])) {
+            try (SnapshotReader reader = SnapshotReader.open(Path.of(args[1]))) {
+                SnapshotUser user = reader.findByUsername(args[2]);
+                if (user == null) {
+                    user = reader.findById(args[2]);
+                }
+                if (user == null) {
+                    System.out.println("Not found");
+                } else {
+                    System.out.println(user.getId() + " " + user.getUsername() + " " + user.getEmail() + " " + user.getRealmRoles());
+                }
+            }
+        } else {
+            System.err.println("Unknown command: " + args[0]);
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.snapshot;
+
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.util.List;
+
+/**
+ * View of a user record inside a snapshot. Fields are decoded from the
+ * mapped file when read, the view itself only holds the record position.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class SnapshotUser {
+
+    private final SnapshotReader reader;
+    private final int index;
+
+    SnapshotUser(SnapshotReader reader, int index) {
+        this.reader = reader;
+        this.index = index;
+    }
+
+    /**
+     * Position of the record in the snapshot
+     *
+     * @return
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getId() {
+        return reader.string(reader.userField(index, SnapshotFormat.U_ID));
+    }
+
+    public String getUsername() {
+        return reader.string(reader.userField(index, SnapshotFormat.U_USERNAME));
+    }
+
+    public String getEmail() {
+        return reader.string(reader.userField(index, SnapshotFormat.U_EMAIL));
+    }
+
+    public String getFirstName() {
+        return reader.string(reader.userField(index, SnapshotFormat.U_FIRST_NAME));
+    }
+
+    public String getLastName() {
+        return reader.string(reader.userField(index, SnapshotFormat.U_LAST_NAME));
+    }
+
+    public Boolean getEnabled() {
+        int flags = reader.userField(index, SnapshotFormat.U_FLAGS);
+        if ((flags & SnapshotFormat.FLAG_ENABLED_NULL) != 0) {
+            return null;
+        }
+        return (flags & SnapshotFormat.FLAG_ENABLED) != 0;
+    }
+
+    public Boolean getEmailVerified() {
+        int flags = reader.userField(index, SnapshotFormat.U_FLAGS);
+        if ((flags & SnapshotFormat.FLAG_EMAIL_VERIFIED_NULL) != 0) {
+            return null;
+        }
+        return (flags & SnapshotFormat.FLAG_EMAIL_VERIFIED) != 0;
+    }
+
+    /**
+     * Role positions, see {@link SnapshotReader#roleName(int)}
+     *
+     * @return
+     */
+    public int[] getRealmRoleIndexes() {
+        return reader.userRoleIndexes(index);
+    }
+
+    public List<String> getRealmRoles() {
+        return reader.userRoleNames(index);
+    }
+
+    public boolean hasRealmRole(String roleName) {
+        int role = reader.roleIndex(roleName);
+        if (role < 0) {
+            return false;
+        }
+        for (int r : reader.userRoleIndexes(index)) {
+            if (r == role) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Materializes the record as a regular {@link User}
+     *
+     * @return
+     */
+    public User toUser() {
+        User user = new User(getUsername(), getEnabled(), getFirstName(), getLastName(), getEmail(), getEmailVerified());
+        user.setId(getId());
+        return user;
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotUser[" + getId() + ", " + getUsername() + "]";
+    }
+}
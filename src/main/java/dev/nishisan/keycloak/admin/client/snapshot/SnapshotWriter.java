@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.snapshot;
+
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Builds a binary realm snapshot (see {@link SnapshotFormat}). Roles and
+ * users are collected in compact form (string references and int arrays) and
+ * sorted when written.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class SnapshotWriter {
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<byte[]> strings = new ArrayList<>();
+    private final List<int[]> roles = new ArrayList<>();
+    private final Map<String, Integer> roleByName = new HashMap<>();
+    private final List<int[]> users = new ArrayList<>();
+    private final List<int[]> userRoles = new ArrayList<>();
+
+    private int ref(String value) {
+        if (value == null) {
+            return SnapshotFormat.NULL_REF;
+        }
+        return dictionary.computeIfAbsent(value, v -> {
+            strings.add(v.getBytes(StandardCharsets.UTF_8));
+            return strings.size() - 1;
+        });
+    }
+
+    public void addRole(RealmRole role) {
+        if (role.getName() == null || roleByName.containsKey(role.getName())) {
+            return;
+        }
+        int flags = (Boolean.TRUE.equals(role.getComposite()) ? SnapshotFormat.FLAG_COMPOSITE : 0)
+                | (Boolean.TRUE.equals(role.getClientRole()) ? SnapshotFormat.FLAG_CLIENT_ROLE : 0);
+        roleByName.put(role.getName(), roles.size());
+        roles.add(new int[]{ref(role.getName()), ref(role.getId()), ref(role.getDescription()), flags});
+    }
+
+    /**
+     * Adds a user and its direct realm roles. Unknown role names are added as
+     * bare roles.
+     *
+     * @param user the user, its id is required
+     * @param realmRoles role names, may be null
+     */
+    public void addUser(User user, Collection<String> realmRoles) {
+        if (user.getId() == null) {
+            return;
+        }
+        int flags = 0;
+        if (user.getEnabled() == null) {
+            flags |= SnapshotFormat.FLAG_ENABLED_NULL;
+        } else if (user.getEnabled()) {
+            flags |= SnapshotFormat.FLAG_ENABLED;
+        }
+        if (user.getEmailVerified() == null) {
+            flags |= SnapshotFormat.FLAG_EMAIL_VERIFIED_NULL;
+        } else if (user.getEmailVerified()) {
+            flags |= SnapshotFormat.FLAG_EMAIL_VERIFIED;
+        }
+        users.add(new int[]{ref(user.getId()), ref(user.getUsername()), ref(user.getEmail()),
+            ref(user.getFirstName()), ref(user.getLastName()), flags});
+        int[] mapped = new int[realmRoles != null ? realmRoles.size() : 0];
+        int i = 0;
+        if (realmRoles != null) {
+            for (String name : realmRoles) {
+                if (!roleByName.containsKey(name)) {
+                    this.addRole(new RealmRole(name));
+                }
+                mapped[i++] = roleByName.get(name);
+            }
+        }
+        userRoles.add(mapped);
+    }
+
+    public int getUserCount() {
+        return users.size();
+    }
+
+    /**
+     * Writes the snapshot atomically (to a temp file moved into place)
+     *
+     * @param file target file
+     * @throws IOException
+     */
+    public void write(Path file) throws IOException {
+        // roles sorted by name, remap the indexes used by the users
+        Integer[] roleOrder = this.sortedOrder(roles.size(), i -> strings.get(roles.get(i)[0]));
+        int[] roleNewIndex = new int[roles.size()];
+        for (int pos = 0; pos < roleOrder.length; pos++) {
+            roleNewIndex[roleOrder[pos]] = pos;
+        }
+        // users sorted by id
+        Integer[] userOrder = this.sortedOrder(users.size(), i -> strings.get(users.get(i)[0]));
+        int[] userNewIndex = new int[users.size()];
+        for (int pos = 0; pos < userOrder.length; pos++) {
+            userNewIndex[userOrder[pos]] = pos;
+        }
+        // username index, in final user positions
+        Integer[] byUsername = this.sortedOrder(users.size(), i -> {
+            int ref = users.get(userOrder[i])[1];
+            return ref == SnapshotFormat.NULL_REF ? new byte[0] : strings.get(ref);
+        });
+
+        long mappingCount = 0;
+        for (int[] mapped : userRoles) {
+            mappingCount += mapped.length;
+        }
+        // role postings: users (final positions) per role (final positions)
+        int[] postingCount = new int[roles.size()];
+        for (int[] mapped : userRoles) {
+            for (int role : mapped) {
+                postingCount[roleNewIndex[role]]++;
+            }
+        }
+        int[] postingStart = new int[roles.size()];
+        for (int r = 1; r < roles.size(); r++) {
+            postingStart[r] = postingStart[r - 1] + postingCount[r - 1];
+        }
+        int[] postings = new int[(int) mappingCount];
+        int[] fill = postingStart.clone();
+        for (int pos = 0; pos < userOrder.length; pos++) {
+            for (int role : userRoles.get(userOrder[pos])) {
+                postings[fill[roleNewIndex[role]]++] = pos;
+            }
+        }
+
+        long stringBytes = 0;
+        for (byte[] s : strings) {
+            stringBytes += s.length;
+        }
+        long stringOffsetsPos = SnapshotFormat.HEADER_SIZE;
+        long stringDataPos = stringOffsetsPos + 4L * (strings.size() + 1);
+        long rolesPos = stringDataPos + stringBytes;
+        long usersPos = rolesPos + (long) SnapshotFormat.ROLE_RECORD_SIZE * roles.size();
+        long usernameIndexPos = usersPos + (long) SnapshotFormat.USER_RECORD_SIZE * users.size();
+        long mappingsPos = usernameIndexPos + 4L * users.size();
+        long postingsPos = mappingsPos + 4L * mappingCount;
+        long total = postingsPos + 8L * roles.size() + 4L * mappingCount;
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot too large for a single mapping: " + total + " bytes");
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(SnapshotFormat.MAGIC);
+            out.writeInt(SnapshotFormat.VERSION);
+            out.writeInt(strings.size());
+            out.writeInt(roles.size());
+            out.writeInt(users.size());
+            out.writeInt((int) mappingCount);
+            out.writeLong(stringOffsetsPos);
+            out.writeLong(stringDataPos);
+            out.writeLong(rolesPos);
+            out.writeLong(usersPos);
+            out.writeLong(usernameIndexPos);
+            out.writeLong(mappingsPos);
+            out.writeLong(postingsPos);
+
+            int offset = 0;
+            for (byte[] s : strings) {
+                out.writeInt(offset);
+                offset += s.length;
+            }
+            out.writeInt(offset);
+            for (byte[] s : strings) {
+                out.write(s);
+            }
+            for (Integer r : roleOrder) {
+                for (int field : roles.get(r)) {
+                    out.writeInt(field);
+                }
+            }
+            int mappingStart = 0;
+            for (Integer u : userOrder) {
+                int[] rec = users.get(u);
+                for (int field : rec) {
+                    out.writeInt(field);
+                }
+                int[] mapped = userRoles.get(u);
+                out.writeInt(mappingStart);
+                out.writeInt(mapped.length);
+                mappingStart += mapped.length;
+            }
+            for (Integer pos : byUsername) {
+                out.writeInt(pos);
+            }
+            for (Integer u : userOrder) {
+                for (int role : userRoles.get(u)) {
+                    out.writeInt(roleNewIndex[role]);
+                }
+            }
+            for (int r = 0; r < roles.size(); r++) {
+                out.writeInt(postingStart[r]);
+                out.writeInt(postingCount[r]);
+            }
+            for (int p : postings) {
+                out.writeInt(p);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Integer[] sortedOrder(int size, IntFunction<byte[]> key) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> key.apply(i), SnapshotFormat::compare));
+        return order;
+    }
+}
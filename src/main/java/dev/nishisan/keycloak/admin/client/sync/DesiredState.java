@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.sync;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The desired users and realm roles, usually loaded from a YAML or JSON file:
+ *
+ * <pre>
+ * managedRoles: [viewer, editor]
+ * users:
+ *   - username: alice
+ *     email: alice@example.com
+ *     realmRoles: [viewer]
+ * </pre>
+ *
+ * Only the managed roles are ever removed from users. When managedRoles is
+ * empty, the roles referenced by the users are the managed ones.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class DesiredState {
+
+    private List<String> managedRoles = new ArrayList<>();
+    private List<DesiredUser> users = new ArrayList<>();
+
+    public DesiredState() {
+    }
+
+    public DesiredState(List<DesiredUser> users) {
+        this.users = users;
+    }
+
+    /**
+     * Loads the state from a file, JSON when the name ends with .json and
+     * YAML otherwise
+     *
+     * @param file the state file
+     * @return the desired state
+     * @throws IOException
+     */
+    public static DesiredState load(File file) throws IOException {
+        ObjectMapper mapper = file.getName().toLowerCase(Locale.ROOT).endsWith(".json")
+                ? new ObjectMapper()
+                : new ObjectMapper(new YAMLFactory());
+        return mapper.readValue(file, DesiredState.class);
+    }
+
+    public List<String> getManagedRoles() {
+        return managedRoles;
+    }
+
+    public void setManagedRoles(List<String> managedRoles) {
+        this.managedRoles = managedRoles;
+    }
+
+    public List<DesiredUser> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<DesiredUser> users) {
+        this.users = users;
+    }
+}
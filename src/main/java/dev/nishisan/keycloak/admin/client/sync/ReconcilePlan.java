@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The minimal set of changes to reach the desired state. Printing it is the
+ * dry-run output, {@link UserReconciler#apply} executes it.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class ReconcilePlan {
+
+    private final List<UserChange> changes = new ArrayList<>();
+    private long unchanged;
+
+    void add(UserChange change) {
+        if (change.isEmpty()) {
+            unchanged++;
+        } else {
+            changes.add(change);
+        }
+    }
+
+    /**
+     * Only users that need at least one call
+     *
+     * @return
+     */
+    public List<UserChange> getChanges() {
+        return changes;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public long getCreates() {
+        return changes.stream().filter(UserChange::isCreate).count();
+    }
+
+    public long getUpdates() {
+        return changes.stream().filter(UserChange::isUpdate).count();
+    }
+
+    public long getRoleGrants() {
+        return changes.stream().mapToLong(c -> c.getRolesToAdd().size()).sum();
+    }
+
+    public long getRoleRevocations() {
+        return changes.stream().mapToLong(c -> c.getRolesToRemove().size()).sum();
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * One line per change followed by a summary
+     *
+     * @return
+     */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (UserChange change : changes) {
+            for (String line : change.describe()) {
+                sb.append(line).append('\n');
+            }
+        }
+        sb.append(this.toString());
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "ReconcilePlan[creates=" + getCreates() + ", updates=" + getUpdates()
+                + ", grants=" + getRoleGrants() + ", revocations=" + getRoleRevocations()
+                + ", unchanged=" + unchanged + "]";
+    }
+}
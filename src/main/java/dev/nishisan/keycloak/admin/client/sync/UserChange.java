@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.sync;
+
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What must change for a single user to reach the desired state
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class UserChange {
+
+    private final String username;
+    private final String userId;
+    private final DesiredUser desired;
+    private final boolean create;
+    /**
+     * field name -> "old -> new", only for updates
+     */
+    private final Map<String, String> fieldChanges = new LinkedHashMap<>();
+    private final List<RealmRole> rolesToAdd = new ArrayList<>();
+    private final List<RealmRole> rolesToRemove = new ArrayList<>();
+
+    UserChange(DesiredUser desired, String userId, boolean create) {
+        this.username = desired.getUsername();
+        this.desired = desired;
+        this.userId = userId;
+        this.create = create;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * The Keycloak id, null when the user is still to be created
+     *
+     * @return
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    public DesiredUser getDesired() {
+        return desired;
+    }
+
+    public boolean isCreate() {
+        return create;
+    }
+
+    public boolean isUpdate() {
+        return !fieldChanges.isEmpty();
+    }
+
+    public Map<String, String> getFieldChanges() {
+        return fieldChanges;
+    }
+
+    public List<RealmRole> getRolesToAdd() {
+        return rolesToAdd;
+    }
+
+    public List<RealmRole> getRolesToRemove() {
+        return rolesToRemove;
+    }
+
+    public boolean isEmpty() {
+        return !create && fieldChanges.isEmpty() && rolesToAdd.isEmpty() && rolesToRemove.isEmpty();
+    }
+
+    /**
+     * Human readable lines, used by the dry-run output
+     *
+     * @return
+     */
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        if (create) {
+            lines.add("+ create user " + username);
+        }
+        fieldChanges.forEach((field, change) -> lines.add("~ update user " + username + " " + field + ": " + change));
+        for (RealmRole role : rolesToAdd) {
+            lines.add("+ grant " + role.getName() + " to " + username);
+        }
+        for (RealmRole role : rolesToRemove) {
+            lines.add("- revoke " + role.getName() + " from " + username);
+        }
+        return lines;
+    }
+}
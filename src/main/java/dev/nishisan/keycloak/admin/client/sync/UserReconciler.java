@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.sync;
+
+import dev.nishisan.keycloak.admin.client.bulk.BulkExecutor;
+import dev.nishisan.keycloak.admin.client.bulk.BulkItemResult;
+import dev.nishisan.keycloak.admin.client.bulk.BulkOptions;
+import dev.nishisan.keycloak.admin.client.bulk.BulkOutcome;
+import dev.nishisan.keycloak.admin.client.bulk.BulkResult;
+import dev.nishisan.keycloak.admin.client.events.IBulkProgressListener;
+import dev.nishisan.keycloak.admin.client.exception.CreateUserException;
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.http.RequestPriority;
+import dev.nishisan.keycloak.admin.client.management.RealmManager;
+import dev.nishisan.keycloak.admin.client.management.UserManager;
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Brings the realm users and their realm roles to a declared state with the
+ * minimal number of admin calls.
+ *
+ * The current state is read in bulk: one paginated scan of the users and one
+ * paginated {@code /roles/{role}/users} listing per managed role. The diff
+ * only produces calls for users that actually differ, so a sync where nothing
+ * changed costs just those reads. Users that are not declared are never
+ * touched. A plan is only built from a complete read: a page Keycloak
+ * rejects fails {@link #plan} instead of being taken for missing users or
+ * missing role holders.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class UserReconciler {
+
+    private final UserManager userManager;
+    private final RealmManager realmManager;
+    private final Logger logger = LoggerFactory.getLogger(UserReconciler.class);
+
+    public UserReconciler(UserManager userManager, RealmManager realmManager) {
+        this.userManager = userManager;
+        this.realmManager = realmManager;
+    }
+
+    /**
+     * Computes the changes without applying them (dry-run)
+     *
+     * @param state the desired state
+     * @param options the page size used for the reads
+     * @return the plan
+     * @throws SSOIOException on network errors, when Keycloak rejects a read
+     * or when a declared role does not exist
+     */
+    public ReconcilePlan plan(DesiredState state, BulkOptions options) throws SSOIOException {
+        return RequestPriority.BATCH.call(() -> this.buildPlan(state, options));
+    }
+
+    private ReconcilePlan buildPlan(DesiredState state, BulkOptions options) throws SSOIOException {
+        BulkOptions opts = options != null ? options : new BulkOptions();
+        Map<String, DesiredUser> desired = new LinkedHashMap<>();
+        Set<String> referencedRoles = new LinkedHashSet<>(state.getManagedRoles());
+        for (DesiredUser user : state.getUsers()) {
+            if (user.getUsername() == null || user.getUsername().isBlank()) {
+                continue;
+            }
+            if (desired.put(key(user.getUsername()), user) != null) {
+                logger.warn("User [{}] declared more than once, the last entry wins", user.getUsername());
+            }
+            if (user.getRealmRoles() != null) {
+                referencedRoles.addAll(user.getRealmRoles());
+            }
+        }
+        Set<String> managedRoles = state.getManagedRoles().isEmpty()
+                ? referencedRoles
+                : new HashSet<>(state.getManagedRoles());
+
+        Map<String, RealmRole> roles = this.resolveRoles(referencedRoles, opts.getPageSize());
+        Map<String, User> current = this.loadCurrentUsers(desired.keySet(), opts.getPageSize());
+        Set<String> currentIds = new HashSet<>();
+        current.values().forEach(u -> currentIds.add(u.getId()));
+        Map<String, Set<String>> holders = new HashMap<>();
+        for (String role : referencedRoles) {
+            holders.put(role, this.loadHolders(role, currentIds, opts.getPageSize()));
+        }
+
+        ReconcilePlan plan = new ReconcilePlan();
+        desired.forEach((key, want) -> {
+            User have = current.get(key);
+            UserChange change = new UserChange(want, have != null ? have.getId() : null, have == null);
+            if (have != null) {
+                this.diffFields(want, have, change);
+            }
+            Set<String> wanted = want.getRealmRoles() != null ? new HashSet<>(want.getRealmRoles()) : Set.of();
+            for (String role : referencedRoles) {
+                boolean holds = have != null && holders.get(role).contains(have.getId());
+                if (wanted.contains(role) && !holds) {
+                    change.getRolesToAdd().add(roles.get(role));
+                } else if (!wanted.contains(role) && holds && managedRoles.contains(role)) {
+                    change.getRolesToRemove().add(roles.get(role));
+                }
+            }
+            plan.add(change);
+        });
+        logger.debug("Reconcile plan: {}", plan);
+        return plan;
+    }
+
+    /**
+     * Executes a plan, one task per user and users in parallel
+     *
+     * @param plan the plan from {@link #plan}
+     * @param options parallelism and chunking
+     * @param listener optional progress listener
+     * @return per user outcomes
+     */
+    public BulkResult apply(ReconcilePlan plan, BulkOptions options, IBulkProgressListener listener) {
+        BulkExecutor<UserChange> executor = new BulkExecutor<>(options, listener);
+        return executor.run(plan.getChanges().iterator(), UserChange::getUsername, this::applyChange);
+    }
+
+    /**
+     * Plans and, unless dryRun is set, applies
+     *
+     * @param state the desired state
+     * @param dryRun only compute the plan
+     * @param options page size, parallelism and chunking
+     * @param listener optional progress listener
+     * @return the plan that was (or would be) applied
+     * @throws SSOIOException on network errors or rejected reads of the current
+     * state
+     */
+    public ReconcilePlan reconcile(DesiredState state, boolean dryRun, BulkOptions options, IBulkProgressListener listener) throws SSOIOException {
+        ReconcilePlan plan = this.plan(state, options);
+        if (!dryRun && !plan.isEmpty()) {
+            BulkResult result = this.apply(plan, options, listener);
+            logger.info("Reconcile applied: {}", result);
+        }
+        return plan;
+    }
+
+    private BulkItemResult applyChange(UserChange change) {
+        try {
+            String userId = change.getUserId();
+            DesiredUser want = change.getDesired();
+            if (change.isCreate()) {
+                User user = new User(want.getUsername(),
+                        want.getEnabled() != null ? want.getEnabled() : Boolean.TRUE,
+                        want.getFirstName(), want.getLastName(), want.getEmail(), want.getEmailVerified());
+                userId = userManager.createUser(user).getId();
+                if (userId == null) {
+                    return new BulkItemResult(change.getUsername(), BulkOutcome.FAILED, "Created user has no id");
+                }
+            } else if (change.isUpdate()) {
+                if (!userManager.updateUser(userId, this.updatePayload(change))) {
+                    return new BulkItemResult(change.getUsername(), BulkOutcome.FAILED, "User update rejected");
+                }
+            }
+            if (!change.getRolesToAdd().isEmpty() && !userManager.addRealmRoles(userId, change.getRolesToAdd())) {
+                return new BulkItemResult(change.getUsername(), BulkOutcome.FAILED, "Role grant rejected");
+            }
+            if (!change.getRolesToRemove().isEmpty() && !userManager.removeRealmRoles(userId, change.getRolesToRemove())) {
+                return new BulkItemResult(change.getUsername(), BulkOutcome.FAILED, "Role revocation rejected");
+            }
+            return new BulkItemResult(change.getUsername(), BulkOutcome.APPLIED, null);
+        } catch (SSOIOException | CreateUserException ex) {
+            return new BulkItemResult(change.getUsername(), BulkOutcome.FAILED, ex.getMessage());
+        }
+    }
+
+    private void diffFields(DesiredUser want, User have, UserChange change) {
+        if (want.getEmail() != null && !want.getEmail().equalsIgnoreCase(Objects.toString(have.getEmail(), ""))) {
+            change.getFieldChanges().put("email", have.getEmail() + " -> " + want.getEmail());
+        }
+        if (want.getFirstName() != null && !want.getFirstName().equals(have.getFirstName())) {
+            change.getFieldChanges().put("firstName", have.getFirstName() + " -> " + want.getFirstName());
+        }
+        if (want.getLastName() != null && !want.getLastName().equals(have.getLastName())) {
+            change.getFieldChanges().put("lastName", have.getLastName() + " -> " + want.getLastName());
+        }
+        if (want.getEnabled() != null && !want.getEnabled().equals(have.getEnabled())) {
+            change.getFieldChanges().put("enabled", have.getEnabled() + " -> " + want.getEnabled());
+        }
+        if (want.getEmailVerified() != null && !want.getEmailVerified().equals(have.getEmailVerified())) {
+            change.getFieldChanges().put("emailVerified", have.getEmailVerified() + " -> " + want.getEmailVerified());
+        }
+    }
+
+    /**
+     * Only the changed fields are sent, Keycloak keeps the null ones
+     */
+    private User updatePayload(UserChange change) {
+        DesiredUser want = change.getDesired();
+        Map<String, String> fields = change.getFieldChanges();
+        User payload = new User(null,
+                fields.containsKey("enabled") ? want.getEnabled() : null,
+                fields.containsKey("firstName") ? want.getFirstName() : null,
+                fields.containsKey("lastName") ? want.getLastName() : null,
+                fields.containsKey("email") ? want.getEmail() : null,
+                fields.containsKey("emailVerified") ? want.getEmailVerified() : null);
+        payload.setCredentials(null);
+        return payload;
+    }
+
+    private Map<String, RealmRole> resolveRoles(Set<String> names, int pageSize) throws SSOIOException {
+        Map<String, RealmRole> roles = new HashMap<>();
+        if (names.isEmpty()) {
+            return roles;
+        }
+        for (RealmRole role : realmManager.listAllRoles(pageSize)) {
+            if (names.contains(role.getName())) {
+                roles.put(role.getName(), role);
+            }
+        }
+        for (String name : names) {
+            if (!roles.containsKey(name)) {
+                throw new SSOIOException("Realm role not found: " + name);
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * Scans the realm keeping only the declared users
+     */
+    private Map<String, User> loadCurrentUsers(Set<String> wanted, int pageSize) throws SSOIOException {
+        Map<String, User> current = new HashMap<>();
+        int first = 0;
+        while (true) {
+            List<User> page = userManager.listUsers(first, pageSize);
+            for (User user : page) {
+                if (user.getUsername() != null && wanted.contains(key(user.getUsername()))) {
+                    current.put(key(user.getUsername()), user);
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+            first += pageSize;
+        }
+        return current;
+    }
+
+    /**
+     * Holders of a role, restricted to the declared users to keep memory
+     * bounded by the desired state
+     */
+    private Set<String> loadHolders(String roleName, Set<String> ids, int pageSize) throws SSOIOException {
+        Set<String> holders = new HashSet<>();
+        int first = 0;
+        while (true) {
+            List<User> page = realmManager.listRoleUsers(roleName, first, pageSize);
+            for (User user : page) {
+                if (ids.contains(user.getId())) {
+                    holders.add(user.getId());
+                }
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+            first += pageSize;
+        }
+        return holders;
+    }
+
+    /**
+     * Keycloak stores usernames in lower case
+     */
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
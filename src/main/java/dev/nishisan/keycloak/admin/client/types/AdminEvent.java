@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.types;
+
+/**
+ * Representation of a Keycloak admin event (AdminEventRepresentation)
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class AdminEvent {
+
+    private String id;
+    private long time;
+    private String realmId;
+    private String operationType;
+    private String resourceType;
+    private String resourcePath;
+    private String representation;
+    private String error;
+
+    public AdminEvent() {
+    }
+
+    public AdminEvent(long time, String operationType, String resourceType, String resourcePath) {
+        this.time = time;
+        this.operationType = operationType;
+        this.resourceType = resourceType;
+        this.resourcePath = resourcePath;
+    }
+
+    /**
+     * Only sent by recent Keycloak versions, may be null
+     *
+     * @return
+     */
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    public String getRealmId() {
+        return realmId;
+    }
+
+    public void setRealmId(String realmId) {
+        this.realmId = realmId;
+    }
+
+    public String getOperationType() {
+        return operationType;
+    }
+
+    public void setOperationType(String operationType) {
+        this.operationType = operationType;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public void setResourceType(String resourceType) {
+        this.resourceType = resourceType;
+    }
+
+    public String getResourcePath() {
+        return resourcePath;
+    }
+
+    public void setResourcePath(String resourcePath) {
+        this.resourcePath = resourcePath;
+    }
+
+    public String getRepresentation() {
+        return representation;
+    }
+
+    public void setRepresentation(String representation) {
+        this.representation = representation;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    /**
+     * Stable key used to recognize an event already seen: the id when
+     * Keycloak sends one, otherwise time, operation and path
+     *
+     * @return
+     */
+    public String key() {
+        if (id != null && !id.isEmpty()) {
+            return id;
+        }
+        return time + "|" + operationType + "|" + resourceType + "|" + resourcePath;
+    }
+}
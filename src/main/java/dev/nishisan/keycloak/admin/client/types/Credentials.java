@@ -25,6 +25,15 @@ public class Credentials {
     private String type;
     private String value;
     private Boolean temporary;
+    /**
+     * Hash parameters of an already hashed secret (algorithm, iterations),
+     * as the JSON string Keycloak stores
+     */
+    private String credentialData;
+    /**
+     * The hashed secret and its salt, as the JSON string Keycloak stores
+     */
+    private String secretData;
 
     public Credentials() {
     }
@@ -59,4 +68,20 @@ public class Credentials {
         this.temporary = temporary;
     }
 
+    public String getCredentialData() {
+        return credentialData;
+    }
+
+    public void setCredentialData(String credentialData) {
+        this.credentialData = credentialData;
+    }
+
+    public String getSecretData() {
+        return secretData;
+    }
+
+    public void setSecretData(String secretData) {
+        this.secretData = secretData;
+    }
+
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.client.types;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Representation of a Keycloak group (GroupRepresentation)
+ *
+ * Sub groups are not filled by the paged listings, use the children
+ * endpoint ({@code GroupManager.listSubGroups}) instead.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class Group {
+
+    private String id;
+    private String name;
+    private String path;
+    private String parentId;
+    private Long subGroupCount;
+    private Map<String, List<String>> attributes;
+    private List<String> realmRoles;
+    private List<Group> subGroups;
+
+    public Group() {
+    }
+
+    public Group(String name) {
+        this.name = name;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(String parentId) {
+        this.parentId = parentId;
+    }
+
+    public Long getSubGroupCount() {
+        return subGroupCount;
+    }
+
+    public void setSubGroupCount(Long subGroupCount) {
+        this.subGroupCount = subGroupCount;
+    }
+
+    public Map<String, List<String>> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(Map<String, List<String>> attributes) {
+        this.attributes = attributes;
+    }
+
+    public List<String> getRealmRoles() {
+        return realmRoles;
+    }
+
+    public void setRealmRoles(List<String> realmRoles) {
+        this.realmRoles = realmRoles;
+    }
+
+    public List<Group> getSubGroups() {
+        return subGroups;
+    }
+
+    public void setSubGroups(List<Group> subGroups) {
+        this.subGroups = subGroups;
+    }
+
+    @Override
+    public String toString() {
+        return path != null ? path : name;
+    }
+}
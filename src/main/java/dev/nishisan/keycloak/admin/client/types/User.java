@@ -18,6 +18,7 @@ package dev.nishisan.keycloak.admin.client.types;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -33,6 +34,20 @@ public class User {
     private String email;
     private Boolean emailVerified;
     private List<Credentials> credentials = new ArrayList<>();
+    /**
+     * Custom attributes, Keycloak keeps every attribute as a list of values
+     */
+    private Map<String, List<String>> attributes;
+    /**
+     * Group paths (e.g. {@code /engineering/platform}) joined on creation,
+     * Keycloak does not return them on reads
+     */
+    private List<String> groups;
+    /**
+     * Actions required on next login, e.g. {@code VERIFY_EMAIL} or
+     * {@code UPDATE_PASSWORD}
+     */
+    private List<String> requiredActions;
 
     public User(String username, String password, String email) {
         this.username = username;
@@ -126,4 +141,28 @@ public class User {
         this.credentials = credentials;
     }
 
+    public Map<String, List<String>> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(Map<String, List<String>> attributes) {
+        this.attributes = attributes;
+    }
+
+    public List<String> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(List<String> groups) {
+        this.groups = groups;
+    }
+
+    public List<String> getRequiredActions() {
+        return requiredActions;
+    }
+
+    public void setRequiredActions(List<String> requiredActions) {
+        this.requiredActions = requiredActions;
+    }
+
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.test;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import dev.nishisan.keycloak.admin.client.json.JsonCodec;
+import dev.nishisan.keycloak.admin.client.json.JsonCodecs;
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import dev.nishisan.keycloak.admin.client.types.User;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the previous reflective, pretty printing Gson with the Gson and
+ * Jackson codecs: bytes on the wire, time and allocation per operation. Both
+ * codecs must produce the same documents, the benchmark fails otherwise.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class CodecBenchmark {
+
+    private static final int ROUNDS = 2000;
+
+    public static void main(String[] args) {
+        Gson reflective = new GsonBuilder().setPrettyPrinting().create();
+        JsonCodec before = new JsonCodec() {
+            @Override
+            public String getName() {
+                return "reflective";
+            }
+
+            @Override
+            public String toJson(Object value) {
+                return reflective.toJson(value);
+            }
+
+            @Override
+            public void toJson(Object value, OutputStream out) throws IOException {
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                reflective.toJson(value, writer);
+                writer.flush();
+            }
+
+            @Override
+            public <T> T fromJson(String json, Class<T> type) {
+                return reflective.fromJson(json, type);
+            }
+        };
+        JsonCodec gson = JsonCodecs.forName("gson");
+        JsonCodec jackson = JsonCodecs.forName("jackson");
+
+        User user = new User("john.doe", "S3cret!pass", "john.doe@example.com");
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        List<RealmRole> roles = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            roles.add(new RealmRole("role-" + i, "Role number " + i));
+        }
+        String listing = keycloakListing(500);
+
+        checkParity(gson, jackson, user, roles, listing);
+
+        System.out.println("Payload bytes (reflective -> codec)");
+        System.out.println("  createUser body : " + bytes(before.toJson(user)) + " -> " + bytes(gson.toJson(user)));
+        System.out.println("  20 roles body   : " + bytes(before.toJson(roles)) + " -> " + bytes(gson.toJson(roles)));
+
+        for (int warmup = 0; warmup < 3; warmup++) {
+            run(before, user, roles, listing, false);
+            run(gson, user, roles, listing, false);
+            run(jackson, user, roles, listing, false);
+        }
+        for (JsonCodec codec : List.of(before, gson, jackson)) {
+            System.out.println(codec.getName() + ":");
+            run(codec, user, roles, listing, true);
+        }
+    }
+
+    private static void run(JsonCodec codec, User user, List<RealmRole> roles, String listing, boolean print) {
+        measure("  serialize user      ", print, () -> codec.toJson(user));
+        measure("  serialize 20 roles  ", print, () -> codec.toJson(roles));
+        measure("  parse 500 users     ", print, () -> codec.fromJson(listing, User[].class));
+    }
+
+    private static void checkParity(JsonCodec a, JsonCodec b, User user, List<RealmRole> roles, String listing) {
+        assertEquals(a.toJson(user), b.toJson(user), "user");
+        assertEquals(a.toJson(roles), b.toJson(roles), "roles");
+        assertEquals(a.toJson(a.fromJson(listing, User[].class)), b.toJson(b.fromJson(listing, User[].class)), "listing");
+        RealmRole role = new RealmRole("admin", "Administrators");
+        role.getAttributes().put("tier", List.of("gold"));
+        String json = a.toJson(role);
+        assertEquals(json, b.toJson(b.fromJson(json, RealmRole.class)), "role round trip");
+        User provisioned = new User("jane.doe", "S3cret!pass", "jane.doe@example.com");
+        provisioned.setAttributes(Map.of("department", List.of("sales")));
+        provisioned.setGroups(List.of("/engineering/platform"));
+        provisioned.setRequiredActions(List.of("UPDATE_PASSWORD"));
+        json = a.toJson(provisioned);
+        assertEquals(json, b.toJson(b.fromJson(json, User.class)), "provisioning user round trip");
+        for (JsonCodec codec : List.of(a, b)) {
+            ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+            try {
+                codec.toJson(roles, streamed);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            assertEquals(codec.toJson(roles), streamed.toString(StandardCharsets.UTF_8), codec.getName() + " streamed roles");
+        }
+        System.out.println("Codecs produce the same documents");
+    }
+
+    private static void assertEquals(String expected, String actual, String what) {
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("Codec mismatch on " + what + ":\n  " + expected + "\n  " + actual);
+        }
+    }
+
+    private static void measure(String label, boolean print, Runnable op) {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().threadId();
+        long alloc = mx.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            op.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = mx.getThreadAllocatedBytes(tid) - alloc;
+        if (print) {
+            System.out.printf("%s %10.0f ns/op %10d B/op%n", label, (double) elapsed / ROUNDS, allocated / ROUNDS);
+        }
+    }
+
+    private static int bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * A listing shaped like Keycloak's, with fields the client does not map
+     */
+    private static String keycloakListing(int count) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":\"6b1c1a4e-1f0e-4c55-9d1b-").append(String.format("%012d", i)).append("\",")
+                    .append("\"createdTimestamp\":1736700000000,\"username\":\"user").append(i).append("\",")
+                    .append("\"enabled\":true,\"totp\":false,\"emailVerified\":true,")
+                    .append("\"firstName\":\"First").append(i).append("\",\"lastName\":\"Last\",")
+                    .append("\"email\":\"user").append(i).append("@example.com\",")
+                    .append("\"disableableCredentialTypes\":[],\"requiredActions\":[],\"notBefore\":0,")
+                    .append("\"access\":{\"manageGroupMembership\":true,\"view\":true,\"mapRoles\":true,\"impersonate\":false,\"manage\":true}}");
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,1166 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dev.nishisan.keycloak.admin.client.KeycloakAdminClient;
+import dev.nishisan.keycloak.admin.client.bulk.BulkOptions;
+import dev.nishisan.keycloak.admin.client.bulk.BulkResult;
+import dev.nishisan.keycloak.admin.client.bulk.BulkRoleManager;
+import dev.nishisan.keycloak.admin.client.bulk.ExistenceFilter;
+import dev.nishisan.keycloak.admin.client.bulk.PasswordHasher;
+import dev.nishisan.keycloak.admin.client.bulk.RoleMappingQueue;
+import dev.nishisan.keycloak.admin.client.cache.GroupTreeCache;
+import dev.nishisan.keycloak.admin.client.cache.RealmReplica;
+import dev.nishisan.keycloak.admin.client.cache.RoleGraphCache;
+import dev.nishisan.keycloak.admin.client.cli.KeycloakCli;
+import dev.nishisan.keycloak.admin.client.config.SSOConfig;
+import dev.nishisan.keycloak.admin.client.events.AdminChangeFeed;
+import dev.nishisan.keycloak.admin.client.events.ChangeEvent;
+import dev.nishisan.keycloak.admin.client.events.IChangeEventListener;
+import dev.nishisan.keycloak.admin.client.exception.CreateUserException;
+import dev.nishisan.keycloak.admin.client.exception.SSOIOException;
+import dev.nishisan.keycloak.admin.client.export.ExportOptions;
+import dev.nishisan.keycloak.admin.client.export.ExportStats;
+import dev.nishisan.keycloak.admin.client.http.Deadline;
+import dev.nishisan.keycloak.admin.client.json.JsonCodecs;
+import dev.nishisan.keycloak.admin.client.http.JsonRequestBody;
+import dev.nishisan.keycloak.admin.client.http.KeycloakNode;
+import dev.nishisan.keycloak.admin.client.http.NodeBalancer;
+import dev.nishisan.keycloak.admin.client.http.RealmQueue;
+import dev.nishisan.keycloak.admin.client.http.RequestPriority;
+import dev.nishisan.keycloak.admin.client.http.RequestScheduler;
+import dev.nishisan.keycloak.admin.client.management.GroupManager;
+import dev.nishisan.keycloak.admin.client.management.RealmManager;
+import dev.nishisan.keycloak.admin.client.management.SessionCensus;
+import dev.nishisan.keycloak.admin.client.management.SessionManager;
+import dev.nishisan.keycloak.admin.client.management.UserManager;
+import dev.nishisan.keycloak.admin.client.management.UserScanOptions;
+import dev.nishisan.keycloak.admin.client.management.UserScanResult;
+import dev.nishisan.keycloak.admin.client.snapshot.SnapshotBuilder;
+import dev.nishisan.keycloak.admin.client.snapshot.SnapshotReader;
+import dev.nishisan.keycloak.admin.client.snapshot.SnapshotUser;
+import dev.nishisan.keycloak.admin.client.sync.DesiredState;
+import dev.nishisan.keycloak.admin.client.sync.DesiredUser;
+import dev.nishisan.keycloak.admin.client.sync.ReconcilePlan;
+import dev.nishisan.keycloak.admin.client.sync.UserReconciler;
+import dev.nishisan.keycloak.admin.client.types.AdminEvent;
+import dev.nishisan.keycloak.admin.client.types.Group;
+import dev.nishisan.keycloak.admin.client.types.RealmRole;
+import dev.nishisan.keycloak.admin.client.types.User;
+import dev.nishisan.keycloak.admin.test.emulator.KeycloakEmulator;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+
+/**
+ * Runs the managers against {@link KeycloakEmulator}: user and role CRUD,
+ * role mappings, token expiry, node failover, eager warm-up, bulk role
+ * grant/revoke, a
+ * paged scan of an imported realm, an interrupted and resumed export, the
+ * declarative reconciler, the admin change feed and its cursor, the realm
+ * replica, a snapshot round trip, the role graph and group tree caches, the
+ * session census and revocation, deadlines, a create-or-get import, the role-mapping queue, the Flight Recorder events, fair scheduling between two
+ * realms, interactive/batch priority, the kc-admin CLI, an import with
+ * pre-hashed passwords, streamed request bodies and a short throughput
+ * run, once with each JSON codec. No Keycloak or network needed.
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class EmulatorTest {
+
+    private static String codec;
+
+    public static void main(String[] args) throws Exception {
+        for (String name : JsonCodecs.names()) {
+            codec = name;
+            System.out.println("== " + name + " codec");
+            run();
+        }
+        System.out.println("Emulator checks passed");
+    }
+
+    private static void run() throws Exception {
+        try (KeycloakEmulator emulator = new KeycloakEmulator("acme").addClient("admin-cli", "secret").setTokenLifespanSeconds(2).start()) {
+            KeycloakAdminClient kc = new KeycloakAdminClient(config("acme", emulator.getBaseUrl()));
+            try {
+                users(kc.getUserManager());
+                roles(kc.getRealmManager(), kc.getUserManager(), emulator);
+                tokenExpiry(kc.getUserManager(), emulator);
+                nodes(emulator);
+                warmUp(emulator);
+                bulkRoles(kc, emulator);
+                scan(kc, emulator);
+                export(kc, emulator);
+                reconcile(kc, emulator);
+                changeFeed(kc, emulator);
+                replica(kc, emulator);
+                snapshot(kc, emulator);
+                roleGraph(kc, emulator);
+                groupTree(kc, emulator);
+                sessions(kc, emulator);
+                deadline(kc, emulator);
+                createOrGet(kc, emulator);
+                queue(kc, emulator);
+                jfr(kc, emulator);
+                fairness(emulator);
+                priority(emulator);
+                cli(kc, emulator);
+                prehash(kc, emulator);
+                requestBodies(kc);
+                throughput(kc.getUserManager());
+            } finally {
+                kc.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Client settings for the codec under test
+     */
+    private static SSOConfig config(String realm, String baseUrl) {
+        SSOConfig config = new SSOConfig("admin-cli", "secret", realm, baseUrl);
+        config.setJsonCodec(codec);
+        return config;
+    }
+
+    private static void users(UserManager users) throws Exception {
+        User john = users.createUser(new User("john.doe", "S3cret!", "john@example.com"));
+        check(john.getId() != null, "created user has an id from Location");
+        check("john.doe".equals(users.getUser(john.getId()).getUsername()), "getUser");
+        check(john.getId().equals(users.findUser("john@example.com").getId()), "findUser by email");
+        check(john.getId().equals(users.findUser("john.doe").getId()), "findUser by username");
+        try {
+            users.createUser(new User("john.doe", "x", "other@example.com"));
+            check(false, "duplicate username rejected");
+        } catch (CreateUserException expected) {
+            check(expected.getMessage().contains("409"), "duplicate username is a 409");
+        }
+        check(users.changePassword(john.getId(), "N3w!", false), "changePassword");
+        check(users.updateEmail(john.getId(), "john.doe@example.com"), "updateEmail");
+        check(users.getUser("missing") == null, "unknown user is null");
+        check(users.countUsers() == 1, "countUsers");
+        System.out.println("users: ok");
+    }
+
+    private static void roles(RealmManager realm, UserManager users, KeycloakEmulator emulator) throws Exception {
+        realm.createRole(new RealmRole("viewer", "Read only"));
+        realm.createRole(new RealmRole("editor", "Writes"));
+        check(realm.getRoleByName("viewer") != null, "getRoleByName");
+        User jane = new User("jane.doe", "S3cret!", "jane@example.com");
+        jane.setAttributes(Map.of("department", List.of("sales")));
+        jane.setRequiredActions(List.of("UPDATE_PASSWORD"));
+        users.provisionUser(jane, "viewer", "editor");
+        check(emulator.getUserRoles("jane.doe").equals(Set.of("viewer", "editor")), "provisionUser maps roles");
+        check(users.getUser(jane.getId()).getRequiredActions().contains("UPDATE_PASSWORD"), "required actions stored");
+        check(users.removeRealmRoles(jane.getId(), "editor"), "removeRealmRoles");
+        check(users.getRealmRoles(jane.getId()).size() == 1, "getRealmRoles");
+        check(realm.listRoleUsers("viewer", 0, 10).size() == 1, "listRoleUsers");
+        check(!users.addRealmRoles(jane.getId(), "no-such-role"), "unknown role rejected");
+        System.out.println("roles: ok");
+    }
+
+    private static void tokenExpiry(UserManager users, KeycloakEmulator emulator) throws Exception {
+        long grants = emulator.getTokenGrants();
+        TimeUnit.MILLISECONDS.sleep(2500);
+        check(users.countUsers() == 2, "calls keep working after the token lifespan");
+        check(emulator.getTokenGrants() > grants, "token renewed");
+        System.out.println("token: ok, grants=" + emulator.getTokenGrants());
+    }
+
+    private static void nodes(KeycloakEmulator emulator) throws Exception {
+        //
+        // The trailing slash is dropped from the request URLs, they must still
+        // be recognized as admin calls under the base URL
+        //
+        SSOConfig config = config("acme", emulator.getBaseUrl() + "/");
+        config.setNodeUrls(List.of(emulator.getBaseUrl(), "http://127.0.0.1:1"));
+        config.setNodeFailureThreshold(2);
+        config.setHealthCheckIntervalMs(60_000);
+        KeycloakAdminClient kc = new KeycloakAdminClient(config);
+        try {
+            NodeBalancer balancer = kc.getNodeBalancer();
+            long before = emulator.getCalls("GET /users/count");
+            for (int i = 0; i < 20; i++) {
+                check(kc.getUserManager().countUsers() >= 1, "count through the balancer");
+            }
+            KeycloakNode live = balancer.getNodes().get(0);
+            KeycloakNode dead = balancer.getNodes().get(1);
+            check(emulator.getCalls("GET /users/count") - before == 20, "every call reached the live node");
+            check(live.isHealthy() && !dead.isHealthy(), "dead node ejected: " + balancer.getNodes());
+            check(balancer.select(null) == live, "ejected node is not selected");
+        } finally {
+            kc.shutdown();
+        }
+        //
+        // No load balancer URL and the first node down: the token must still
+        // be issued by the live node
+        //
+        config = config("acme", null);
+        config.setNodeUrls(List.of("http://127.0.0.1:1", emulator.getBaseUrl()));
+        config.setNodeFailureThreshold(1);
+        config.setHealthCheckIntervalMs(60_000);
+        kc = new KeycloakAdminClient(config);
+        try {
+            long grants = emulator.getTokenGrants();
+            check(kc.getUserManager().countUsers() >= 1, "admin call with the first node down");
+            KeycloakNode dead = kc.getNodeBalancer().getNodes().get(0);
+            check(emulator.getTokenGrants() == grants + 1 && !dead.isHealthy(), "token issued by the live node: " + kc.getNodeBalancer().getNodes());
+        } finally {
+            kc.shutdown();
+        }
+        System.out.println("nodes: ok");
+    }
+
+    private static void warmUp(KeycloakEmulator emulator) throws Exception {
+        long grants = emulator.getTokenGrants();
+        long requests = emulator.getRequestCount();
+        SSOConfig config = config("acme", emulator.getBaseUrl());
+        config.setWarmUp(true);
+        config.setWarmUpConnections(3);
+        KeycloakAdminClient kc = new KeycloakAdminClient(config);
+        try {
+            check(emulator.getTokenGrants() == grants + 1 && emulator.getRequestCount() - requests >= 4, "constructor fetched the token and opened connections");
+            kc.getUserManager().countUsers();
+            check(emulator.getTokenGrants() == grants + 1, "first admin call reuses the warmed token");
+        } finally {
+            kc.shutdown();
+        }
+        config = config("acme", emulator.getBaseUrl());
+        config.setWarmUp(true);
+        config.setWarmUpTimeoutMs(100);
+        emulator.setLatencyMs(600);
+        long start = System.nanoTime();
+        kc = new KeycloakAdminClient(config);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        try {
+            check(elapsedMs < 500 && !kc.warmUp(), "warm-up stays within its budget: " + elapsedMs + " ms");
+        } finally {
+            emulator.setLatencyMs(0);
+            kc.shutdown();
+        }
+        System.out.println("warm-up: ok");
+    }
+
+    private static void bulkRoles(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        kc.getRealmManager().createRole(new RealmRole("bulk-editor", "bulk grant target"));
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            ids.add(kc.getUserManager().createUser(new User("bulk." + i, "x", "bulk." + i + "@example.com")).getId());
+        }
+        BulkRoleManager bulk = kc.getBulkRoleManager();
+        BulkOptions options = new BulkOptions(4, 10);
+        options.setPageSize(7);
+        BulkResult granted = bulk.assign(List.of("bulk-editor"), ids.iterator(), options, null);
+        check(granted.getApplied() == 30 && emulator.getUserRoles("bulk.29").contains("bulk-editor"), "bulk grant: " + granted);
+        long mappings = emulator.getCalls("POST /users/{id}/role-mappings/realm");
+        BulkResult again = bulk.assign(List.of("bulk-editor"), ids.iterator(), options, null);
+        check(again.getSkipped() == 30 && emulator.getCalls("POST /users/{id}/role-mappings/realm") == mappings, "holders skip the second grant: " + again);
+        BulkResult revoked = bulk.revoke(List.of("bulk-editor"), ids.subList(0, 10).iterator(), options, null);
+        check(revoked.getApplied() == 10 && !emulator.getUserRoles("bulk.3").contains("bulk-editor"), "bulk revoke: " + revoked);
+
+        emulator.failNext("GET /roles/{name}/users", 503, 1);
+        try {
+            bulk.revoke(List.of("bulk-editor"), ids.iterator(), options, null);
+            check(false, "revoke with unreadable holders must fail");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 503, "holders failure carries the status");
+        }
+        check(emulator.getUserRoles("bulk.29").contains("bulk-editor"), "nothing revoked after the failure");
+        emulator.failNext("GET /users", 500, 1);
+        try {
+            bulk.assignBySearch(List.of("bulk-editor"), "bulk.", options, null);
+            check(false, "grant with an unreadable search page must fail");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 500, "search failure carries the status");
+        }
+        BulkResult search = bulk.assignBySearch(List.of("bulk-editor"), "bulk.", options, null);
+        check(search.getApplied() == 10 && search.getSkipped() == 20, "grant by search: " + search);
+        System.out.println("bulk roles: ok");
+    }
+
+    private static void scan(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        StringBuilder body = new StringBuilder("{\"ifResourceExists\":\"SKIP\",\"users\":[");
+        for (int i = 0; i < 5000; i++) {
+            body.append(i > 0 ? "," : "").append("{\"username\":\"user-").append(i).append("\",\"enabled\":true,\"realmRoles\":[\"viewer\"]}");
+        }
+        body.append("]}");
+        Request req = new Request.Builder()
+                .url(emulator.getBaseUrl() + "/admin/realms/acme/partialImport")
+                .header("Authorization", "Bearer " + kc.getTokenManager().getToken().getAccessToken())
+                .post(RequestBody.create(body.toString(), MediaType.parse("application/json")))
+                .build();
+        try (Response r = new OkHttpClient().newCall(req).execute()) {
+            check(r.code() == 200, "partialImport");
+        }
+        long expected = emulator.getUserCount();
+        UserScanOptions opts = new UserScanOptions();
+        opts.setPageSize(250);
+        opts.setParallelism(8);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        AtomicLong duplicates = new AtomicLong();
+        UserScanResult result = kc.getUserManager().scanUsers(opts, u -> {
+            if (!seen.add(u.getId())) {
+                duplicates.incrementAndGet();
+            }
+        });
+        check(seen.size() == expected && duplicates.get() == 0, "scan sees every user once: " + result);
+        System.out.println("scan: ok, " + result);
+    }
+
+    private static void export(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        Path file = Files.createTempDirectory("kc-export").resolve("realm.ndjson");
+        Path checkpoint = file.resolveSibling("realm.ndjson.checkpoint");
+        ExportOptions options = new ExportOptions();
+        options.setPageSize(200);
+        options.setParallelism(2);
+        options.setIncludeRoleMappings(false);
+        int users = emulator.getUserCount();
+        int roles = kc.getRealmManager().listRoles().size();
+        emulator.failAfter("GET /users", 6, 503, 1);
+        try {
+            kc.getRealmExporter().export(file, options);
+            check(false, "export with a failed page must fail");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 503 && Files.exists(checkpoint), "failed export keeps its checkpoint");
+        }
+        ExportStats stats = kc.getRealmExporter().export(file, options);
+        List<String> lines = Files.readAllLines(file);
+        Set<String> ids = new HashSet<>();
+        for (String line : lines) {
+            JsonObject o = JsonParser.parseString(line).getAsJsonObject();
+            if (o.get("type").getAsString().equals("user")) {
+                ids.add(o.getAsJsonObject("user").get("id").getAsString());
+            }
+        }
+        check(stats.isResumed() && lines.size() == users + roles && ids.size() == users, "resumed export is complete: " + stats);
+        check(!Files.exists(checkpoint), "checkpoint removed when done");
+
+        emulator.failNext("GET /roles", 401, 1);
+        try {
+            kc.getRealmExporter().export(file, options);
+            check(false, "export with a rejected role page must fail");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 401, "rejected role page fails the export");
+        }
+        Files.deleteIfExists(checkpoint);
+        System.out.println("export: ok, " + stats);
+    }
+
+    private static void reconcile(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        kc.getRealmManager().createRole(new RealmRole("sync-role", "managed by the reconciler"));
+        List<DesiredUser> wanted = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            wanted.add(new DesiredUser("sync." + i, "sync." + i + "@example.com", List.of("sync-role")));
+        }
+        DesiredState state = new DesiredState(wanted);
+        state.setManagedRoles(List.of("sync-role"));
+        UserReconciler reconciler = kc.getUserReconciler();
+        BulkOptions options = new BulkOptions(4, 10);
+        options.setPageSize(500);
+        ReconcilePlan plan = reconciler.reconcile(state, false, options, null);
+        check(plan.getCreates() == 5 && plan.getRoleGrants() == 5 && emulator.getUserRoles("sync.4").contains("sync-role"), "reconcile creates: " + plan);
+        check(reconciler.plan(state, options).isEmpty(), "nothing left to do after apply");
+
+        wanted.get(0).setRealmRoles(List.of());
+        wanted.get(1).setEmail("sync.one@example.com");
+        plan = reconciler.plan(state, options);
+        check(plan.getRoleRevocations() == 1 && plan.getUpdates() == 1 && plan.getCreates() == 0, "reconcile diff: " + plan);
+
+        emulator.failAfter("GET /users", 3, 503, 1);
+        try {
+            reconciler.plan(state, options);
+            check(false, "a failed users page must fail the plan");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 503, "users page failure carries the status");
+        }
+        emulator.failNext("GET /roles/{name}/users", 500, 1);
+        try {
+            reconciler.plan(state, options);
+            check(false, "a failed holders page must fail the plan");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 500, "holders page failure carries the status");
+        }
+        plan = reconciler.reconcile(state, false, options, null);
+        check(!emulator.getUserRoles("sync.0").contains("sync-role") && reconciler.plan(state, options).isEmpty(), "reconcile converges: " + plan);
+
+        kc.getUserManager().createUser(new User("sync.i", "x", "sync.i@example.com"));
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            DesiredState upper = new DesiredState(List.of(new DesiredUser("SYNC.I", "sync.i@example.com", List.of())));
+            plan = reconciler.plan(upper, options);
+            check(plan.getCreates() == 0, "declared usernames matched regardless of the default locale: " + plan);
+        } finally {
+            Locale.setDefault(locale);
+        }
+        System.out.println("reconcile: ok");
+    }
+
+    private static void changeFeed(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        Path cursor = Files.createTempFile("change-feed", ".cursor");
+        Files.delete(cursor);
+        List<ChangeEvent> seen = new ArrayList<>();
+        IChangeEventListener listener = new IChangeEventListener() {
+            @Override
+            public void onChange(ChangeEvent event) {
+                seen.add(event);
+            }
+
+            @Override
+            public String getUniqueName() {
+                return "emulator-test";
+            }
+        };
+        TimeUnit.MILLISECONDS.sleep(5);
+        AdminChangeFeed feed = new AdminChangeFeed(kc.getAdminEventManager(), cursor, null, 3);
+        feed.registerListener(listener);
+        UserManager users = kc.getUserManager();
+        User feedUser = users.createUser(new User("feed.0", "S3cret!", "feed.0@example.com"));
+        users.addRealmRoles(feedUser.getId(), "viewer");
+        users.updateEmail(feedUser.getId(), "feed.zero@example.com");
+        check(feed.poll() == 3 && feed.poll() == 0, "poll delivers each change once");
+        check(seen.get(0).getKind() == ChangeEvent.Kind.USER && seen.get(0).getOperation() == ChangeEvent.Operation.CREATE
+                && seen.get(1).getKind() == ChangeEvent.Kind.ROLE_MAPPING && seen.get(2).getOperation() == ChangeEvent.Operation.UPDATE
+                && feedUser.getId().equals(seen.get(1).getUserId()), "typed events oldest first: " + seen);
+        feed.stop();
+
+        users.removeRealmRoles(feedUser.getId(), "viewer");
+        users.changePassword(feedUser.getId(), "N3w!", false);
+        seen.clear();
+        feed = new AdminChangeFeed(kc.getAdminEventManager(), cursor, null, 3);
+        feed.registerListener(listener);
+        check(feed.poll() == 2 && seen.get(0).getOperation() == ChangeEvent.Operation.DELETE
+                && seen.get(1).getOperation() == ChangeEvent.Operation.ACTION, "restarted feed resumes from the saved cursor: " + seen);
+
+        for (int i = 1; i <= 5; i++) {
+            users.createUser(new User("feed." + i, "S3cret!", "feed." + i + "@example.com"));
+        }
+        seen.clear();
+        Instant before = feed.getCursor();
+        emulator.failAfter("GET /admin-events", 1, 503, 1);
+        try {
+            feed.poll();
+            check(false, "a failed events page must fail the poll");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 503 && seen.isEmpty() && feed.getCursor().equals(before), "failed poll publishes nothing");
+        }
+        check(feed.poll() == 5, "next poll delivers every change");
+
+        //
+        // A change made between two pages shifts the listing, the last event
+        // of the first page is listed again on the second one
+        //
+        for (int i = 6; i <= 10; i++) {
+            users.createUser(new User("feed." + i, "S3cret!", "feed." + i + "@example.com"));
+        }
+        seen.clear();
+        emulator.beforeCall("GET /admin-events", 1, () -> emulator.recordAdminEvent("UPDATE", "USER", "users/" + feedUser.getId()));
+        check(feed.poll() == 5 && seen.stream().map(e -> e.getSource().key()).distinct().count() == 5, "shifted page delivered once: " + seen);
+        check(feed.poll() == 1, "change made during the poll comes next");
+        feed.stop();
+        Files.deleteIfExists(cursor);
+        System.out.println("change feed: ok");
+    }
+
+    private static void replica(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        TimeUnit.MILLISECONDS.sleep(5);
+        AdminChangeFeed feed = new AdminChangeFeed(kc.getAdminEventManager(), null, null);
+        RealmReplica replica = kc.newRealmReplica();
+        replica.load();
+        feed.registerListener(replica);
+        check(replica.size() == emulator.getUserCount(), "replica loads every user");
+        UserManager users = kc.getUserManager();
+        User user = new User("replica.0", "S3cret!", "replica.0@example.com");
+        users.provisionUser(user, "viewer");
+        feed.poll();
+        check(replica.hasRole(user.getId(), "viewer") && replica.exists("replica.0@example.com"), "created user replicated");
+
+        users.updateEmail(user.getId(), "replica.zero@example.com");
+        emulator.failNext("GET /users/{id}", 503, 1);
+        feed.poll();
+        check(replica.exists("replica.0@example.com"), "failed refresh keeps the cached user");
+        users.addRealmRoles(user.getId(), "editor");
+        emulator.failNext("GET /users/{id}/role-mappings/realm", 500, 1);
+        feed.poll();
+        check(replica.hasRole(user.getId(), "viewer") && !replica.hasRole(user.getId(), "editor"), "failed refresh keeps the cached roles");
+        users.removeRealmRoles(user.getId(), "viewer");
+        feed.poll();
+        check(replica.getRealmRoles(user.getId()).equals(Set.of("editor")) && replica.exists("replica.zero@example.com"), "next change catches up");
+
+        AdminEvent roleUpdate = new AdminEvent();
+        roleUpdate.setTime(System.currentTimeMillis());
+        roleUpdate.setOperationType("UPDATE");
+        roleUpdate.setResourceType("REALM_ROLE");
+        roleUpdate.setResourcePath("roles-by-id/" + user.getId());
+        kc.getRealmManager().createRole(new RealmRole("replica-role", null));
+        users.addRealmRoles(user.getId(), "replica-role");
+        emulator.failNext("GET /roles", 503, 1);
+        replica.onChange(ChangeEvent.parse(roleUpdate));
+        check(!replica.getUsersWithRole("viewer").isEmpty() && !replica.hasRole(user.getId(), "replica-role"), "failed role reload keeps the mappings");
+        replica.onChange(ChangeEvent.parse(roleUpdate));
+        check(replica.getUsersWithRole("replica-role").equals(Set.of(user.getId())) && replica.hasRole(user.getId(), "editor"), "role reload swaps in fresh mappings");
+
+        feed.poll();
+        users.updateEmail(user.getId(), "replica.gone@example.com");
+        emulator.failNext("GET /users/{id}", 404, 1);
+        feed.poll();
+        check(replica.getUserById(user.getId()) == null && replica.getRealmRoles(user.getId()).isEmpty(), "404 evicts the user");
+        feed.stop();
+
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            check(replica.getUserByUsername("SYNC.I") != null && replica.getUserByEmail("SYNC.I@EXAMPLE.COM") != null, "lookups ignore the default locale");
+        } finally {
+            Locale.setDefault(locale);
+        }
+        System.out.println("replica: ok");
+    }
+
+    private static void snapshot(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        Path file = Files.createTempFile("realm", ".snapshot");
+        SnapshotBuilder builder = new SnapshotBuilder(kc.getUserManager(), kc.getRealmManager(), 400);
+        int written = builder.build(file);
+        int roleCount = kc.getRealmManager().listAllRoles(100).size();
+        try (SnapshotReader reader = SnapshotReader.open(file)) {
+            check(written == emulator.getUserCount() && reader.getUserCount() == written && reader.getRoleCount() == roleCount, "snapshot holds every user and role");
+            SnapshotUser jane = reader.findByUsername("jane.doe");
+            check(jane != null && new HashSet<>(jane.getRealmRoles()).equals(emulator.getUserRoles("jane.doe")), "snapshot keeps the role mappings");
+            check(reader.countUsersWithRole("bulk-editor") == kc.getRealmManager().listRoleUsers("bulk-editor", 0, 1000).size(), "snapshot role holders");
+            Locale locale = Locale.getDefault();
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            try {
+                check(reader.findByUsername("SYNC.I") != null, "snapshot lookup ignores the default locale");
+            } finally {
+                Locale.setDefault(locale);
+            }
+        }
+        byte[] good = Files.readAllBytes(file);
+        emulator.failAfter("GET /users", 3, 503, 1);
+        try {
+            builder.build(file);
+            check(false, "a failed users page must fail the snapshot");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 503, "users page failure carries the status");
+        }
+        emulator.failNext("GET /roles/{name}/users", 500, 1);
+        try {
+            builder.build(file);
+            check(false, "a failed holders page must fail the snapshot");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 500, "holders page failure carries the status");
+        }
+        check(Arrays.equals(good, Files.readAllBytes(file)), "failed builds leave the snapshot untouched");
+        Files.delete(file);
+        System.out.println("snapshot: ok, " + written + " users, " + good.length + " bytes");
+    }
+
+    private static void roleGraph(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        RealmManager realm = kc.getRealmManager();
+        for (String name : List.of("g.admin", "g.editor", "g.viewer", "g.x", "g.y")) {
+            realm.createRole(new RealmRole(name, null));
+        }
+        emulator.addComposite("g.admin", "g.editor");
+        emulator.addComposite("g.editor", "g.viewer");
+        emulator.addComposite("g.x", "g.y");
+        emulator.addComposite("g.y", "g.x");
+        RoleGraphCache graph = kc.newRoleGraphCache();
+        graph.load();
+        check(graph.size() == realm.listAllRoles(100).size(), "graph holds every role");
+        check(graph.getEffectiveRoles(List.of("g.admin")).equals(Set.of("g.admin", "g.editor", "g.viewer")), "transitive closure");
+        check(graph.implies("g.admin", "g.viewer") && !graph.implies("g.viewer", "g.admin"), "implies follows the composites");
+        check(graph.getCompositeClosure("g.x").equals(Set.of("g.x", "g.y")), "cycles are tolerated");
+        check(graph.hasEffectiveRole(List.of("unknown", "g.editor"), "g.viewer"), "effective role through a direct mapping");
+
+        emulator.failNext("GET /roles/{name}/composites/realm", 503, 1);
+        try {
+            graph.load();
+            check(false, "a failed composites read must fail the load");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 503 && graph.implies("g.admin", "g.viewer"), "failed load keeps the previous graph");
+        }
+        emulator.failNext("GET /roles", 500, 1);
+        try {
+            graph.load();
+            check(false, "a failed roles read must fail the load");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 500 && graph.size() > 0, "failed roles read keeps the previous graph");
+        }
+
+        TimeUnit.MILLISECONDS.sleep(5);
+        AdminChangeFeed feed = new AdminChangeFeed(kc.getAdminEventManager(), null, null);
+        feed.registerListener(graph);
+        realm.createRole(new RealmRole("g.new", null));
+        emulator.addComposite("g.viewer", "g.new");
+        feed.poll();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!graph.implies("g.admin", "g.new") && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        check(graph.implies("g.admin", "g.new"), "role change reloads the graph");
+        feed.stop();
+        graph.shutdown();
+        System.out.println("role graph: ok, " + graph.size() + " roles");
+    }
+
+    private static void groupTree(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        GroupManager groups = kc.getGroupManager();
+        Group org = groups.createGroup(new Group("org"));
+        Group eng = groups.createSubGroup(org.getId(), new Group("eng"));
+        Group platform = groups.createSubGroup(eng.getId(), new Group("platform"));
+        Group sales = groups.createSubGroup(org.getId(), new Group("sales"));
+        for (int i = 0; i < 5; i++) {
+            groups.createGroup(new Group("team." + i));
+        }
+        GroupTreeCache cache = new GroupTreeCache(groups, 60_000, 2);
+        long listings = emulator.getCalls("GET /groups");
+        check(cache.getTopLevelGroups().size() == 6 && emulator.getCalls("GET /groups") - listings == 4, "top level read in pages");
+        check(cache.getTopLevelGroups().size() == 6 && emulator.getCalls("GET /groups") - listings == 4, "top level served from the cache");
+        List<Group> children = cache.getSubGroups(org.getId());
+        check(children.size() == 2 && children.get(0).getPath().equals("/org/eng"), "sub groups with paths");
+        long lookups = emulator.getCalls("GET /group-by-path/{path}");
+        check(platform.getId().equals(cache.findByPath("org/eng/platform").getId()) && cache.findByPath("/org/eng/platform/") != null
+                && emulator.getCalls("GET /group-by-path/{path}") - lookups == 1, "deep path resolved with one call");
+
+        TimeUnit.MILLISECONDS.sleep(5);
+        AdminChangeFeed feed = new AdminChangeFeed(kc.getAdminEventManager(), null, null);
+        feed.registerListener(cache);
+        groups.createSubGroup(org.getId(), new Group("ops"));
+        groups.deleteGroup(sales.getId());
+        feed.poll();
+        children = cache.getSubGroups(org.getId());
+        check(children.size() == 2 && children.get(1).getName().equals("ops") && cache.getGroup(sales.getId()) == null, "group events evict the level: " + children);
+
+        cache.invalidateAll();
+        emulator.failAfter("GET /groups", 1, 503, 1);
+        try {
+            cache.getTopLevelGroups();
+            check(false, "a failed level page must fail the read");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 503 && cache.getTopLevelGroups().size() == 6, "failed level is not cached short");
+        }
+        cache.invalidate(eng.getId());
+        emulator.failNext("GET /groups/{id}", 500, 1);
+        try {
+            cache.getGroup(eng.getId());
+            check(false, "a failed group read must not look like a missing group");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 500 && cache.getGroup(eng.getId()) != null, "group read again after the failure");
+        }
+        feed.stop();
+        System.out.println("group tree: ok, " + cache.size() + " groups cached");
+    }
+
+    private static void sessions(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        emulator.addClient("web", "web-secret").addClient("mobile", "mobile-secret");
+        for (int i = 0; i < 15; i++) {
+            if (i < 10) {
+                emulator.openSession("bulk." + i, "10.0.0." + i, "web");
+            } else {
+                emulator.openSession("bulk." + i, "10.0.0." + i, "web", "mobile");
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            emulator.openSession("john.doe", "10.0.1." + i, "mobile");
+        }
+        SessionManager sessions = kc.getSessionManager();
+        SessionCensus census = sessions.census(null, 7);
+        check(census.getSessions() == 18 && census.getClientSessions() == 23, "distinct sessions counted once: " + census);
+        check(census.getPerClient().get("web") == 15 && census.getPerClient().get("mobile") == 8
+                && census.getPerUser().get("john.doe") == 3, "census per client and per user: " + census);
+        emulator.failAfter("GET /clients/{id}/user-sessions", 1, 503, 1);
+        try {
+            sessions.census(null, 7);
+            check(false, "a failed session page must fail the census");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 503, "census failure carries the status");
+        }
+
+        String web = sessions.findClient("web").getId();
+        BulkOptions options = new BulkOptions(4, 6);
+        options.setPageSize(6);
+        BulkResult revoked = kc.getBulkSessionRevoker().revokeClientSessions(web, s -> s.getUsername().startsWith("bulk.1"), options, null);
+        check(revoked.getApplied() == 6 && revoked.getSkipped() == 9 && revoked.getFailed() == 0
+                && emulator.getSessionCount() == 12, "filtered revocation " + revoked);
+        emulator.failAfter("GET /clients/{id}/user-sessions", 1, 500, 1);
+        options.setPageSize(3);
+        try {
+            kc.getBulkSessionRevoker().revokeClientSessions(web, null, options, null);
+            check(false, "a failed session page must fail the revocation");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 500 && emulator.getSessionCount() == 9, "revocation stops at the failed page");
+        }
+
+        String john = kc.getUserManager().findUser("john.doe").getId();
+        BulkResult logout = kc.getBulkSessionRevoker().logoutUsers(List.of(john).iterator(), new BulkOptions(0, 0), null);
+        check(logout.getApplied() == 1 && sessions.getUserSessions(john).isEmpty(), "user logged out of every session, options clamped to 1");
+        System.out.println("sessions: ok, " + census);
+    }
+
+    private static void deadline(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        UserManager users = kc.getUserManager();
+        String john = users.findUser("john.doe").getId();
+        emulator.setLatencyMs(200);
+        try {
+            Deadline.Scope scope = Deadline.after(Duration.ofMillis(300)).attach();
+            try {
+                check(users.fetchUser(john) != null, "first call within the budget");
+                long start = System.nanoTime();
+                try {
+                    users.fetchUser(john);
+                    check(false, "a slow call must be cut by the deadline");
+                } catch (SSOIOException expected) {
+                    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    check(Deadline.isExceeded(expected) && elapsedMs < 180, "slow call cancelled when the budget ran out: " + elapsedMs + " ms");
+                }
+                long sent = emulator.getRequestCount();
+                try {
+                    users.fetchUser(john);
+                    check(false, "an expired deadline must refuse the call");
+                } catch (SSOIOException expected) {
+                    check(Deadline.isExceeded(expected) && emulator.getRequestCount() == sent, "expired deadline fails fast without sending");
+                }
+            } finally {
+                scope.close();
+            }
+            check(Deadline.current() == null && users.fetchUser(john) != null, "calls are unbounded once the scope is closed");
+
+            long sent = emulator.getRequestCount();
+            scope = Deadline.after(Duration.ofSeconds(1), Duration.ofSeconds(2)).attach();
+            try {
+                users.fetchUser(john);
+                check(false, "a call needing more than the budget left must be refused");
+            } catch (SSOIOException expected) {
+                check(Deadline.isExceeded(expected) && emulator.getRequestCount() == sent, "minimum call budget refuses at once");
+            } finally {
+                scope.close();
+            }
+
+            Deadline cancelled = Deadline.after(Duration.ofSeconds(5));
+            scope = cancelled.attach();
+            long start = System.nanoTime();
+            try {
+                CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(cancelled::cancel);
+                users.fetchUser(john);
+                check(false, "a cancelled deadline must abort the call in flight");
+            } catch (SSOIOException expected) {
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                check(Deadline.isExceeded(expected) && cancelled.isCancelled() && elapsedMs < 180, "cancel aborts the call in flight: " + elapsedMs + " ms");
+            } finally {
+                scope.close();
+            }
+        } finally {
+            emulator.setLatencyMs(0);
+        }
+        System.out.println("deadline: ok");
+    }
+
+    private static void createOrGet(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        ExistenceFilter filter = ExistenceFilter.fromRealm(kc.getUserManager(), 3000, 0.01, null);
+        emulator.resetCounters();
+        List<User> input = new ArrayList<>();
+        for (int i = 4500; i < 7500; i++) {
+            input.add(new User("user-" + i, "S3cret!", "user-" + i + "@example.com"));
+        }
+        BulkResult result = kc.getBulkUserImporter().createOrGet(input.iterator(), filter, new BulkOptions(8, 500), null);
+        long lookups = emulator.getCalls("GET /users");
+        check(result.getApplied() == 2500 && result.getSkipped() == 500 && result.getFailed() == 0, "create-or-get outcome " + result);
+        check(lookups < 500 + 100, "only possible hits looked up: " + lookups);
+        check(emulator.getCalls("POST /users") == 2500, "one create per new user");
+        System.out.println("create-or-get: ok, " + result + ", lookups=" + lookups + ", " + filter);
+    }
+
+    private static void queue(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        emulator.resetCounters();
+        RoleMappingQueue queue = kc.newRoleMappingQueue(50, 1000, 4);
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        List<User> page = kc.getUserManager().listUsers(0, 50);
+        for (int round = 0; round < 20; round++) {
+            for (User u : page) {
+                futures.add(round % 2 == 0 ? queue.add(u.getId(), "editor") : queue.remove(u.getId(), "editor"));
+            }
+        }
+        check(queue.shutdown(10_000), "queue drained");
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        long calls = emulator.getCalls("POST /users/{id}/role-mappings/realm") + emulator.getCalls("DELETE /users/{id}/role-mappings/realm");
+        check(calls <= 2L * page.size(), "queue coalesced 1000 changes into " + calls + " calls");
+        check(!emulator.getUserRoles(page.get(0).getUsername()).contains("editor"), "last change wins");
+        check(futures.stream().allMatch(CompletableFuture::join), "every change completed with its batch");
+
+        queue = kc.newRoleMappingQueue(60_000, 2, 2);
+        emulator.resetCounters();
+        User first = page.get(1);
+        CompletableFuture<Boolean> granted = queue.add(first.getId(), "editor", "bulk-editor");
+        CompletableFuture<Boolean> revoked = queue.remove(first.getId(), "bulk-editor");
+        check(queue.getPendingUsers() == 1 && !granted.isDone(), "changes held for the window");
+        queue.flush().join();
+        check(granted.join() && revoked.join() && queue.getPendingUsers() == 0, "flush sends before the window ends");
+        check(emulator.getCalls("POST /users/{id}/role-mappings/realm") == 1 && emulator.getCalls("DELETE /users/{id}/role-mappings/realm") == 1
+                && emulator.getUserRoles(first.getUsername()).contains("editor")
+                && !emulator.getUserRoles(first.getUsername()).contains("bulk-editor"), "one net POST and one net DELETE");
+
+        RoleMappingQueue bounded = queue;
+        bounded.add(page.get(2).getId(), "editor");
+        bounded.add(page.get(3).getId(), "editor");
+        CompletableFuture<CompletableFuture<Boolean>> blocked = CompletableFuture.supplyAsync(() -> bounded.add(page.get(4).getId(), "editor"));
+        TimeUnit.MILLISECONDS.sleep(100);
+        check(!blocked.isDone() && bounded.getPendingUsers() == 2, "callers block while the queue is full");
+        bounded.flush().join();
+        CompletableFuture<Boolean> third = blocked.get(5, TimeUnit.SECONDS);
+        bounded.flush().join();
+        check(third.join(), "blocked caller admitted once a user was flushed");
+        emulator.failNext("POST /users/{id}/role-mappings/realm", 500, 1);
+        CompletableFuture<Boolean> rejected = bounded.add(page.get(5).getId(), "editor");
+        check(queue.shutdown(10_000) && !rejected.join(), "shutdown flushes, a rejected batch completes with false");
+        check(queue.add(first.getId(), "editor").isCompletedExceptionally(), "no changes accepted after shutdown");
+
+        //
+        // Users are still being added to the queue while it shuts down, each
+        // producer has its own users so that every change adds a user
+        //
+        List<User> targets = kc.getUserManager().listUsers(0, 8000);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 10; round++) {
+                RoleMappingQueue racing = kc.newRoleMappingQueue(60_000, 100_000, 4);
+                Queue<CompletableFuture<Boolean>> raced = new ConcurrentLinkedQueue<>();
+                List<Future<?>> producers = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    int offset = t * targets.size() / 4;
+                    producers.add(pool.submit(() -> {
+                        for (int i = offset; ; i++) {
+                            CompletableFuture<Boolean> change = racing.add(targets.get(i % targets.size()).getId(), "editor");
+                            raced.add(change);
+                            if (change.isCompletedExceptionally()) {
+                                return;
+                            }
+                        }
+                    }));
+                }
+                TimeUnit.MILLISECONDS.sleep(1);
+                check(racing.shutdown(30_000), "queue shut down while changes arrive");
+                for (Future<?> producer : producers) {
+                    producer.get(30, TimeUnit.SECONDS);
+                }
+                check(raced.stream().allMatch(CompletableFuture::isDone), "every change racing with shutdown completed: " + racing);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.println("queue: ok, " + futures.size() + " changes, " + calls + " calls");
+    }
+
+    private static void jfr(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        UserManager users = kc.getUserManager();
+        String john = users.findUser("john.doe").getId();
+        IChangeEventListener failing = new IChangeEventListener() {
+            @Override
+            public void onChange(ChangeEvent event) {
+                throw new IllegalStateException("listener failure");
+            }
+
+            @Override
+            public String getUniqueName() {
+                return "jfr-test";
+            }
+        };
+        Path file = Files.createTempFile("emulator", ".jfr");
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("dev.nishisan.keycloak.AdminCall");
+            recording.enable("dev.nishisan.keycloak.Token");
+            recording.enable("dev.nishisan.keycloak.ListenerDispatch");
+            recording.start();
+            users.fetchUser(john);
+            emulator.failNext("GET /users/{id}", 503, 1);
+            try {
+                users.fetchUser(john);
+                check(false, "injected failure expected");
+            } catch (SSOIOException expected) {
+                check(expected.getStatus() == 503, "failed call for the recording");
+            }
+            KeycloakAdminClient fresh = new KeycloakAdminClient(config("acme", emulator.getBaseUrl()));
+            try {
+                fresh.getUserManager().countUsers();
+            } finally {
+                fresh.shutdown();
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+            AdminChangeFeed feed = new AdminChangeFeed(kc.getAdminEventManager(), null, null);
+            feed.registerListener(failing);
+            users.updateEmail(john, "john.jfr@example.com");
+            feed.poll();
+            feed.stop();
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        check(events.stream().anyMatch(e -> e.getEventType().getName().equals("dev.nishisan.keycloak.AdminCall")
+                && "GET".equals(e.getString("method")) && "/admin/realms/{realm}/users/{id}".equals(e.getString("urlTemplate"))
+                && e.getInt("status") == 200), "admin call recorded with its URL template");
+        check(events.stream().anyMatch(e -> e.getEventType().getName().equals("dev.nishisan.keycloak.AdminCall")
+                && e.getInt("status") == 503), "failed admin call recorded with its status");
+        check(events.stream().anyMatch(e -> e.getEventType().getName().equals("dev.nishisan.keycloak.Token")
+                && "grant".equals(e.getString("operation")) && e.getBoolean("success")), "token grant recorded");
+        check(events.stream().anyMatch(e -> e.getEventType().getName().equals("dev.nishisan.keycloak.ListenerDispatch")
+                && "jfr-test".equals(e.getString("listener")) && "USER UPDATE".equals(e.getString("event")) && !e.getBoolean("success")),
+                "listener dispatch recorded with its failure");
+        System.out.println("jfr: ok, " + events.size() + " events");
+    }
+
+    private static void fairness(KeycloakEmulator emulator) throws Exception {
+        try (KeycloakEmulator other = new KeycloakEmulator("noisy").addClient("admin-cli", "secret").setLatencyMs(5).start()) {
+            RequestScheduler scheduler = new RequestScheduler(2);
+            SSOConfig quietConfig = config("acme", emulator.getBaseUrl());
+            quietConfig.setSchedulerWeight(4);
+            SSOConfig noisyConfig = config("noisy", other.getBaseUrl());
+            KeycloakAdminClient quiet = new KeycloakAdminClient(quietConfig, scheduler);
+            KeycloakAdminClient noisy = new KeycloakAdminClient(noisyConfig, scheduler);
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            AtomicBoolean stop = new AtomicBoolean(false);
+            try {
+                for (int t = 0; t < 8; t++) {
+                    pool.submit(() -> {
+                        while (!stop.get()) {
+                            noisy.getUserManager().countUsers();
+                        }
+                        return null;
+                    });
+                }
+                Thread.sleep(100);
+                for (int i = 0; i < 50; i++) {
+                    quiet.getUserManager().countUsers();
+                }
+            } finally {
+                stop.set(true);
+                pool.shutdown();
+                pool.awaitTermination(10, TimeUnit.SECONDS);
+                quiet.shutdown();
+                noisy.shutdown();
+            }
+            RealmQueue acme = scheduler.getQueue("acme");
+            RealmQueue busy = scheduler.getQueue("noisy");
+            check(acme.getGranted() == 50 && scheduler.getInFlight() == 0, "every slot released");
+            check(acme.getAverageWaitMs() < busy.getAverageWaitMs(), "weighted realm waits less than the noisy one");
+            System.out.printf("fairness: wait acme=%.2fms noisy=%.2fms%n", acme.getAverageWaitMs(), busy.getAverageWaitMs());
+        }
+    }
+
+    private static void priority(KeycloakEmulator emulator) throws Exception {
+        SSOConfig config = config("acme", emulator.getBaseUrl());
+        config.setMaxConcurrentRequests(4);
+        KeycloakAdminClient kc = new KeycloakAdminClient(config);
+        RequestScheduler scheduler = kc.getRequestScheduler();
+        UserManager users = kc.getUserManager();
+        emulator.setLatencyMs(5);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicBoolean stop = new AtomicBoolean(false);
+        AtomicLong maxBatch = new AtomicLong();
+        try {
+            for (int t = 0; t < 8; t++) {
+                pool.submit(() -> RequestPriority.BATCH.call(() -> {
+                    while (!stop.get()) {
+                        users.countUsers();
+                        maxBatch.accumulateAndGet(scheduler.getBatchInFlight(), Math::max);
+                    }
+                    return null;
+                }));
+            }
+            Thread.sleep(100);
+            for (int i = 0; i < 50; i++) {
+                users.countUsers();
+            }
+        } finally {
+            stop.set(true);
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+            emulator.setLatencyMs(0);
+            kc.shutdown();
+        }
+        RealmQueue acme = scheduler.getQueue("acme");
+        check(maxBatch.get() <= scheduler.getBatchMaxConcurrent(), "batch calls stay within their share");
+        check(acme.getGranted(RequestPriority.INTERACTIVE) >= 50 && scheduler.getInFlight() == 0, "every slot released");
+        check(acme.getAverageWaitMs(RequestPriority.INTERACTIVE) < acme.getAverageWaitMs(RequestPriority.BATCH), "interactive calls are admitted first");
+        System.out.printf("priority: wait interactive=%.2fms batch=%.2fms%n",
+                acme.getAverageWaitMs(RequestPriority.INTERACTIVE), acme.getAverageWaitMs(RequestPriority.BATCH));
+    }
+
+    private static void cli(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        Path dir = Files.createTempDirectory("kc-admin-cli");
+        String[] connection = {"--url", emulator.getBaseUrl(), "--realm", "acme", "--client-id", "admin-cli", "--client-secret", "secret", "-q"};
+        StringBuilder csv = new StringBuilder("username,email,password,groups,attr.team\n");
+        for (int i = 0; i < 200; i++) {
+            csv.append("cli.").append(i).append(",cli.").append(i).append("@example.com,\"p,").append(i).append("\",,\"red;blue\"\n");
+        }
+        csv.append(",nobody@example.com,x,,\n");
+        csv.append("john.doe,john.doe@example.com,x,,\n");
+        Path users = Files.writeString(dir.resolve("users.csv"), csv.toString());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int status = KeycloakCli.run(concat(new String[]{"create", "-i", users.toString(), "-p", "4"}, connection), new PrintStream(out), System.err);
+        List<String> failed = Files.readAllLines(dir.resolve("users.csv.failed.ndjson"));
+        check(status == 1 && out.toString().contains("applied=200 skipped=1 failed=1"), "cli create: " + out.toString().trim());
+        check(failed.size() == 1 && failed.get(0).contains("Missing username"), "cli failure file keeps the record");
+        check(kc.getUserManager().findUser("cli.7").getAttributes().get("team").equals(List.of("red", "blue")), "cli attributes");
+
+        Path grants = Files.writeString(dir.resolve("grant.ndjson"), "{\"username\":\"cli.1\"}\n{\"username\":\"cli.2\"}\n{\"username\":\"ghost\"}\n");
+        out.reset();
+        status = KeycloakCli.run(concat(new String[]{"grant", "-i", grants.toString(), "--roles", "viewer"}, connection), new PrintStream(out), System.err);
+        check(status == 1 && emulator.getUserRoles("cli.2").contains("viewer"), "cli grant: " + out.toString().trim());
+
+        Path passwords = Files.writeString(dir.resolve("passwords.csv"), "username,password\ncli.3,N3w!\n");
+        check(KeycloakCli.run(concat(new String[]{"reset-password", "-i", passwords.toString()}, connection), new PrintStream(out), System.err) == 0, "cli reset-password");
+        Path export = dir.resolve("realm.ndjson");
+        check(KeycloakCli.run(concat(new String[]{"export", "-o", export.toString()}, connection), new PrintStream(out), System.err) == 0
+                && Files.readString(export).contains("\"cli.199\""), "cli export");
+        System.out.println("cli: ok");
+    }
+
+    private static void prehash(KeycloakAdminClient kc, KeycloakEmulator emulator) throws Exception {
+        emulator.setPasswordPolicy("length(8) and hashAlgorithm(pbkdf2-sha256) and hashIterations(1000)");
+        emulator.failNext("GET /", 403, 1);
+        try {
+            PasswordHasher.forRealm(kc.getRealmManager()).close();
+            check(false, "a rejected realm read must not fall back to the default hash");
+        } catch (SSOIOException expected) {
+            check(expected.getStatus() == 403, "realm read failure carries the status");
+        }
+        List<User> batch = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            batch.add(new User("hashed." + i, "P4ss-" + i, "hashed." + i + "@example.com"));
+        }
+        BulkResult result;
+        try (PasswordHasher hasher = PasswordHasher.forRealm(kc.getRealmManager())) {
+            check(hasher.getAlgorithm().equals("pbkdf2-sha256") && hasher.getIterations() == 1000, "hasher follows the realm policy");
+            Iterator<User> users = hasher.prehash(batch.iterator(), 8);
+            result = kc.getBulkUserImporter().createOrGet(users, null, new BulkOptions(4, 10), null);
+            check(hasher.getHashed() == 40, "every password hashed once");
+        } finally {
+            emulator.setPasswordPolicy(null);
+        }
+        check(result.getApplied() == 40, "pre-hashed users created");
+        JsonObject stored = emulator.getPasswordCredential("hashed.17");
+        check(!stored.has("value") || stored.get("value").isJsonNull(), "no plaintext sent");
+        JsonObject data = JsonParser.parseString(stored.get("credentialData").getAsString()).getAsJsonObject();
+        JsonObject secret = JsonParser.parseString(stored.get("secretData").getAsString()).getAsJsonObject();
+        check(data.get("algorithm").getAsString().equals("pbkdf2-sha256") && data.get("hashIterations").getAsInt() == 1000, "credentialData");
+        byte[] salt = Base64.getDecoder().decode(secret.get("salt").getAsString());
+        byte[] hash = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256")
+                .generateSecret(new PBEKeySpec("P4ss-17".toCharArray(), salt, 1000, 256)).getEncoded();
+        check(Arrays.equals(hash, Base64.getDecoder().decode(secret.get("value").getAsString())), "secretData verifies the password");
+        try {
+            PasswordHasher.forPolicy("hashAlgorithm(argon2)").close();
+            check(false, "argon2 is not hashed locally");
+        } catch (IllegalArgumentException expected) {
+            check(expected.getMessage().contains("argon2"), "unsupported algorithm is named");
+        }
+        System.out.println("prehash: ok");
+    }
+
+    private static void requestBodies(KeycloakAdminClient kc) throws Exception {
+        for (String name : JsonCodecs.names()) {
+            var codec = JsonCodecs.forName(name);
+            User small = new User("body.small", "x", "body.small@example.com");
+            JsonRequestBody body = new JsonRequestBody(codec, small);
+            check(body.isBuffered() && body.contentLength() == codec.toJson(small).getBytes(StandardCharsets.UTF_8).length, name + " small body has a length");
+            List<RealmRole> roles = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                roles.add(new RealmRole("role-" + i, "description " + i));
+            }
+            JsonRequestBody large = new JsonRequestBody(codec, roles);
+            Buffer sent = new Buffer();
+            large.writeTo(sent);
+            check(large.contentLength() == -1 && sent.readUtf8().equals(codec.toJson(roles)), name + " large body is streamed");
+            check(large.toString().length() < JsonRequestBody.PREVIEW_LIMIT + 64 && large.toString().endsWith("(truncated, streamed)"), name + " preview is truncated");
+        }
+        User big = new User("body.big", "x", "body.big@example.com");
+        big.setAttributes(Map.of("blob", List.of("é".repeat(50_000))));
+        kc.getUserManager().createUser(big);
+        check(kc.getUserManager().getUser(big.getId()).getAttributes().get("blob").get(0).length() == 50_000, "chunked create round trip");
+        System.out.println("request bodies: ok");
+    }
+
+    private static String[] concat(String[] a, String[] b) {
+        String[] all = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, all, a.length, b.length);
+        return all;
+    }
+
+    private static void throughput(UserManager users) throws Exception {
+        User user = users.findUser("john.doe");
+        int threads = 8;
+        long durationMs = 2000;
+        AtomicLong ops = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long end = System.currentTimeMillis() + durationMs;
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                while (System.currentTimeMillis() < end) {
+                    users.getUser(user.getId());
+                    ops.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(durationMs + 10_000, TimeUnit.MILLISECONDS);
+        System.out.printf("throughput: %d getUser/s with %d threads%n", ops.get() * 1000 / durationMs, threads);
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new IllegalStateException("Check failed: " + what);
+        }
+    }
+}
@@ -0,0 +1,1583 @@
+/*
+ * Copyright (C) 2025 Lucas Nishimura < lucas at nishisan.dev >
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.nishisan.keycloak.admin.test.emulator;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Stateful in-memory emulator of the parts of the Keycloak admin API used by
+ * the managers, served on a local port by the JDK HTTP server.
+ *
+ * It implements the token endpoint (client credentials and refresh grants,
+ * with expiry), users, realm roles, realm role mappings, groups, clients
+ * and user sessions, partial import and the admin events of those changes,
+ * answering with the status codes and {@code Location} headers of Keycloak.
+ * Admin calls need a valid bearer token. Users are listed in username order,
+ * like Keycloak does.
+ *
+ * <pre>
+ * try (KeycloakEmulator kc = new KeycloakEmulator("acme").addClient("admin-cli", "secret").start()) {
+ *     KeycloakAdminClient client = new KeycloakAdminClient("admin-cli", "secret", "acme", kc.getBaseUrl());
+ * }
+ * </pre>
+ *
+ * @author Lucas Nishimura < lucas at nishisan.dev >
+ */
+public class KeycloakEmulator implements AutoCloseable {
+
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+    private static final Gson GSON = new Gson();
+
+    static {
+        //
+        // Headers and body are written separately, without this every
+        // response waits for the delayed ACK (~40 ms)
+        //
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final String realm;
+    private final Map<String, String> clients = new ConcurrentHashMap<>();
+    private final Map<String, Long> accessTokens = new ConcurrentHashMap<>();
+    private final Map<String, Long> refreshTokens = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, UserRecord> usersByName = new TreeMap<>();
+    private final Map<String, UserRecord> usersById = new HashMap<>();
+    private final Map<String, RoleRecord> roles = new LinkedHashMap<>();
+    private final Map<String, GroupRecord> groups = new HashMap<>();
+    private final Map<String, String> clientUuids = new ConcurrentHashMap<>();
+    private final Map<String, SessionRecord> sessions = new LinkedHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong tokenGrants = new AtomicLong();
+    private final Map<String, AtomicLong> callsByRoute = new ConcurrentHashMap<>();
+    private final Map<String, Fault> faults = new ConcurrentHashMap<>();
+    private final Map<String, Hook> hooks = new ConcurrentHashMap<>();
+    private final List<JsonObject> adminEvents = new ArrayList<>();
+    //
+    // Path of the admin call served by the current thread, exchange
+    // attributes cannot hold it because the JDK server shares them per context
+    //
+    private final ThreadLocal<List<String>> adminCall = new ThreadLocal<>();
+    private volatile long tokenLifespanSeconds = 300;
+    private volatile long refreshLifespanSeconds = 1800;
+    private volatile long latencyMs = 0;
+    private volatile String passwordPolicy;
+    private int threads = 16;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public KeycloakEmulator(String realm) {
+        this.realm = realm;
+    }
+
+    public KeycloakEmulator addClient(String clientId, String secret) {
+        this.clients.put(clientId, secret);
+        this.clientUuids.computeIfAbsent(clientId, k -> UUID.randomUUID().toString());
+        return this;
+    }
+
+    /**
+     * Opens a user session on some clients, as a login would
+     *
+     * @param username an existing user
+     * @param ipAddress client address of the session
+     * @param clientIds clients added with {@link #addClient}
+     * @return the session id
+     */
+    public String openSession(String username, String ipAddress, String... clientIds) {
+        lock.writeLock().lock();
+        try {
+            UserRecord u = usersByName.get(username.toLowerCase(Locale.ROOT));
+            if (u == null) {
+                throw new IllegalArgumentException("Unknown user: " + username);
+            }
+            SessionRecord session = new SessionRecord();
+            session.id = UUID.randomUUID().toString();
+            session.userId = u.id;
+            session.username = u.username;
+            session.ipAddress = ipAddress;
+            session.start = System.currentTimeMillis();
+            for (String clientId : clientIds) {
+                String uuid = clientUuids.get(clientId);
+                if (uuid == null) {
+                    throw new IllegalArgumentException("Unknown client: " + clientId);
+                }
+                session.clients.put(uuid, clientId);
+            }
+            sessions.put(session.id, session);
+            return session.id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getSessionCount() {
+        lock.readLock().lock();
+        try {
+            return sessions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public KeycloakEmulator setTokenLifespanSeconds(long seconds) {
+        this.tokenLifespanSeconds = seconds;
+        return this;
+    }
+
+    public KeycloakEmulator setRefreshLifespanSeconds(long seconds) {
+        this.refreshLifespanSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Delay added to every request, to emulate a slow or remote server
+     */
+    public KeycloakEmulator setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+        return this;
+    }
+
+    /**
+     * Password policy returned with the realm representation
+     */
+    public KeycloakEmulator setPasswordPolicy(String passwordPolicy) {
+        this.passwordPolicy = passwordPolicy;
+        return this;
+    }
+
+    /**
+     * Answers the next calls of an admin route with an error status
+     *
+     * @param route route as in {@link #getCalls(String)}, e.g.
+     * {@code GET /roles/{name}/users}
+     * @param status HTTP status to return
+     * @param times number of calls that fail
+     */
+    public KeycloakEmulator failNext(String route, int status, int times) {
+        return this.failAfter(route, 0, status, times);
+    }
+
+    /**
+     * Same as {@link #failNext(String, int, int)} once {@code calls} more
+     * calls of the route succeeded
+     */
+    public KeycloakEmulator failAfter(String route, int calls, int status, int times) {
+        this.faults.put(route, new Fault(calls, status, times));
+        return this;
+    }
+
+    /**
+     * Runs the action once, before answering the call of the route that
+     * follows {@code calls} calls, e.g. to change the data between two pages
+     */
+    public KeycloakEmulator beforeCall(String route, int calls, Runnable action) {
+        this.hooks.put(route, new Hook(calls, action));
+        return this;
+    }
+
+    /**
+     * Keeps an admin event as if a change had been made through the API
+     */
+    public void recordAdminEvent(String operation, String resourceType, String resourcePath) {
+        JsonObject event = new JsonObject();
+        event.addProperty("id", UUID.randomUUID().toString());
+        event.addProperty("time", System.currentTimeMillis());
+        event.addProperty("realmId", realm);
+        event.addProperty("operationType", operation);
+        event.addProperty("resourceType", resourceType);
+        event.addProperty("resourcePath", resourcePath);
+        synchronized (adminEvents) {
+            adminEvents.add(event);
+        }
+    }
+
+    public KeycloakEmulator setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public KeycloakEmulator start() throws IOException {
+        int pool = POOL_SEQ.incrementAndGet();
+        AtomicInteger threadSeq = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "keycloak-emulator-" + pool + "-" + threadSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+        return this;
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public String getRealm() {
+        return realm;
+    }
+
+    /**
+     * @return requests served since the start or the last reset
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return client credentials and refresh grants served
+     */
+    public long getTokenGrants() {
+        return tokenGrants.get();
+    }
+
+    /**
+     * @param route method and templated path, e.g.
+     * {@code POST /users/{id}/role-mappings/realm}
+     * @return calls served on that route
+     */
+    public long getCalls(String route) {
+        AtomicLong c = callsByRoute.get(route);
+        return c == null ? 0 : c.get();
+    }
+
+    public Map<String, Long> getCallsByRoute() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        callsByRoute.forEach((k, v) -> snapshot.put(k, v.get()));
+        return snapshot;
+    }
+
+    public void resetCounters() {
+        requests.set(0);
+        tokenGrants.set(0);
+        callsByRoute.clear();
+    }
+
+    /**
+     * Expires every access token, the next admin call gets a 401
+     */
+    public void expireAccessTokens() {
+        accessTokens.replaceAll((k, v) -> 0L);
+    }
+
+    public int getUserCount() {
+        lock.readLock().lock();
+        try {
+            return usersById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return realm role names mapped to the user, empty if unknown
+     */
+    /**
+     * Adds a realm role to a composite role, both must exist
+     *
+     * @param parent composite role name
+     * @param child contained role name
+     */
+    public void addComposite(String parent, String child) {
+        lock.writeLock().lock();
+        try {
+            if (!roles.containsKey(parent) || !roles.containsKey(child)) {
+                throw new IllegalArgumentException("Unknown role: " + parent + " or " + child);
+            }
+            roles.get(parent).composites.add(child);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Set<String> getUserRoles(String username) {
+        lock.readLock().lock();
+        try {
+            UserRecord u = usersByName.get(username.toLowerCase(Locale.ROOT));
+            return u == null ? Collections.emptySet() : new LinkedHashSet<>(u.roles);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the stored password credential of the user (value or
+     * credentialData/secretData, as received), null if none
+     */
+    public JsonObject getPasswordCredential(String username) {
+        lock.readLock().lock();
+        try {
+            UserRecord u = usersByName.get(username.toLowerCase(Locale.ROOT));
+            if (u == null || (u.password == null && u.secretData == null)) {
+                return null;
+            }
+            JsonObject o = new JsonObject();
+            o.addProperty("type", "password");
+            o.addProperty("value", u.password);
+            o.addProperty("credentialData", u.credentialData);
+            o.addProperty("secretData", u.secretData);
+            return o;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        requests.incrementAndGet();
+        try {
+            if (latencyMs > 0) {
+                TimeUnit.MILLISECONDS.sleep(latencyMs);
+            }
+            String path = ex.getRequestURI().getRawPath();
+            List<String> seg = new ArrayList<>();
+            for (String s : path.split("/")) {
+                if (!s.isEmpty()) {
+                    seg.add(URLDecoder.decode(s, StandardCharsets.UTF_8));
+                }
+            }
+            if (seg.size() >= 2 && seg.get(0).equals("realms")) {
+                if (!seg.get(1).equals(realm)) {
+                    send(ex, 404, error("Realm does not exist"));
+                } else if (seg.size() == 2 && ex.getRequestMethod().equals("GET")) {
+                    send(ex, 200, "{\"realm\":\"" + realm + "\"}");
+                } else if (seg.size() == 5 && path.endsWith("/protocol/openid-connect/token") && ex.getRequestMethod().equals("POST")) {
+                    this.token(ex);
+                } else {
+                    send(ex, 404, error("Not found"));
+                }
+            } else if (seg.size() >= 3 && seg.get(0).equals("admin") && seg.get(1).equals("realms")) {
+                if (!this.authorized(ex)) {
+                    send(ex, 401, "{\"error\":\"HTTP 401 Unauthorized\"}");
+                } else if (!seg.get(2).equals(realm)) {
+                    send(ex, 404, error("Realm not found."));
+                } else {
+                    this.admin(ex, seg.subList(3, seg.size()));
+                }
+            } else {
+                send(ex, 404, error("Not found"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            send(ex, 500, error(e.toString()));
+        } finally {
+            adminCall.remove();
+            ex.close();
+        }
+    }
+
+    // ---------------------------------------------------------------- token
+
+    private void token(HttpExchange ex) throws IOException {
+        Map<String, String> form = parseQuery(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        String clientId = form.get("client_id");
+        String secret = form.get("client_secret");
+        String auth = ex.getRequestHeaders().getFirst("Authorization");
+        if (auth != null && auth.startsWith("Basic ")) {
+            String[] pair = new String(Base64.getDecoder().decode(auth.substring(6)), StandardCharsets.UTF_8).split(":", 2);
+            clientId = URLDecoder.decode(pair[0], StandardCharsets.UTF_8);
+            secret = pair.length > 1 ? URLDecoder.decode(pair[1], StandardCharsets.UTF_8) : null;
+        }
+        if (clientId == null || secret == null || !secret.equals(clients.get(clientId))) {
+            send(ex, 401, "{\"error\":\"unauthorized_client\",\"error_description\":\"Invalid client or Invalid client credentials\"}");
+            return;
+        }
+        String grant = form.getOrDefault("grant_type", "");
+        if (grant.equals("refresh_token")) {
+            Long expiry = refreshTokens.remove(String.valueOf(form.get("refresh_token")));
+            if (expiry == null || expiry < System.nanoTime()) {
+                send(ex, 400, "{\"error\":\"invalid_grant\",\"error_description\":\"Invalid refresh token\"}");
+                return;
+            }
+        } else if (!grant.equals("client_credentials")) {
+            send(ex, 400, "{\"error\":\"unsupported_grant_type\"}");
+            return;
+        }
+        tokenGrants.incrementAndGet();
+        long now = System.nanoTime();
+        String access = "at-" + UUID.randomUUID();
+        String refresh = "rt-" + UUID.randomUUID();
+        accessTokens.put(access, now + TimeUnit.SECONDS.toNanos(tokenLifespanSeconds));
+        refreshTokens.put(refresh, now + TimeUnit.SECONDS.toNanos(refreshLifespanSeconds));
+        JsonObject body = new JsonObject();
+        body.addProperty("access_token", access);
+        body.addProperty("expires_in", tokenLifespanSeconds);
+        body.addProperty("refresh_expires_in", refreshLifespanSeconds);
+        body.addProperty("refresh_token", refresh);
+        body.addProperty("token_type", "Bearer");
+        body.addProperty("scope", "profile email");
+        send(ex, 200, body.toString());
+    }
+
+    private boolean authorized(HttpExchange ex) {
+        String auth = ex.getRequestHeaders().getFirst("Authorization");
+        if (auth == null || !auth.startsWith("Bearer ")) {
+            return false;
+        }
+        Long expiry = accessTokens.get(auth.substring(7));
+        return expiry != null && expiry > System.nanoTime();
+    }
+
+    // ---------------------------------------------------------------- admin
+
+    private void admin(HttpExchange ex, List<String> seg) throws IOException {
+        String method = ex.getRequestMethod();
+        Map<String, String> query = parseQuery(ex.getRequestURI().getRawQuery());
+        String head = seg.isEmpty() ? "" : seg.get(0);
+        String route = count(method, seg);
+        adminCall.set(seg);
+        Fault fault = faults.get(route);
+        if (fault != null && fault.skip.getAndDecrement() <= 0 && fault.remaining.getAndDecrement() > 0) {
+            send(ex, fault.status, error("Injected failure"));
+            return;
+        }
+        Hook hook = hooks.get(route);
+        if (hook != null && hook.skip.getAndDecrement() == 0) {
+            hooks.remove(route, hook);
+            hook.action.run();
+        }
+        switch (head) {
+            case "" -> {
+                if (method.equals("GET")) {
+                    JsonObject rep = new JsonObject();
+                    rep.addProperty("realm", realm);
+                    rep.addProperty("enabled", true);
+                    if (passwordPolicy != null) {
+                        rep.addProperty("passwordPolicy", passwordPolicy);
+                    }
+                    send(ex, 200, rep.toString());
+                } else {
+                    send(ex, 405, error("Method not allowed"));
+                }
+            }
+            case "users" -> {
+                if (seg.size() == 1 && method.equals("POST")) {
+                    this.createUser(ex, body(ex).getAsJsonObject());
+                } else if (seg.size() == 1 && method.equals("GET")) {
+                    this.listUsers(ex, query);
+                } else if (seg.size() == 2 && seg.get(1).equals("count") && method.equals("GET")) {
+                    send(ex, 200, String.valueOf(this.getUserCount()));
+                } else if (seg.size() == 2) {
+                    this.user(ex, seg.get(1), method);
+                } else if (seg.size() == 3 && seg.get(2).equals("reset-password") && method.equals("PUT")) {
+                    this.resetPassword(ex, seg.get(1), body(ex).getAsJsonObject());
+                } else if (seg.size() == 4 && seg.get(2).equals("role-mappings") && seg.get(3).equals("realm")) {
+                    this.roleMappings(ex, seg.get(1), method);
+                } else if (seg.size() == 3 && seg.get(2).equals("sessions") && method.equals("GET")) {
+                    this.listSessions(ex, s -> s.userId.equals(seg.get(1)), Map.of());
+                } else if (seg.size() == 3 && seg.get(2).equals("logout") && method.equals("POST")) {
+                    this.logout(ex, seg.get(1));
+                } else {
+                    send(ex, 404, error("Not found"));
+                }
+            }
+            case "roles" -> {
+                if (seg.size() == 1 && method.equals("GET")) {
+                    this.listRoles(ex, query);
+                } else if (seg.size() == 1 && method.equals("POST")) {
+                    this.createRole(ex, body(ex).getAsJsonObject());
+                } else if (seg.size() == 2) {
+                    this.role(ex, seg.get(1), method);
+                } else if (seg.size() == 3 && seg.get(2).equals("users") && method.equals("GET")) {
+                    this.roleUsers(ex, seg.get(1), query);
+                } else if (seg.size() >= 3 && seg.get(2).equals("composites")) {
+                    this.composites(ex, seg.get(1), method);
+                } else {
+                    send(ex, 404, error("Not found"));
+                }
+            }
+            case "admin-events" -> {
+                if (seg.size() == 1 && method.equals("GET")) {
+                    this.listAdminEvents(ex, query);
+                } else {
+                    send(ex, 405, error("Method not allowed"));
+                }
+            }
+            case "groups" -> {
+                if (seg.size() == 1 && method.equals("POST")) {
+                    this.createGroup(ex, null, body(ex).getAsJsonObject());
+                } else if (seg.size() == 1 && method.equals("GET")) {
+                    this.listGroups(ex, null, query);
+                } else if (seg.size() == 2 && seg.get(1).equals("count") && method.equals("GET")) {
+                    send(ex, 200, "{\"count\":" + this.childrenOf(null).size() + "}");
+                } else if (seg.size() == 2) {
+                    this.group(ex, seg.get(1), method);
+                } else if (seg.size() == 3 && seg.get(2).equals("children") && method.equals("POST")) {
+                    this.createGroup(ex, seg.get(1), body(ex).getAsJsonObject());
+                } else if (seg.size() == 3 && seg.get(2).equals("children") && method.equals("GET")) {
+                    this.listGroups(ex, seg.get(1), query);
+                } else {
+                    send(ex, 404, error("Not found"));
+                }
+            }
+            case "clients" -> {
+                if (seg.size() == 1 && method.equals("GET")) {
+                    this.listClients(ex, query);
+                } else if (seg.size() == 3 && seg.get(2).equals("session-count") && method.equals("GET")) {
+                    int count = 0;
+                    lock.readLock().lock();
+                    try {
+                        for (SessionRecord session : sessions.values()) {
+                            count += session.clients.containsKey(seg.get(1)) ? 1 : 0;
+                        }
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                    send(ex, 200, "{\"count\":" + count + "}");
+                } else if (seg.size() == 3 && seg.get(2).equals("user-sessions") && method.equals("GET")) {
+                    this.listSessions(ex, session -> session.clients.containsKey(seg.get(1)), query);
+                } else {
+                    send(ex, 404, error("Not found"));
+                }
+            }
+            case "sessions" -> {
+                if (seg.size() == 2 && method.equals("DELETE")) {
+                    SessionRecord removed;
+                    lock.writeLock().lock();
+                    try {
+                        removed = sessions.remove(seg.get(1));
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    send(ex, removed == null ? 404 : 204, removed == null ? error("Session not found") : null);
+                } else {
+                    send(ex, 405, error("Method not allowed"));
+                }
+            }
+            case "group-by-path" -> {
+                if (method.equals("GET")) {
+                    this.groupByPath(ex, seg.subList(1, seg.size()));
+                } else {
+                    send(ex, 405, error("Method not allowed"));
+                }
+            }
+            case "partialImport" -> {
+                if (method.equals("POST")) {
+                    this.partialImport(ex, body(ex).getAsJsonObject());
+                } else {
+                    send(ex, 405, error("Method not allowed"));
+                }
+            }
+            default ->
+                send(ex, 404, error("Not found"));
+        }
+    }
+
+    /**
+     * Keeps an admin event for a successful change, with the resource path
+     * of the created entity for creations
+     */
+    private void recordEvent(HttpExchange ex, String method, List<String> seg) {
+        String path = String.join("/", seg);
+        String location = ex.getResponseHeaders().getFirst("Location");
+        if (method.equals("POST") && location != null) {
+            path = path + location.substring(location.lastIndexOf('/'));
+        }
+        String head = seg.isEmpty() ? "" : seg.get(0);
+        String type = switch (head) {
+            case "users" ->
+                seg.size() == 4 && seg.get(2).equals("role-mappings") ? "REALM_ROLE_MAPPING" : "USER";
+            case "roles" ->
+                "REALM_ROLE";
+            case "groups" ->
+                "GROUP";
+            default ->
+                "REALM";
+        };
+        String operation = switch (method) {
+            case "POST" ->
+                head.equals("partialImport") || path.endsWith("/logout") ? "ACTION" : "CREATE";
+            case "PUT" ->
+                seg.size() == 3 && seg.get(2).equals("reset-password") ? "ACTION" : "UPDATE";
+            case "DELETE" ->
+                "DELETE";
+            default ->
+                "ACTION";
+        };
+        this.recordAdminEvent(operation, type, path);
+    }
+
+    /**
+     * Newest first, dateFrom is a day like in Keycloak
+     */
+    private void listAdminEvents(HttpExchange ex, Map<String, String> query) throws IOException {
+        int first = intParam(query, "first", 0);
+        int max = intParam(query, "max", 100);
+        String dateFrom = query.get("dateFrom");
+        long from = dateFrom == null ? 0 : LocalDate.parse(dateFrom).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        JsonArray out = new JsonArray();
+        synchronized (adminEvents) {
+            int skipped = 0;
+            for (int i = adminEvents.size() - 1; i >= 0 && out.size() < max; i--) {
+                JsonObject event = adminEvents.get(i);
+                if (event.get("time").getAsLong() < from || skipped++ < first) {
+                    continue;
+                }
+                out.add(event);
+            }
+        }
+        send(ex, 200, out.toString());
+    }
+
+    private String count(String method, List<String> seg) {
+        StringBuilder route = new StringBuilder(method).append(' ');
+        for (int i = 0; i < seg.size(); i++) {
+            String s = seg.get(i);
+            if (i == 1 && seg.get(0).equals("group-by-path")) {
+                route.append("/{path}");
+                break;
+            }
+            String previous = i > 0 ? seg.get(i - 1) : "";
+            boolean key = (previous.equals("users") || previous.equals("roles") || previous.equals("groups")
+                    || previous.equals("clients") || previous.equals("sessions")) && !s.equals("count");
+            route.append('/').append(key ? (previous.equals("roles") ? "{name}" : "{id}") : s);
+        }
+        String key = route.length() == method.length() + 1 ? method + " /" : route.toString();
+        callsByRoute.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+        return key;
+    }
+
+    private void createUser(HttpExchange ex, JsonObject rep) throws IOException {
+        lock.writeLock().lock();
+        int status;
+        String body;
+        UserRecord created = null;
+        try {
+            String conflict = this.validateNewUser(rep);
+            if (conflict != null) {
+                status = conflict.startsWith("User exists") ? 409 : 400;
+                body = error(conflict);
+            } else {
+                created = this.insertUser(rep);
+                status = 201;
+                body = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (created != null) {
+            ex.getResponseHeaders().add("Location", this.getBaseUrl() + "/admin/realms/" + realm + "/users/" + created.id);
+        }
+        send(ex, status, body);
+    }
+
+    /**
+     * Must hold the write lock
+     */
+    private String validateNewUser(JsonObject rep) {
+        String username = str(rep, "username");
+        if (username == null || username.isBlank()) {
+            return "User name is missing";
+        }
+        if (usersByName.containsKey(username.toLowerCase(Locale.ROOT))) {
+            return "User exists with same username";
+        }
+        String email = str(rep, "email");
+        if (email != null && this.findByEmail(email) != null) {
+            return "User exists with same email";
+        }
+        return null;
+    }
+
+    /**
+     * Must hold the write lock
+     */
+    private UserRecord insertUser(JsonObject rep) {
+        UserRecord u = new UserRecord();
+        u.id = rep.has("id") && !rep.get("id").isJsonNull() ? rep.get("id").getAsString() : UUID.randomUUID().toString();
+        u.createdTimestamp = System.currentTimeMillis();
+        u.username = str(rep, "username").toLowerCase(Locale.ROOT);
+        u.enabled = false;
+        u.emailVerified = false;
+        this.applyUser(u, rep);
+        usersByName.put(u.username, u);
+        usersById.put(u.id, u);
+        return u;
+    }
+
+    /**
+     * Copies the fields present in the representation, like Keycloak's update
+     */
+    private void applyUser(UserRecord u, JsonObject rep) {
+        if (rep.has("email") && !rep.get("email").isJsonNull()) {
+            u.email = rep.get("email").getAsString().toLowerCase(Locale.ROOT);
+        }
+        if (rep.has("firstName") && !rep.get("firstName").isJsonNull()) {
+            u.firstName = rep.get("firstName").getAsString();
+        }
+        if (rep.has("lastName") && !rep.get("lastName").isJsonNull()) {
+            u.lastName = rep.get("lastName").getAsString();
+        }
+        if (rep.has("enabled") && !rep.get("enabled").isJsonNull()) {
+            u.enabled = rep.get("enabled").getAsBoolean();
+        }
+        if (rep.has("emailVerified") && !rep.get("emailVerified").isJsonNull()) {
+            u.emailVerified = rep.get("emailVerified").getAsBoolean();
+        }
+        if (rep.has("attributes") && rep.get("attributes").isJsonObject()) {
+            u.attributes = rep.getAsJsonObject("attributes").deepCopy();
+        }
+        if (rep.has("requiredActions") && rep.get("requiredActions").isJsonArray()) {
+            u.requiredActions = rep.getAsJsonArray("requiredActions").deepCopy();
+        }
+        if (rep.has("credentials") && rep.get("credentials").isJsonArray()) {
+            for (JsonElement c : rep.getAsJsonArray("credentials")) {
+                if (c.isJsonObject() && "password".equals(str(c.getAsJsonObject(), "type"))) {
+                    u.password = str(c.getAsJsonObject(), "value");
+                    u.credentialData = str(c.getAsJsonObject(), "credentialData");
+                    u.secretData = str(c.getAsJsonObject(), "secretData");
+                }
+            }
+        }
+    }
+
+    private UserRecord findByEmail(String email) {
+        String e = email.toLowerCase(Locale.ROOT);
+        for (UserRecord u : usersById.values()) {
+            if (e.equals(u.email)) {
+                return u;
+            }
+        }
+        return null;
+    }
+
+    private void listUsers(HttpExchange ex, Map<String, String> query) throws IOException {
+        int first = intParam(query, "first", 0);
+        int max = intParam(query, "max", 100);
+        boolean brief = "true".equals(query.get("briefRepresentation"));
+        boolean exact = "true".equals(query.get("exact"));
+        String username = query.get("username");
+        String email = query.get("email");
+        String search = query.get("search");
+        JsonArray out = new JsonArray();
+        lock.readLock().lock();
+        try {
+            int skipped = 0;
+            for (UserRecord u : usersByName.values()) {
+                if (username != null && !matches(u.username, username, exact)) {
+                    continue;
+                }
+                if (email != null && !matches(u.email, email, exact)) {
+                    continue;
+                }
+                if (search != null && !search.isBlank() && !search.equals("*")
+                        && !(matches(u.username, search, false) || matches(u.email, search, false)
+                        || matches(u.firstName, search, false) || matches(u.lastName, search, false))) {
+                    continue;
+                }
+                if (skipped++ < first) {
+                    continue;
+                }
+                if (out.size() >= max) {
+                    break;
+                }
+                out.add(u.toJson(brief));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        send(ex, 200, out.toString());
+    }
+
+    private static boolean matches(String value, String pattern, boolean exact) {
+        if (value == null) {
+            return false;
+        }
+        String p = pattern.toLowerCase(Locale.ROOT).replace("*", "");
+        return exact ? value.equalsIgnoreCase(pattern) : value.toLowerCase(Locale.ROOT).contains(p);
+    }
+
+    private void user(HttpExchange ex, String id, String method) throws IOException {
+        switch (method) {
+            case "GET" -> {
+                JsonObject json;
+                lock.readLock().lock();
+                try {
+                    UserRecord u = usersById.get(id);
+                    json = u == null ? null : u.toJson(false);
+                } finally {
+                    lock.readLock().unlock();
+                }
+                send(ex, json == null ? 404 : 200, json == null ? error("User not found") : json.toString());
+            }
+            case "PUT" -> {
+                JsonObject rep = body(ex).getAsJsonObject();
+                int status;
+                String body = null;
+                lock.writeLock().lock();
+                try {
+                    UserRecord u = usersById.get(id);
+                    String email = str(rep, "email");
+                    UserRecord other = email == null ? null : this.findByEmail(email);
+                    if (u == null) {
+                        status = 404;
+                        body = error("User not found");
+                    } else if (other != null && other != u) {
+                        status = 409;
+                        body = error("User exists with same email");
+                    } else {
+                        this.applyUser(u, rep);
+                        status = 204;
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                send(ex, status, body);
+            }
+            case "DELETE" -> {
+                UserRecord u;
+                lock.writeLock().lock();
+                try {
+                    u = usersById.remove(id);
+                    if (u != null) {
+                        usersByName.remove(u.username);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                send(ex, u == null ? 404 : 204, u == null ? error("User not found") : null);
+            }
+            default ->
+                send(ex, 405, error("Method not allowed"));
+        }
+    }
+
+    private void resetPassword(HttpExchange ex, String id, JsonObject credential) throws IOException {
+        String value = str(credential, "value");
+        int status;
+        lock.writeLock().lock();
+        try {
+            UserRecord u = usersById.get(id);
+            if (u == null) {
+                status = 404;
+            } else if (value == null || value.isEmpty()) {
+                status = 400;
+            } else {
+                u.password = value;
+                u.credentialData = null;
+                u.secretData = null;
+                status = 204;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        send(ex, status, status == 204 ? null : error(status == 404 ? "User not found" : "Password is missing"));
+    }
+
+    private void roleMappings(HttpExchange ex, String id, String method) throws IOException {
+        JsonArray requested = method.equals("GET") ? null : body(ex).getAsJsonArray();
+        int status = 204;
+        String body = null;
+        (method.equals("GET") ? lock.readLock() : lock.writeLock()).lock();
+        try {
+            UserRecord u = usersById.get(id);
+            if (u == null) {
+                status = 404;
+                body = error("User not found");
+            } else if (method.equals("GET")) {
+                JsonArray out = new JsonArray();
+                for (String name : u.roles) {
+                    out.add(roles.get(name).toJson());
+                }
+                status = 200;
+                body = out.toString();
+            } else {
+                List<String> names = new ArrayList<>();
+                for (JsonElement e : requested) {
+                    RoleRecord r = this.resolveRole(e.getAsJsonObject());
+                    if (r == null) {
+                        status = 404;
+                        body = error("Role not found");
+                        break;
+                    }
+                    names.add(r.name);
+                }
+                if (status == 204) {
+                    if (method.equals("POST")) {
+                        u.roles.addAll(names);
+                    } else if (method.equals("DELETE")) {
+                        u.roles.removeAll(names);
+                    } else {
+                        status = 405;
+                    }
+                }
+            }
+        } finally {
+            (method.equals("GET") ? lock.readLock() : lock.writeLock()).unlock();
+        }
+        send(ex, status, body);
+    }
+
+    /**
+     * Must hold a lock. Keycloak resolves mappings by id first, then name.
+     */
+    private RoleRecord resolveRole(JsonObject rep) {
+        String id = str(rep, "id");
+        if (id != null) {
+            for (RoleRecord r : roles.values()) {
+                if (r.id.equals(id)) {
+                    return r;
+                }
+            }
+        }
+        String name = str(rep, "name");
+        return name == null ? null : roles.get(name);
+    }
+
+    private void listRoles(HttpExchange ex, Map<String, String> query) throws IOException {
+        int first = intParam(query, "first", 0);
+        int max = intParam(query, "max", Integer.MAX_VALUE);
+        JsonArray out = new JsonArray();
+        lock.readLock().lock();
+        try {
+            roles.values().stream().skip(first).limit(max).forEach(r -> out.add(r.toJson()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        send(ex, 200, out.toString());
+    }
+
+    private void createRole(HttpExchange ex, JsonObject rep) throws IOException {
+        String name = str(rep, "name");
+        int status;
+        lock.writeLock().lock();
+        try {
+            if (name == null || name.isBlank()) {
+                status = 400;
+            } else if (roles.containsKey(name)) {
+                status = 409;
+            } else {
+                this.insertRole(rep);
+                status = 201;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (status == 201) {
+            ex.getResponseHeaders().add("Location", this.getBaseUrl() + "/admin/realms/" + realm + "/roles/" + name);
+        }
+        send(ex, status, status == 201 ? null : error(status == 409 ? "Role with name " + name + " already exists" : "Role name is missing"));
+    }
+
+    /**
+     * Must hold the write lock
+     */
+    private RoleRecord insertRole(JsonObject rep) {
+        RoleRecord r = new RoleRecord();
+        r.id = UUID.randomUUID().toString();
+        r.name = str(rep, "name");
+        r.description = str(rep, "description");
+        if (rep.has("attributes") && rep.get("attributes").isJsonObject()) {
+            r.attributes = rep.getAsJsonObject("attributes").deepCopy();
+        }
+        roles.put(r.name, r);
+        return r;
+    }
+
+    private void role(HttpExchange ex, String name, String method) throws IOException {
+        if (method.equals("GET")) {
+            JsonObject json;
+            lock.readLock().lock();
+            try {
+                RoleRecord r = roles.get(name);
+                json = r == null ? null : r.toJson();
+            } finally {
+                lock.readLock().unlock();
+            }
+            send(ex, json == null ? 404 : 200, json == null ? error("Could not find role") : json.toString());
+        } else if (method.equals("DELETE")) {
+            RoleRecord r;
+            lock.writeLock().lock();
+            try {
+                r = roles.remove(name);
+                if (r != null) {
+                    usersById.values().forEach(u -> u.roles.remove(name));
+                    roles.values().forEach(o -> o.composites.remove(name));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            send(ex, r == null ? 404 : 204, r == null ? error("Could not find role") : null);
+        } else {
+            send(ex, 405, error("Method not allowed"));
+        }
+    }
+
+    private void roleUsers(HttpExchange ex, String name, Map<String, String> query) throws IOException {
+        int first = intParam(query, "first", 0);
+        int max = intParam(query, "max", 100);
+        JsonArray out = new JsonArray();
+        int status = 200;
+        lock.readLock().lock();
+        try {
+            if (!roles.containsKey(name)) {
+                status = 404;
+            } else {
+                usersByName.values().stream().filter(u -> u.roles.contains(name)).skip(first).limit(max).forEach(u -> out.add(u.toJson(true)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        send(ex, status, status == 200 ? out.toString() : error("Could not find role"));
+    }
+
+    private void composites(HttpExchange ex, String name, String method) throws IOException {
+        JsonArray requested = method.equals("POST") ? body(ex).getAsJsonArray() : null;
+        int status = 200;
+        String body = null;
+        (requested == null ? lock.readLock() : lock.writeLock()).lock();
+        try {
+            RoleRecord r = roles.get(name);
+            if (r == null) {
+                status = 404;
+                body = error("Could not find role");
+            } else if (requested != null) {
+                for (JsonElement e : requested) {
+                    RoleRecord child = this.resolveRole(e.getAsJsonObject());
+                    if (child == null) {
+                        status = 404;
+                        body = error("Could not find composite role");
+                        break;
+                    }
+                    r.composites.add(child.name);
+                }
+                if (status == 200) {
+                    status = 204;
+                }
+            } else {
+                JsonArray out = new JsonArray();
+                r.composites.forEach(c -> out.add(roles.get(c).toJson()));
+                body = out.toString();
+            }
+        } finally {
+            (requested == null ? lock.readLock() : lock.writeLock()).unlock();
+        }
+        send(ex, status, body);
+    }
+
+    /**
+     * Imports realm roles and users in one transaction. With
+     * {@code ifResourceExists=FAIL} (the default) an existing resource
+     * rejects the whole import with 409.
+     */
+    // -------------------------------------------------------------- sessions
+
+    private void listClients(HttpExchange ex, Map<String, String> query) throws IOException {
+        int first = intParam(query, "first", 0);
+        int max = intParam(query, "max", 100);
+        String clientId = query.get("clientId");
+        JsonArray out = new JsonArray();
+        new TreeMap<>(clientUuids).entrySet().stream()
+                .filter(e -> clientId == null || e.getKey().equals(clientId))
+                .skip(first)
+                .limit(max)
+                .forEach(e -> {
+                    JsonObject o = new JsonObject();
+                    o.addProperty("id", e.getValue());
+                    o.addProperty("clientId", e.getKey());
+                    o.addProperty("name", e.getKey());
+                    o.addProperty("enabled", true);
+                    out.add(o);
+                });
+        send(ex, 200, out.toString());
+    }
+
+    private void listSessions(HttpExchange ex, Predicate<SessionRecord> filter, Map<String, String> query) throws IOException {
+        int first = intParam(query, "first", 0);
+        int max = intParam(query, "max", 100);
+        JsonArray out = new JsonArray();
+        lock.readLock().lock();
+        try {
+            sessions.values().stream().filter(filter).skip(first).limit(max).forEach(session -> out.add(session.toJson()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        send(ex, 200, out.toString());
+    }
+
+    private void logout(HttpExchange ex, String userId) throws IOException {
+        boolean found;
+        lock.writeLock().lock();
+        try {
+            found = usersById.containsKey(userId);
+            sessions.values().removeIf(session -> session.userId.equals(userId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        send(ex, found ? 204 : 404, found ? null : error("User not found"));
+    }
+
+    // ---------------------------------------------------------------- groups
+
+    /**
+     * Must hold a lock. Children in name order, like Keycloak.
+     */
+    private List<GroupRecord> childrenOf(String parentId) {
+        List<GroupRecord> children = new ArrayList<>();
+        for (GroupRecord g : groups.values()) {
+            if (parentId == null ? g.parentId == null : parentId.equals(g.parentId)) {
+                children.add(g);
+            }
+        }
+        children.sort((a, b) -> a.name.compareTo(b.name));
+        return children;
+    }
+
+    /**
+     * Must hold a lock
+     */
+    private String pathOf(GroupRecord g) {
+        return g.parentId == null ? "/" + g.name : this.pathOf(groups.get(g.parentId)) + "/" + g.name;
+    }
+
+    /**
+     * Must hold a lock
+     */
+    private JsonObject groupJson(GroupRecord g) {
+        JsonObject o = new JsonObject();
+        o.addProperty("id", g.id);
+        o.addProperty("name", g.name);
+        o.addProperty("path", this.pathOf(g));
+        if (g.parentId != null) {
+            o.addProperty("parentId", g.parentId);
+        }
+        o.addProperty("subGroupCount", this.childrenOf(g.id).size());
+        o.add("subGroups", new JsonArray());
+        return o;
+    }
+
+    private void createGroup(HttpExchange ex, String parentId, JsonObject rep) throws IOException {
+        String name = str(rep, "name");
+        int status;
+        String id = null;
+        lock.writeLock().lock();
+        try {
+            if (parentId != null && !groups.containsKey(parentId)) {
+                status = 404;
+            } else if (name == null || name.isBlank()) {
+                status = 400;
+            } else if (this.childrenOf(parentId).stream().anyMatch(g -> g.name.equals(name))) {
+                status = 409;
+            } else {
+                GroupRecord g = new GroupRecord();
+                g.id = UUID.randomUUID().toString();
+                g.name = name;
+                g.parentId = parentId;
+                groups.put(g.id, g);
+                id = g.id;
+                status = 201;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (status == 201) {
+            ex.getResponseHeaders().add("Location", this.getBaseUrl() + "/admin/realms/" + realm + "/groups/" + id);
+        }
+        send(ex, status, status == 201 ? null : error(status == 404 ? "Could not find parent group" : status == 409 ? "Top level group named '" + name + "' already exists." : "Group name is missing"));
+    }
+
+    private void listGroups(HttpExchange ex, String parentId, Map<String, String> query) throws IOException {
+        int first = intParam(query, "first", 0);
+        int max = intParam(query, "max", 100);
+        String search = query.get("search");
+        JsonArray out = new JsonArray();
+        int status = 200;
+        lock.readLock().lock();
+        try {
+            if (parentId != null && !groups.containsKey(parentId)) {
+                status = 404;
+            } else {
+                this.childrenOf(parentId).stream()
+                        .filter(g -> search == null || matches(g.name, search, false))
+                        .skip(first)
+                        .limit(max)
+                        .forEach(g -> out.add(this.groupJson(g)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        send(ex, status, status == 200 ? out.toString() : error("Could not find group by id"));
+    }
+
+    private void group(HttpExchange ex, String id, String method) throws IOException {
+        JsonObject json = null;
+        boolean found;
+        (method.equals("GET") ? lock.readLock() : lock.writeLock()).lock();
+        try {
+            GroupRecord g = groups.get(id);
+            found = g != null;
+            if (found && method.equals("GET")) {
+                json = this.groupJson(g);
+            } else if (found && method.equals("DELETE")) {
+                List<String> doomed = new ArrayList<>(List.of(id));
+                for (int i = 0; i < doomed.size(); i++) {
+                    for (GroupRecord child : this.childrenOf(doomed.get(i))) {
+                        doomed.add(child.id);
+                    }
+                }
+                doomed.forEach(groups::remove);
+            }
+        } finally {
+            (method.equals("GET") ? lock.readLock() : lock.writeLock()).unlock();
+        }
+        if (!method.equals("GET") && !method.equals("DELETE")) {
+            send(ex, 405, error("Method not allowed"));
+        } else if (!found) {
+            send(ex, 404, error("Could not find group by id"));
+        } else {
+            send(ex, json != null ? 200 : 204, json != null ? json.toString() : null);
+        }
+    }
+
+    private void groupByPath(HttpExchange ex, List<String> names) throws IOException {
+        JsonObject json = null;
+        lock.readLock().lock();
+        try {
+            String parentId = null;
+            GroupRecord found = null;
+            for (String name : names) {
+                found = this.childrenOf(parentId).stream().filter(g -> g.name.equals(name)).findFirst().orElse(null);
+                if (found == null) {
+                    break;
+                }
+                parentId = found.id;
+            }
+            if (found != null) {
+                json = this.groupJson(found);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        send(ex, json == null ? 404 : 200, json == null ? error("Group path does not exist") : json.toString());
+    }
+
+    private void partialImport(HttpExchange ex, JsonObject rep) throws IOException {
+        String policy = rep.has("ifResourceExists") ? rep.get("ifResourceExists").getAsString() : "FAIL";
+        JsonArray roleReps = rep.has("roles") && rep.getAsJsonObject("roles").has("realm")
+                ? rep.getAsJsonObject("roles").getAsJsonArray("realm") : new JsonArray();
+        JsonArray userReps = rep.has("users") ? rep.getAsJsonArray("users") : new JsonArray();
+        JsonArray results = new JsonArray();
+        int added = 0;
+        int skipped = 0;
+        int overwritten = 0;
+        lock.writeLock().lock();
+        try {
+            if (policy.equals("FAIL")) {
+                for (JsonElement e : roleReps) {
+                    if (roles.containsKey(str(e.getAsJsonObject(), "name"))) {
+                        send(ex, 409, error("Realm role '" + str(e.getAsJsonObject(), "name") + "' already exists."));
+                        return;
+                    }
+                }
+                for (JsonElement e : userReps) {
+                    String username = str(e.getAsJsonObject(), "username");
+                    if (username != null && usersByName.containsKey(username.toLowerCase(Locale.ROOT))) {
+                        send(ex, 409, error("User '" + username + "' already exists."));
+                        return;
+                    }
+                }
+            }
+            for (JsonElement e : roleReps) {
+                JsonObject r = e.getAsJsonObject();
+                RoleRecord existing = roles.get(str(r, "name"));
+                String action;
+                if (existing == null) {
+                    existing = this.insertRole(r);
+                    action = "ADDED";
+                    added++;
+                } else if (policy.equals("OVERWRITE")) {
+                    existing.description = str(r, "description");
+                    action = "OVERWRITTEN";
+                    overwritten++;
+                } else {
+                    action = "SKIPPED";
+                    skipped++;
+                }
+                results.add(result(action, "REALM_ROLE", existing.name, existing.id));
+            }
+            for (JsonElement e : userReps) {
+                JsonObject u = e.getAsJsonObject();
+                String username = str(u, "username");
+                if (username == null || username.isBlank()) {
+                    continue;
+                }
+                UserRecord existing = usersByName.get(username.toLowerCase(Locale.ROOT));
+                String action;
+                if (existing == null) {
+                    existing = this.insertUser(u);
+                    action = "ADDED";
+                    added++;
+                } else if (policy.equals("OVERWRITE")) {
+                    usersById.remove(existing.id);
+                    usersByName.remove(existing.username);
+                    existing = this.insertUser(u);
+                    action = "OVERWRITTEN";
+                    overwritten++;
+                } else {
+                    action = "SKIPPED";
+                    skipped++;
+                    results.add(result(action, "USER", existing.username, existing.id));
+                    continue;
+                }
+                if (u.has("realmRoles") && u.get("realmRoles").isJsonArray()) {
+                    for (JsonElement r : u.getAsJsonArray("realmRoles")) {
+                        if (roles.containsKey(r.getAsString())) {
+                            existing.roles.add(r.getAsString());
+                        }
+                    }
+                }
+                results.add(result(action, "USER", existing.username, existing.id));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        JsonObject out = new JsonObject();
+        out.addProperty("overwritten", overwritten);
+        out.addProperty("added", added);
+        out.addProperty("skipped", skipped);
+        out.add("results", results);
+        send(ex, 200, out.toString());
+    }
+
+    private static JsonObject result(String action, String type, String name, String id) {
+        JsonObject o = new JsonObject();
+        o.addProperty("action", action);
+        o.addProperty("resourceType", type);
+        o.addProperty("resourceName", name);
+        o.addProperty("id", id);
+        return o;
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private static JsonElement body(HttpExchange ex) throws IOException {
+        String text = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        return text.isBlank() ? new JsonObject() : JsonParser.parseString(text);
+    }
+
+    /**
+     * Successful admin changes are recorded as admin events before the
+     * response leaves, so the event order follows the client's calls
+     */
+    private void send(HttpExchange ex, int status, String body) throws IOException {
+        List<String> seg = adminCall.get();
+        if (seg != null && status >= 200 && status < 300 && !ex.getRequestMethod().equals("GET")) {
+            adminCall.remove();
+            this.recordEvent(ex, ex.getRequestMethod(), seg);
+        }
+        if (body == null) {
+            ex.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().add("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        JsonObject o = new JsonObject();
+        o.addProperty("errorMessage", message);
+        return GSON.toJson(o);
+    }
+
+    private static String str(JsonObject o, String name) {
+        JsonElement e = o.get(name);
+        return e == null || e.isJsonNull() ? null : e.getAsString();
+    }
+
+    private static int intParam(Map<String, String> query, String name, int def) {
+        String v = query.get(name);
+        return v == null ? def : Integer.parseInt(v);
+    }
+
+    private static Map<String, String> parseQuery(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static final class Hook {
+
+        private final AtomicInteger skip;
+        private final Runnable action;
+
+        private Hook(int skip, Runnable action) {
+            this.skip = new AtomicInteger(skip);
+            this.action = action;
+        }
+    }
+
+    private static final class Fault {
+
+        private final AtomicInteger skip;
+        private final int status;
+        private final AtomicInteger remaining;
+
+        private Fault(int skip, int status, int times) {
+            this.skip = new AtomicInteger(skip);
+            this.status = status;
+            this.remaining = new AtomicInteger(times);
+        }
+    }
+
+    private static final class UserRecord {
+
+        private String id;
+        private String username;
+        private String email;
+        private String firstName;
+        private String lastName;
+        private boolean enabled;
+        private boolean emailVerified;
+        private long createdTimestamp;
+        private String password;
+        private String credentialData;
+        private String secretData;
+        private JsonObject attributes;
+        private JsonArray requiredActions;
+        private final Set<String> roles = new LinkedHashSet<>();
+
+        private JsonObject toJson(boolean brief) {
+            JsonObject o = new JsonObject();
+            o.addProperty("id", id);
+            o.addProperty("username", username);
+            o.addProperty("firstName", firstName);
+            o.addProperty("lastName", lastName);
+            o.addProperty("email", email);
+            o.addProperty("emailVerified", emailVerified);
+            o.addProperty("createdTimestamp", createdTimestamp);
+            o.addProperty("enabled", enabled);
+            if (!brief && attributes != null) {
+                o.add("attributes", attributes);
+            }
+            o.add("requiredActions", requiredActions != null ? requiredActions : new JsonArray());
+            return o;
+        }
+    }
+
+    private static final class SessionRecord {
+
+        private String id;
+        private String userId;
+        private String username;
+        private String ipAddress;
+        private long start;
+        private final Map<String, String> clients = new LinkedHashMap<>();
+
+        private JsonObject toJson() {
+            JsonObject o = new JsonObject();
+            o.addProperty("id", id);
+            o.addProperty("username", username);
+            o.addProperty("userId", userId);
+            o.addProperty("ipAddress", ipAddress);
+            o.addProperty("start", start);
+            o.addProperty("lastAccess", start);
+            o.addProperty("rememberMe", false);
+            JsonObject c = new JsonObject();
+            clients.forEach(c::addProperty);
+            o.add("clients", c);
+            return o;
+        }
+    }
+
+    private static final class GroupRecord {
+
+        private String id;
+        private String name;
+        private String parentId;
+    }
+
+    private static final class RoleRecord {
+
+        private String id;
+        private String name;
+        private String description;
+        private JsonObject attributes;
+        private final Set<String> composites = new LinkedHashSet<>();
+
+        private JsonObject toJson() {
+            JsonObject o = new JsonObject();
+            o.addProperty("id", id);
+            o.addProperty("name", name);
+            o.addProperty("description", description);
+            o.addProperty("composite", !composites.isEmpty());
+            o.addProperty("clientRole", false);
+            o.addProperty("containerId", "realm-id");
+            if (attributes != null) {
+                o.add("attributes", attributes);
+            }
+            return o;
+        }
+    }
+}